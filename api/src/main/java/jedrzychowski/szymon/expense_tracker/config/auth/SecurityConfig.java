@@ -1,5 +1,6 @@
 package jedrzychowski.szymon.expense_tracker.config.auth;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -30,6 +31,8 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        //Streamed responses are completed in an async dispatch of an already authorized request
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/expense-tracker/v1/auth/**").permitAll()
                         .requestMatchers("/expense-tracker/v1/health-check/**").permitAll()
                         .requestMatchers("/swagger-ui/**").permitAll()
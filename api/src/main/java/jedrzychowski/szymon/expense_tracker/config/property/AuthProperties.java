@@ -9,6 +9,10 @@ public class AuthProperties {
 
     private String jwtSecretKey;
 
+    private int ownershipCacheSize = 10000;
+
+    private long ownershipCacheTtl = 60000;
+
     public String getJwtSecretKey() {
         return jwtSecretKey;
     }
@@ -16,4 +20,20 @@ public class AuthProperties {
     public void setJwtSecretKey(String jwtSecretKey) {
         this.jwtSecretKey = jwtSecretKey;
     }
+
+    public int getOwnershipCacheSize() {
+        return ownershipCacheSize;
+    }
+
+    public void setOwnershipCacheSize(int ownershipCacheSize) {
+        this.ownershipCacheSize = ownershipCacheSize;
+    }
+
+    public long getOwnershipCacheTtl() {
+        return ownershipCacheTtl;
+    }
+
+    public void setOwnershipCacheTtl(long ownershipCacheTtl) {
+        this.ownershipCacheTtl = ownershipCacheTtl;
+    }
 }
@@ -0,0 +1,59 @@
+package jedrzychowski.szymon.expense_tracker.config.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "balance")
+public class BalanceProperties {
+
+    private boolean deferredRebalance;
+
+    private long rebalanceInterval = 1000;
+
+    private int writeStripes = 64;
+
+    private int maxWriteGroupSize = 50;
+
+    private boolean rebuildProjections;
+
+    public boolean isDeferredRebalance() {
+        return deferredRebalance;
+    }
+
+    public void setDeferredRebalance(boolean deferredRebalance) {
+        this.deferredRebalance = deferredRebalance;
+    }
+
+    public long getRebalanceInterval() {
+        return rebalanceInterval;
+    }
+
+    public void setRebalanceInterval(long rebalanceInterval) {
+        this.rebalanceInterval = rebalanceInterval;
+    }
+
+    public int getWriteStripes() {
+        return writeStripes;
+    }
+
+    public void setWriteStripes(int writeStripes) {
+        this.writeStripes = writeStripes;
+    }
+
+    public int getMaxWriteGroupSize() {
+        return maxWriteGroupSize;
+    }
+
+    public void setMaxWriteGroupSize(int maxWriteGroupSize) {
+        this.maxWriteGroupSize = maxWriteGroupSize;
+    }
+
+    public boolean isRebuildProjections() {
+        return rebuildProjections;
+    }
+
+    public void setRebuildProjections(boolean rebuildProjections) {
+        this.rebuildProjections = rebuildProjections;
+    }
+}
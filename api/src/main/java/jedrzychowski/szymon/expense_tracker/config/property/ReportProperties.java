@@ -0,0 +1,64 @@
+package jedrzychowski.szymon.expense_tracker.config.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "report")
+public class ReportProperties {
+
+    private boolean rebuildSummaries;
+    private int analyticsCacheSize;
+    private long analyticsCacheTtl;
+    private int analyticsParallelThreshold;
+    private int statisticsCacheSize;
+    private long statisticsCacheTtl;
+
+    public boolean isRebuildSummaries() {
+        return rebuildSummaries;
+    }
+
+    public void setRebuildSummaries(boolean rebuildSummaries) {
+        this.rebuildSummaries = rebuildSummaries;
+    }
+
+    public int getAnalyticsCacheSize() {
+        return analyticsCacheSize;
+    }
+
+    public void setAnalyticsCacheSize(int analyticsCacheSize) {
+        this.analyticsCacheSize = analyticsCacheSize;
+    }
+
+    public long getAnalyticsCacheTtl() {
+        return analyticsCacheTtl;
+    }
+
+    public void setAnalyticsCacheTtl(long analyticsCacheTtl) {
+        this.analyticsCacheTtl = analyticsCacheTtl;
+    }
+
+    public int getAnalyticsParallelThreshold() {
+        return analyticsParallelThreshold;
+    }
+
+    public void setAnalyticsParallelThreshold(int analyticsParallelThreshold) {
+        this.analyticsParallelThreshold = analyticsParallelThreshold;
+    }
+
+    public int getStatisticsCacheSize() {
+        return statisticsCacheSize;
+    }
+
+    public void setStatisticsCacheSize(int statisticsCacheSize) {
+        this.statisticsCacheSize = statisticsCacheSize;
+    }
+
+    public long getStatisticsCacheTtl() {
+        return statisticsCacheTtl;
+    }
+
+    public void setStatisticsCacheTtl(long statisticsCacheTtl) {
+        this.statisticsCacheTtl = statisticsCacheTtl;
+    }
+}
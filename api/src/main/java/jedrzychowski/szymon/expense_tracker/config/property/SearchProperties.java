@@ -0,0 +1,28 @@
+package jedrzychowski.szymon.expense_tracker.config.property;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "search")
+public class SearchProperties {
+
+    private int indexCacheSize;
+    private long indexCacheTtl;
+
+    public int getIndexCacheSize() {
+        return indexCacheSize;
+    }
+
+    public void setIndexCacheSize(int indexCacheSize) {
+        this.indexCacheSize = indexCacheSize;
+    }
+
+    public long getIndexCacheTtl() {
+        return indexCacheTtl;
+    }
+
+    public void setIndexCacheTtl(long indexCacheTtl) {
+        this.indexCacheTtl = indexCacheTtl;
+    }
+}
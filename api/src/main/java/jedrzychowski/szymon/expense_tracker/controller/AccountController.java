@@ -5,6 +5,7 @@ import jedrzychowski.szymon.expense_tracker.config.exception.DataConflictExcepti
 import jedrzychowski.szymon.expense_tracker.config.exception.DataNotFoundException;
 import jedrzychowski.szymon.expense_tracker.config.exception.ReasonedResponseStatusException;
 import jedrzychowski.szymon.expense_tracker.config.exception.UnauthorizedUserAccessException;
+import jedrzychowski.szymon.expense_tracker.entity.dto.account.AccountDTO;
 import jedrzychowski.szymon.expense_tracker.entity.dto.account.CreateAccountRequestDTO;
 import jedrzychowski.szymon.expense_tracker.entity.dto.account.UpdateAccountRequestDTO;
 import jedrzychowski.szymon.expense_tracker.entity.Account;
@@ -33,7 +34,7 @@ public class AccountController {
      * @return a list of accounts belonging to the user
      */
     @GetMapping
-    public List<Account> getAllAccounts(@AuthenticationPrincipal AppUser appUser) {
+    public List<AccountDTO> getAllAccounts(@AuthenticationPrincipal AppUser appUser) {
         return accountService.getAllAccounts(appUser);
     }
 
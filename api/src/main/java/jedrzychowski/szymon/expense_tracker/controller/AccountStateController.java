@@ -5,9 +5,22 @@ import jedrzychowski.szymon.expense_tracker.config.exception.ParamValidationExce
 import jedrzychowski.szymon.expense_tracker.config.exception.UnauthorizedUserAccessException;
 import jedrzychowski.szymon.expense_tracker.entity.AccountState;
 import jedrzychowski.szymon.expense_tracker.entity.AppUser;
+import jedrzychowski.szymon.expense_tracker.entity.ReportPeriod;
+import jedrzychowski.szymon.expense_tracker.entity.dto.accountState.AccountBalancePointDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.accountState.AccountStateDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.page.PageDTO;
 import jedrzychowski.szymon.expense_tracker.service.AccountStateService;
+import jedrzychowski.szymon.expense_tracker.service.AccountVersionService;
+import jedrzychowski.szymon.expense_tracker.service.ExportService;
+import jedrzychowski.szymon.expense_tracker.util.FieldsUtil;
+import jedrzychowski.szymon.expense_tracker.util.PageUtil;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -17,29 +30,111 @@ import java.util.List;
 public class AccountStateController {
 
     private final AccountStateService accountStateService;
+    private final ExportService exportService;
+    private final AccountVersionService accountVersionService;
 
-    public AccountStateController(AccountStateService accountStateService) {
+    public AccountStateController(AccountStateService accountStateService,
+                                  ExportService exportService,
+                                  AccountVersionService accountVersionService) {
         this.accountStateService = accountStateService;
+        this.exportService = exportService;
+        this.accountVersionService = accountVersionService;
     }
 
     /**
      * Retrieves AccountStates, optionally filtered by Account ID and date range.
      *
-     * @param appUser   the currently authorized AppUser
-     * @param accountId optional ID of the Account to filter by
-     * @param startDate optional start date for filtering AccountStates
-     * @param endDate   optional end date for filtering AccountStates
-     * @return a list of AccountStates matching the filters
-     * @throws ParamValidationException        if startDate is later than endDate
+     * @param appUser    the currently authorized AppUser
+     * @param accountId  optional ID of the Account to filter by
+     * @param startDate  optional start date for filtering AccountStates
+     * @param endDate    optional end date for filtering AccountStates
+     * @param limit      optional maximum number of AccountStates in the page, {@value PageUtil#DEFAULT_LIMIT} if
+     *                   only cursor is given
+     * @param cursor     optional cursor returned as next with the previous page
+     * @param fields     optional comma-separated fields of the AccountStates to return, all fields by default
+     * @param webRequest the current request, answered with 304 Not Modified if its If-None-Match header
+     *                   matches the ETag derived from the change versions of the Accounts in scope
+     * @return a page of AccountStates matching the filters if limit or cursor is given, otherwise all of them as an
+     *         array, ordered by date and ID, null if not modified
+     * @throws ParamValidationException        if startDate is later than endDate, limit is out of range, cursor
+     *                                         is not valid or fields contains an unknown field
      * @throws DataNotFoundException           if no account with the specified accountId is found
      * @throws UnauthorizedUserAccessException if the account does not belong to the authorized user
      */
     @GetMapping
-    public List<AccountState> getAllAccountStates(@AuthenticationPrincipal AppUser appUser,
-                                                  @RequestParam(required = false) Long accountId,
-                                                  @RequestParam(required = false) LocalDate startDate,
-                                                  @RequestParam(required = false) LocalDate endDate) {
-        return accountStateService.getAllAccountStates(appUser, accountId, startDate, endDate);
+    public MappingJacksonValue getAllAccountStates(@AuthenticationPrincipal AppUser appUser,
+                                                   @RequestParam(required = false) Long accountId,
+                                                   @RequestParam(required = false) LocalDate startDate,
+                                                   @RequestParam(required = false) LocalDate endDate,
+                                                   @RequestParam(required = false) Integer limit,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(required = false) List<String> fields,
+                                                   WebRequest webRequest) {
+        if (webRequest.checkNotModified(
+                accountVersionService.getListETag(appUser, accountId, startDate, endDate, limit, cursor, fields))) {
+            return null;
+        }
+        PageDTO<AccountStateDTO> page =
+                accountStateService.getAllAccountStates(appUser, accountId, startDate, endDate, limit, cursor, fields);
+        return FieldsUtil.filter(PageUtil.isPaged(limit, cursor) ? page : page.items(), fields);
+    }
+
+    /**
+     * Streams AccountStates as newline delimited JSON, optionally filtered by Account ID and date range.
+     * Rows are written while they are read from the database, so the response is not limited in size.
+     *
+     * @param appUser   the currently authorized AppUser
+     * @param accountId optional ID of the Account to filter by
+     * @param startDate optional start date to filter AccountStates
+     * @param endDate   optional end date to filter AccountStates
+     * @return a stream of AccountStates matching the filters, one per line, ordered by date and ID
+     * @throws ParamValidationException        if startDate is later than endDate
+     * @throws DataNotFoundException           if no Account with the specified accountId is found
+     * @throws UnauthorizedUserAccessException if the Account does not belong to the authorized user
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllAccountStates(@AuthenticationPrincipal AppUser appUser,
+                                                                        @RequestParam(required = false) Long accountId,
+                                                                        @RequestParam(required = false) LocalDate startDate,
+                                                                        @RequestParam(required = false) LocalDate endDate) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(exportService.streamAllAccountStates(appUser, accountId, startDate, endDate));
+    }
+
+    /**
+     * Retrieves the balance series of an Account, or the net worth series of all Accounts, for charts, with one
+     * point per period between the dates. Periods without AccountStates carry the balance of the previous period
+     * forward.
+     *
+     * @param appUser    the currently authorized AppUser
+     * @param accountId  optional ID of the Account, the series sums all Accounts of the AppUser without it
+     * @param startDate  optional first date of the series, the date of the first AccountState by default
+     * @param endDate    optional last date of the series, today by default
+     * @param period     length of the periods (DAY, WEEK, MONTH or YEAR), DAY by default
+     * @param points     optional number of points to downsample the series to with largest-triangle-three-buckets
+     * @param webRequest the current request, answered with 304 Not Modified if its If-None-Match header
+     *                   matches the ETag derived from the change versions of the Accounts in scope
+     * @return balance at the end of every period, dated with the start of the period, null if not modified
+     * @throws ParamValidationException        if startDate is later than endDate, the series is too long or points
+     *                                         is out of range
+     * @throws DataNotFoundException           if no Account with the specified accountId is found
+     * @throws UnauthorizedUserAccessException if the Account does not belong to the authorized user
+     */
+    @GetMapping("/series")
+    public List<AccountBalancePointDTO> getAccountStateSeries(@AuthenticationPrincipal AppUser appUser,
+                                                              @RequestParam(required = false) Long accountId,
+                                                              @RequestParam(required = false) LocalDate startDate,
+                                                              @RequestParam(required = false) LocalDate endDate,
+                                                              @RequestParam(defaultValue = "DAY") ReportPeriod period,
+                                                              @RequestParam(required = false) Integer points,
+                                                              WebRequest webRequest) {
+        //Open-ended series end today, so the ETag changes with the date as well
+        if (webRequest.checkNotModified(accountVersionService.getListETag(
+                appUser, accountId, startDate, endDate == null ? LocalDate.now() : endDate, period, points))) {
+            return null;
+        }
+        return accountStateService.getAccountStateSeries(appUser, accountId, startDate, endDate, period, points);
     }
 
     /**
@@ -3,13 +3,30 @@ package jedrzychowski.szymon.expense_tracker.controller;
 import jakarta.validation.Valid;
 import jedrzychowski.szymon.expense_tracker.config.exception.*;
 import jedrzychowski.szymon.expense_tracker.entity.dto.expense.CreateExpenseRequestDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseBatchRequestDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseBatchResponseDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ImportExpensesResponseDTO;
 import jedrzychowski.szymon.expense_tracker.entity.dto.expense.UpdateExpenseRequestDTO;
 import jedrzychowski.szymon.expense_tracker.entity.*;
+import jedrzychowski.szymon.expense_tracker.entity.dto.page.PageDTO;
+import jedrzychowski.szymon.expense_tracker.service.ExpenseImportService;
+import jedrzychowski.szymon.expense_tracker.service.ExpenseSearchService;
 import jedrzychowski.szymon.expense_tracker.service.ExpenseService;
+import jedrzychowski.szymon.expense_tracker.service.AccountVersionService;
+import jedrzychowski.szymon.expense_tracker.service.ExportService;
+import jedrzychowski.szymon.expense_tracker.util.FieldsUtil;
+import jedrzychowski.szymon.expense_tracker.util.PageUtil;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.Reader;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -18,29 +35,108 @@ import java.util.List;
 public class ExpenseController {
 
     private final ExpenseService expenseService;
+    private final ExpenseImportService expenseImportService;
+    private final ExportService exportService;
+    private final AccountVersionService accountVersionService;
+    private final ExpenseSearchService expenseSearchService;
 
-    public ExpenseController(ExpenseService expenseService) {
+    public ExpenseController(ExpenseService expenseService,
+                             ExpenseImportService expenseImportService,
+                             ExportService exportService,
+                             AccountVersionService accountVersionService,
+                             ExpenseSearchService expenseSearchService) {
         this.expenseService = expenseService;
+        this.expenseImportService = expenseImportService;
+        this.exportService = exportService;
+        this.accountVersionService = accountVersionService;
+        this.expenseSearchService = expenseSearchService;
     }
 
     /**
      * Retrieves expenses, optionally filtered by Account ID and date range.
      *
+     * @param appUser    the currently authorized AppUser
+     * @param accountId  optional ID of the Account to filter expenses by
+     * @param startDate  optional start date to filter expenses
+     * @param endDate    optional end date to filter expenses
+     * @param limit      optional maximum number of expenses in the page, {@value PageUtil#DEFAULT_LIMIT} if only
+     *                   cursor is given
+     * @param cursor     optional cursor returned as next with the previous page
+     * @param fields     optional comma-separated fields of the expenses to return, all fields by default
+     * @param webRequest the current request, answered with 304 Not Modified if its If-None-Match header
+     *                   matches the ETag derived from the change versions of the Accounts in scope
+     * @return a page of expenses matching the filters if limit or cursor is given, otherwise all of them as an
+     *         array, ordered by date and ID, null if not modified
+     * @throws ParamValidationException        if startDate is later than endDate, limit is out of range, cursor
+     *                                         is not valid or fields contains an unknown field
+     * @throws DataNotFoundException           if no Account with the specified accountId is found
+     * @throws UnauthorizedUserAccessException if the Account does not belong to the authorized user
+     */
+    @GetMapping
+    public MappingJacksonValue getAllExpenses(@AuthenticationPrincipal AppUser appUser,
+                                              @RequestParam(required = false) Long accountId,
+                                              @RequestParam(required = false) LocalDate startDate,
+                                              @RequestParam(required = false) LocalDate endDate,
+                                              @RequestParam(required = false) Integer limit,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) List<String> fields,
+                                              WebRequest webRequest) {
+        if (webRequest.checkNotModified(
+                accountVersionService.getListETag(appUser, accountId, startDate, endDate, limit, cursor, fields))) {
+            return null;
+        }
+        PageDTO<ExpenseDTO> page =
+                expenseService.getAllExpenses(appUser, accountId, startDate, endDate, limit, cursor, fields);
+        return FieldsUtil.filter(PageUtil.isPaged(limit, cursor) ? page : page.items(), fields);
+    }
+
+    /**
+     * Streams expenses as newline delimited JSON, optionally filtered by Account ID and date range.
+     * Rows are written while they are read from the database, so the response is not limited in size.
+     *
      * @param appUser   the currently authorized AppUser
      * @param accountId optional ID of the Account to filter expenses by
      * @param startDate optional start date to filter expenses
      * @param endDate   optional end date to filter expenses
-     * @return a list of expenses matching the filters
+     * @return a stream of expenses matching the filters, one per line, ordered by date and ID
      * @throws ParamValidationException        if startDate is later than endDate
      * @throws DataNotFoundException           if no Account with the specified accountId is found
      * @throws UnauthorizedUserAccessException if the Account does not belong to the authorized user
      */
-    @GetMapping
-    public List<Expense> getAllExpenses(@AuthenticationPrincipal AppUser appUser,
-                                        @RequestParam(required = false) Long accountId,
-                                        @RequestParam(required = false) LocalDate startDate,
-                                        @RequestParam(required = false) LocalDate endDate) {
-        return expenseService.getAllExpenses(appUser, accountId, startDate, endDate);
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllExpenses(@AuthenticationPrincipal AppUser appUser,
+                                                                   @RequestParam(required = false) Long accountId,
+                                                                   @RequestParam(required = false) LocalDate startDate,
+                                                                   @RequestParam(required = false) LocalDate endDate) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(exportService.streamAllExpenses(appUser, accountId, startDate, endDate));
+    }
+
+    /**
+     * Searches expense descriptions, optionally filtered by Account ID and date range. Every word of the query has
+     * to match a word of the description exactly, as a prefix or with a typo.
+     *
+     * @param appUser   the currently authorized AppUser
+     * @param query     text to search for
+     * @param accountId optional ID of the Account to filter expenses by
+     * @param startDate optional start date to filter expenses
+     * @param endDate   optional end date to filter expenses
+     * @param limit     maximum number of expenses, {@value PageUtil#DEFAULT_LIMIT} by default
+     * @return expenses matching the query and filters, best match first
+     * @throws ParamValidationException        if query has no words, startDate is later than endDate or limit is
+     *                                         out of range
+     * @throws DataNotFoundException           if no Account with the specified accountId is found
+     * @throws UnauthorizedUserAccessException if the Account does not belong to the authorized user
+     */
+    @GetMapping("/search")
+    public List<ExpenseDTO> searchExpenses(@AuthenticationPrincipal AppUser appUser,
+                                           @RequestParam String query,
+                                           @RequestParam(required = false) Long accountId,
+                                           @RequestParam(required = false) LocalDate startDate,
+                                           @RequestParam(required = false) LocalDate endDate,
+                                           @RequestParam(defaultValue = "" + PageUtil.DEFAULT_LIMIT) int limit) {
+        return expenseSearchService.searchExpenses(appUser, query, accountId, startDate, endDate, limit);
     }
 
     /**
@@ -76,6 +172,44 @@ public class ExpenseController {
         return expenseService.createExpense(appUser, createExpenseRequestDTO);
     }
 
+    /**
+     * Creates, updates and deletes multiple Expenses in one transaction. Either all operations are applied or none.
+     *
+     * @param appUser                the currently authorized AppUser
+     * @param expenseBatchRequestDTO DTO containing Expenses to create, update and IDs of Expenses to delete
+     * @return created and updated Expenses and IDs of deleted Expenses
+     * @throws DataValidationException         if validation of any operation fails
+     * @throws DataNotFoundException           if no Expense, Expense Type or Account with specified IDs is found
+     * @throws UnauthorizedUserAccessException if any Account or Expense does not belong to the authorized user
+     * @throws ForbiddenActionException        if any Expense Type cannot be used for the specified Account
+     */
+    @PostMapping("/batch")
+    public ExpenseBatchResponseDTO applyExpenseBatch(@AuthenticationPrincipal AppUser appUser,
+                                                     @RequestBody @Valid ExpenseBatchRequestDTO expenseBatchRequestDTO) {
+        return expenseService.applyExpenseBatch(appUser, expenseBatchRequestDTO);
+    }
+
+    /**
+     * Imports Expenses from a CSV bank statement. The body is read line by line and copied to a temporary file
+     * while it is validated, so it is never held in memory. The first line must be a header with the columns of
+     * CreateExpenseRequestDTO (date, movementAmount, refundAmount, expenseTypeId, description, accountId). Either
+     * all lines are imported or none.
+     *
+     * @param appUser the currently authorized AppUser
+     * @param reader  reader of the CSV body
+     * @return number of imported Expenses and IDs of the touched Accounts
+     * @throws DataValidationException         if the header is invalid or any line fails parsing or validation
+     * @throws DataNotFoundException           if no Expense Type or Account with specified IDs is found
+     * @throws UnauthorizedUserAccessException if any Account does not belong to the authorized user
+     * @throws ForbiddenActionException        if any Expense Type cannot be used for the specified Account
+     */
+    @PostMapping(value = "/import", consumes = "text/csv")
+    @ResponseStatus(HttpStatus.CREATED)
+    public ImportExpensesResponseDTO importExpenses(@AuthenticationPrincipal AppUser appUser,
+                                                    Reader reader) {
+        return expenseImportService.importExpenses(appUser, reader);
+    }
+
     /**
      * Updates an existing Expense.
      *
@@ -3,13 +3,16 @@ package jedrzychowski.szymon.expense_tracker.controller;
 import jakarta.validation.Valid;
 import jedrzychowski.szymon.expense_tracker.config.exception.DataConflictException;
 import jedrzychowski.szymon.expense_tracker.config.exception.DataNotFoundException;
+import jedrzychowski.szymon.expense_tracker.config.exception.ParamValidationException;
 import jedrzychowski.szymon.expense_tracker.config.exception.UnauthorizedUserAccessException;
 import jedrzychowski.szymon.expense_tracker.entity.dto.expenseType.CreateExpenseTypeRequestDTO;
 import jedrzychowski.szymon.expense_tracker.entity.dto.expenseType.UpdateExpenseTypeRequestDTO;
 import jedrzychowski.szymon.expense_tracker.entity.AppUser;
 import jedrzychowski.szymon.expense_tracker.entity.ExpenseType;
 import jedrzychowski.szymon.expense_tracker.service.ExpenseTypeService;
+import jedrzychowski.szymon.expense_tracker.util.FieldsUtil;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
@@ -30,14 +33,17 @@ public class ExpenseTypeController {
      *
      * @param appUser   the currently authorized AppUser
      * @param accountId optional ID of the Account to filter ExpenseTypes by
+     * @param fields    optional comma-separated fields of the ExpenseTypes to return, all fields by default
      * @return a list of ExpenseTypes matching the filter
+     * @throws ParamValidationException        if fields contains an unknown field
      * @throws DataNotFoundException           if no account with the specified accountId is found
      * @throws UnauthorizedUserAccessException if the account does not belong to the authorized user
      */
     @GetMapping
-    public List<ExpenseType> getAllExpenseTypes(@AuthenticationPrincipal AppUser appUser,
-                                                @RequestParam(required = false) Long accountId) {
-        return expenseTypeService.getAllExpenseTypes(appUser, accountId);
+    public MappingJacksonValue getAllExpenseTypes(@AuthenticationPrincipal AppUser appUser,
+                                                  @RequestParam(required = false) Long accountId,
+                                                  @RequestParam(required = false) List<String> fields) {
+        return FieldsUtil.filter(expenseTypeService.getAllExpenseTypes(appUser, accountId, fields), fields);
     }
 
     /**
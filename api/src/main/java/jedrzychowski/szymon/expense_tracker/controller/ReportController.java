@@ -0,0 +1,84 @@
+package jedrzychowski.szymon.expense_tracker.controller;
+
+import jedrzychowski.szymon.expense_tracker.config.exception.DataNotFoundException;
+import jedrzychowski.szymon.expense_tracker.config.exception.ParamValidationException;
+import jedrzychowski.szymon.expense_tracker.config.exception.UnauthorizedUserAccessException;
+import jedrzychowski.szymon.expense_tracker.entity.AppUser;
+import jedrzychowski.szymon.expense_tracker.entity.ReportPeriod;
+import jedrzychowski.szymon.expense_tracker.entity.dto.report.ExpenseStatisticsDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.report.SpendingReportRowDTO;
+import jedrzychowski.szymon.expense_tracker.service.ExpenseStatisticsService;
+import jedrzychowski.szymon.expense_tracker.service.ReportService;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("expense-tracker/v1/reports")
+public class ReportController {
+
+    private final ReportService reportService;
+    private final ExpenseStatisticsService expenseStatisticsService;
+
+    public ReportController(ReportService reportService,
+                            ExpenseStatisticsService expenseStatisticsService) {
+        this.reportService = reportService;
+        this.expenseStatisticsService = expenseStatisticsService;
+    }
+
+    /**
+     * Retrieves spending totals grouped by period, Account and Expense Type, optionally filtered by Account ID
+     * and date range.
+     *
+     * @param appUser   the currently authorized AppUser
+     * @param accountId optional ID of the Account to filter expenses by
+     * @param startDate optional start date to filter expenses
+     * @param endDate   optional end date to filter expenses
+     * @param period    length of the periods (DAY, WEEK, MONTH or YEAR), MONTH by default
+     * @return movement, refund and number of expenses per period, Account and Expense Type
+     * @throws ParamValidationException        if startDate is later than endDate
+     * @throws DataNotFoundException           if no Account with the specified accountId is found
+     * @throws UnauthorizedUserAccessException if the Account does not belong to the authorized user
+     */
+    @GetMapping("/spending")
+    public List<SpendingReportRowDTO> getSpendingReport(@AuthenticationPrincipal AppUser appUser,
+                                                        @RequestParam(required = false) Long accountId,
+                                                        @RequestParam(required = false) LocalDate startDate,
+                                                        @RequestParam(required = false) LocalDate endDate,
+                                                        @RequestParam(defaultValue = "MONTH") ReportPeriod period) {
+        return reportService.getSpendingReport(appUser, accountId, startDate, endDate, period);
+    }
+
+    /**
+     * Retrieves statistics of spending Expenses, the ones with a negative movement amount, optionally filtered by
+     * Account ID, Expense Type ID and date range.
+     *
+     * @param appUser       the currently authorized AppUser
+     * @param accountId     optional ID of the Account to filter expenses by
+     * @param expenseTypeId optional ID of the Expense Type to filter expenses by
+     * @param startDate     optional start date to filter expenses
+     * @param endDate       optional end date to filter expenses
+     * @param limit         number of largest expenses to return, 20 by default
+     * @param percentiles   percentiles of the amounts spent to estimate, 50, 90 and 99 by default
+     * @return number of expenses, estimated percentiles of the amounts spent and the expenses with the largest
+     * amounts spent, largest first
+     * @throws ParamValidationException        if startDate is later than endDate, limit is out of range or a
+     *                                         percentile is not between 0 and 100
+     * @throws DataNotFoundException           if no Account or Expense Type with the specified ID is found
+     * @throws UnauthorizedUserAccessException if the Account or Expense Type does not belong to the authorized user
+     */
+    @GetMapping("/statistics")
+    public ExpenseStatisticsDTO getExpenseStatistics(@AuthenticationPrincipal AppUser appUser,
+                                                     @RequestParam(required = false) Long accountId,
+                                                     @RequestParam(required = false) Long expenseTypeId,
+                                                     @RequestParam(required = false) LocalDate startDate,
+                                                     @RequestParam(required = false) LocalDate endDate,
+                                                     @RequestParam(defaultValue = "20") int limit,
+                                                     @RequestParam(defaultValue = "50,90,99") List<Double> percentiles) {
+        return expenseStatisticsService.getExpenseStatistics(
+                appUser, accountId, expenseTypeId, startDate, endDate, limit, percentiles
+        );
+    }
+}
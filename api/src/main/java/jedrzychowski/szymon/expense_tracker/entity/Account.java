@@ -2,6 +2,7 @@ package jedrzychowski.szymon.expense_tracker.entity;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonIdentityReference;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import jakarta.persistence.*;
@@ -15,6 +16,9 @@ import java.util.List;
 @Table(
         uniqueConstraints = {
                 @UniqueConstraint(columnNames = {"name", "app_user_id"})
+        },
+        indexes = {
+                @Index(columnList = "id, app_user_id")
         }
 )
 @JsonIgnoreProperties("expenseTypes")
@@ -32,6 +36,13 @@ public class Account {
     @Column(nullable = false)
     private String name;
 
+    /**
+     * Incremented with bulk updates whenever Expenses or ExpenseTypes of the Account change, never by the entity.
+     */
+    @Column(nullable = false, updatable = false)
+    @JsonIgnore
+    private long changeVersion;
+
     @OneToMany(mappedBy = "account", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<ExpenseType> expenseTypes;
 
@@ -82,7 +93,7 @@ public class Account {
 
     public void validateIfAccountIsOwnedByCurrentUser(AppUser appUser) throws
                                                                        UnauthorizedUserAccessException {
-        if (!this.appUser.equals(appUser)) {
+        if (!this.appUser.getId().equals(appUser.getId())) {
             throw new UnauthorizedUserAccessException("Account is not owned by authorised user.");
         }
     }
@@ -0,0 +1,62 @@
+package jedrzychowski.szymon.expense_tracker.entity;
+
+import jakarta.persistence.*;
+import jedrzychowski.szymon.expense_tracker.entity.converter.MoneyConverter;
+
+import java.time.LocalDate;
+
+/**
+ * Balance of an Account at the start of a month and its net movement within the month. The balance at the end of
+ * any date is the opening balance of its month plus the change within the month stored in the AccountState, so a
+ * back-dated movement rewrites AccountStates only up to the end of its month and opening balances of later months.
+ */
+@Entity
+@Table(
+        uniqueConstraints = {
+                @UniqueConstraint(columnNames = {"account_id", "month_start"})
+        }
+)
+public class AccountBalanceCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @ManyToOne(optional = false)
+    @JoinColumn(name = "account_id", nullable = false)
+    private Account account;
+
+    @Column(name = "month_start", nullable = false)
+    private LocalDate monthStart;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    private long openingBalance;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    private long movement;
+
+    public AccountBalanceCheckpoint() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Account getAccount() {
+        return account;
+    }
+
+    public LocalDate getMonthStart() {
+        return monthStart;
+    }
+
+    public long getOpeningBalance() {
+        return openingBalance;
+    }
+
+    public long getMovement() {
+        return movement;
+    }
+}
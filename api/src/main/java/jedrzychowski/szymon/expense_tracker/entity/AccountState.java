@@ -4,15 +4,36 @@ import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonIdentityReference;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import jakarta.persistence.*;
+import jedrzychowski.szymon.expense_tracker.entity.converter.MoneyConverter;
+import jedrzychowski.szymon.expense_tracker.entity.serializer.MoneySerializer;
+import org.hibernate.annotations.Formula;
 
 import java.time.LocalDate;
+import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@JsonIgnoreProperties("expenses")
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"account_id", "date"}))
+@JsonIgnoreProperties({"expenses", "monthAmount"})
 public class AccountState {
 
+    /**
+     * Opening balance of the month from its checkpoint, the latest one starting on or before the date, plus the
+     * change within the month.
+     */
+    private static final String CURRENT_AMOUNT = """
+            month_amount + COALESCE((
+                SELECT checkpoint.opening_balance
+                FROM account_balance_checkpoint checkpoint
+                WHERE checkpoint.account_id = account_id AND checkpoint.month_start = (
+                    SELECT MAX(latest.month_start)
+                    FROM account_balance_checkpoint latest
+                    WHERE latest.account_id = account_id AND latest.month_start <= date
+                )
+            ), 0)""";
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
@@ -20,17 +41,32 @@ public class AccountState {
     @Column(nullable = false)
     private LocalDate date;
 
-    @Column(nullable = false)
-    private Float currentAmount;
-
-    @Column(nullable = false)
-    private Float negativeMovement;
-
-    @Column(nullable = false)
-    private Float positiveMovement;
-
-    @Column(nullable = false)
-    private Float refundAmount;
+    /**
+     * Change of the balance from the start of the month until the end of the date.
+     */
+    @Column(nullable = false, precision = 19, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    private long monthAmount;
+
+    @Formula(CURRENT_AMOUNT)
+    @Convert(converter = MoneyConverter.class)
+    @JsonSerialize(using = MoneySerializer.class)
+    private long currentAmount;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    @JsonSerialize(using = MoneySerializer.class)
+    private long negativeMovement;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    @JsonSerialize(using = MoneySerializer.class)
+    private long positiveMovement;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    @JsonSerialize(using = MoneySerializer.class)
+    private long refundAmount;
 
     @ManyToOne(optional = false)
     @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
@@ -38,19 +74,19 @@ public class AccountState {
     private Account account;
 
     @OneToMany(mappedBy = "accountState", cascade = CascadeType.ALL, orphanRemoval = true)
-    private Set<Expense> expenses;
+    private Set<Expense> expenses = new HashSet<>();
 
     public AccountState() {
     }
 
     public AccountState(LocalDate date,
-                        Float currentAmount,
-                        Float negativeMovement,
-                        Float positiveMovement,
-                        Float refundAmount,
+                        long monthAmount,
+                        long negativeMovement,
+                        long positiveMovement,
+                        long refundAmount,
                         Account account) {
         this.date = date;
-        this.currentAmount = currentAmount;
+        this.monthAmount = monthAmount;
         this.negativeMovement = negativeMovement;
         this.positiveMovement = positiveMovement;
         this.refundAmount = refundAmount;
@@ -73,35 +109,39 @@ public class AccountState {
         this.date = date;
     }
 
-    public Float getCurrentAmount() {
-        return currentAmount;
+    public long getMonthAmount() {
+        return monthAmount;
+    }
+
+    public void setMonthAmount(long monthAmount) {
+        this.monthAmount = monthAmount;
     }
 
-    public void setCurrentAmount(Float currentAmount) {
-        this.currentAmount = currentAmount;
+    public long getCurrentAmount() {
+        return currentAmount;
     }
 
-    public Float getNegativeMovement() {
+    public long getNegativeMovement() {
         return negativeMovement;
     }
 
-    public void setNegativeMovement(Float negativeMovement) {
+    public void setNegativeMovement(long negativeMovement) {
         this.negativeMovement = negativeMovement;
     }
 
-    public Float getPositiveMovement() {
+    public long getPositiveMovement() {
         return positiveMovement;
     }
 
-    public void setPositiveMovement(Float positiveMovement) {
+    public void setPositiveMovement(long positiveMovement) {
         this.positiveMovement = positiveMovement;
     }
 
-    public Float getRefundAmount() {
+    public long getRefundAmount() {
         return refundAmount;
     }
 
-    public void setRefundAmount(Float refundAmount) {
+    public void setRefundAmount(long refundAmount) {
         this.refundAmount = refundAmount;
     }
 
@@ -113,25 +153,6 @@ public class AccountState {
         this.expenses = expenses;
     }
 
-    public void recalculateAmountsWithExpense(Expense expenseToAdd) {
-        expenses.add(expenseToAdd);
-        float addedNegativeMovement = -Math.min(expenseToAdd.getMovementAmount(), 0);
-        float addedPositiveMovement = Math.max(expenseToAdd.getMovementAmount(), 0);
-        negativeMovement = negativeMovement + addedNegativeMovement;
-        positiveMovement = positiveMovement + addedPositiveMovement;
-        refundAmount = refundAmount + expenseToAdd.getRefundAmount();
-        currentAmount = currentAmount + addedPositiveMovement - addedNegativeMovement;
-    }
-
-    public void recalculateAmountsWithoutExpense(Expense expenseToRemove) {
-        float subtractedNegativeMovement = -Math.min(expenseToRemove.getMovementAmount(), 0);
-        float subtractedPositiveMovement = Math.max(expenseToRemove.getMovementAmount(), 0);
-        negativeMovement = negativeMovement - subtractedNegativeMovement;
-        positiveMovement = positiveMovement - subtractedPositiveMovement;
-        refundAmount = refundAmount - expenseToRemove.getRefundAmount();
-        currentAmount = currentAmount - subtractedPositiveMovement + subtractedNegativeMovement;
-    }
-
     public Account getAccount() {
         return account;
     }
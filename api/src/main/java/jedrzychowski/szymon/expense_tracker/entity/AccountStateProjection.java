@@ -0,0 +1,39 @@
+package jedrzychowski.szymon.expense_tracker.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+/**
+ * Position of the AccountState projection of an Account in its ExpenseEvent ledger.
+ */
+@Entity
+public class AccountStateProjection {
+
+    @Id
+    private Long accountId;
+
+    @Column(nullable = false)
+    private long lastSequenceNumber;
+
+    public AccountStateProjection() {
+    }
+
+    public AccountStateProjection(Long accountId,
+                                  long lastSequenceNumber) {
+        this.accountId = accountId;
+        this.lastSequenceNumber = lastSequenceNumber;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public long getLastSequenceNumber() {
+        return lastSequenceNumber;
+    }
+
+    public void setLastSequenceNumber(long lastSequenceNumber) {
+        this.lastSequenceNumber = lastSequenceNumber;
+    }
+}
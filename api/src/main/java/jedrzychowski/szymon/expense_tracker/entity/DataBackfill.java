@@ -0,0 +1,25 @@
+package jedrzychowski.szymon.expense_tracker.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+/**
+ * Marks a one-time backfill of derived data as completed, so it is not repeated on every startup.
+ */
+@Entity
+public class DataBackfill {
+
+    @Id
+    private String name;
+
+    public DataBackfill() {
+    }
+
+    public DataBackfill(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -4,13 +4,17 @@ import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonIdentityReference;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import jakarta.persistence.*;
+import jedrzychowski.szymon.expense_tracker.entity.converter.MoneyConverter;
 import jedrzychowski.szymon.expense_tracker.entity.dto.expense.CreateExpenseRequestDTO;
 import jedrzychowski.szymon.expense_tracker.entity.dto.expense.UpdateExpenseRequestDTO;
+import jedrzychowski.szymon.expense_tracker.entity.serializer.MoneySerializer;
 
 import java.time.LocalDate;
 
 @Entity
+@Table(indexes = @Index(columnList = "account_state_id"))
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Expense {
 
@@ -18,10 +22,15 @@ public class Expense {
     @GeneratedValue(strategy = GenerationType.AUTO)
     private Long id;
 
-    @Column(nullable = false)
-    private Float movementAmount;
+    @Column(nullable = false, precision = 19, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    @JsonSerialize(using = MoneySerializer.class)
+    private long movementAmount;
 
-    private Float refundAmount;
+    @Column(precision = 19, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    @JsonSerialize(using = MoneySerializer.class)
+    private long refundAmount;
 
     @ManyToOne(optional = false)
     @JoinColumn(name = "expense_type_id", nullable = false)
@@ -46,14 +55,14 @@ public class Expense {
     public Expense() {
     }
 
-    public Expense(Float movementAmount,
-                   Float refundAmount,
+    public Expense(long movementAmount,
+                   long refundAmount,
                    ExpenseType expenseType,
                    String description,
                    AccountState accountState,
                    Account account) {
         this.movementAmount = movementAmount;
-        setRefundAmount(refundAmount);
+        this.refundAmount = refundAmount;
         this.expenseType = expenseType;
         this.description = description;
         this.accountState = accountState;
@@ -64,8 +73,8 @@ public class Expense {
                    ExpenseType expenseType,
                    AccountState accountState,
                    Account account) {
-        this.movementAmount = createExpenseRequestDTO.movementAmount();
-        setRefundAmount(createExpenseRequestDTO.getRefundAmount());
+        this.movementAmount = createExpenseRequestDTO.getMovementAmount();
+        this.refundAmount = createExpenseRequestDTO.getRefundAmount();
         this.expenseType = expenseType;
         this.description = createExpenseRequestDTO.description();
         this.accountState = accountState;
@@ -76,34 +85,31 @@ public class Expense {
                               ExpenseType expenseType,
                               AccountState accountState,
                               Account account) {
-        this.movementAmount = updateExpenseRequestDTO.movementAmount();
-        this.refundAmount = updateExpenseRequestDTO.refundAmount();
+        this.movementAmount = updateExpenseRequestDTO.getMovementAmount();
+        this.refundAmount = updateExpenseRequestDTO.getRefundAmount();
         this.expenseType = expenseType;
         this.description = updateExpenseRequestDTO.description();
         this.accountState = accountState;
         this.account = account;
-
-        this.accountState.recalculateAmountsWithExpense(this);
     }
 
     public Long getId() {
         return id;
     }
 
-    public Float getMovementAmount() {
+    public long getMovementAmount() {
         return movementAmount;
     }
 
-    public void setMovementAmount(Float movementAmount) {
+    public void setMovementAmount(long movementAmount) {
         this.movementAmount = movementAmount;
     }
 
-    public Float getRefundAmount() {
-        return refundAmount == null ? 0 : refundAmount;
+    public long getRefundAmount() {
+        return refundAmount;
     }
 
-    public void setRefundAmount(Float refundAmount) {
-        if (refundAmount != null && refundAmount == 0) refundAmount = null;
+    public void setRefundAmount(long refundAmount) {
         this.refundAmount = refundAmount;
     }
 
@@ -0,0 +1,113 @@
+package jedrzychowski.szymon.expense_tracker.entity;
+
+import jakarta.persistence.*;
+import jedrzychowski.szymon.expense_tracker.entity.converter.MoneyConverter;
+
+import java.time.LocalDate;
+
+/**
+ * Append-only posting of an Expense change to the movements of one Account on one date.
+ * <p>
+ * Created Expenses post their amounts, deleted Expenses post a reversal and updated Expenses post a reversal of the
+ * previous values followed by the new values. AccountState movements are the sum of the postings. They are updated in
+ * the transaction appending the postings, and AccountStateProjector rebuilds them from the ledger when needed. Events
+ * are numbered per Account in commit order: numbers are taken while holding the Account row lock, and a write rolled
+ * back to its savepoint by AccountWriteSequencer hands its numbers back to the next write.
+ */
+@Entity
+@Table(
+        uniqueConstraints = {
+                @UniqueConstraint(columnNames = {"account_id", "sequence_number"})
+        }
+)
+public class ExpenseEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(name = "sequence_number", nullable = false)
+    private long sequenceNumber;
+
+    @Column(nullable = false)
+    private Long expenseId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ExpenseEventType type;
+
+    @Column(nullable = false)
+    private LocalDate date;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    private long positiveMovement;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    private long negativeMovement;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    private long refundAmount;
+
+    public ExpenseEvent() {
+    }
+
+    public ExpenseEvent(Long accountId,
+                        long sequenceNumber,
+                        Long expenseId,
+                        ExpenseEventType type,
+                        LocalDate date,
+                        long positiveMovement,
+                        long negativeMovement,
+                        long refundAmount) {
+        this.accountId = accountId;
+        this.sequenceNumber = sequenceNumber;
+        this.expenseId = expenseId;
+        this.type = type;
+        this.date = date;
+        this.positiveMovement = positiveMovement;
+        this.negativeMovement = negativeMovement;
+        this.refundAmount = refundAmount;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public Long getExpenseId() {
+        return expenseId;
+    }
+
+    public ExpenseEventType getType() {
+        return type;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public long getPositiveMovement() {
+        return positiveMovement;
+    }
+
+    public long getNegativeMovement() {
+        return negativeMovement;
+    }
+
+    public long getRefundAmount() {
+        return refundAmount;
+    }
+}
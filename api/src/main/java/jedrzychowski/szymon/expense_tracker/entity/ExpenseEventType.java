@@ -0,0 +1,10 @@
+package jedrzychowski.szymon.expense_tracker.entity;
+
+/**
+ * Type of an ExpenseEvent. Stored by name, so types must not be renamed.
+ */
+public enum ExpenseEventType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
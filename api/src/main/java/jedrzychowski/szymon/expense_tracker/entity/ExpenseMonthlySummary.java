@@ -0,0 +1,56 @@
+package jedrzychowski.szymon.expense_tracker.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jedrzychowski.szymon.expense_tracker.entity.converter.MoneyConverter;
+
+/**
+ * Totals of the Expenses of one ExpenseType of one Account within one month. Maintained with deltas on every Expense
+ * change, so that monthly and yearly reports do not have to scan Expenses.
+ */
+@Entity
+public class ExpenseMonthlySummary {
+
+    @EmbeddedId
+    private ExpenseMonthlySummaryId id;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    private long positiveMovement;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    private long negativeMovement;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    @Convert(converter = MoneyConverter.class)
+    private long refundAmount;
+
+    @Column(nullable = false)
+    private long expenseCount;
+
+    public ExpenseMonthlySummary() {
+    }
+
+    public ExpenseMonthlySummaryId getId() {
+        return id;
+    }
+
+    public long getPositiveMovement() {
+        return positiveMovement;
+    }
+
+    public long getNegativeMovement() {
+        return negativeMovement;
+    }
+
+    public long getRefundAmount() {
+        return refundAmount;
+    }
+
+    public long getExpenseCount() {
+        return expenseCount;
+    }
+}
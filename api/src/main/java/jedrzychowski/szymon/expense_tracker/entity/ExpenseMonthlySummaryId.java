@@ -0,0 +1,59 @@
+package jedrzychowski.szymon.expense_tracker.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+@Embeddable
+public class ExpenseMonthlySummaryId implements Serializable {
+
+    @Column(nullable = false)
+    private Long accountId;
+
+    @Column(nullable = false)
+    private Long expenseTypeId;
+
+    @Column(nullable = false)
+    private LocalDate monthStart;
+
+    public ExpenseMonthlySummaryId() {
+    }
+
+    public ExpenseMonthlySummaryId(Long accountId,
+                                   Long expenseTypeId,
+                                   LocalDate monthStart) {
+        this.accountId = accountId;
+        this.expenseTypeId = expenseTypeId;
+        this.monthStart = monthStart;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public Long getExpenseTypeId() {
+        return expenseTypeId;
+    }
+
+    public LocalDate getMonthStart() {
+        return monthStart;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ExpenseMonthlySummaryId that)) {
+            return false;
+        }
+        return Objects.equals(accountId, that.accountId)
+                && Objects.equals(expenseTypeId, that.expenseTypeId)
+                && Objects.equals(monthStart, that.monthStart);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(accountId, expenseTypeId, monthStart);
+    }
+}
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonIdentityReference;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import jakarta.persistence.*;
+import jedrzychowski.szymon.expense_tracker.config.exception.ForbiddenActionException;
 import jedrzychowski.szymon.expense_tracker.entity.dto.expenseType.CreateExpenseTypeRequestDTO;
 import jedrzychowski.szymon.expense_tracker.entity.dto.expenseType.UpdateExpenseTypeRequestDTO;
 
@@ -66,4 +67,14 @@ public class ExpenseType {
     public void setAccount(Account account) {
         this.account = account;
     }
+
+    public void validateIfExpenseTypeCanBeUsedForAccount(Account account) throws
+                                                                           ForbiddenActionException {
+        if (!this.account.equals(account)) {
+            throw new ForbiddenActionException(
+                    String.format("Expense Type with ID: %d and name: %s cannot be used for Account with name: %s.",
+                            id, name, account.getName())
+            );
+        }
+    }
 }
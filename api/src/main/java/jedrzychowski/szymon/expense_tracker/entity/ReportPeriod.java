@@ -0,0 +1,11 @@
+package jedrzychowski.szymon.expense_tracker.entity;
+
+/**
+ * Length of the periods report rows are grouped into. Weeks start on Monday.
+ */
+public enum ReportPeriod {
+    DAY,
+    WEEK,
+    MONTH,
+    YEAR
+}
@@ -0,0 +1,24 @@
+package jedrzychowski.szymon.expense_tracker.entity.converter;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import jedrzychowski.szymon.expense_tracker.util.MoneyUtil;
+
+import java.math.BigDecimal;
+
+/**
+ * Stores long minor units as numeric(19, 2) columns.
+ */
+@Converter
+public class MoneyConverter implements AttributeConverter<Long, BigDecimal> {
+
+    @Override
+    public BigDecimal convertToDatabaseColumn(Long minorUnits) {
+        return minorUnits == null ? null : MoneyUtil.toBigDecimal(minorUnits);
+    }
+
+    @Override
+    public Long convertToEntityAttribute(BigDecimal amount) {
+        return amount == null ? 0L : MoneyUtil.toMinorUnits(amount);
+    }
+}
@@ -0,0 +1,17 @@
+package jedrzychowski.szymon.expense_tracker.entity.dto.account;
+
+/**
+ * Read-only view of an Account with the same JSON representation, loaded without managed entities.
+ */
+public record AccountDTO(Long id,
+                         Long appUser,
+                         String name) {
+
+    public AccountDTO(Long id,
+                      Long appUser,
+                      String name) {
+        this.id = id;
+        this.appUser = appUser;
+        this.name = name;
+    }
+}
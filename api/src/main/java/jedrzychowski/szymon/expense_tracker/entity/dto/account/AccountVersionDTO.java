@@ -0,0 +1,11 @@
+package jedrzychowski.szymon.expense_tracker.entity.dto.account;
+
+public record AccountVersionDTO(Long id,
+                                long changeVersion) {
+
+    public AccountVersionDTO(Long id,
+                             long changeVersion) {
+        this.id = id;
+        this.changeVersion = changeVersion;
+    }
+}
@@ -0,0 +1,19 @@
+package jedrzychowski.szymon.expense_tracker.entity.dto.accountState;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import jedrzychowski.szymon.expense_tracker.entity.serializer.MoneySerializer;
+
+import java.time.LocalDate;
+
+/**
+ * Balance of an Account at the end of the day, or of the period starting on the date in a series.
+ */
+public record AccountBalancePointDTO(LocalDate date,
+                                     @JsonSerialize(using = MoneySerializer.class) Long currentAmount) {
+
+    public AccountBalancePointDTO(LocalDate date,
+                                  Long currentAmount) {
+        this.date = date;
+        this.currentAmount = currentAmount;
+    }
+}
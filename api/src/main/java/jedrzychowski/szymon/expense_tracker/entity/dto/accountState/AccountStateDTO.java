@@ -0,0 +1,45 @@
+package jedrzychowski.szymon.expense_tracker.entity.dto.accountState;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import jedrzychowski.szymon.expense_tracker.entity.serializer.MoneySerializer;
+import jedrzychowski.szymon.expense_tracker.util.FieldsUtil;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Read-only view of an AccountState with the same JSON representation, loaded without managed entities.
+ */
+@JsonFilter(FieldsUtil.FILTER)
+public record AccountStateDTO(Long id,
+                              LocalDate date,
+                              @JsonSerialize(using = MoneySerializer.class) Long currentAmount,
+                              @JsonSerialize(using = MoneySerializer.class) Long negativeMovement,
+                              @JsonSerialize(using = MoneySerializer.class) Long positiveMovement,
+                              @JsonSerialize(using = MoneySerializer.class) Long refundAmount,
+                              Long account) {
+
+    /**
+     * Fields that can be requested in a sparse fieldset.
+     */
+    public static final List<String> FIELDS = List.of(
+            "id", "date", "currentAmount", "negativeMovement", "positiveMovement", "refundAmount", "account"
+    );
+
+    public AccountStateDTO(Long id,
+                           LocalDate date,
+                           Long currentAmount,
+                           Long negativeMovement,
+                           Long positiveMovement,
+                           Long refundAmount,
+                           Long account) {
+        this.id = id;
+        this.date = date;
+        this.currentAmount = currentAmount;
+        this.negativeMovement = negativeMovement;
+        this.positiveMovement = positiveMovement;
+        this.refundAmount = refundAmount;
+        this.account = account;
+    }
+}
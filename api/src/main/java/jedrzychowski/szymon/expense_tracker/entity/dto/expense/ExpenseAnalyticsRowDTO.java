@@ -0,0 +1,28 @@
+package jedrzychowski.szymon.expense_tracker.entity.dto.expense;
+
+import java.time.LocalDate;
+
+/**
+ * Fields of an Expense kept by the analytics cache.
+ */
+public record ExpenseAnalyticsRowDTO(Long id,
+                                     Long account,
+                                     Long expenseType,
+                                     LocalDate date,
+                                     Long movementAmount,
+                                     Long refundAmount) {
+
+    public ExpenseAnalyticsRowDTO(Long id,
+                                  Long account,
+                                  Long expenseType,
+                                  LocalDate date,
+                                  Long movementAmount,
+                                  Long refundAmount) {
+        this.id = id;
+        this.account = account;
+        this.expenseType = expenseType;
+        this.date = date;
+        this.movementAmount = movementAmount;
+        this.refundAmount = refundAmount;
+    }
+}
@@ -0,0 +1,59 @@
+package jedrzychowski.szymon.expense_tracker.entity.dto.expense;
+
+import jakarta.validation.Valid;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public record ExpenseBatchRequestDTO(List<@Valid CreateExpenseRequestDTO> create,
+                                     List<@Valid UpdateExpenseRequestDTO> update,
+                                     List<Long> delete) {
+
+    public ExpenseBatchRequestDTO(List<CreateExpenseRequestDTO> create,
+                                  List<UpdateExpenseRequestDTO> update,
+                                  List<Long> delete) {
+        this.create = create == null ? List.of() : create;
+        this.update = update == null ? List.of() : update;
+        this.delete = delete == null ? List.of() : delete;
+    }
+
+    public List<String> validateDTO() {
+        List<String> validationErrors = new ArrayList<>();
+        for (int i = 0; i < create.size(); i++) {
+            if (create.get(i) == null) {
+                validationErrors.add(String.format("create[%d]: Expense cannot be null.", i));
+                continue;
+            }
+            for (String validationError : create.get(i).validateDTO()) {
+                validationErrors.add(String.format("create[%d]: %s", i, validationError));
+            }
+        }
+
+        Set<Long> expenseIds = new HashSet<>();
+        for (int i = 0; i < update.size(); i++) {
+            if (update.get(i) == null) {
+                validationErrors.add(String.format("update[%d]: Expense cannot be null.", i));
+                continue;
+            }
+            for (String validationError : update.get(i).validateDTO()) {
+                validationErrors.add(String.format("update[%d]: %s", i, validationError));
+            }
+            if (!expenseIds.add(update.get(i).id())) {
+                validationErrors.add(String.format("update[%d]: Expense with ID: %d is used more than once.",
+                        i, update.get(i).id()));
+            }
+        }
+
+        for (int i = 0; i < delete.size(); i++) {
+            if (delete.get(i) == null) {
+                validationErrors.add(String.format("delete[%d]: ID cannot be null.", i));
+            } else if (!expenseIds.add(delete.get(i))) {
+                validationErrors.add(String.format("delete[%d]: Expense with ID: %d is used more than once.",
+                        i, delete.get(i)));
+            }
+        }
+        return validationErrors;
+    }
+}
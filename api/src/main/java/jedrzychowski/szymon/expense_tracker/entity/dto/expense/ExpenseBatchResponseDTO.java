@@ -0,0 +1,18 @@
+package jedrzychowski.szymon.expense_tracker.entity.dto.expense;
+
+import jedrzychowski.szymon.expense_tracker.entity.Expense;
+
+import java.util.List;
+
+public record ExpenseBatchResponseDTO(List<Expense> created,
+                                      List<Expense> updated,
+                                      List<Long> deleted) {
+
+    public ExpenseBatchResponseDTO(List<Expense> created,
+                                   List<Expense> updated,
+                                   List<Long> deleted) {
+        this.created = created;
+        this.updated = updated;
+        this.deleted = deleted;
+    }
+}
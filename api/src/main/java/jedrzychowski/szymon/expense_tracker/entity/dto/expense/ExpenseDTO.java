@@ -0,0 +1,48 @@
+package jedrzychowski.szymon.expense_tracker.entity.dto.expense;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import jedrzychowski.szymon.expense_tracker.entity.serializer.MoneySerializer;
+import jedrzychowski.szymon.expense_tracker.util.FieldsUtil;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Read-only view of an Expense with the same JSON representation, loaded without managed entities.
+ */
+@JsonFilter(FieldsUtil.FILTER)
+public record ExpenseDTO(Long id,
+                         @JsonSerialize(using = MoneySerializer.class) Long movementAmount,
+                         @JsonSerialize(using = MoneySerializer.class) Long refundAmount,
+                         Long expenseType,
+                         String description,
+                         Long account,
+                         Long accountState,
+                         LocalDate date) {
+
+    /**
+     * Fields that can be requested in a sparse fieldset.
+     */
+    public static final List<String> FIELDS = List.of(
+            "id", "movementAmount", "refundAmount", "expenseType", "description", "account", "accountState", "date"
+    );
+
+    public ExpenseDTO(Long id,
+                      Long movementAmount,
+                      Long refundAmount,
+                      Long expenseType,
+                      String description,
+                      Long account,
+                      Long accountState,
+                      LocalDate date) {
+        this.id = id;
+        this.movementAmount = movementAmount;
+        this.refundAmount = refundAmount;
+        this.expenseType = expenseType;
+        this.description = description;
+        this.account = account;
+        this.accountState = accountState;
+        this.date = date;
+    }
+}
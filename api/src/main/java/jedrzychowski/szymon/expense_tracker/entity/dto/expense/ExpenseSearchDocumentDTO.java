@@ -0,0 +1,22 @@
+package jedrzychowski.szymon.expense_tracker.entity.dto.expense;
+
+import java.time.LocalDate;
+
+/**
+ * Fields of an Expense kept by the search index.
+ */
+public record ExpenseSearchDocumentDTO(Long id,
+                                       Long account,
+                                       LocalDate date,
+                                       String description) {
+
+    public ExpenseSearchDocumentDTO(Long id,
+                                    Long account,
+                                    LocalDate date,
+                                    String description) {
+        this.id = id;
+        this.account = account;
+        this.date = date;
+        this.description = description;
+    }
+}
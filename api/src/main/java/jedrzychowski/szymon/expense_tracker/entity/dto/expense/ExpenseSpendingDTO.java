@@ -0,0 +1,25 @@
+package jedrzychowski.szymon.expense_tracker.entity.dto.expense;
+
+import java.time.LocalDate;
+
+/**
+ * Fields of an Expense read by spending statistics.
+ */
+public record ExpenseSpendingDTO(Long id,
+                                 Long account,
+                                 Long expenseType,
+                                 LocalDate date,
+                                 Long movementAmount) {
+
+    public ExpenseSpendingDTO(Long id,
+                              Long account,
+                              Long expenseType,
+                              LocalDate date,
+                              Long movementAmount) {
+        this.id = id;
+        this.account = account;
+        this.expenseType = expenseType;
+        this.date = date;
+        this.movementAmount = movementAmount;
+    }
+}
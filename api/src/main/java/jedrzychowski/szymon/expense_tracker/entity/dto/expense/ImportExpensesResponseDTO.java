@@ -0,0 +1,13 @@
+package jedrzychowski.szymon.expense_tracker.entity.dto.expense;
+
+import java.util.Set;
+
+public record ImportExpensesResponseDTO(int importedExpenses,
+                                        Set<Long> accountIds) {
+
+    public ImportExpensesResponseDTO(int importedExpenses,
+                                     Set<Long> accountIds) {
+        this.importedExpenses = importedExpenses;
+        this.accountIds = accountIds;
+    }
+}
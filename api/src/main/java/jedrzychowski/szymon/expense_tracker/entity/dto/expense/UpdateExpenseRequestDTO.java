@@ -1,23 +1,25 @@
 package jedrzychowski.szymon.expense_tracker.entity.dto.expense;
 
 import jakarta.validation.constraints.NotNull;
+import jedrzychowski.szymon.expense_tracker.util.MoneyUtil;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
 public record UpdateExpenseRequestDTO(@NotNull(message = "ID cannot be null.") Long id,
                                       @NotNull(message = "Date cannot be null.") LocalDate date,
-                                      @NotNull(message = "MovementAmount cannot be null.") Float movementAmount,
-                                      Float refundAmount,
+                                      @NotNull(message = "MovementAmount cannot be null.") BigDecimal movementAmount,
+                                      BigDecimal refundAmount,
                                       @NotNull(message = "ExpenseTypeId cannot be null.") Long expenseTypeId,
                                       String description,
                                       @NotNull(message = "AccountId cannot be null.") Long accountId) {
 
     public UpdateExpenseRequestDTO(Long id,
                                    LocalDate date,
-                                   Float movementAmount,
-                                   Float refundAmount,
+                                   BigDecimal movementAmount,
+                                   BigDecimal refundAmount,
                                    Long expenseTypeId,
                                    String description,
                                    Long accountId) {
@@ -32,17 +34,34 @@ public record UpdateExpenseRequestDTO(@NotNull(message = "ID cannot be null.") L
 
     public List<String> validateDTO() {
         List<String> validationErrors = new ArrayList<>();
-        if (movementAmount == null || movementAmount == 0) {
+        if (movementAmount == null || movementAmount.signum() == 0) {
             validationErrors.add("Movement Amount must be non-null and non-zero.");
+        } else if (!MoneyUtil.isWithinRange(movementAmount)) {
+            validationErrors.add(String.format("Movement Amount must be between -%1$s and %1$s exclusive.",
+                    MoneyUtil.MAX_AMOUNT.toPlainString()));
+        } else if (!MoneyUtil.hasValidScale(movementAmount)) {
+            validationErrors.add(String.format("Movement Amount must have at most %d decimal places.", MoneyUtil.SCALE));
         }
 
-        if (refundAmount != null && refundAmount < 0) {
+        if (refundAmount != null && refundAmount.signum() < 0) {
             validationErrors.add("Refund Amount must be positive.");
+        } else if (refundAmount != null && !MoneyUtil.isWithinRange(refundAmount)) {
+            validationErrors.add(String.format("Refund Amount must be lower than %s.", MoneyUtil.MAX_AMOUNT.toPlainString()));
+        } else if (refundAmount != null && !MoneyUtil.hasValidScale(refundAmount)) {
+            validationErrors.add(String.format("Refund Amount must have at most %d decimal places.", MoneyUtil.SCALE));
         }
 
-        if (refundAmount != null && refundAmount > 0 && movementAmount != null && movementAmount > 0) {
+        if (refundAmount != null && refundAmount.signum() > 0 && movementAmount != null && movementAmount.signum() > 0) {
             validationErrors.add("Movement Amount must be negative to have a non-zero Refund Amount.");
         }
         return validationErrors;
     }
+
+    public long getMovementAmount() {
+        return MoneyUtil.toMinorUnits(movementAmount);
+    }
+
+    public long getRefundAmount() {
+        return refundAmount == null ? 0 : MoneyUtil.toMinorUnits(refundAmount);
+    }
 }
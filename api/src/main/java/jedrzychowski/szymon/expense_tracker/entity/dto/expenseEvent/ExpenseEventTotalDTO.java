@@ -0,0 +1,45 @@
+package jedrzychowski.szymon.expense_tracker.entity.dto.expenseEvent;
+
+import jedrzychowski.szymon.expense_tracker.util.MoneyUtil;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Sum of the ExpenseEvents of an Account on one date.
+ */
+public record ExpenseEventTotalDTO(LocalDate date,
+                                   Long positiveMovement,
+                                   Long negativeMovement,
+                                   Long refundAmount,
+                                   Long lastSequenceNumber) {
+
+    public ExpenseEventTotalDTO(LocalDate date,
+                                Long positiveMovement,
+                                Long negativeMovement,
+                                Long refundAmount,
+                                Long lastSequenceNumber) {
+        this.date = date;
+        this.positiveMovement = positiveMovement;
+        this.negativeMovement = negativeMovement;
+        this.refundAmount = refundAmount;
+        this.lastSequenceNumber = lastSequenceNumber;
+    }
+
+    /**
+     * Converts sums of the numeric(19, 2) money columns to minor units.
+     */
+    public ExpenseEventTotalDTO(LocalDate date,
+                                BigDecimal positiveMovement,
+                                BigDecimal negativeMovement,
+                                BigDecimal refundAmount,
+                                Long lastSequenceNumber) {
+        this(
+                date,
+                MoneyUtil.toMinorUnits(positiveMovement),
+                MoneyUtil.toMinorUnits(negativeMovement),
+                MoneyUtil.toMinorUnits(refundAmount),
+                lastSequenceNumber
+        );
+    }
+}
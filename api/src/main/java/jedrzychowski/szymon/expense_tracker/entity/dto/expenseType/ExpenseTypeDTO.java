@@ -0,0 +1,30 @@
+package jedrzychowski.szymon.expense_tracker.entity.dto.expenseType;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import jedrzychowski.szymon.expense_tracker.util.FieldsUtil;
+
+import java.util.List;
+
+/**
+ * Read-only view of an ExpenseType with the same JSON representation, loaded without managed entities.
+ */
+@JsonFilter(FieldsUtil.FILTER)
+public record ExpenseTypeDTO(Long id,
+                             String name,
+                             Long account) {
+
+    /**
+     * Fields that can be requested in a sparse fieldset.
+     */
+    public static final List<String> FIELDS = List.of(
+            "id", "name", "account"
+    );
+
+    public ExpenseTypeDTO(Long id,
+                          String name,
+                          Long account) {
+        this.id = id;
+        this.name = name;
+        this.account = account;
+    }
+}
@@ -0,0 +1,13 @@
+package jedrzychowski.szymon.expense_tracker.entity.dto.page;
+
+import java.util.List;
+
+public record PageDTO<T>(List<T> items,
+                         String next) {
+
+    public PageDTO(List<T> items,
+                   String next) {
+        this.items = items;
+        this.next = next;
+    }
+}
@@ -0,0 +1,21 @@
+package jedrzychowski.szymon.expense_tracker.entity.dto.report;
+
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseDTO;
+
+import java.util.List;
+
+/**
+ * Statistics of the spending Expenses, the ones with a negative movementAmount, within a date range.
+ */
+public record ExpenseStatisticsDTO(long count,
+                                   List<PercentileDTO> percentiles,
+                                   List<ExpenseDTO> largestExpenses) {
+
+    public ExpenseStatisticsDTO(long count,
+                                List<PercentileDTO> percentiles,
+                                List<ExpenseDTO> largestExpenses) {
+        this.count = count;
+        this.percentiles = percentiles;
+        this.largestExpenses = largestExpenses;
+    }
+}
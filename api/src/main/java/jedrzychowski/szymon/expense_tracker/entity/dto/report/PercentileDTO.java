@@ -0,0 +1,17 @@
+package jedrzychowski.szymon.expense_tracker.entity.dto.report;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import jedrzychowski.szymon.expense_tracker.entity.serializer.MoneySerializer;
+
+/**
+ * Amount spent below which the specified percentage of the Expenses lies.
+ */
+public record PercentileDTO(double percentile,
+                            @JsonSerialize(using = MoneySerializer.class) Long amount) {
+
+    public PercentileDTO(double percentile,
+                         Long amount) {
+        this.percentile = percentile;
+        this.amount = amount;
+    }
+}
@@ -0,0 +1,31 @@
+package jedrzychowski.szymon.expense_tracker.entity.dto.report;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import jedrzychowski.szymon.expense_tracker.entity.serializer.MoneySerializer;
+
+import java.time.LocalDate;
+
+/**
+ * Totals of the Expenses of one ExpenseType of one Account within one period.
+ */
+public record SpendingReportRowDTO(LocalDate periodStart,
+                                   Long account,
+                                   Long expenseType,
+                                   @JsonSerialize(using = MoneySerializer.class) Long movementAmount,
+                                   @JsonSerialize(using = MoneySerializer.class) Long refundAmount,
+                                   long count) {
+
+    public SpendingReportRowDTO(LocalDate periodStart,
+                                Long account,
+                                Long expenseType,
+                                Long movementAmount,
+                                Long refundAmount,
+                                long count) {
+        this.periodStart = periodStart;
+        this.account = account;
+        this.expenseType = expenseType;
+        this.movementAmount = movementAmount;
+        this.refundAmount = refundAmount;
+        this.count = count;
+    }
+}
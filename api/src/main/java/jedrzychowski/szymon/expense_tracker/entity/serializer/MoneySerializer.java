@@ -0,0 +1,25 @@
+package jedrzychowski.szymon.expense_tracker.entity.serializer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import jedrzychowski.szymon.expense_tracker.util.MoneyUtil;
+
+import java.io.IOException;
+
+/**
+ * Writes long minor units as a decimal JSON number, so the API keeps exposing amounts in major units.
+ */
+public class MoneySerializer extends StdSerializer<Long> {
+
+    public MoneySerializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public void serialize(Long minorUnits,
+                          JsonGenerator jsonGenerator,
+                          SerializerProvider serializerProvider) throws IOException {
+        jsonGenerator.writeNumber(MoneyUtil.toBigDecimal(minorUnits));
+    }
+}
@@ -0,0 +1,53 @@
+package jedrzychowski.szymon.expense_tracker.repository;
+
+import jedrzychowski.szymon.expense_tracker.entity.Account;
+import jedrzychowski.szymon.expense_tracker.entity.AccountBalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+public interface AccountBalanceCheckpointRepository extends JpaRepository<AccountBalanceCheckpoint, Long>,
+                                                            AccountBalanceCheckpointRepositoryCustom {
+
+    /**
+     * Recalculates the opening balances of the checkpoints of the Account from the specified month on with a single
+     * statement, as the closing balance of the previous checkpoint plus the running sum of the movements of the
+     * months in between. Only checkpoints whose opening balance changed are updated.
+     *
+     * @param accountId  ID of the Account.
+     * @param monthStart First day of the earliest month to update.
+     * @return Number of updated checkpoints.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            MERGE INTO account_balance_checkpoint target
+            USING (
+                SELECT id,
+                       COALESCE((
+                           SELECT previous.opening_balance + previous.movement
+                           FROM account_balance_checkpoint previous
+                           WHERE previous.account_id = :accountId AND previous.month_start < :monthStart
+                           ORDER BY previous.month_start DESC
+                           FETCH FIRST 1 ROWS ONLY
+                       ), 0) + COALESCE(SUM(movement) OVER (
+                           ORDER BY month_start ROWS BETWEEN UNBOUNDED PRECEDING AND 1 PRECEDING
+                       ), 0) AS opening_balance
+                FROM account_balance_checkpoint
+                WHERE account_id = :accountId AND month_start >= :monthStart
+            ) balances
+            ON target.id = balances.id
+            WHEN MATCHED AND target.opening_balance <> balances.opening_balance THEN UPDATE SET
+                opening_balance = balances.opening_balance
+            """, nativeQuery = true)
+    int rebalanceOpeningBalances(@Param("accountId") Long accountId,
+                                 @Param("monthStart") LocalDate monthStart);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM AccountBalanceCheckpoint checkpoint WHERE checkpoint.account = :account")
+    void deleteAllByAccount(@Param("account") Account account);
+}
@@ -0,0 +1,21 @@
+package jedrzychowski.szymon.expense_tracker.repository;
+
+import java.time.LocalDate;
+
+public interface AccountBalanceCheckpointRepositoryCustom {
+
+    /**
+     * Adds the movement to the checkpoint of the Account in the month, inserting it first if it does not exist yet.
+     * Runs as a single statement relying on the unique (account_id, month_start) key instead of looking the
+     * checkpoint up first, so a write costs one statement no matter how far back it is dated. A new checkpoint opens
+     * with the closing balance of the previous checkpoint, opening balances of later months are refreshed by
+     * {@link AccountBalanceCheckpointRepository#rebalanceOpeningBalances}.
+     *
+     * @param accountId  ID of the Account.
+     * @param monthStart First day of the month.
+     * @param movement   Net movement to add.
+     */
+    void addMovement(Long accountId,
+                     LocalDate monthStart,
+                     long movement);
+}
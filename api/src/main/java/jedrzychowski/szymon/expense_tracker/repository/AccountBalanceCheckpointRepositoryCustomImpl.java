@@ -0,0 +1,62 @@
+package jedrzychowski.szymon.expense_tracker.repository;
+
+import jakarta.persistence.EntityManager;
+import jedrzychowski.szymon.expense_tracker.util.DialectUtil;
+import jedrzychowski.szymon.expense_tracker.util.MoneyUtil;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+
+import java.time.LocalDate;
+
+public class AccountBalanceCheckpointRepositoryCustomImpl implements AccountBalanceCheckpointRepositoryCustom {
+
+    private static final String SEQUENCE_NAME = "account_balance_checkpoint_seq";
+
+    private static final String PREVIOUS_CLOSING_BALANCE = """
+            COALESCE((
+                SELECT previous.opening_balance + previous.movement
+                FROM account_balance_checkpoint previous
+                WHERE previous.account_id = :accountId AND previous.month_start < :monthStart
+                ORDER BY previous.month_start DESC
+                FETCH FIRST 1 ROWS ONLY
+            ), 0)""";
+
+    private static final String POSTGRESQL_UPSERT = """
+            INSERT INTO account_balance_checkpoint (id, account_id, month_start, opening_balance, movement)
+            VALUES (%s, :accountId, :monthStart, %s, :movement)
+            ON CONFLICT (account_id, month_start) DO UPDATE SET
+                movement = account_balance_checkpoint.movement + excluded.movement
+            """;
+
+    private static final String MERGE_UPSERT = """
+            MERGE INTO account_balance_checkpoint target
+            USING (VALUES (:accountId, :monthStart)) source(account_id, month_start)
+            ON target.account_id = source.account_id AND target.month_start = source.month_start
+            WHEN MATCHED THEN UPDATE SET
+                movement = target.movement + :movement
+            WHEN NOT MATCHED THEN INSERT (id, account_id, month_start, opening_balance, movement)
+            VALUES (%s, :accountId, :monthStart, %s, :movement)
+            """;
+
+    private final EntityManager entityManager;
+    private final String upsertStatement;
+
+    public AccountBalanceCheckpointRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        Dialect dialect = DialectUtil.getDialect(entityManager);
+        String nextId = dialect.getSequenceSupport().getSelectSequenceNextValString(SEQUENCE_NAME);
+        String statement = dialect instanceof PostgreSQLDialect ? POSTGRESQL_UPSERT : MERGE_UPSERT;
+        this.upsertStatement = String.format(statement, nextId, PREVIOUS_CLOSING_BALANCE);
+    }
+
+    @Override
+    public void addMovement(Long accountId,
+                            LocalDate monthStart,
+                            long movement) {
+        entityManager.createNativeQuery(upsertStatement)
+                .setParameter("accountId", accountId)
+                .setParameter("monthStart", monthStart)
+                .setParameter("movement", MoneyUtil.toBigDecimal(movement))
+                .executeUpdate();
+    }
+}
@@ -1,15 +1,78 @@
 package jedrzychowski.szymon.expense_tracker.repository;
 
+import jakarta.persistence.LockModeType;
 import jedrzychowski.szymon.expense_tracker.entity.Account;
 import jedrzychowski.szymon.expense_tracker.entity.AppUser;
+import jedrzychowski.szymon.expense_tracker.entity.dto.account.AccountDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.account.AccountVersionDTO;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface AccountRepository extends JpaRepository<Account, Long> {
 
-    List<Account> findAllByAppUser(AppUser appUser);
+    @Query("""
+            SELECT new jedrzychowski.szymon.expense_tracker.entity.dto.account.AccountDTO(
+                account.id, account.appUser.id, account.name
+            )
+            FROM Account account
+            WHERE account.appUser = :appUser
+            """)
+    List<AccountDTO> findAllByAppUser(@Param("appUser") AppUser appUser);
 
     boolean existsByNameAndAppUser(String name,
                                    AppUser appUser);
+
+    @Query("""
+            SELECT COUNT(account) > 0
+            FROM Account account
+            WHERE account.id = :id AND account.appUser.id = :appUserId
+            """)
+    boolean existsByIdAndAppUserId(@Param("id") Long id,
+                                   @Param("appUserId") Long appUserId);
+
+    @Query("SELECT account.id FROM Account account")
+    List<Long> findAllIds();
+
+    /**
+     * Finds the Account and locks it until the end of the transaction, so that only one transaction at a time
+     * appends ExpenseEvents of the Account.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT account FROM Account account WHERE account.id = :id")
+    Optional<Account> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("SELECT account.id FROM Account account WHERE account.appUser.id = :appUserId ORDER BY account.id")
+    List<Long> findIdsByAppUserId(@Param("appUserId") Long appUserId);
+
+    @Query("""
+            SELECT new jedrzychowski.szymon.expense_tracker.entity.dto.account.AccountVersionDTO(
+                account.id, account.changeVersion
+            )
+            FROM Account account
+            WHERE account.id = :id
+            """)
+    Optional<AccountVersionDTO> findVersionById(@Param("id") Long id);
+
+    @Query("""
+            SELECT new jedrzychowski.szymon.expense_tracker.entity.dto.account.AccountVersionDTO(
+                account.id, account.changeVersion
+            )
+            FROM Account account
+            WHERE account.appUser.id = :appUserId
+            ORDER BY account.id
+            """)
+    List<AccountVersionDTO> findVersionsByAppUserId(@Param("appUserId") Long appUserId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Account account SET account.changeVersion = account.changeVersion + 1 WHERE account.id IN :ids")
+    void incrementChangeVersions(@Param("ids") Collection<Long> ids);
 }
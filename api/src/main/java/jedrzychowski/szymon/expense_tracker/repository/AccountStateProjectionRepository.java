@@ -0,0 +1,36 @@
+package jedrzychowski.szymon.expense_tracker.repository;
+
+import jakarta.persistence.LockModeType;
+import jedrzychowski.szymon.expense_tracker.entity.AccountStateProjection;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface AccountStateProjectionRepository extends JpaRepository<AccountStateProjection, Long> {
+
+    /**
+     * Finds the projection of the Account and locks it until the end of the transaction, so that only one
+     * transaction at a time rebuilds the Account.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT projection FROM AccountStateProjection projection WHERE projection.accountId = :accountId")
+    Optional<AccountStateProjection> findByIdForUpdate(@Param("accountId") Long accountId);
+
+    /**
+     * Moves the projection of the Account to the sequence number.
+     *
+     * @return Number of updated projections, 0 if the Account has none yet.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("""
+            UPDATE AccountStateProjection projection
+            SET projection.lastSequenceNumber = :lastSequenceNumber
+            WHERE projection.accountId = :accountId
+            """)
+    int updateLastSequenceNumber(@Param("accountId") Long accountId,
+                                 @Param("lastSequenceNumber") long lastSequenceNumber);
+}
@@ -1,29 +1,157 @@
 package jedrzychowski.szymon.expense_tracker.repository;
 
-import jedrzychowski.szymon.expense_tracker.entity.Account;
+import jakarta.persistence.QueryHint;
 import jedrzychowski.szymon.expense_tracker.entity.AccountState;
 import jedrzychowski.szymon.expense_tracker.entity.AppUser;
+import jedrzychowski.szymon.expense_tracker.entity.dto.accountState.AccountBalancePointDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.accountState.AccountStateDTO;
+import jedrzychowski.szymon.expense_tracker.util.NdjsonUtil;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface AccountStateRepository extends JpaRepository<AccountState, Long> {
+public interface AccountStateRepository extends JpaRepository<AccountState, Long>, AccountStateRepositoryCustom {
 
-    Optional<AccountState> findByDate(LocalDate date);
+    @Query("SELECT accountState.account.id FROM AccountState accountState WHERE accountState.id = :id")
+    Optional<Long> findAccountIdById(@Param("id") Long id);
 
-    List<AccountState> findAllByAccountAndDateGreaterThanOrderByDateAsc(Account account,
-                                                                        LocalDate date);
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + NdjsonUtil.FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT new jedrzychowski.szymon.expense_tracker.entity.dto.accountState.AccountStateDTO(
+                accountState.id, accountState.date, accountState.currentAmount, accountState.negativeMovement,
+                accountState.positiveMovement, accountState.refundAmount, accountState.account.id
+            )
+            FROM AccountState accountState
+            WHERE accountState.account.id = :accountId AND accountState.date BETWEEN :startDate AND :endDate
+            ORDER BY accountState.date ASC, accountState.id ASC
+            """)
+    Stream<AccountStateDTO> streamByAccountId(@Param("accountId") Long accountId,
+                                           @Param("startDate") LocalDate startDate,
+                                           @Param("endDate") LocalDate endDate);
 
-    List<AccountState> findAllByAccountAndDateBetweenOrderByDateAsc(Account account,
-                                                                    LocalDate startDate,
-                                                                    LocalDate endDate);
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + NdjsonUtil.FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT new jedrzychowski.szymon.expense_tracker.entity.dto.accountState.AccountStateDTO(
+                accountState.id, accountState.date, accountState.currentAmount, accountState.negativeMovement,
+                accountState.positiveMovement, accountState.refundAmount, accountState.account.id
+            )
+            FROM AccountState accountState
+            WHERE accountState.account.appUser = :appUser AND accountState.date BETWEEN :startDate AND :endDate
+            ORDER BY accountState.date ASC, accountState.id ASC
+            """)
+    Stream<AccountStateDTO> streamByAppUser(@Param("appUser") AppUser appUser,
+                                         @Param("startDate") LocalDate startDate,
+                                         @Param("endDate") LocalDate endDate);
 
-    List<AccountState> findAllByAccount_AppUserAndDateBetweenOrderByDateAsc(AppUser appUser,
-                                                                            LocalDate startDate,
-                                                                            LocalDate endDate);
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + NdjsonUtil.FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT new jedrzychowski.szymon.expense_tracker.entity.dto.accountState.AccountBalancePointDTO(
+                accountState.date, accountState.currentAmount
+            )
+            FROM AccountState accountState
+            WHERE accountState.account.id = :accountId AND accountState.date BETWEEN :startDate AND :endDate
+            ORDER BY accountState.date ASC
+            """)
+    Stream<AccountBalancePointDTO> streamBalancesByAccountId(@Param("accountId") Long accountId,
+                                                           @Param("startDate") LocalDate startDate,
+                                                           @Param("endDate") LocalDate endDate);
 
-    Optional<AccountState> findFirstByAccountAndDateBeforeOrderByDateDesc(Account account,
-                                                                          LocalDate date);
+    /**
+     * Returns currentAmount of the latest AccountState of the Account dated before the specified date.
+     *
+     * @param accountId ID of the Account.
+     * @param date      Date the AccountState must be before.
+     * @param limit     Limit of one AccountState.
+     * @return currentAmount of the latest earlier AccountState, empty if there is none.
+     */
+    @Query("""
+            SELECT accountState.currentAmount
+            FROM AccountState accountState
+            WHERE accountState.account.id = :accountId AND accountState.date < :date
+            ORDER BY accountState.date DESC
+            """)
+    List<Long> findCurrentAmountBeforeDate(@Param("accountId") Long accountId,
+                                           @Param("date") LocalDate date,
+                                           Limit limit);
+
+    @Query("SELECT MIN(accountState.date) FROM AccountState accountState WHERE accountState.account.id = :accountId")
+    LocalDate findFirstDateByAccountId(@Param("accountId") Long accountId);
+
+    @Query("SELECT MIN(accountState.date) FROM AccountState accountState WHERE accountState.account.appUser.id = :appUserId")
+    LocalDate findFirstDateByAppUserId(@Param("appUserId") Long appUserId);
+
+    /**
+     * Sums the net movements of the Account between the dates, both inclusive.
+     *
+     * @param accountId ID of the Account.
+     * @param startDate First date to include.
+     * @param endDate   Last date to include.
+     * @return Sum of positive minus negative movements.
+     */
+    @Query("""
+            SELECT COALESCE(SUM(accountState.positiveMovement - accountState.negativeMovement), 0)
+            FROM AccountState accountState
+            WHERE accountState.account.id = :accountId AND accountState.date BETWEEN :startDate AND :endDate
+            """)
+    BigDecimal sumMovements(@Param("accountId") Long accountId,
+                            @Param("startDate") LocalDate startDate,
+                            @Param("endDate") LocalDate endDate);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            UPDATE account_state
+            SET month_amount = 0, positive_movement = 0, negative_movement = 0, refund_amount = 0
+            WHERE account_id = :accountId
+            """, nativeQuery = true)
+    void resetMovements(@Param("accountId") Long accountId);
+
+    /**
+     * Recalculates monthAmount of the AccountStates of the Account dated on or after the specified date and before
+     * the end date with a single statement, using the running sum of movements within each month. The rewrite never
+     * crosses the end date, and only AccountStates whose monthAmount changed are updated.
+     *
+     * @param accountId  ID of the Account to rebalance.
+     * @param date       Date of the earliest AccountState to update.
+     * @param monthStart First day of the month of the date, the running sum starts there.
+     * @param endDate    Date the AccountStates to update must be before.
+     * @return Number of updated AccountStates.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            MERGE INTO account_state target
+            USING (
+                SELECT id,
+                       SUM(positive_movement - negative_movement) OVER (
+                           PARTITION BY DATE_TRUNC('month', date) ORDER BY date
+                       ) AS month_amount
+                FROM account_state
+                WHERE account_id = :accountId AND date >= :monthStart AND date < :endDate
+            ) balances
+            ON target.id = balances.id AND target.date >= :date
+            WHEN MATCHED AND target.month_amount <> balances.month_amount THEN UPDATE SET
+                month_amount = balances.month_amount
+            """, nativeQuery = true)
+    int rebalanceMonthAmounts(@Param("accountId") Long accountId,
+                              @Param("date") LocalDate date,
+                              @Param("monthStart") LocalDate monthStart,
+                              @Param("endDate") LocalDate endDate);
 }
@@ -0,0 +1,79 @@
+package jedrzychowski.szymon.expense_tracker.repository;
+
+import jedrzychowski.szymon.expense_tracker.entity.AccountState;
+import jedrzychowski.szymon.expense_tracker.entity.AppUser;
+import jedrzychowski.szymon.expense_tracker.entity.dto.accountState.AccountStateDTO;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+public interface AccountStateRepositoryCustom {
+
+    /**
+     * Adds movements to the AccountState of the Account on the date, inserting it first if it does not exist yet.
+     * A new AccountState is seeded with the monthAmount of the previous AccountState of the Account in the month.
+     * Runs as a single statement relying on the unique (account_id, date) key. On PostgreSQL concurrent writers to
+     * the same day end up with one AccountState holding all of their movements. H2 does not make the MERGE wait
+     * for a concurrent insert of the same key, so there writes of one Account must not run concurrently, which
+     * AccountWriteSequencer guarantees.
+     *
+     * @param accountId        ID of the Account.
+     * @param date             Date of the AccountState.
+     * @param positiveMovement Positive movement to add.
+     * @param negativeMovement Negative movement to add.
+     * @param refundAmount     Refund amount to add.
+     * @return Inserted or updated AccountState, read from the same statement. If the AccountState was already
+     * managed by the persistence context, that instance is returned and its movements are not refreshed.
+     */
+    AccountState upsertMovements(Long accountId,
+                                 LocalDate date,
+                                 long positiveMovement,
+                                 long negativeMovement,
+                                 long refundAmount);
+
+    /**
+     * Finds a page of AccountStates of the Account between the dates, both inclusive, after the cursor position,
+     * selecting only the columns of the requested fields. ID and date are always selected, as they make up the
+     * cursor of the next page.
+     *
+     * @param accountId ID of the Account.
+     * @param startDate First date to include, unbounded if null.
+     * @param endDate   Last date to include, unbounded if null.
+     * @param afterDate Date of the last AccountState of the previous page, null for the first page.
+     * @param afterId   ID of the last AccountState of the previous page.
+     * @param limit     Maximum number of AccountStates, can be unlimited.
+     * @param fields    Fields of AccountStateDTO to select, the others are null.
+     * @return AccountStates ordered by date and ID.
+     */
+    List<AccountStateDTO> findPageByAccountId(Long accountId,
+                                              LocalDate startDate,
+                                              LocalDate endDate,
+                                              LocalDate afterDate,
+                                              Long afterId,
+                                              Limit limit,
+                                              Set<String> fields);
+
+    /**
+     * Finds a page of AccountStates of all Accounts of the AppUser between the dates, both inclusive, after the
+     * cursor position, selecting only the columns of the requested fields. ID and date are always selected, as they
+     * make up the cursor of the next page.
+     *
+     * @param appUser   AppUser owning the Accounts.
+     * @param startDate First date to include, unbounded if null.
+     * @param endDate   Last date to include, unbounded if null.
+     * @param afterDate Date of the last AccountState of the previous page, null for the first page.
+     * @param afterId   ID of the last AccountState of the previous page.
+     * @param limit     Maximum number of AccountStates, can be unlimited.
+     * @param fields    Fields of AccountStateDTO to select, the others are null.
+     * @return AccountStates ordered by date and ID.
+     */
+    List<AccountStateDTO> findPageByAppUser(AppUser appUser,
+                                            LocalDate startDate,
+                                            LocalDate endDate,
+                                            LocalDate afterDate,
+                                            Long afterId,
+                                            Limit limit,
+                                            Set<String> fields);
+}
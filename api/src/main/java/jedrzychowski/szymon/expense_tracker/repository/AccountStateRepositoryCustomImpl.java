@@ -0,0 +1,199 @@
+package jedrzychowski.szymon.expense_tracker.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jedrzychowski.szymon.expense_tracker.entity.AccountState;
+import jedrzychowski.szymon.expense_tracker.entity.AppUser;
+import jedrzychowski.szymon.expense_tracker.entity.dto.accountState.AccountStateDTO;
+import jedrzychowski.szymon.expense_tracker.util.DialectUtil;
+import jedrzychowski.szymon.expense_tracker.util.FieldSelection;
+import jedrzychowski.szymon.expense_tracker.util.MoneyUtil;
+import jedrzychowski.szymon.expense_tracker.util.QueryConditions;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class AccountStateRepositoryCustomImpl implements AccountStateRepositoryCustom {
+
+    private static final String SEQUENCE_NAME = "account_state_seq";
+
+    private static final String PREVIOUS_MONTH_AMOUNT = """
+            COALESCE((
+                SELECT previous.month_amount
+                FROM account_state previous
+                WHERE previous.account_id = :accountId AND previous.date >= :monthStart AND previous.date < :date
+                ORDER BY previous.date DESC
+                FETCH FIRST 1 ROWS ONLY
+            ), 0)""";
+
+    /**
+     * Read along with the upserted row, so that it is mapped to AccountState without loading it again.
+     */
+    private static final String CURRENT_AMOUNT = """
+            month_amount + COALESCE((
+                SELECT checkpoint.opening_balance
+                FROM account_balance_checkpoint checkpoint
+                WHERE checkpoint.account_id = :accountId AND checkpoint.month_start = :monthStart
+            ), 0) AS currentAmount""";
+
+    private static final String POSTGRESQL_UPSERT = """
+            INSERT INTO account_state (
+                id, account_id, date, month_amount, positive_movement, negative_movement, refund_amount
+            )
+            VALUES (
+                %s, :accountId, :date, %s + :positiveMovement - :negativeMovement,
+                :positiveMovement, :negativeMovement, :refundAmount
+            )
+            ON CONFLICT (account_id, date) DO UPDATE SET
+                month_amount = account_state.month_amount + excluded.positive_movement - excluded.negative_movement,
+                positive_movement = account_state.positive_movement + excluded.positive_movement,
+                negative_movement = account_state.negative_movement + excluded.negative_movement,
+                refund_amount = account_state.refund_amount + excluded.refund_amount
+            RETURNING *, %s
+            """;
+
+    private static final String MERGE_UPSERT = """
+            SELECT merged.*, %s FROM FINAL TABLE (
+                MERGE INTO account_state target
+                USING (VALUES (:accountId, :date)) source(account_id, date)
+                ON target.account_id = source.account_id AND target.date = source.date
+                WHEN MATCHED THEN UPDATE SET
+                    month_amount = target.month_amount + :positiveMovement - :negativeMovement,
+                    positive_movement = target.positive_movement + :positiveMovement,
+                    negative_movement = target.negative_movement + :negativeMovement,
+                    refund_amount = target.refund_amount + :refundAmount
+                WHEN NOT MATCHED THEN INSERT (
+                    id, account_id, date, month_amount, positive_movement, negative_movement, refund_amount
+                )
+                VALUES (
+                    %s, :accountId, :date, %s + :positiveMovement - :negativeMovement,
+                    :positiveMovement, :negativeMovement, :refundAmount
+                )
+            ) merged
+            """;
+
+    private static final Map<String, String> PAGE_EXPRESSIONS = Map.of(
+            "id", "accountState.id",
+            "date", "accountState.date",
+            "currentAmount", "accountState.currentAmount",
+            "negativeMovement", "accountState.negativeMovement",
+            "positiveMovement", "accountState.positiveMovement",
+            "refundAmount", "accountState.refundAmount",
+            "account", "accountState.account.id"
+    );
+
+    /**
+     * The select clause is built from PAGE_EXPRESSIONS and the conditions are fixed, never user input.
+     */
+    private static final String FIND_PAGE = """
+            SELECT %s
+            FROM AccountState accountState
+            WHERE %s
+            ORDER BY accountState.date ASC, accountState.id ASC
+            """;
+
+    private static final String AFTER_CURSOR =
+            "(accountState.date > :afterDate OR (accountState.date = :afterDate AND accountState.id > :afterId))";
+
+    private final EntityManager entityManager;
+    private final String upsertStatement;
+
+    /**
+     * PostgreSQL cannot return rows from MERGE, so it uses INSERT ... ON CONFLICT, other databases (H2) select
+     * the merged row from its data change delta table.
+     */
+    public AccountStateRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        Dialect dialect = DialectUtil.getDialect(entityManager);
+        String nextId = dialect.getSequenceSupport().getSelectSequenceNextValString(SEQUENCE_NAME);
+        this.upsertStatement = dialect instanceof PostgreSQLDialect
+                ? String.format(POSTGRESQL_UPSERT, nextId, PREVIOUS_MONTH_AMOUNT, CURRENT_AMOUNT)
+                : String.format(MERGE_UPSERT, CURRENT_AMOUNT, nextId, PREVIOUS_MONTH_AMOUNT);
+    }
+
+    @Override
+    public AccountState upsertMovements(Long accountId,
+                                        LocalDate date,
+                                        long positiveMovement,
+                                        long negativeMovement,
+                                        long refundAmount) {
+        return (AccountState) entityManager.createNativeQuery(upsertStatement, AccountState.class)
+                .setParameter("accountId", accountId)
+                .setParameter("date", date)
+                .setParameter("monthStart", date.withDayOfMonth(1))
+                .setParameter("positiveMovement", MoneyUtil.toBigDecimal(positiveMovement))
+                .setParameter("negativeMovement", MoneyUtil.toBigDecimal(negativeMovement))
+                .setParameter("refundAmount", MoneyUtil.toBigDecimal(refundAmount))
+                .getSingleResult();
+    }
+
+    @Override
+    public List<AccountStateDTO> findPageByAccountId(Long accountId,
+                                                     LocalDate startDate,
+                                                     LocalDate endDate,
+                                                     LocalDate afterDate,
+                                                     Long afterId,
+                                                     Limit limit,
+                                                     Set<String> fields) {
+        return findPage(
+                new QueryConditions("accountState.account.id = :accountId", Map.of("accountId", accountId)),
+                new FieldSelection(PAGE_EXPRESSIONS, fields, "id", "date"),
+                startDate, endDate, afterDate, afterId, limit
+        );
+    }
+
+    @Override
+    public List<AccountStateDTO> findPageByAppUser(AppUser appUser,
+                                                   LocalDate startDate,
+                                                   LocalDate endDate,
+                                                   LocalDate afterDate,
+                                                   Long afterId,
+                                                   Limit limit,
+                                                   Set<String> fields) {
+        return findPage(
+                new QueryConditions("accountState.account.appUser = :appUser", Map.of("appUser", appUser)),
+                new FieldSelection(PAGE_EXPRESSIONS, fields, "id", "date"),
+                startDate, endDate, afterDate, afterId, limit
+        );
+    }
+
+    /**
+     * Filters by the bounds of the date range and the cursor only if they are set, so that an open range reads the
+     * rows of the owner without comparing their dates.
+     */
+    private List<AccountStateDTO> findPage(QueryConditions conditions,
+                                           FieldSelection selection,
+                                           LocalDate startDate,
+                                           LocalDate endDate,
+                                           LocalDate afterDate,
+                                           Long afterId,
+                                           Limit limit) {
+        conditions.addDateRange("accountState.date", startDate, endDate);
+        if (afterDate != null) {
+            conditions.add(AFTER_CURSOR, Map.of("afterDate", afterDate, "afterId", afterId));
+        }
+        TypedQuery<Object[]> query = conditions.setParameters(entityManager.createQuery(
+                String.format(FIND_PAGE, selection.getSelectClause(), conditions.getWhereClause()), Object[].class
+        ));
+        if (limit.isLimited()) {
+            query.setMaxResults(limit.max());
+        }
+        return query.getResultList()
+                .stream()
+                .map(row -> new AccountStateDTO(
+                        selection.get(row, "id"),
+                        selection.get(row, "date"),
+                        selection.get(row, "currentAmount"),
+                        selection.get(row, "negativeMovement"),
+                        selection.get(row, "positiveMovement"),
+                        selection.get(row, "refundAmount"),
+                        selection.get(row, "account")
+                ))
+                .toList();
+    }
+}
@@ -0,0 +1,7 @@
+package jedrzychowski.szymon.expense_tracker.repository;
+
+import jedrzychowski.szymon.expense_tracker.entity.DataBackfill;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface DataBackfillRepository extends JpaRepository<DataBackfill, String> {
+}
@@ -0,0 +1,47 @@
+package jedrzychowski.szymon.expense_tracker.repository;
+
+import jedrzychowski.szymon.expense_tracker.entity.ExpenseEvent;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expenseEvent.ExpenseEventTotalDTO;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface ExpenseEventRepository extends JpaRepository<ExpenseEvent, Long> {
+
+    boolean existsByAccountId(Long accountId);
+
+    @Query("SELECT COALESCE(MAX(event.sequenceNumber), 0) FROM ExpenseEvent event WHERE event.accountId = :accountId")
+    long findLastSequenceNumber(@Param("accountId") Long accountId);
+
+    /**
+     * Sums the ExpenseEvents of the Account after the specified position per date.
+     *
+     * @param accountId          ID of the Account.
+     * @param lastSequenceNumber Sequence number of the last already projected ExpenseEvent.
+     * @return Totals per date, ordered by date.
+     */
+    @Query("""
+            SELECT new jedrzychowski.szymon.expense_tracker.entity.dto.expenseEvent.ExpenseEventTotalDTO(
+                event.date,
+                SUM(event.positiveMovement),
+                SUM(event.negativeMovement),
+                SUM(event.refundAmount),
+                MAX(event.sequenceNumber)
+            )
+            FROM ExpenseEvent event
+            WHERE event.accountId = :accountId AND event.sequenceNumber > :lastSequenceNumber
+            GROUP BY event.date
+            ORDER BY event.date
+            """)
+    List<ExpenseEventTotalDTO> sumEventsAfter(@Param("accountId") Long accountId,
+                                              @Param("lastSequenceNumber") long lastSequenceNumber);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ExpenseEvent event WHERE event.accountId = :accountId")
+    void deleteAllByAccountId(@Param("accountId") Long accountId);
+}
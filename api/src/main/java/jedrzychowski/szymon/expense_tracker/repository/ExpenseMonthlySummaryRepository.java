@@ -0,0 +1,51 @@
+package jedrzychowski.szymon.expense_tracker.repository;
+
+import jedrzychowski.szymon.expense_tracker.entity.ExpenseMonthlySummary;
+import jedrzychowski.szymon.expense_tracker.entity.ExpenseMonthlySummaryId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface ExpenseMonthlySummaryRepository extends JpaRepository<ExpenseMonthlySummary, ExpenseMonthlySummaryId>,
+                                                         ExpenseMonthlySummaryRepositoryCustom {
+
+    /**
+     * Inserts the summaries of the Account computed from its Expenses. Existing summaries of the Account have to be
+     * deleted first.
+     *
+     * @param accountId ID of the Account.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO expense_monthly_summary (
+                account_id, expense_type_id, month_start,
+                positive_movement, negative_movement, refund_amount, expense_count
+            )
+            SELECT account_state.account_id,
+                   expense.expense_type_id,
+                   CAST(DATE_TRUNC('month', account_state.date) AS DATE),
+                   COALESCE(SUM(CASE WHEN expense.movement_amount > 0 THEN expense.movement_amount END), 0),
+                   COALESCE(SUM(CASE WHEN expense.movement_amount < 0 THEN -expense.movement_amount END), 0),
+                   COALESCE(SUM(expense.refund_amount), 0),
+                   COUNT(*)
+            FROM expense
+            JOIN account_state ON account_state.id = expense.account_state_id
+            WHERE account_state.account_id = :accountId
+            GROUP BY account_state.account_id,
+                     expense.expense_type_id,
+                     CAST(DATE_TRUNC('month', account_state.date) AS DATE)
+            """, nativeQuery = true)
+    void insertFromExpenses(@Param("accountId") Long accountId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ExpenseMonthlySummary summary WHERE summary.id.accountId = :accountId")
+    void deleteAllByAccountId(@Param("accountId") Long accountId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ExpenseMonthlySummary summary WHERE summary.id.expenseTypeId = :expenseTypeId")
+    void deleteAllByExpenseTypeId(@Param("expenseTypeId") Long expenseTypeId);
+}
@@ -0,0 +1,61 @@
+package jedrzychowski.szymon.expense_tracker.repository;
+
+import jedrzychowski.szymon.expense_tracker.entity.ReportPeriod;
+import jedrzychowski.szymon.expense_tracker.entity.dto.report.SpendingReportRowDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ExpenseMonthlySummaryRepositoryCustom {
+
+    /**
+     * Adds the deltas to the summary of the ExpenseType of the Account in the month, inserting it first if it does
+     * not exist yet. Runs as a single statement relying on the primary key, so concurrent writers end up with one
+     * summary holding all of their deltas.
+     *
+     * @param accountId        ID of the Account.
+     * @param expenseTypeId    ID of the ExpenseType.
+     * @param monthStart       First day of the month.
+     * @param positiveMovement Positive movement to add.
+     * @param negativeMovement Negative movement to add.
+     * @param refundAmount     Refund amount to add.
+     * @param expenseCount     Number of Expenses to add.
+     */
+    void addDeltas(Long accountId,
+                   Long expenseTypeId,
+                   LocalDate monthStart,
+                   long positiveMovement,
+                   long negativeMovement,
+                   long refundAmount,
+                   long expenseCount);
+
+    /**
+     * Sums the summaries of the Account with months between the dates, both inclusive, grouped by period, Account
+     * and ExpenseType. Only MONTH and YEAR periods can be computed from monthly summaries.
+     *
+     * @param accountId ID of the Account.
+     * @param startDate First month start to include.
+     * @param endDate   Last month start to include.
+     * @param period    Length of the periods.
+     * @return Totals ordered by period start, Account ID and ExpenseType ID.
+     */
+    List<SpendingReportRowDTO> sumSummariesByAccountId(Long accountId,
+                                                       LocalDate startDate,
+                                                       LocalDate endDate,
+                                                       ReportPeriod period);
+
+    /**
+     * Sums the summaries of all Accounts of the AppUser with months between the dates, both inclusive, grouped by
+     * period, Account and ExpenseType. Only MONTH and YEAR periods can be computed from monthly summaries.
+     *
+     * @param appUserId ID of the AppUser.
+     * @param startDate First month start to include.
+     * @param endDate   Last month start to include.
+     * @param period    Length of the periods.
+     * @return Totals ordered by period start, Account ID and ExpenseType ID.
+     */
+    List<SpendingReportRowDTO> sumSummariesByAppUserId(Long appUserId,
+                                                       LocalDate startDate,
+                                                       LocalDate endDate,
+                                                       ReportPeriod period);
+}
@@ -0,0 +1,167 @@
+package jedrzychowski.szymon.expense_tracker.repository;
+
+import jakarta.persistence.EntityManager;
+import jedrzychowski.szymon.expense_tracker.entity.ReportPeriod;
+import jedrzychowski.szymon.expense_tracker.entity.dto.report.SpendingReportRowDTO;
+import jedrzychowski.szymon.expense_tracker.util.DialectUtil;
+import jedrzychowski.szymon.expense_tracker.util.MoneyUtil;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public class ExpenseMonthlySummaryRepositoryCustomImpl implements ExpenseMonthlySummaryRepositoryCustom {
+
+    private static final String POSTGRESQL_UPSERT = """
+            INSERT INTO expense_monthly_summary (
+                account_id, expense_type_id, month_start,
+                positive_movement, negative_movement, refund_amount, expense_count
+            )
+            VALUES (
+                :accountId, :expenseTypeId, :monthStart,
+                :positiveMovement, :negativeMovement, :refundAmount, :expenseCount
+            )
+            ON CONFLICT (account_id, expense_type_id, month_start) DO UPDATE SET
+                positive_movement = expense_monthly_summary.positive_movement + excluded.positive_movement,
+                negative_movement = expense_monthly_summary.negative_movement + excluded.negative_movement,
+                refund_amount = expense_monthly_summary.refund_amount + excluded.refund_amount,
+                expense_count = expense_monthly_summary.expense_count + excluded.expense_count
+            """;
+
+    private static final String MERGE_UPSERT = """
+            MERGE INTO expense_monthly_summary target
+            USING (VALUES (:accountId, :expenseTypeId, :monthStart)) source(account_id, expense_type_id, month_start)
+            ON target.account_id = source.account_id
+                AND target.expense_type_id = source.expense_type_id
+                AND target.month_start = source.month_start
+            WHEN MATCHED THEN UPDATE SET
+                positive_movement = target.positive_movement + :positiveMovement,
+                negative_movement = target.negative_movement + :negativeMovement,
+                refund_amount = target.refund_amount + :refundAmount,
+                expense_count = target.expense_count + :expenseCount
+            WHEN NOT MATCHED THEN INSERT (
+                account_id, expense_type_id, month_start,
+                positive_movement, negative_movement, refund_amount, expense_count
+            )
+            VALUES (
+                :accountId, :expenseTypeId, :monthStart,
+                :positiveMovement, :negativeMovement, :refundAmount, :expenseCount
+            )
+            """;
+
+    /**
+     * The truncation unit is the name of a ReportPeriod, never user input, so it can be part of the statement.
+     * Summaries left empty by deleted or moved Expenses are skipped.
+     */
+    private static final String SUM_SUMMARIES = """
+            SELECT CAST(DATE_TRUNC('%s', summary.month_start) AS DATE) AS period_start,
+                   summary.account_id AS account_id,
+                   summary.expense_type_id AS expense_type_id,
+                   SUM(summary.positive_movement - summary.negative_movement) AS movement_amount,
+                   SUM(summary.refund_amount) AS refund_amount,
+                   SUM(summary.expense_count) AS expense_count
+            FROM expense_monthly_summary summary
+            %s
+            WHERE %s AND summary.month_start BETWEEN :startDate AND :endDate AND summary.expense_count > 0
+            GROUP BY CAST(DATE_TRUNC('%1$s', summary.month_start) AS DATE),
+                     summary.account_id,
+                     summary.expense_type_id
+            ORDER BY period_start, account_id, expense_type_id
+            """;
+
+    private final EntityManager entityManager;
+    private final String upsertStatement;
+
+    /**
+     * PostgreSQL MERGE needs explicit casts of the source values, so it uses INSERT ... ON CONFLICT, other
+     * databases (H2) use MERGE.
+     */
+    public ExpenseMonthlySummaryRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        this.upsertStatement = DialectUtil.getDialect(entityManager) instanceof PostgreSQLDialect
+                ? POSTGRESQL_UPSERT
+                : MERGE_UPSERT;
+    }
+
+    @Override
+    public void addDeltas(Long accountId,
+                          Long expenseTypeId,
+                          LocalDate monthStart,
+                          long positiveMovement,
+                          long negativeMovement,
+                          long refundAmount,
+                          long expenseCount) {
+        entityManager.createNativeQuery(upsertStatement)
+                .setParameter("accountId", accountId)
+                .setParameter("expenseTypeId", expenseTypeId)
+                .setParameter("monthStart", monthStart)
+                .setParameter("positiveMovement", MoneyUtil.toBigDecimal(positiveMovement))
+                .setParameter("negativeMovement", MoneyUtil.toBigDecimal(negativeMovement))
+                .setParameter("refundAmount", MoneyUtil.toBigDecimal(refundAmount))
+                .setParameter("expenseCount", expenseCount)
+                .executeUpdate();
+    }
+
+    @Override
+    public List<SpendingReportRowDTO> sumSummariesByAccountId(Long accountId,
+                                                              LocalDate startDate,
+                                                              LocalDate endDate,
+                                                              ReportPeriod period) {
+        return sumSummaries(
+                String.format(SUM_SUMMARIES, getTruncationUnit(period), "", "summary.account_id = :ownerId"),
+                accountId, startDate, endDate
+        );
+    }
+
+    @Override
+    public List<SpendingReportRowDTO> sumSummariesByAppUserId(Long appUserId,
+                                                              LocalDate startDate,
+                                                              LocalDate endDate,
+                                                              ReportPeriod period) {
+        return sumSummaries(
+                String.format(SUM_SUMMARIES, getTruncationUnit(period),
+                        "JOIN account ON account.id = summary.account_id", "account.app_user_id = :ownerId"),
+                appUserId, startDate, endDate
+        );
+    }
+
+    private List<SpendingReportRowDTO> sumSummaries(String statement,
+                                                    Long ownerId,
+                                                    LocalDate startDate,
+                                                    LocalDate endDate) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery(statement)
+                .setParameter("ownerId", ownerId)
+                .setParameter("startDate", startDate)
+                .setParameter("endDate", endDate)
+                .unwrap(NativeQuery.class)
+                .addScalar("period_start", StandardBasicTypes.LOCAL_DATE)
+                .addScalar("account_id", StandardBasicTypes.LONG)
+                .addScalar("expense_type_id", StandardBasicTypes.LONG)
+                .addScalar("movement_amount", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("refund_amount", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("expense_count", StandardBasicTypes.LONG)
+                .getResultList();
+
+        return rows.stream()
+                .map(row -> new SpendingReportRowDTO(
+                        (LocalDate) row[0],
+                        (Long) row[1],
+                        (Long) row[2],
+                        MoneyUtil.toMinorUnits((BigDecimal) row[3]),
+                        MoneyUtil.toMinorUnits((BigDecimal) row[4]),
+                        (Long) row[5]
+                ))
+                .toList();
+    }
+
+    private String getTruncationUnit(ReportPeriod period) {
+        if (period != ReportPeriod.MONTH && period != ReportPeriod.YEAR) {
+            throw new IllegalArgumentException(String.format("Period %s cannot be computed from monthly summaries.", period));
+        }
+        return period.name().toLowerCase();
+    }
+}
@@ -1,15 +1,28 @@
 package jedrzychowski.szymon.expense_tracker.repository;
 
+import jakarta.persistence.QueryHint;
 import jedrzychowski.szymon.expense_tracker.entity.Account;
 import jedrzychowski.szymon.expense_tracker.entity.AppUser;
 import jedrzychowski.szymon.expense_tracker.entity.Expense;
 import jedrzychowski.szymon.expense_tracker.entity.ExpenseType;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseAnalyticsRowDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseSearchDocumentDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseSpendingDTO;
+import jedrzychowski.szymon.expense_tracker.util.NdjsonUtil;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface ExpenseRepository extends JpaRepository<Expense, Long> {
+public interface ExpenseRepository extends JpaRepository<Expense, Long>, ExpenseRepositoryCustom {
 
     @EntityGraph(attributePaths = {
             "account",
@@ -21,17 +34,115 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long> {
     })
     List<Expense> findAllByAccountIdOrderByAccountState_DateAsc(Long accountId);
 
-    @EntityGraph(attributePaths = {
-            "account",
-            "account.appUser",
-            "accountState",
-            "expenseType",
-            "expenseType.account",
-            "expenseType.account.appUser"
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + NdjsonUtil.FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT new jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseDTO(
+                expense.id, expense.movementAmount, expense.refundAmount, expense.expenseType.id,
+                expense.description, expense.account.id, accountState.id, accountState.date
+            )
+            FROM Expense expense JOIN expense.accountState accountState
+            WHERE accountState.account.id = :accountId
+              AND accountState.date BETWEEN :startDate AND :endDate
+            ORDER BY accountState.date ASC, expense.id ASC
+            """)
+    Stream<ExpenseDTO> streamByAccountId(@Param("accountId") Long accountId,
+                                      @Param("startDate") LocalDate startDate,
+                                      @Param("endDate") LocalDate endDate);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + NdjsonUtil.FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
     })
-    List<Expense> findAllByAccount_AppUserOrderByAccountState_DateAsc(AppUser appUser);
+    @Query("""
+            SELECT new jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseDTO(
+                expense.id, expense.movementAmount, expense.refundAmount, expense.expenseType.id,
+                expense.description, expense.account.id, accountState.id, accountState.date
+            )
+            FROM Expense expense JOIN expense.accountState accountState
+            WHERE accountState.account.appUser = :appUser
+              AND accountState.date BETWEEN :startDate AND :endDate
+            ORDER BY accountState.date ASC, expense.id ASC
+            """)
+    Stream<ExpenseDTO> streamByAppUser(@Param("appUser") AppUser appUser,
+                                    @Param("startDate") LocalDate startDate,
+                                    @Param("endDate") LocalDate endDate);
 
     Integer countByAccount(Account account);
 
     Boolean existsByExpenseType(ExpenseType expenseType);
-}
\ No newline at end of file
+
+    @Query("SELECT DISTINCT e.account.id FROM Expense e WHERE e.id IN :ids")
+    List<Long> findAccountIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("""
+            SELECT new jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseDTO(
+                expense.id, expense.movementAmount, expense.refundAmount, expense.expenseType.id,
+                expense.description, expense.account.id, accountState.id, accountState.date
+            )
+            FROM Expense expense JOIN expense.accountState accountState
+            WHERE expense.id IN :ids
+            """)
+    List<ExpenseDTO> findAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + NdjsonUtil.FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT new jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseSearchDocumentDTO(
+                expense.id, expense.account.id, accountState.date, expense.description
+            )
+            FROM Expense expense JOIN expense.accountState accountState
+            WHERE expense.account.appUser.id = :appUserId AND expense.description IS NOT NULL
+            """)
+    Stream<ExpenseSearchDocumentDTO> streamSearchDocumentsByAppUserId(@Param("appUserId") Long appUserId);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + NdjsonUtil.FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT new jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseAnalyticsRowDTO(
+                expense.id, expense.account.id, expense.expenseType.id, accountState.date, expense.movementAmount,
+                expense.refundAmount
+            )
+            FROM Expense expense JOIN expense.accountState accountState
+            WHERE expense.account.appUser.id = :appUserId
+            ORDER BY accountState.date ASC
+            """)
+    Stream<ExpenseAnalyticsRowDTO> streamAnalyticsRowsByAppUserId(@Param("appUserId") Long appUserId);
+
+    /**
+     * Streams the spending Expenses of the AppUser, the ones with a negative movementAmount, between the dates.
+     *
+     * @param appUserId     ID of the AppUser.
+     * @param accountId     Optional ID of the Account to filter by.
+     * @param expenseTypeId Optional ID of the ExpenseType to filter by.
+     * @param startDate     First date to include.
+     * @param endDate       Last date to include.
+     * @return Spending Expenses in no particular order.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + NdjsonUtil.FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT new jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseSpendingDTO(
+                expense.id, expense.account.id, expense.expenseType.id, accountState.date, expense.movementAmount
+            )
+            FROM Expense expense JOIN expense.accountState accountState
+            WHERE expense.account.appUser.id = :appUserId
+              AND (:accountId IS NULL OR expense.account.id = :accountId)
+              AND (:expenseTypeId IS NULL OR expense.expenseType.id = :expenseTypeId)
+              AND accountState.date BETWEEN :startDate AND :endDate
+              AND expense.movementAmount < 0
+            """)
+    Stream<ExpenseSpendingDTO> streamSpendingByAppUserId(@Param("appUserId") Long appUserId,
+                                                         @Param("accountId") Long accountId,
+                                                         @Param("expenseTypeId") Long expenseTypeId,
+                                                         @Param("startDate") LocalDate startDate,
+                                                         @Param("endDate") LocalDate endDate);
+}
@@ -0,0 +1,87 @@
+package jedrzychowski.szymon.expense_tracker.repository;
+
+import jedrzychowski.szymon.expense_tracker.entity.AppUser;
+import jedrzychowski.szymon.expense_tracker.entity.ReportPeriod;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.report.SpendingReportRowDTO;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+public interface ExpenseRepositoryCustom {
+
+    /**
+     * Finds a page of Expenses of the Account between the dates, both inclusive, after the cursor position,
+     * selecting only the columns of the requested fields. ID and date are always selected, as they make up the
+     * cursor of the next page.
+     *
+     * @param accountId ID of the Account.
+     * @param startDate First date to include, unbounded if null.
+     * @param endDate   Last date to include, unbounded if null.
+     * @param afterDate Date of the last Expense of the previous page, null for the first page.
+     * @param afterId   ID of the last Expense of the previous page.
+     * @param limit     Maximum number of Expenses, can be unlimited.
+     * @param fields    Fields of ExpenseDTO to select, the others are null.
+     * @return Expenses ordered by date and ID.
+     */
+    List<ExpenseDTO> findPageByAccountId(Long accountId,
+                                         LocalDate startDate,
+                                         LocalDate endDate,
+                                         LocalDate afterDate,
+                                         Long afterId,
+                                         Limit limit,
+                                         Set<String> fields);
+
+    /**
+     * Finds a page of Expenses of all Accounts of the AppUser between the dates, both inclusive, after the cursor
+     * position, selecting only the columns of the requested fields. ID and date are always selected, as they make
+     * up the cursor of the next page.
+     *
+     * @param appUser   AppUser owning the Accounts.
+     * @param startDate First date to include, unbounded if null.
+     * @param endDate   Last date to include, unbounded if null.
+     * @param afterDate Date of the last Expense of the previous page, null for the first page.
+     * @param afterId   ID of the last Expense of the previous page.
+     * @param limit     Maximum number of Expenses, can be unlimited.
+     * @param fields    Fields of ExpenseDTO to select, the others are null.
+     * @return Expenses ordered by date and ID.
+     */
+    List<ExpenseDTO> findPageByAppUser(AppUser appUser,
+                                       LocalDate startDate,
+                                       LocalDate endDate,
+                                       LocalDate afterDate,
+                                       Long afterId,
+                                       Limit limit,
+                                       Set<String> fields);
+
+    /**
+     * Sums Expenses of the Account between the dates, both inclusive, grouped by period, Account and ExpenseType.
+     *
+     * @param accountId ID of the Account.
+     * @param startDate First date to include, unbounded if null.
+     * @param endDate   Last date to include, unbounded if null.
+     * @param period    Length of the periods.
+     * @return Totals ordered by period start, Account ID and ExpenseType ID.
+     */
+    List<SpendingReportRowDTO> sumSpendingByAccountId(Long accountId,
+                                                      LocalDate startDate,
+                                                      LocalDate endDate,
+                                                      ReportPeriod period);
+
+    /**
+     * Sums Expenses of all Accounts of the AppUser between the dates, both inclusive, grouped by period, Account
+     * and ExpenseType.
+     *
+     * @param appUserId ID of the AppUser.
+     * @param startDate First date to include, unbounded if null.
+     * @param endDate   Last date to include, unbounded if null.
+     * @param period    Length of the periods.
+     * @return Totals ordered by period start, Account ID and ExpenseType ID.
+     */
+    List<SpendingReportRowDTO> sumSpendingByAppUserId(Long appUserId,
+                                                      LocalDate startDate,
+                                                      LocalDate endDate,
+                                                      ReportPeriod period);
+}
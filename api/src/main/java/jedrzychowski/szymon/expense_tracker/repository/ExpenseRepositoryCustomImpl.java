@@ -0,0 +1,207 @@
+package jedrzychowski.szymon.expense_tracker.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jedrzychowski.szymon.expense_tracker.entity.AppUser;
+import jedrzychowski.szymon.expense_tracker.entity.ReportPeriod;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.report.SpendingReportRowDTO;
+import jedrzychowski.szymon.expense_tracker.util.DialectUtil;
+import jedrzychowski.szymon.expense_tracker.util.FieldSelection;
+import jedrzychowski.szymon.expense_tracker.util.MoneyUtil;
+import jedrzychowski.szymon.expense_tracker.util.QueryConditions;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class ExpenseRepositoryCustomImpl implements ExpenseRepositoryCustom {
+
+    private static final Map<String, String> PAGE_EXPRESSIONS = Map.of(
+            "id", "expense.id",
+            "movementAmount", "expense.movementAmount",
+            "refundAmount", "expense.refundAmount",
+            "expenseType", "expense.expenseType.id",
+            "description", "expense.description",
+            "account", "expense.account.id",
+            "accountState", "accountState.id",
+            "date", "accountState.date"
+    );
+
+    /**
+     * The select clause is built from PAGE_EXPRESSIONS and the conditions are fixed, never user input.
+     */
+    private static final String FIND_PAGE = """
+            SELECT %s
+            FROM Expense expense JOIN expense.accountState accountState
+            WHERE %s
+            ORDER BY accountState.date ASC, expense.id ASC
+            """;
+
+    private static final String AFTER_CURSOR =
+            "(accountState.date > :afterDate OR (accountState.date = :afterDate AND expense.id > :afterId))";
+
+    /**
+     * The truncation unit is the name of a ReportPeriod, never user input, so it can be part of the statement.
+     */
+    private static final String SUM_SPENDING = """
+            SELECT CAST(DATE_TRUNC('%s', account_state.date) AS DATE) AS period_start,
+                   account_state.account_id AS account_id,
+                   expense.expense_type_id AS expense_type_id,
+                   COALESCE(SUM(expense.movement_amount), 0) AS movement_amount,
+                   COALESCE(SUM(expense.refund_amount), 0) AS refund_amount,
+                   COUNT(*) AS expense_count
+            FROM expense
+            JOIN account_state ON account_state.id = expense.account_state_id
+            %s
+            WHERE %s
+            GROUP BY CAST(DATE_TRUNC('%1$s', account_state.date) AS DATE),
+                     account_state.account_id,
+                     expense.expense_type_id
+            ORDER BY period_start, account_id, expense_type_id
+            """;
+
+    private final EntityManager entityManager;
+    private final boolean postgreSQL;
+
+    public ExpenseRepositoryCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        this.postgreSQL = DialectUtil.getDialect(entityManager) instanceof PostgreSQLDialect;
+    }
+
+    @Override
+    public List<ExpenseDTO> findPageByAccountId(Long accountId,
+                                                LocalDate startDate,
+                                                LocalDate endDate,
+                                                LocalDate afterDate,
+                                                Long afterId,
+                                                Limit limit,
+                                                Set<String> fields) {
+        return findPage(
+                new QueryConditions("accountState.account.id = :accountId", Map.of("accountId", accountId)),
+                new FieldSelection(PAGE_EXPRESSIONS, fields, "id", "date"),
+                startDate, endDate, afterDate, afterId, limit
+        );
+    }
+
+    @Override
+    public List<ExpenseDTO> findPageByAppUser(AppUser appUser,
+                                              LocalDate startDate,
+                                              LocalDate endDate,
+                                              LocalDate afterDate,
+                                              Long afterId,
+                                              Limit limit,
+                                              Set<String> fields) {
+        return findPage(
+                new QueryConditions("accountState.account.appUser = :appUser", Map.of("appUser", appUser)),
+                new FieldSelection(PAGE_EXPRESSIONS, fields, "id", "date"),
+                startDate, endDate, afterDate, afterId, limit
+        );
+    }
+
+    @Override
+    public List<SpendingReportRowDTO> sumSpendingByAccountId(Long accountId,
+                                                             LocalDate startDate,
+                                                             LocalDate endDate,
+                                                             ReportPeriod period) {
+        return sumSpending(
+                getTruncationUnit(period), "",
+                new QueryConditions("account_state.account_id = :ownerId", Map.of("ownerId", accountId)),
+                startDate, endDate
+        );
+    }
+
+    @Override
+    public List<SpendingReportRowDTO> sumSpendingByAppUserId(Long appUserId,
+                                                             LocalDate startDate,
+                                                             LocalDate endDate,
+                                                             ReportPeriod period) {
+        return sumSpending(
+                getTruncationUnit(period), "JOIN account ON account.id = account_state.account_id",
+                new QueryConditions("account.app_user_id = :ownerId", Map.of("ownerId", appUserId)),
+                startDate, endDate
+        );
+    }
+
+    private List<SpendingReportRowDTO> sumSpending(String truncationUnit,
+                                                   String join,
+                                                   QueryConditions conditions,
+                                                   LocalDate startDate,
+                                                   LocalDate endDate) {
+        conditions.addDateRange("account_state.date", startDate, endDate);
+        String statement = String.format(SUM_SPENDING, truncationUnit, join, conditions.getWhereClause());
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = conditions.setParameters(entityManager.createNativeQuery(statement))
+                .unwrap(NativeQuery.class)
+                .addScalar("period_start", StandardBasicTypes.LOCAL_DATE)
+                .addScalar("account_id", StandardBasicTypes.LONG)
+                .addScalar("expense_type_id", StandardBasicTypes.LONG)
+                .addScalar("movement_amount", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("refund_amount", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("expense_count", StandardBasicTypes.LONG)
+                .getResultList();
+
+        return rows.stream()
+                .map(row -> new SpendingReportRowDTO(
+                        (LocalDate) row[0],
+                        (Long) row[1],
+                        (Long) row[2],
+                        MoneyUtil.toMinorUnits((BigDecimal) row[3]),
+                        MoneyUtil.toMinorUnits((BigDecimal) row[4]),
+                        (Long) row[5]
+                ))
+                .toList();
+    }
+
+    /**
+     * Filters by the bounds of the date range and the cursor only if they are set, so that an open range reads the
+     * rows of the owner without comparing their dates.
+     */
+    private List<ExpenseDTO> findPage(QueryConditions conditions,
+                                      FieldSelection selection,
+                                      LocalDate startDate,
+                                      LocalDate endDate,
+                                      LocalDate afterDate,
+                                      Long afterId,
+                                      Limit limit) {
+        conditions.addDateRange("accountState.date", startDate, endDate);
+        if (afterDate != null) {
+            conditions.add(AFTER_CURSOR, Map.of("afterDate", afterDate, "afterId", afterId));
+        }
+        TypedQuery<Object[]> query = conditions.setParameters(entityManager.createQuery(
+                String.format(FIND_PAGE, selection.getSelectClause(), conditions.getWhereClause()), Object[].class
+        ));
+        if (limit.isLimited()) {
+            query.setMaxResults(limit.max());
+        }
+        return query.getResultList()
+                .stream()
+                .map(row -> new ExpenseDTO(
+                        selection.get(row, "id"),
+                        selection.get(row, "movementAmount"),
+                        selection.get(row, "refundAmount"),
+                        selection.get(row, "expenseType"),
+                        selection.get(row, "description"),
+                        selection.get(row, "account"),
+                        selection.get(row, "accountState"),
+                        selection.get(row, "date")
+                ))
+                .toList();
+    }
+
+    /**
+     * PostgreSQL weeks already start on Monday, H2 needs the ISO week to do the same.
+     */
+    private String getTruncationUnit(ReportPeriod period) {
+        if (period == ReportPeriod.WEEK && !postgreSQL) {
+            return "iso_week";
+        }
+        return period.name().toLowerCase();
+    }
+}
@@ -0,0 +1,30 @@
+package jedrzychowski.szymon.expense_tracker.repository;
+
+import jedrzychowski.szymon.expense_tracker.entity.AppUser;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expenseType.ExpenseTypeDTO;
+
+import java.util.List;
+import java.util.Set;
+
+public interface ExpenseTypeRepositoryCustom {
+
+    /**
+     * Finds the ExpenseTypes of the Account, selecting only the columns of the requested fields.
+     *
+     * @param accountId ID of the Account.
+     * @param fields    Fields of ExpenseTypeDTO to select, the others are null.
+     * @return ExpenseTypes of the Account.
+     */
+    List<ExpenseTypeDTO> findAllByAccountId(Long accountId,
+                                            Set<String> fields);
+
+    /**
+     * Finds the ExpenseTypes of all Accounts of the AppUser, selecting only the columns of the requested fields.
+     *
+     * @param appUser AppUser owning the Accounts.
+     * @param fields  Fields of ExpenseTypeDTO to select, the others are null.
+     * @return ExpenseTypes of the AppUser.
+     */
+    List<ExpenseTypeDTO> findAllByAppUser(AppUser appUser,
+                                          Set<String> fields);
+}
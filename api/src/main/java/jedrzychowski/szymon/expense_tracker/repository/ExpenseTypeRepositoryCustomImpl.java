@@ -0,0 +1,67 @@
+package jedrzychowski.szymon.expense_tracker.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jedrzychowski.szymon.expense_tracker.entity.AppUser;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expenseType.ExpenseTypeDTO;
+import jedrzychowski.szymon.expense_tracker.util.FieldSelection;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class ExpenseTypeRepositoryCustomImpl implements ExpenseTypeRepositoryCustom {
+
+    private static final Map<String, String> EXPRESSIONS = Map.of(
+            "id", "expenseType.id",
+            "name", "expenseType.name",
+            "account", "expenseType.account.id"
+    );
+
+    /**
+     * The select clause is built from EXPRESSIONS and the owner condition is fixed, never user input.
+     */
+    private static final String FIND_ALL = """
+            SELECT %s
+            FROM ExpenseType expenseType
+            WHERE %s
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ExpenseTypeDTO> findAllByAccountId(Long accountId,
+                                                   Set<String> fields) {
+        FieldSelection selection = new FieldSelection(EXPRESSIONS, fields);
+        TypedQuery<Object[]> query = entityManager.createQuery(
+                String.format(FIND_ALL, selection.getSelectClause(), "expenseType.account.id = :accountId"),
+                Object[].class
+        ).setParameter("accountId", accountId);
+        return findAll(query, selection);
+    }
+
+    @Override
+    public List<ExpenseTypeDTO> findAllByAppUser(AppUser appUser,
+                                                 Set<String> fields) {
+        FieldSelection selection = new FieldSelection(EXPRESSIONS, fields);
+        TypedQuery<Object[]> query = entityManager.createQuery(
+                String.format(FIND_ALL, selection.getSelectClause(), "expenseType.account.appUser = :appUser"),
+                Object[].class
+        ).setParameter("appUser", appUser);
+        return findAll(query, selection);
+    }
+
+    private List<ExpenseTypeDTO> findAll(TypedQuery<Object[]> query,
+                                         FieldSelection selection) {
+        return query.getResultList()
+                .stream()
+                .map(row -> new ExpenseTypeDTO(
+                        selection.get(row, "id"),
+                        selection.get(row, "name"),
+                        selection.get(row, "account")
+                ))
+                .toList();
+    }
+}
@@ -0,0 +1,67 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import jedrzychowski.szymon.expense_tracker.config.exception.DataNotFoundException;
+import jedrzychowski.szymon.expense_tracker.config.exception.UnauthorizedUserAccessException;
+import jedrzychowski.szymon.expense_tracker.config.property.AuthProperties;
+import jedrzychowski.szymon.expense_tracker.entity.AppUser;
+import jedrzychowski.szymon.expense_tracker.repository.AccountRepository;
+import jedrzychowski.szymon.expense_tracker.util.ExpiringCache;
+import jedrzychowski.szymon.expense_tracker.util.TransactionUtil;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+
+/**
+ * Answers whether an AppUser owns an Account without loading the Account. Answers for existing Accounts are cached,
+ * the cache is bounded by auth.ownership-cache-size entries and auth.ownership-cache-ttl milliseconds.
+ */
+@Service
+public class AccountAuthorizationService {
+
+    private final AccountRepository accountRepository;
+    private final ExpiringCache<OwnershipKey, Boolean> ownershipCache;
+
+    public AccountAuthorizationService(AccountRepository accountRepository,
+                                       AuthProperties authProperties) {
+        this.accountRepository = accountRepository;
+        this.ownershipCache = new ExpiringCache<>(
+                authProperties.getOwnershipCacheSize(), authProperties.getOwnershipCacheTtl()
+        );
+    }
+
+    public void validateIfAccountIsOwnedByCurrentUser(AppUser appUser,
+                                                      Long accountId) throws
+                                                                      DataNotFoundException,
+                                                                      UnauthorizedUserAccessException {
+        OwnershipKey ownershipKey = new OwnershipKey(appUser.getId(), accountId);
+        Boolean owned = ownershipCache.get(ownershipKey);
+        if (owned == null) {
+            owned = accountRepository.existsByIdAndAppUserId(accountId, appUser.getId());
+            if (!owned && !accountRepository.existsById(accountId)) {
+                //Missing Accounts are not cached, the ID may still be taken by a new Account
+                throw new DataNotFoundException(String.format("Cannot find Account with ID: %d.", accountId));
+            }
+            ownershipCache.put(ownershipKey, owned);
+        }
+
+        if (!owned) {
+            throw new UnauthorizedUserAccessException("Account is not owned by authorised user.");
+        }
+    }
+
+    /**
+     * Drops cached answers for the Account once the current transaction commits, must be called when the Account is
+     * deleted or changes its owner. Dropped before the commit, the answer could be cached again by a concurrent
+     * check that still sees the Account.
+     *
+     * @param accountId ID of the Account.
+     */
+    public void evict(Long accountId) {
+        TransactionUtil.afterCommit(() ->
+                ownershipCache.removeIf(ownershipKey -> Objects.equals(ownershipKey.accountId(), accountId)));
+    }
+
+    private record OwnershipKey(Long appUserId,
+                                Long accountId) {
+    }
+}
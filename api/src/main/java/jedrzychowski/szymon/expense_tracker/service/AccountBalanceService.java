@@ -0,0 +1,58 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import jedrzychowski.szymon.expense_tracker.repository.AccountBalanceCheckpointRepository;
+import jedrzychowski.szymon.expense_tracker.repository.AccountStateRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+
+/**
+ * Maintains the monthly balance checkpoints of Accounts and reads balances from them. A back-dated movement
+ * rewrites the AccountStates from its date until the end of its month and the opening balances of the later
+ * months, so its cost grows with the days of one month plus the number of later months rather than with all
+ * later AccountStates. It is not logarithmic in the length of the history.
+ */
+@Service
+public class AccountBalanceService {
+
+    private final AccountBalanceCheckpointRepository accountBalanceCheckpointRepository;
+    private final AccountStateRepository accountStateRepository;
+
+    public AccountBalanceService(AccountBalanceCheckpointRepository accountBalanceCheckpointRepository,
+                                 AccountStateRepository accountStateRepository) {
+        this.accountBalanceCheckpointRepository = accountBalanceCheckpointRepository;
+        this.accountStateRepository = accountStateRepository;
+    }
+
+    /**
+     * Registers a movement of the Account by adding it to the checkpoint of its month in the current transaction.
+     * Opening balances of later months are refreshed when the Account is rebalanced.
+     *
+     * @param accountId ID of the Account of the movement.
+     * @param date      Date of the movement.
+     * @param movement  Net movement (positive movement minus negative movement).
+     */
+    public void applyMovement(Long accountId,
+                              LocalDate date,
+                              long movement) {
+        accountBalanceCheckpointRepository.addMovement(accountId, date.withDayOfMonth(1), movement);
+    }
+
+    /**
+     * Returns the balance of the Account at the end of the date, read from the latest AccountState on or before the
+     * date as the opening balance of its month plus its change within the month. Pending rebalances of the Account
+     * have to be applied first.
+     *
+     * @param accountId ID of the Account.
+     * @param date      Date of the balance.
+     * @return Balance in minor units, 0 if the Account has no movement until the date.
+     */
+    public long getBalance(Long accountId,
+                           LocalDate date) {
+        return accountStateRepository.findCurrentAmountBeforeDate(accountId, date.plusDays(1), Limit.of(1))
+                .stream()
+                .findFirst()
+                .orElse(0L);
+    }
+}
@@ -4,14 +4,20 @@ import jakarta.validation.Valid;
 import jedrzychowski.szymon.expense_tracker.config.exception.DataConflictException;
 import jedrzychowski.szymon.expense_tracker.config.exception.DataNotFoundException;
 import jedrzychowski.szymon.expense_tracker.config.exception.UnauthorizedUserAccessException;
+import jedrzychowski.szymon.expense_tracker.entity.dto.account.AccountDTO;
 import jedrzychowski.szymon.expense_tracker.entity.dto.account.CreateAccountRequestDTO;
 import jedrzychowski.szymon.expense_tracker.entity.dto.account.UpdateAccountRequestDTO;
 import jedrzychowski.szymon.expense_tracker.entity.Account;
 import jedrzychowski.szymon.expense_tracker.entity.AppUser;
 import jedrzychowski.szymon.expense_tracker.finder.AccountFinder;
+import jedrzychowski.szymon.expense_tracker.repository.AccountBalanceCheckpointRepository;
 import jedrzychowski.szymon.expense_tracker.repository.AccountRepository;
+import jedrzychowski.szymon.expense_tracker.repository.AccountStateProjectionRepository;
+import jedrzychowski.szymon.expense_tracker.repository.ExpenseEventRepository;
+import jedrzychowski.szymon.expense_tracker.repository.ExpenseMonthlySummaryRepository;
 import jedrzychowski.szymon.expense_tracker.repository.ExpenseRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -20,16 +26,40 @@ public class AccountService {
 
     private final AccountRepository accountRepository;
     private final ExpenseRepository expenseRepository;
+    private final AccountBalanceCheckpointRepository accountBalanceCheckpointRepository;
+    private final ExpenseEventRepository expenseEventRepository;
+    private final ExpenseMonthlySummaryRepository expenseMonthlySummaryRepository;
+    private final AccountStateProjectionRepository accountStateProjectionRepository;
+    private final AccountAuthorizationService accountAuthorizationService;
+    private final ExpenseSearchService expenseSearchService;
+    private final ExpenseAnalyticsService expenseAnalyticsService;
+    private final ExpenseStatisticsService expenseStatisticsService;
     private final AccountFinder accountFinder;
 
     public AccountService(AccountRepository accountRepository,
-                          ExpenseRepository expenseRepository) {
+                          ExpenseRepository expenseRepository,
+                          AccountBalanceCheckpointRepository accountBalanceCheckpointRepository,
+                          ExpenseEventRepository expenseEventRepository,
+                          ExpenseMonthlySummaryRepository expenseMonthlySummaryRepository,
+                          AccountStateProjectionRepository accountStateProjectionRepository,
+                          AccountAuthorizationService accountAuthorizationService,
+                          ExpenseSearchService expenseSearchService,
+                          ExpenseAnalyticsService expenseAnalyticsService,
+                          ExpenseStatisticsService expenseStatisticsService) {
         this.accountRepository = accountRepository;
         this.expenseRepository = expenseRepository;
+        this.accountBalanceCheckpointRepository = accountBalanceCheckpointRepository;
+        this.expenseEventRepository = expenseEventRepository;
+        this.expenseMonthlySummaryRepository = expenseMonthlySummaryRepository;
+        this.accountStateProjectionRepository = accountStateProjectionRepository;
+        this.accountAuthorizationService = accountAuthorizationService;
+        this.expenseSearchService = expenseSearchService;
+        this.expenseAnalyticsService = expenseAnalyticsService;
+        this.expenseStatisticsService = expenseStatisticsService;
         this.accountFinder = new AccountFinder(accountRepository);
     }
 
-    public List<Account> getAllAccounts(AppUser appUser) {
+    public List<AccountDTO> getAllAccounts(AppUser appUser) {
         return accountRepository.findAllByAppUser(appUser);
     }
 
@@ -66,6 +96,7 @@ public class AccountService {
         return accountRepository.save(accountToUpdate);
     }
 
+    @Transactional
     public void deleteAccount(AppUser appUser,
                               Long id,
                               boolean deleteExpenses) throws
@@ -81,6 +112,14 @@ public class AccountService {
                             accountToDelete.getId(), accountToDelete.getName())
             );
         }
+        accountBalanceCheckpointRepository.deleteAllByAccount(accountToDelete);
+        expenseEventRepository.deleteAllByAccountId(accountToDelete.getId());
+        expenseMonthlySummaryRepository.deleteAllByAccountId(accountToDelete.getId());
+        accountStateProjectionRepository.deleteById(accountToDelete.getId());
         accountRepository.delete(accountToDelete);
+        accountAuthorizationService.evict(accountToDelete.getId());
+        expenseSearchService.evict(appUser.getId());
+        expenseAnalyticsService.evict(appUser.getId());
+        expenseStatisticsService.evict(appUser.getId());
     }
 }
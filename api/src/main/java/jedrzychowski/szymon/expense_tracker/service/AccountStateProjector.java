@@ -0,0 +1,204 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import jedrzychowski.szymon.expense_tracker.config.property.BalanceProperties;
+import jedrzychowski.szymon.expense_tracker.entity.AccountState;
+import jedrzychowski.szymon.expense_tracker.entity.AccountStateProjection;
+import jedrzychowski.szymon.expense_tracker.entity.DataBackfill;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expenseEvent.ExpenseEventTotalDTO;
+import jedrzychowski.szymon.expense_tracker.repository.AccountBalanceCheckpointRepository;
+import jedrzychowski.szymon.expense_tracker.repository.AccountRepository;
+import jedrzychowski.szymon.expense_tracker.repository.AccountStateProjectionRepository;
+import jedrzychowski.szymon.expense_tracker.repository.AccountStateRepository;
+import jedrzychowski.szymon.expense_tracker.repository.DataBackfillRepository;
+import jedrzychowski.szymon.expense_tracker.repository.ExpenseEventRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Applies ExpenseEvent ledger postings to AccountState movements and balance checkpoints, and rebuilds them from
+ * the ledger.
+ */
+@Service
+public class AccountStateProjector {
+
+    static final String LEDGER_BACKFILL = "expense-ledger";
+    static final String CHECKPOINT_BACKFILL = "account-balance-checkpoint-opening-balances";
+
+    private final AccountRepository accountRepository;
+    private final AccountStateRepository accountStateRepository;
+    private final AccountStateProjectionRepository accountStateProjectionRepository;
+    private final AccountBalanceCheckpointRepository accountBalanceCheckpointRepository;
+    private final ExpenseEventRepository expenseEventRepository;
+    private final DataBackfillRepository dataBackfillRepository;
+    private final ExpenseLedgerService expenseLedgerService;
+    private final AccountBalanceService accountBalanceService;
+    private final AccountWriteSequencer accountWriteSequencer;
+    private final AccountVersionService accountVersionService;
+    private final BalanceProperties balanceProperties;
+    private final TaskExecutor taskExecutor;
+
+    public AccountStateProjector(AccountRepository accountRepository,
+                                 AccountStateRepository accountStateRepository,
+                                 AccountStateProjectionRepository accountStateProjectionRepository,
+                                 AccountBalanceCheckpointRepository accountBalanceCheckpointRepository,
+                                 ExpenseEventRepository expenseEventRepository,
+                                 DataBackfillRepository dataBackfillRepository,
+                                 ExpenseLedgerService expenseLedgerService,
+                                 AccountBalanceService accountBalanceService,
+                                 AccountWriteSequencer accountWriteSequencer,
+                                 AccountVersionService accountVersionService,
+                                 BalanceProperties balanceProperties,
+                                 @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                                 TaskExecutor taskExecutor) {
+        this.accountRepository = accountRepository;
+        this.accountStateRepository = accountStateRepository;
+        this.accountStateProjectionRepository = accountStateProjectionRepository;
+        this.accountBalanceCheckpointRepository = accountBalanceCheckpointRepository;
+        this.expenseEventRepository = expenseEventRepository;
+        this.dataBackfillRepository = dataBackfillRepository;
+        this.expenseLedgerService = expenseLedgerService;
+        this.accountBalanceService = accountBalanceService;
+        this.accountWriteSequencer = accountWriteSequencer;
+        this.accountVersionService = accountVersionService;
+        this.balanceProperties = balanceProperties;
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * Adds the amounts of an Expense posted to the ledger to the AccountState of the Account on the date, in the
+     * current transaction. AccountStates are changed together with the ExpenseEvents, so they do not have to be
+     * projected from the ledger on every write.
+     *
+     * @param accountId      ID of the Account of the posting.
+     * @param date           Date of the posting.
+     * @param movementAmount Movement amount in minor units.
+     * @param refundAmount   Refund amount in minor units.
+     * @return AccountState of the date, inserted first if the Account had none on the date.
+     */
+    public AccountState applyPosting(Long accountId,
+                                     LocalDate date,
+                                     long movementAmount,
+                                     long refundAmount) {
+        return applyMovements(accountId, date, Math.max(movementAmount, 0), -Math.min(movementAmount, 0), refundAmount);
+    }
+
+    /**
+     * Subtracts the amounts of an Expense reversed in the ledger from the AccountState of the Account on the date,
+     * in the current transaction.
+     *
+     * @param accountId      ID of the Account of the previous posting.
+     * @param date           Date of the previous posting.
+     * @param movementAmount Previous movement amount in minor units.
+     * @param refundAmount   Previous refund amount in minor units.
+     */
+    public void applyReversal(Long accountId,
+                              LocalDate date,
+                              long movementAmount,
+                              long refundAmount) {
+        applyMovements(accountId, date, -Math.max(movementAmount, 0), Math.min(movementAmount, 0), -refundAmount);
+    }
+
+    /**
+     * Adds movements to the AccountState of the Account on the date and to the balance checkpoint of its month.
+     *
+     * @return AccountState of the date.
+     */
+    public AccountState applyMovements(Long accountId,
+                                       LocalDate date,
+                                       long positiveMovement,
+                                       long negativeMovement,
+                                       long refundAmount) {
+        accountBalanceService.applyMovement(accountId, date, positiveMovement - negativeMovement);
+        return accountStateRepository.upsertMovements(accountId, date, positiveMovement, negativeMovement, refundAmount);
+    }
+
+    /**
+     * Rebuilds the AccountStates and balance checkpoints of the Account from scratch by replaying its whole ledger.
+     * Runs as a write of the Account, so it does not interleave with Expense changes, and changes the version of the
+     * Account, so ETags of AccountState lists taken before the rebuild no longer match.
+     *
+     * @param accountId ID of the Account to rebuild.
+     */
+    public void rebuild(Long accountId) {
+        accountWriteSequencer.execute(List.of(accountId), () -> {
+            expenseLedgerService.appendExistingExpenses(accountId);
+            AccountStateProjection projection = accountStateProjectionRepository.findByIdForUpdate(accountId)
+                    .orElseGet(() -> accountStateProjectionRepository.save(new AccountStateProjection(accountId, 0)));
+
+            accountStateRepository.resetMovements(accountId);
+            accountBalanceCheckpointRepository.deleteAllByAccount(accountRepository.getReferenceById(accountId));
+            List<ExpenseEventTotalDTO> totals = expenseEventRepository.sumEventsAfter(accountId, 0);
+            long lastSequenceNumber = 0;
+            for (ExpenseEventTotalDTO total : totals) {
+                applyMovements(
+                        accountId, total.date(), total.positiveMovement(), total.negativeMovement(), total.refundAmount()
+                );
+                lastSequenceNumber = Math.max(lastSequenceNumber, total.lastSequenceNumber());
+            }
+            projection.setLastSequenceNumber(lastSequenceNumber);
+            if (!totals.isEmpty()) {
+                //Totals are ordered by date, so they span from the first to the last month with movements
+                LocalDate firstMonthStart = totals.getFirst().date().withDayOfMonth(1);
+                accountStateRepository.rebalanceMonthAmounts(
+                        accountId, firstMonthStart, firstMonthStart, totals.getLast().date().plusDays(1)
+                );
+                accountBalanceCheckpointRepository.rebalanceOpeningBalances(accountId, firstMonthStart);
+            }
+            accountVersionService.markChanged(List.of(accountId));
+            return null;
+        });
+    }
+
+    /**
+     * Rebuilds all Accounts, running Accounts in parallel on the application task executor.
+     */
+    public void rebuildAll() {
+        List<CompletableFuture<Void>> rebuilds = accountRepository.findAllIds().stream()
+                .map(accountId -> CompletableFuture.runAsync(() -> rebuild(accountId), taskExecutor))
+                .toList();
+        try {
+            for (CompletableFuture<Void> rebuild : rebuilds) {
+                rebuild.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Rebuild of AccountState projections was interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Rebuild of AccountState projections failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Posts Expenses that existed before the ledger on the first startup, before any write can append to the ledger
+     * of their Accounts. Rebuilds all AccountState projections in the background if balance.rebuild-projections is
+     * set, or once if AccountStates still hold balances instead of changes within their month. Every Account is
+     * rebuilt as one write, so the application serves requests meanwhile, and the rebuild is recorded as done only
+     * once all Accounts are rebuilt, so it is started again on the next startup if it did not finish.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeProjections() {
+        if (!dataBackfillRepository.existsById(LEDGER_BACKFILL)) {
+            accountRepository.findAllIds().forEach(accountId -> accountWriteSequencer.execute(List.of(accountId), () -> {
+                expenseLedgerService.appendExistingExpenses(accountId);
+                return null;
+            }));
+            dataBackfillRepository.save(new DataBackfill(LEDGER_BACKFILL));
+        }
+
+        if (balanceProperties.isRebuildProjections() || !dataBackfillRepository.existsById(CHECKPOINT_BACKFILL)) {
+            taskExecutor.execute(() -> {
+                rebuildAll();
+                dataBackfillRepository.save(new DataBackfill(CHECKPOINT_BACKFILL));
+            });
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import jedrzychowski.szymon.expense_tracker.config.property.BalanceProperties;
+import jedrzychowski.szymon.expense_tracker.entity.Account;
+import jedrzychowski.szymon.expense_tracker.entity.AppUser;
+import jedrzychowski.szymon.expense_tracker.repository.AccountBalanceCheckpointRepository;
+import jedrzychowski.szymon.expense_tracker.repository.AccountStateRepository;
+import jedrzychowski.szymon.expense_tracker.util.TransactionResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class AccountStateRebalanceService {
+
+    private final AccountStateRepository accountStateRepository;
+    private final AccountBalanceCheckpointRepository accountBalanceCheckpointRepository;
+    private final BalanceProperties balanceProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Long, DirtyWatermark> dirtyWatermarks = new ConcurrentHashMap<>();
+    private final Map<Long, Object> accountLocks = new ConcurrentHashMap<>();
+    private final TransactionResource<Map<Long, DirtyWatermark>> transactionWatermarks;
+
+    public AccountStateRebalanceService(AccountStateRepository accountStateRepository,
+                                        AccountBalanceCheckpointRepository accountBalanceCheckpointRepository,
+                                        BalanceProperties balanceProperties,
+                                        PlatformTransactionManager transactionManager) {
+        this.accountStateRepository = accountStateRepository;
+        this.accountBalanceCheckpointRepository = accountBalanceCheckpointRepository;
+        this.balanceProperties = balanceProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.transactionWatermarks = new TransactionResource<>(
+                HashMap::new,
+                HashMap::new,
+                watermarks -> {
+                    if (!balanceProperties.isDeferredRebalance()) {
+                        watermarks.forEach(this::rebalance);
+                    }
+                },
+                watermarks -> {
+                    if (balanceProperties.isDeferredRebalance()) {
+                        watermarks.forEach((accountId, dirtyWatermark) ->
+                                dirtyWatermarks.merge(accountId, dirtyWatermark, DirtyWatermark::merge));
+                    }
+                }
+        );
+    }
+
+    /**
+     * Marks monthAmount of the AccountStates of the Account as outdated from the specified date until the end of
+     * its month, and opening balances of the following months, because movements of the date changed.
+     * Watermarks keep the earliest date of every changed month and are coalesced per Account within the current
+     * transaction. Before it commits, the Account is rebalanced once, or, in deferred mode, the watermark is handed
+     * over to the background worker after the commit.
+     *
+     * @param account Account with changed movements.
+     * @param date    Date of the earliest changed AccountState.
+     */
+    public void markDirty(Account account,
+                          LocalDate date) {
+        DirtyWatermark dirtyWatermark = new DirtyWatermark(
+                account.getAppUser().getId(), Map.of(date.withDayOfMonth(1), date)
+        );
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            dirtyWatermarks.merge(account.getId(), dirtyWatermark, DirtyWatermark::merge);
+            if (!balanceProperties.isDeferredRebalance()) {
+                awaitRebalance(account.getId());
+            }
+            return;
+        }
+
+        transactionWatermarks.get().merge(account.getId(), dirtyWatermark, DirtyWatermark::merge);
+    }
+
+    /**
+     * Rebalances the Account right away if it has a pending watermark, so that its AccountStates can be read.
+     *
+     * @param accountId ID of the Account to wait for.
+     */
+    public void awaitRebalance(Long accountId) {
+        synchronized (getAccountLock(accountId)) {
+            DirtyWatermark dirtyWatermark = dirtyWatermarks.remove(accountId);
+            if (dirtyWatermark != null) {
+                rebalanceInNewTransaction(accountId, dirtyWatermark);
+            }
+        }
+    }
+
+    /**
+     * Rebalances all Accounts of the AppUser that have a pending watermark.
+     *
+     * @param appUser AppUser to wait for.
+     */
+    public void awaitRebalance(AppUser appUser) {
+        List<Long> accountIds = dirtyWatermarks.entrySet().stream()
+                .filter(entry -> Objects.equals(entry.getValue().appUserId(), appUser.getId()))
+                .map(Map.Entry::getKey)
+                .toList();
+        accountIds.forEach(this::awaitRebalance);
+    }
+
+    /**
+     * Background worker rebalancing every Account with a pending watermark.
+     */
+    @Scheduled(fixedDelayString = "${balance.rebalance-interval:1000}")
+    public void rebalancePending() {
+        List.copyOf(dirtyWatermarks.keySet()).forEach(this::awaitRebalance);
+    }
+
+    private void rebalanceInNewTransaction(Long accountId,
+                                           DirtyWatermark dirtyWatermark) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> rebalance(accountId, dirtyWatermark));
+        } catch (RuntimeException e) {
+            dirtyWatermarks.merge(accountId, dirtyWatermark, DirtyWatermark::merge);
+            throw e;
+        }
+    }
+
+    private void rebalance(Long accountId,
+                           DirtyWatermark dirtyWatermark) {
+        //Each changed month is rewritten only until its end, later months take the change via their opening balance
+        dirtyWatermark.dates().forEach((monthStart, date) ->
+                accountStateRepository.rebalanceMonthAmounts(accountId, date, monthStart, monthStart.plusMonths(1))
+        );
+        accountBalanceCheckpointRepository.rebalanceOpeningBalances(accountId, dirtyWatermark.dates().firstKey());
+    }
+
+    private Object getAccountLock(Long accountId) {
+        return accountLocks.computeIfAbsent(accountId, id -> new Object());
+    }
+
+    /**
+     * @param appUserId ID of the AppUser owning the Account.
+     * @param dates     Earliest changed date of every changed month, by the first day of the month.
+     */
+    private record DirtyWatermark(Long appUserId,
+                                  SortedMap<LocalDate, LocalDate> dates) {
+
+        private DirtyWatermark(Long appUserId,
+                               Map<LocalDate, LocalDate> dates) {
+            this(appUserId, Collections.unmodifiableSortedMap(new TreeMap<>(dates)));
+        }
+
+        private DirtyWatermark merge(DirtyWatermark other) {
+            Map<LocalDate, LocalDate> mergedDates = new TreeMap<>(dates);
+            other.dates.forEach((monthStart, date) ->
+                    mergedDates.merge(monthStart, date, (first, second) -> first.isBefore(second) ? first : second)
+            );
+            return new DirtyWatermark(appUserId, mergedDates);
+        }
+    }
+}
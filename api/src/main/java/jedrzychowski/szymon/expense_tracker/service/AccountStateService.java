@@ -1,62 +1,167 @@
 package jedrzychowski.szymon.expense_tracker.service;
 
 import jedrzychowski.szymon.expense_tracker.config.exception.*;
-import jedrzychowski.szymon.expense_tracker.entity.Account;
 import jedrzychowski.szymon.expense_tracker.entity.AccountState;
 import jedrzychowski.szymon.expense_tracker.entity.AppUser;
-import jedrzychowski.szymon.expense_tracker.finder.AccountFinder;
+import jedrzychowski.szymon.expense_tracker.entity.ReportPeriod;
+import jedrzychowski.szymon.expense_tracker.entity.dto.accountState.AccountBalancePointDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.accountState.AccountStateDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.page.PageDTO;
 import jedrzychowski.szymon.expense_tracker.repository.AccountRepository;
 import jedrzychowski.szymon.expense_tracker.repository.AccountStateRepository;
 import jedrzychowski.szymon.expense_tracker.util.DateUtil;
+import jedrzychowski.szymon.expense_tracker.util.FieldsUtil;
+import jedrzychowski.szymon.expense_tracker.util.PageUtil;
+import jedrzychowski.szymon.expense_tracker.util.SeriesUtil;
 import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Service
 public class AccountStateService {
 
+    private final AccountRepository accountRepository;
     private final AccountStateRepository accountStateRepository;
-    private final AccountFinder accountFinder;
+    private final AccountStateRebalanceService accountStateRebalanceService;
+    private final AccountBalanceService accountBalanceService;
+    private final AccountAuthorizationService accountAuthorizationService;
 
     public AccountStateService(AccountRepository accountRepository,
-                               AccountStateRepository accountStateRepository) {
+                               AccountStateRepository accountStateRepository,
+                               AccountStateRebalanceService accountStateRebalanceService,
+                               AccountBalanceService accountBalanceService,
+                               AccountAuthorizationService accountAuthorizationService) {
+        this.accountRepository = accountRepository;
         this.accountStateRepository = accountStateRepository;
-        this.accountFinder = new AccountFinder(accountRepository);
+        this.accountStateRebalanceService = accountStateRebalanceService;
+        this.accountBalanceService = accountBalanceService;
+        this.accountAuthorizationService = accountAuthorizationService;
     }
 
 
-    public List<AccountState> getAllAccountStates(AppUser appUser,
-                                                  Long accountId,
-                                                  LocalDate startDate,
-                                                  LocalDate endDate) throws
-                                                                     DataNotFoundException,
-                                                                     ParamValidationException,
-                                                                     UnauthorizedUserAccessException {
+    @Transactional(readOnly = true)
+    public PageDTO<AccountStateDTO> getAllAccountStates(AppUser appUser,
+                                                        Long accountId,
+                                                        LocalDate startDate,
+                                                        LocalDate endDate,
+                                                        Integer limit,
+                                                        String cursor,
+                                                        List<String> fields) throws
+                                                                       DataNotFoundException,
+                                                                       ParamValidationException,
+                                                                       UnauthorizedUserAccessException {
 
+        DateUtil.validateDateRange(startDate, endDate);
+        Limit pageLimit = PageUtil.validateLimit(limit, cursor);
+        Pair<LocalDate, Long> after = PageUtil.decodeCursor(cursor);
+        Set<String> selectedFields = FieldsUtil.validateFields(fields, AccountStateDTO.FIELDS);
+
+        List<AccountStateDTO> accountStates;
+        if (accountId == null) {
+            accountStateRebalanceService.awaitRebalance(appUser);
+            accountStates = accountStateRepository.findPageByAppUser(
+                    appUser, startDate, endDate, after.getLeft(), after.getRight(), pageLimit, selectedFields
+            );
+        } else {
+            accountAuthorizationService.validateIfAccountIsOwnedByCurrentUser(appUser, accountId);
+            accountStateRebalanceService.awaitRebalance(accountId);
+            accountStates = accountStateRepository.findPageByAccountId(
+                    accountId, startDate, endDate, after.getLeft(), after.getRight(), pageLimit, selectedFields
+            );
+        }
+
+        //Pending rebalances were applied above, so the stored currentAmount of every AccountState is up to date
+        return PageUtil.toPage(accountStates, pageLimit, AccountStateDTO::date, AccountStateDTO::id);
+    }
+
+    /**
+     * Returns the dense series of balances of the Account, or of the net worth of all Accounts of the AppUser,
+     * one per period between the dates, carrying the balance forward through periods without AccountStates.
+     * The AccountStates of each Account are read in one ordered scan and merged into a single summed series,
+     * which is downsampled to the specified number of points if it is longer.
+     */
+    @Transactional(readOnly = true)
+    public List<AccountBalancePointDTO> getAccountStateSeries(AppUser appUser,
+                                                              Long accountId,
+                                                              LocalDate startDate,
+                                                              LocalDate endDate,
+                                                              ReportPeriod period,
+                                                              Integer points) throws
+                                                                              DataNotFoundException,
+                                                                              ParamValidationException,
+                                                                              UnauthorizedUserAccessException {
+        SeriesUtil.validatePoints(points);
+        List<Long> accountIds;
+        if (accountId == null) {
+            accountIds = accountRepository.findIdsByAppUserId(appUser.getId());
+        } else {
+            accountAuthorizationService.validateIfAccountIsOwnedByCurrentUser(appUser, accountId);
+            accountIds = List.of(accountId);
+        }
+
+        //Without dates the series runs from the first AccountState of the Accounts until today
+        if (endDate == null) {
+            endDate = LocalDate.now();
+        }
+        if (startDate == null) {
+            LocalDate firstDate = accountId == null
+                    ? accountStateRepository.findFirstDateByAppUserId(appUser.getId())
+                    : accountStateRepository.findFirstDateByAccountId(accountId);
+            startDate = firstDate == null || firstDate.isAfter(endDate) ? endDate : firstDate;
+        }
         Pair<LocalDate, LocalDate> dates = DateUtil.validateDateParams(startDate, endDate);
         startDate = dates.getLeft();
         endDate = dates.getRight();
+        SeriesUtil.validateLength(startDate, endDate, period);
 
-        if (accountId == null) {
-            return accountStateRepository.findAllByAccount_AppUserAndDateBetweenOrderByDateAsc(appUser, startDate, endDate);
+        List<Long> openingBalances = new ArrayList<>();
+        for (Long id : accountIds) {
+            accountStateRebalanceService.awaitRebalance(id);
+            openingBalances.add(accountBalanceService.getBalance(id, startDate.minusDays(1)));
         }
 
-        Account account = accountFinder.findById(accountId);
-        account.validateIfAccountIsOwnedByCurrentUser(appUser);
-        return accountStateRepository.findAllByAccountAndDateBetweenOrderByDateAsc(account, startDate, endDate);
+        List<Stream<AccountBalancePointDTO>> balances = new ArrayList<>();
+        List<AccountBalancePointDTO> series;
+        try {
+            for (Long id : accountIds) {
+                balances.add(accountStateRepository.streamBalancesByAccountId(id, startDate, endDate));
+            }
+            series = SeriesUtil.fillSeries(
+                    SeriesUtil.sumBalances(balances.stream().map(Stream::iterator).toList(), openingBalances),
+                    openingBalances.stream().mapToLong(Long::longValue).sum(),
+                    startDate,
+                    endDate,
+                    period
+            );
+        } finally {
+            balances.forEach(Stream::close);
+        }
+        return points == null ? series : SeriesUtil.downsample(series, points);
     }
 
+    @Transactional(readOnly = true)
     public AccountState getAccountStateById(AppUser appUser,
                                             Long id) throws
                                                      DataNotFoundException,
                                                      UnauthorizedUserAccessException {
-        AccountState accountState = accountStateRepository.findById(id)
+        Long accountId = accountStateRepository.findAccountIdById(id)
+                .orElseThrow(() -> new DataNotFoundException(
+                        String.format("Cannot find Account State with ID: %d.", id)
+                ));
+        accountAuthorizationService.validateIfAccountIsOwnedByCurrentUser(appUser, accountId);
+        accountStateRebalanceService.awaitRebalance(accountId);
+
+        //Loaded after pending rebalances were applied, so the stored currentAmount is up to date
+        return accountStateRepository.findById(id)
                 .orElseThrow(() -> new DataNotFoundException(
                         String.format("Cannot find Account State with ID: %d.", id)
                 ));
-        accountState.getAccount().validateIfAccountIsOwnedByCurrentUser(appUser);
-        return accountState;
     }
 }
@@ -0,0 +1,89 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import jedrzychowski.szymon.expense_tracker.config.exception.DataNotFoundException;
+import jedrzychowski.szymon.expense_tracker.config.exception.UnauthorizedUserAccessException;
+import jedrzychowski.szymon.expense_tracker.entity.AppUser;
+import jedrzychowski.szymon.expense_tracker.entity.dto.account.AccountVersionDTO;
+import jedrzychowski.szymon.expense_tracker.repository.AccountRepository;
+import jedrzychowski.szymon.expense_tracker.util.TransactionResource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Tracks the change version of every Account and derives ETags of list responses from it.
+ */
+@Service
+public class AccountVersionService {
+
+    private final AccountRepository accountRepository;
+    private final AccountAuthorizationService accountAuthorizationService;
+    private final TransactionResource<Set<Long>> transactionAccountIds;
+
+    public AccountVersionService(AccountRepository accountRepository,
+                                 AccountAuthorizationService accountAuthorizationService) {
+        this.accountRepository = accountRepository;
+        this.accountAuthorizationService = accountAuthorizationService;
+        this.transactionAccountIds = new TransactionResource<>(
+                HashSet::new,
+                HashSet::new,
+                accountRepository::incrementChangeVersions,
+                accountIds -> {
+                }
+        );
+    }
+
+    /**
+     * Increments the change version of the Accounts once the current transaction is about to commit, or right away
+     * if there is no transaction. Accounts changed several times within one transaction are incremented once.
+     *
+     * @param accountIds IDs of the changed Accounts.
+     */
+    public void markChanged(Collection<Long> accountIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            accountRepository.incrementChangeVersions(accountIds);
+            return;
+        }
+
+        transactionAccountIds.get().addAll(accountIds);
+    }
+
+    /**
+     * Returns a weak ETag of a list response covering the Account, or all Accounts of the AppUser if accountId is
+     * null. The ETag changes whenever any of these Accounts changes, an Account is created or deleted, or the query
+     * parameters differ. Must be computed before the list is read, so that a change committed in between is
+     * reported as a new ETag on the next request.
+     *
+     * @param appUser     the currently authorized AppUser
+     * @param accountId   optional ID of the Account the list is filtered by
+     * @param queryParams remaining query parameters of the list
+     * @return weak ETag of the response
+     */
+    public String getListETag(AppUser appUser,
+                              Long accountId,
+                              Object... queryParams) throws
+                                                     DataNotFoundException,
+                                                     UnauthorizedUserAccessException {
+        List<AccountVersionDTO> accountVersions;
+        if (accountId == null) {
+            accountVersions = accountRepository.findVersionsByAppUserId(appUser.getId());
+        } else {
+            accountAuthorizationService.validateIfAccountIsOwnedByCurrentUser(appUser, accountId);
+            accountVersions = accountRepository.findVersionById(accountId).stream().toList();
+        }
+
+        String versions = accountVersions.stream()
+                .map(accountVersion -> accountVersion.id() + ":" + accountVersion.changeVersion())
+                .collect(Collectors.joining(","));
+        String tag = appUser.getId() + "|" + versions + "|" + Arrays.toString(queryParams);
+        return "W/\"" + DigestUtils.md5DigestAsHex(tag.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
@@ -0,0 +1,226 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import jakarta.persistence.EntityManager;
+import jedrzychowski.szymon.expense_tracker.config.property.BalanceProperties;
+import jedrzychowski.szymon.expense_tracker.util.TransactionSnapshot;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Routes writes of one Account through a single logical writer.
+ * <p>
+ * Accounts are striped over a fixed number of writers. A write is queued on the stripe of its Account and the thread
+ * that acquires the stripe lock drains everything queued so far and applies it in one group-committed transaction,
+ * so the AccountStates of the stripe are changed by one transaction at a time and rebalanced once per group.
+ * Writes to Accounts on different stripes run in parallel. Every write of a group runs after a savepoint, so a write
+ * that throws is rolled back to its savepoint alone and the writes queued with it still commit. Only a database
+ * error that dooms the whole transaction rolls the group back, the failing write is failed and the others are
+ * applied again in a new group, as none of their changes were committed.
+ */
+@Service
+public class AccountWriteSequencer {
+
+    private final EntityManager entityManager;
+    private final BalanceProperties balanceProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final Stripe[] stripes;
+
+    public AccountWriteSequencer(EntityManager entityManager,
+                                 BalanceProperties balanceProperties,
+                                 PlatformTransactionManager transactionManager) {
+        this.entityManager = entityManager;
+        this.balanceProperties = balanceProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.stripes = new Stripe[balanceProperties.getWriteStripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Applies the write in a transaction once no other write to the same Accounts is in progress. Writes touching
+     * a single stripe are grouped with other queued writes of that stripe, writes touching several stripes lock
+     * them in order and run alone.
+     *
+     * @param accountIds IDs of all Accounts changed by the write.
+     * @param write      Write to apply, throwing an exception rolls back only this write.
+     * @return Result of the write.
+     */
+    public <T> T execute(Collection<Long> accountIds,
+                         Supplier<T> write) {
+        List<Stripe> lockedStripes = accountIds.stream()
+                .distinct()
+                .map(this::getStripeIndex)
+                .distinct()
+                .sorted()
+                .map(index -> stripes[index])
+                .toList();
+
+        if (lockedStripes.size() != 1) {
+            lockedStripes.forEach(stripe -> stripe.lock.lock());
+            try {
+                return transactionTemplate.execute(status -> {
+                    entityManager.clear();
+                    return write.get();
+                });
+            } finally {
+                lockedStripes.reversed().forEach(stripe -> stripe.lock.unlock());
+            }
+        }
+
+        Stripe stripe = lockedStripes.getFirst();
+        PendingWrite<T> pendingWrite = new PendingWrite<>(write);
+        stripe.queue.add(pendingWrite);
+        stripe.lock.lock();
+        try {
+            //A group holds at most max-write-group-size writes, so this write may be queued behind several groups
+            while (!pendingWrite.done) {
+                applyGroup(stripe);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        return pendingWrite.getResult();
+    }
+
+    private void applyGroup(Stripe stripe) {
+        List<PendingWrite<?>> group = new ArrayList<>();
+        PendingWrite<?> pendingWrite;
+        while (group.size() < balanceProperties.getMaxWriteGroupSize() && (pendingWrite = stripe.queue.poll()) != null) {
+            group.add(pendingWrite);
+        }
+
+        try {
+            List<PendingWrite<?>> remaining = group;
+            while (!remaining.isEmpty()) {
+                remaining = applyWrites(remaining);
+            }
+        } finally {
+            //Writes that did not finish are failed, so their callers do not wait for another group
+            IllegalStateException notApplied = new IllegalStateException("Write was not applied.");
+            group.stream()
+                    .filter(write -> !write.done)
+                    .forEach(write -> write.fail(notApplied));
+        }
+    }
+
+    /**
+     * Applies the writes in one transaction.
+     *
+     * @return Writes to apply again, because a database error rolled back the transaction.
+     */
+    private List<PendingWrite<?>> applyWrites(List<PendingWrite<?>> writes) {
+        PendingWrite<?>[] currentWrite = new PendingWrite<?>[1];
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                entityManager.clear();
+                for (PendingWrite<?> write : writes) {
+                    currentWrite[0] = write;
+                    applyAtSavepoint(write, status);
+                }
+                currentWrite[0] = null;
+            });
+        } catch (RuntimeException e) {
+            if (currentWrite[0] == null) {
+                throw e;
+            }
+            currentWrite[0].fail(e);
+            return writes.stream()
+                    .filter(write -> !write.done)
+                    .toList();
+        }
+
+        writes.stream()
+                .filter(write -> !write.done)
+                .forEach(PendingWrite::complete);
+        return List.of();
+    }
+
+    /**
+     * Applies the write after a savepoint. If it throws, its changes, the transaction synchronizations it
+     * registered and the state it collected in TransactionResources are dropped and it fails alone, unless the
+     * database marked the whole transaction rollback-only.
+     * Changes are flushed before and after the write, so that its database errors surface while it is current.
+     */
+    private void applyAtSavepoint(PendingWrite<?> write,
+                                  TransactionStatus status) {
+        Session session = entityManager.unwrap(Session.class);
+        session.flush();
+        Savepoint savepoint = session.doReturningWork(Connection::setSavepoint);
+        TransactionSnapshot transactionSnapshot = TransactionSnapshot.take();
+        try {
+            write.apply();
+            session.flush();
+        } catch (RuntimeException e) {
+            if (status.isRollbackOnly()) {
+                throw e;
+            }
+
+            session.doWork(connection -> connection.rollback(savepoint));
+            entityManager.clear();
+            transactionSnapshot.restore();
+            write.fail(e);
+            return;
+        }
+        session.doWork(connection -> connection.releaseSavepoint(savepoint));
+    }
+
+    private int getStripeIndex(Long accountId) {
+        return Math.floorMod(Long.hashCode(accountId), stripes.length);
+    }
+
+    private static class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock(true);
+        private final Queue<PendingWrite<?>> queue = new ConcurrentLinkedQueue<>();
+    }
+
+    private static class PendingWrite<T> {
+
+        private final Supplier<T> write;
+        private T result;
+        private T appliedResult;
+        private RuntimeException exception;
+        private volatile boolean done;
+
+        private PendingWrite(Supplier<T> write) {
+            this.write = write;
+        }
+
+        private void apply() {
+            appliedResult = write.get();
+        }
+
+        private void complete() {
+            result = appliedResult;
+            done = true;
+        }
+
+        private void fail(RuntimeException exception) {
+            this.exception = exception;
+            done = true;
+        }
+
+        private T getResult() {
+            if (exception != null) {
+                throw exception;
+            }
+            return result;
+        }
+    }
+}
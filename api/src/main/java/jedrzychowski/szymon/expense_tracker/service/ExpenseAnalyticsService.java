@@ -0,0 +1,139 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import jedrzychowski.szymon.expense_tracker.config.property.ReportProperties;
+import jedrzychowski.szymon.expense_tracker.entity.Expense;
+import jedrzychowski.szymon.expense_tracker.entity.ReportPeriod;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseAnalyticsRowDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.report.SpendingReportRowDTO;
+import jedrzychowski.szymon.expense_tracker.repository.ExpenseRepository;
+import jedrzychowski.szymon.expense_tracker.util.ExpenseColumns;
+import jedrzychowski.szymon.expense_tracker.util.ExpiringCache;
+import jedrzychowski.szymon.expense_tracker.util.TransactionUtil;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Opt-in analytics cache answering spending reports from memory. Every AppUser gets ExpenseColumns built on their
+ * first report, loaded columns are kept up to date by Expense writes once they commit. The cache holds the columns
+ * of at most report.analytics-cache-size AppUsers, it is disabled if the size is 0.
+ */
+@Service
+public class ExpenseAnalyticsService {
+
+    private final ExpenseRepository expenseRepository;
+    private final ReportProperties reportProperties;
+    private final ExpiringCache<Long, ExpenseColumns> expenseColumns;
+
+    public ExpenseAnalyticsService(ExpenseRepository expenseRepository,
+                                   ReportProperties reportProperties) {
+        this.expenseRepository = expenseRepository;
+        this.reportProperties = reportProperties;
+        this.expenseColumns = new ExpiringCache<>(
+                reportProperties.getAnalyticsCacheSize(),
+                reportProperties.getAnalyticsCacheTtl()
+        );
+    }
+
+    public boolean isEnabled() {
+        return reportProperties.getAnalyticsCacheSize() > 0;
+    }
+
+    /**
+     * Returns the spending of the Account, or of all Accounts of the AppUser, grouped by period, Account and
+     * ExpenseType, with the same rows as the spending report read from the database. Columns of AppUsers with at
+     * least report.analytics-parallel-threshold Expenses are aggregated in parallel.
+     *
+     * @param appUserId ID of the AppUser
+     * @param accountId optional ID of the Account to filter by, already validated to belong to the AppUser
+     * @param startDate first date to include
+     * @param endDate   last date to include
+     * @param period    length of the periods
+     * @return rows ordered by period start, Account ID and ExpenseType ID
+     */
+    @Transactional(readOnly = true)
+    public List<SpendingReportRowDTO> sumSpending(Long appUserId,
+                                                  Long accountId,
+                                                  LocalDate startDate,
+                                                  LocalDate endDate,
+                                                  ReportPeriod period) {
+        ExpenseColumns columns = getLoadedExpenseColumns(appUserId);
+        boolean parallel = columns.size() >= reportProperties.getAnalyticsParallelThreshold();
+        return columns.sumSpending(accountId, startDate, endDate, period, parallel);
+    }
+
+    /**
+     * Stores the current values of the Expense once the current transaction commits.
+     *
+     * @param expense Created or updated Expense.
+     */
+    public void addExpense(Expense expense) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        Long appUserId = expense.getAccount().getAppUser().getId();
+        long expenseId = expense.getId();
+        long accountId = expense.getAccount().getId();
+        long expenseTypeId = expense.getExpenseType().getId();
+        LocalDate date = expense.getDate();
+        long movementAmount = expense.getMovementAmount();
+        long refundAmount = expense.getRefundAmount();
+        TransactionUtil.afterCommit(() -> {
+            ExpenseColumns columns = expenseColumns.get(appUserId);
+            if (columns != null) {
+                columns.add(expenseId, accountId, expenseTypeId, date, movementAmount, refundAmount);
+            }
+        });
+    }
+
+    /**
+     * Removes the Expense once the current transaction commits.
+     *
+     * @param expense Deleted Expense.
+     */
+    public void removeExpense(Expense expense) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        Long appUserId = expense.getAccount().getAppUser().getId();
+        long expenseId = expense.getId();
+        TransactionUtil.afterCommit(() -> {
+            ExpenseColumns columns = expenseColumns.get(appUserId);
+            if (columns != null) {
+                columns.remove(expenseId);
+            }
+        });
+    }
+
+    /**
+     * Drops the cached data of the AppUser once the current transaction commits.
+     */
+    public void evict(Long appUserId) {
+        TransactionUtil.afterCommit(() -> expenseColumns.remove(appUserId));
+    }
+
+    /**
+     * Loads the columns while holding their lock, so that writes committed during the load are applied after it
+     * and the columns do not miss them.
+     */
+    private ExpenseColumns getLoadedExpenseColumns(Long appUserId) {
+        ExpenseColumns columns = expenseColumns.computeIfAbsent(appUserId, id -> new ExpenseColumns());
+        synchronized (columns) {
+            if (!columns.isLoaded()) {
+                try (Stream<ExpenseAnalyticsRowDTO> rows = expenseRepository.streamAnalyticsRowsByAppUserId(appUserId)) {
+                    rows.forEach(row -> columns.add(
+                            row.id(), row.account(), row.expenseType(), row.date(), row.movementAmount(),
+                            row.refundAmount()
+                    ));
+                }
+                columns.markLoaded();
+            }
+        }
+        return columns;
+    }
+}
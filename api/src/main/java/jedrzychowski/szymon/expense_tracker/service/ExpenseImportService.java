@@ -0,0 +1,348 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import jakarta.persistence.EntityManager;
+import jedrzychowski.szymon.expense_tracker.config.exception.*;
+import jedrzychowski.szymon.expense_tracker.entity.*;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.CreateExpenseRequestDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ImportExpensesResponseDTO;
+import jedrzychowski.szymon.expense_tracker.finder.AccountFinder;
+import jedrzychowski.szymon.expense_tracker.finder.ExpenseTypeFinder;
+import jedrzychowski.szymon.expense_tracker.repository.AccountRepository;
+import jedrzychowski.szymon.expense_tracker.repository.ExpenseTypeRepository;
+import jedrzychowski.szymon.expense_tracker.util.CsvUtil;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+
+@Service
+public class ExpenseImportService {
+
+    /**
+     * Number of Expenses inserted before the persistence context is flushed and cleared,
+     * matching hibernate.jdbc.batch_size.
+     */
+    private static final int BATCH_SIZE = 50;
+    private static final List<String> REQUIRED_COLUMNS = List.of("date", "movementAmount", "expenseTypeId", "accountId");
+
+    private final EntityManager entityManager;
+    private final AccountStateProjector accountStateProjector;
+    private final ExpenseLedgerService expenseLedgerService;
+    private final ExpenseSummaryService expenseSummaryService;
+    private final AccountStateRebalanceService accountStateRebalanceService;
+    private final AccountVersionService accountVersionService;
+    private final ExpenseSearchService expenseSearchService;
+    private final ExpenseAnalyticsService expenseAnalyticsService;
+    private final ExpenseStatisticsService expenseStatisticsService;
+    private final AccountWriteSequencer accountWriteSequencer;
+    private final AccountFinder accountFinder;
+    private final ExpenseTypeFinder expenseTypeFinder;
+
+    public ExpenseImportService(EntityManager entityManager,
+                                AccountRepository accountRepository,
+                                ExpenseTypeRepository expenseTypeRepository,
+                                AccountStateProjector accountStateProjector,
+                                ExpenseLedgerService expenseLedgerService,
+                                ExpenseSummaryService expenseSummaryService,
+                                AccountStateRebalanceService accountStateRebalanceService,
+                                AccountVersionService accountVersionService,
+                                ExpenseSearchService expenseSearchService,
+                                ExpenseAnalyticsService expenseAnalyticsService,
+                                ExpenseStatisticsService expenseStatisticsService,
+                                AccountWriteSequencer accountWriteSequencer) {
+        this.entityManager = entityManager;
+        this.accountStateProjector = accountStateProjector;
+        this.expenseLedgerService = expenseLedgerService;
+        this.expenseSummaryService = expenseSummaryService;
+        this.accountStateRebalanceService = accountStateRebalanceService;
+        this.accountVersionService = accountVersionService;
+        this.expenseSearchService = expenseSearchService;
+        this.expenseAnalyticsService = expenseAnalyticsService;
+        this.expenseStatisticsService = expenseStatisticsService;
+        this.accountWriteSequencer = accountWriteSequencer;
+        this.accountFinder = new AccountFinder(accountRepository);
+        this.expenseTypeFinder = new ExpenseTypeFinder(expenseTypeRepository);
+    }
+
+    /**
+     * Imports Expenses from a CSV body, reading it line by line. The first line is a header naming the columns
+     * of CreateExpenseRequestDTO (date, movementAmount, refundAmount, expenseTypeId, description, accountId).
+     * The body is validated while it is copied to a temporary file, keeping only the sums of movements per
+     * AccountState in memory, before anything is written. Then all Expenses are read back from the file and
+     * inserted in batches in one write through the AccountWriteSequencer, so the import is serialized with other
+     * writes of the touched Accounts only while it writes. Movements are added to every touched AccountState once,
+     * every Expense is posted to the ledger, and every touched Account is rebalanced once.
+     *
+     * @param appUser the currently authorized AppUser
+     * @param reader  reader of the CSV body
+     * @return number of imported Expenses and IDs of the touched Accounts
+     */
+    public ImportExpensesResponseDTO importExpenses(AppUser appUser,
+                                                    Reader reader) throws
+                                                                   DataValidationException,
+                                                                   DataNotFoundException,
+                                                                   UnauthorizedUserAccessException,
+                                                                   ForbiddenActionException {
+        Path spoolFile = createSpoolFile();
+        try {
+            ImportTotals importTotals = readExpenses(reader, spoolFile);
+            return accountWriteSequencer.execute(
+                    importTotals.expenseTypeIds().keySet(), () -> applyImport(appUser, importTotals, spoolFile)
+            );
+        } finally {
+            deleteSpoolFile(spoolFile);
+        }
+    }
+
+    /**
+     * Parses and validates all lines of the CSV body while copying them to the spool file, reporting errors of all
+     * invalid lines at once.
+     */
+    private ImportTotals readExpenses(Reader reader,
+                                      Path spoolFile) throws
+                                                      DataValidationException {
+        try (BufferedReader bufferedReader = new BufferedReader(reader);
+             BufferedWriter spoolWriter = Files.newBufferedWriter(spoolFile, StandardCharsets.UTF_8)) {
+            String header = bufferedReader.readLine();
+            Map<String, Integer> columnIndexes = readHeader(header);
+            spoolWriter.write(header);
+            spoolWriter.newLine();
+
+            ImportTotals importTotals = new ImportTotals(new LinkedHashMap<>(), new LinkedHashMap<>());
+            List<String> validationErrors = new ArrayList<>();
+            int lineNumber = 1;
+
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                CreateExpenseRequestDTO createExpenseRequestDTO;
+                try {
+                    createExpenseRequestDTO = toCreateExpenseRequestDTO(CsvUtil.parseLine(line), columnIndexes);
+                } catch (IllegalArgumentException e) {
+                    validationErrors.add(String.format("Line %d: %s", lineNumber, e.getMessage()));
+                    continue;
+                }
+
+                int currentLineNumber = lineNumber;
+                createExpenseRequestDTO.validateDTO().forEach(validationError ->
+                        validationErrors.add(String.format("Line %d: %s", currentLineNumber, validationError)));
+                //Once any line is invalid nothing is imported, so only the errors are collected
+                if (validationErrors.isEmpty()) {
+                    spoolWriter.write(line);
+                    spoolWriter.newLine();
+                    importTotals.add(createExpenseRequestDTO);
+                }
+            }
+
+            if (!validationErrors.isEmpty()) {
+                throw new DataValidationException(validationErrors);
+            }
+            return importTotals;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ImportExpensesResponseDTO applyImport(AppUser appUser,
+                                                  ImportTotals importTotals,
+                                                  Path spoolFile) throws
+                                                                  DataNotFoundException,
+                                                                  UnauthorizedUserAccessException,
+                                                                  ForbiddenActionException {
+        Map<Long, Account> accounts = new HashMap<>();
+        Map<Long, ExpenseType> expenseTypes = new HashMap<>();
+        importTotals.expenseTypeIds().forEach((accountId, expenseTypeIds) -> {
+            Account account = accountFinder.findById(accountId);
+            account.validateIfAccountIsOwnedByCurrentUser(appUser);
+            accounts.put(accountId, account);
+            for (Long expenseTypeId : expenseTypeIds) {
+                expenseTypes.computeIfAbsent(expenseTypeId, expenseTypeFinder::findById)
+                        .validateIfExpenseTypeCanBeUsedForAccount(account);
+            }
+        });
+
+        Map<AccountStateKey, Long> accountStateIds = new HashMap<>();
+        Map<Long, LocalDate> earliestDates = new HashMap<>();
+        importTotals.accountStateMovements().forEach((accountStateKey, movements) -> {
+            accountStateIds.put(
+                    accountStateKey,
+                    accountStateProjector.applyMovements(accountStateKey.accountId(), accountStateKey.date(),
+                            movements.positiveMovement(), movements.negativeMovement(), movements.refundAmount()).getId()
+            );
+            earliestDates.merge(accountStateKey.accountId(), accountStateKey.date(),
+                    (first, second) -> first.isBefore(second) ? first : second);
+        });
+
+        int importedExpenses = 0;
+        try (BufferedReader spoolReader = Files.newBufferedReader(spoolFile, StandardCharsets.UTF_8)) {
+            Map<String, Integer> columnIndexes = readHeader(spoolReader.readLine());
+            String line;
+            while ((line = spoolReader.readLine()) != null) {
+                CreateExpenseRequestDTO createExpenseRequestDTO =
+                        toCreateExpenseRequestDTO(CsvUtil.parseLine(line), columnIndexes);
+                Account account = accounts.get(createExpenseRequestDTO.accountId());
+                LocalDate date = createExpenseRequestDTO.date();
+                Expense expense = new Expense(
+                        createExpenseRequestDTO,
+                        expenseTypes.get(createExpenseRequestDTO.expenseTypeId()),
+                        entityManager.getReference(
+                                AccountState.class, accountStateIds.get(new AccountStateKey(account.getId(), date))
+                        ),
+                        account
+                );
+                entityManager.persist(expense);
+                expenseLedgerService.appendPosting(ExpenseEventType.CREATED, expense.getId(), account.getId(), date,
+                        expense.getMovementAmount(), expense.getRefundAmount());
+                expenseSummaryService.addExpense(expense);
+
+                if (++importedExpenses % BATCH_SIZE == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        earliestDates.forEach((accountId, date) ->
+                accountStateRebalanceService.markDirty(accounts.get(accountId), date));
+        accountVersionService.markChanged(accounts.keySet());
+        //Cached views of the AppUser are dropped once instead of being updated per imported Expense
+        if (importedExpenses > 0) {
+            expenseSearchService.evict(appUser.getId());
+            expenseAnalyticsService.evict(appUser.getId());
+            expenseStatisticsService.evict(appUser.getId());
+        }
+
+        return new ImportExpensesResponseDTO(importedExpenses, accounts.keySet());
+    }
+
+    private Path createSpoolFile() {
+        try {
+            return Files.createTempFile("expense-import", ".csv");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void deleteSpoolFile(Path spoolFile) {
+        try {
+            Files.deleteIfExists(spoolFile);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<String, Integer> readHeader(String header) throws
+                                                           DataValidationException {
+        if (header == null) {
+            throw new DataValidationException(List.of("CSV body must start with a header line."));
+        }
+
+        Map<String, Integer> columnIndexes = new HashMap<>();
+        List<String> columns = CsvUtil.parseLine(header);
+        for (int i = 0; i < columns.size(); i++) {
+            columnIndexes.put(columns.get(i), i);
+        }
+
+        List<String> missingColumns = REQUIRED_COLUMNS.stream()
+                .filter(column -> !columnIndexes.containsKey(column))
+                .map(column -> String.format("CSV header is missing column: %s.", column))
+                .toList();
+        if (!missingColumns.isEmpty()) {
+            throw new DataValidationException(missingColumns);
+        }
+        return columnIndexes;
+    }
+
+    private CreateExpenseRequestDTO toCreateExpenseRequestDTO(List<String> values,
+                                                              Map<String, Integer> columnIndexes) {
+        return new CreateExpenseRequestDTO(
+                parseValue(values, columnIndexes, "date", LocalDate::parse),
+                parseValue(values, columnIndexes, "movementAmount", BigDecimal::new),
+                parseValue(values, columnIndexes, "refundAmount", BigDecimal::new),
+                parseValue(values, columnIndexes, "expenseTypeId", Long::parseLong),
+                parseValue(values, columnIndexes, "description", Function.identity()),
+                parseValue(values, columnIndexes, "accountId", Long::parseLong)
+        );
+    }
+
+    private <T> T parseValue(List<String> values,
+                             Map<String, Integer> columnIndexes,
+                             String column,
+                             Function<String, T> parser) {
+        Integer index = columnIndexes.get(column);
+        if (index == null || index >= values.size() || values.get(index).isEmpty()) {
+            if (REQUIRED_COLUMNS.contains(column)) {
+                throw new IllegalArgumentException(String.format("Value of column %s cannot be empty.", column));
+            }
+            return null;
+        }
+
+        String value = values.get(index);
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException(String.format("Cannot parse value %s of column %s.", value, column));
+        }
+    }
+
+    /**
+     * Sums of the movements of the imported Expenses per AccountState, and IDs of the used ExpenseTypes per Account,
+     * both in the order they first appear in the body.
+     */
+    private record ImportTotals(Map<AccountStateKey, AccountStateMovements> accountStateMovements,
+                                Map<Long, Set<Long>> expenseTypeIds) {
+
+        private void add(CreateExpenseRequestDTO createExpenseRequestDTO) {
+            accountStateMovements.merge(
+                    new AccountStateKey(createExpenseRequestDTO.accountId(), createExpenseRequestDTO.date()),
+                    AccountStateMovements.of(createExpenseRequestDTO),
+                    AccountStateMovements::plus
+            );
+            expenseTypeIds.computeIfAbsent(createExpenseRequestDTO.accountId(), accountId -> new LinkedHashSet<>())
+                    .add(createExpenseRequestDTO.expenseTypeId());
+        }
+    }
+
+    private record AccountStateKey(Long accountId,
+                                   LocalDate date) {
+    }
+
+    private record AccountStateMovements(long positiveMovement,
+                                         long negativeMovement,
+                                         long refundAmount) {
+
+        private static AccountStateMovements of(CreateExpenseRequestDTO createExpenseRequestDTO) {
+            long movementAmount = createExpenseRequestDTO.getMovementAmount();
+            return new AccountStateMovements(
+                    Math.max(movementAmount, 0), -Math.min(movementAmount, 0), createExpenseRequestDTO.getRefundAmount()
+            );
+        }
+
+        private AccountStateMovements plus(AccountStateMovements other) {
+            return new AccountStateMovements(
+                    positiveMovement + other.positiveMovement,
+                    negativeMovement + other.negativeMovement,
+                    refundAmount + other.refundAmount
+            );
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import jedrzychowski.szymon.expense_tracker.entity.AccountStateProjection;
+import jedrzychowski.szymon.expense_tracker.entity.Expense;
+import jedrzychowski.szymon.expense_tracker.entity.ExpenseEvent;
+import jedrzychowski.szymon.expense_tracker.entity.ExpenseEventType;
+import jedrzychowski.szymon.expense_tracker.repository.AccountRepository;
+import jedrzychowski.szymon.expense_tracker.repository.AccountStateProjectionRepository;
+import jedrzychowski.szymon.expense_tracker.repository.ExpenseEventRepository;
+import jedrzychowski.szymon.expense_tracker.repository.ExpenseRepository;
+import jedrzychowski.szymon.expense_tracker.util.TransactionResource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class ExpenseLedgerService {
+
+    private final ExpenseEventRepository expenseEventRepository;
+    private final ExpenseRepository expenseRepository;
+    private final AccountRepository accountRepository;
+    private final AccountStateProjectionRepository accountStateProjectionRepository;
+    private final TransactionResource<Map<Long, Long>> transactionSequenceNumbers;
+
+    public ExpenseLedgerService(ExpenseEventRepository expenseEventRepository,
+                                ExpenseRepository expenseRepository,
+                                AccountRepository accountRepository,
+                                AccountStateProjectionRepository accountStateProjectionRepository) {
+        this.expenseEventRepository = expenseEventRepository;
+        this.expenseRepository = expenseRepository;
+        this.accountRepository = accountRepository;
+        this.accountStateProjectionRepository = accountStateProjectionRepository;
+        this.transactionSequenceNumbers = new TransactionResource<>(
+                HashMap::new,
+                HashMap::new,
+                sequenceNumbers -> sequenceNumbers.forEach(this::advanceProjection),
+                sequenceNumbers -> {
+                }
+        );
+    }
+
+    /**
+     * Appends an ExpenseEvent adding the amounts to the movements of the Account on the date.
+     *
+     * @param type           Type of the change.
+     * @param expenseId      ID of the changed Expense.
+     * @param accountId      ID of the Account of the posting.
+     * @param date           Date of the posting.
+     * @param movementAmount Movement amount in minor units.
+     * @param refundAmount   Refund amount in minor units.
+     */
+    public void appendPosting(ExpenseEventType type,
+                              Long expenseId,
+                              Long accountId,
+                              LocalDate date,
+                              long movementAmount,
+                              long refundAmount) {
+        append(type, expenseId, accountId, date,
+                Math.max(movementAmount, 0), -Math.min(movementAmount, 0), refundAmount);
+    }
+
+    /**
+     * Appends an ExpenseEvent subtracting the amounts from the movements of the Account on the date.
+     *
+     * @param type           Type of the change.
+     * @param expenseId      ID of the changed Expense.
+     * @param accountId      ID of the Account of the previous posting.
+     * @param date           Date of the previous posting.
+     * @param movementAmount Previous movement amount in minor units.
+     * @param refundAmount   Previous refund amount in minor units.
+     */
+    public void appendReversal(ExpenseEventType type,
+                               Long expenseId,
+                               Long accountId,
+                               LocalDate date,
+                               long movementAmount,
+                               long refundAmount) {
+        append(type, expenseId, accountId, date,
+                -Math.max(movementAmount, 0), Math.min(movementAmount, 0), -refundAmount);
+    }
+
+    /**
+     * Posts the Expenses of Accounts that existed before the ledger as CREATED events, marking them as already
+     * projected, so that their AccountStates can be rebuilt from the ledger as well.
+     */
+    @Transactional
+    public void appendExistingExpenses(Long accountId) {
+        if (accountStateProjectionRepository.existsById(accountId) || expenseEventRepository.existsByAccountId(accountId)) {
+            return;
+        }
+
+        List<Expense> expenses = expenseRepository.findAllByAccountIdOrderByAccountState_DateAsc(accountId);
+        for (Expense expense : expenses) {
+            appendPosting(ExpenseEventType.CREATED, expense.getId(), accountId, expense.getDate(),
+                    expense.getMovementAmount(), expense.getRefundAmount());
+        }
+        accountStateProjectionRepository.save(new AccountStateProjection(accountId, expenses.size()));
+    }
+
+    private void append(ExpenseEventType type,
+                        Long expenseId,
+                        Long accountId,
+                        LocalDate date,
+                        long positiveMovement,
+                        long negativeMovement,
+                        long refundAmount) {
+        expenseEventRepository.save(new ExpenseEvent(
+                accountId,
+                nextSequenceNumber(accountId),
+                expenseId,
+                type,
+                date,
+                positiveMovement,
+                negativeMovement,
+                refundAmount
+        ));
+    }
+
+    /**
+     * AccountStates are changed together with the ExpenseEvents appended in the transaction, so the projection of
+     * the Account moves to its last sequence number once, right before the commit.
+     */
+    private void advanceProjection(Long accountId,
+                                   Long lastSequenceNumber) {
+        if (accountStateProjectionRepository.updateLastSequenceNumber(accountId, lastSequenceNumber) == 0) {
+            accountStateProjectionRepository.save(new AccountStateProjection(accountId, lastSequenceNumber));
+        }
+    }
+
+    /**
+     * Returns the next sequence number of the Account. The first number taken in a transaction locks the Account
+     * row and reads the last number, the following ones are counted in memory. Transactions appending to the same
+     * Account therefore take their numbers one after another and never collide on the unique constraint.
+     */
+    private long nextSequenceNumber(Long accountId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return expenseEventRepository.findLastSequenceNumber(accountId) + 1;
+        }
+
+        Map<Long, Long> sequenceNumbers = transactionSequenceNumbers.get();
+        long sequenceNumber;
+        if (sequenceNumbers.containsKey(accountId)) {
+            sequenceNumber = sequenceNumbers.get(accountId) + 1;
+        } else {
+            accountRepository.findByIdForUpdate(accountId);
+            sequenceNumber = expenseEventRepository.findLastSequenceNumber(accountId) + 1;
+        }
+        sequenceNumbers.put(accountId, sequenceNumber);
+        return sequenceNumber;
+    }
+}
@@ -0,0 +1,159 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import jedrzychowski.szymon.expense_tracker.config.exception.DataNotFoundException;
+import jedrzychowski.szymon.expense_tracker.config.exception.ParamValidationException;
+import jedrzychowski.szymon.expense_tracker.config.exception.UnauthorizedUserAccessException;
+import jedrzychowski.szymon.expense_tracker.config.property.SearchProperties;
+import jedrzychowski.szymon.expense_tracker.entity.AppUser;
+import jedrzychowski.szymon.expense_tracker.entity.Expense;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseSearchDocumentDTO;
+import jedrzychowski.szymon.expense_tracker.repository.ExpenseRepository;
+import jedrzychowski.szymon.expense_tracker.util.DateUtil;
+import jedrzychowski.szymon.expense_tracker.util.ExpenseSearchIndex;
+import jedrzychowski.szymon.expense_tracker.util.ExpiringCache;
+import jedrzychowski.szymon.expense_tracker.util.PageUtil;
+import jedrzychowski.szymon.expense_tracker.util.TransactionUtil;
+import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Full-text search over Expense descriptions. Every AppUser gets an ExpenseSearchIndex built on their first search,
+ * loaded indexes are kept up to date by Expense writes once they commit. Indexes are cached up to the configured
+ * number of AppUsers and time to live, and a dropped index is built again by the next search.
+ */
+@Service
+public class ExpenseSearchService {
+
+    private final ExpenseRepository expenseRepository;
+    private final AccountAuthorizationService accountAuthorizationService;
+    private final ExpiringCache<Long, ExpenseSearchIndex> searchIndexes;
+
+    public ExpenseSearchService(ExpenseRepository expenseRepository,
+                                AccountAuthorizationService accountAuthorizationService,
+                                SearchProperties searchProperties) {
+        this.expenseRepository = expenseRepository;
+        this.accountAuthorizationService = accountAuthorizationService;
+        this.searchIndexes = new ExpiringCache<>(
+                searchProperties.getIndexCacheSize(),
+                searchProperties.getIndexCacheTtl()
+        );
+    }
+
+    /**
+     * Searches descriptions of the Expenses of the AppUser. Every word of the query has to match a word of the
+     * description exactly, as a prefix or with a typo.
+     *
+     * @param appUser   the currently authorized AppUser
+     * @param query     text to search for
+     * @param accountId optional ID of the Account to filter by
+     * @param startDate optional first date to include
+     * @param endDate   optional last date to include
+     * @param limit     maximum number of returned Expenses
+     * @return matching Expenses, best match first
+     */
+    @Transactional(readOnly = true)
+    public List<ExpenseDTO> searchExpenses(AppUser appUser,
+                                           String query,
+                                           Long accountId,
+                                           LocalDate startDate,
+                                           LocalDate endDate,
+                                           int limit) throws
+                                                      ParamValidationException,
+                                                      DataNotFoundException,
+                                                      UnauthorizedUserAccessException {
+        if (ExpenseSearchIndex.tokenize(query).isEmpty()) {
+            throw new ParamValidationException(String.format("query (%s) must contain a letter or a digit.", query));
+        }
+        Pair<LocalDate, LocalDate> dates = DateUtil.validateDateParams(startDate, endDate);
+        PageUtil.validateLimit(limit);
+        if (accountId != null) {
+            accountAuthorizationService.validateIfAccountIsOwnedByCurrentUser(appUser, accountId);
+        }
+
+        List<Long> expenseIds = getLoadedSearchIndex(appUser.getId())
+                .search(query, accountId, dates.getLeft(), dates.getRight(), limit);
+        if (expenseIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Integer> ranks = new HashMap<>();
+        for (int i = 0; i < expenseIds.size(); i++) {
+            ranks.put(expenseIds.get(i), i);
+        }
+        return expenseRepository.findAllByIdIn(expenseIds).stream()
+                .sorted(Comparator.comparing(expense -> ranks.get(expense.id())))
+                .toList();
+    }
+
+    /**
+     * Indexes the current description of the Expense once the current transaction commits.
+     *
+     * @param expense Created or updated Expense.
+     */
+    public void indexExpense(Expense expense) {
+        Long appUserId = expense.getAccount().getAppUser().getId();
+        Long expenseId = expense.getId();
+        Long accountId = expense.getAccount().getId();
+        LocalDate date = expense.getDate();
+        String description = expense.getDescription();
+        TransactionUtil.afterCommit(() -> {
+            ExpenseSearchIndex searchIndex = searchIndexes.get(appUserId);
+            if (searchIndex != null) {
+                searchIndex.add(expenseId, accountId, date, description);
+            }
+        });
+    }
+
+    /**
+     * Removes the Expense from the index once the current transaction commits.
+     *
+     * @param expense Deleted Expense.
+     */
+    public void removeExpense(Expense expense) {
+        Long appUserId = expense.getAccount().getAppUser().getId();
+        Long expenseId = expense.getId();
+        TransactionUtil.afterCommit(() -> {
+            ExpenseSearchIndex searchIndex = searchIndexes.get(appUserId);
+            if (searchIndex != null) {
+                searchIndex.remove(expenseId);
+            }
+        });
+    }
+
+    /**
+     * Drops the index of the AppUser once the current transaction commits. Dropped before the commit, the index
+     * could be loaded again by a concurrent search that still reads the Expenses of a deleted Account.
+     */
+    public void evict(Long appUserId) {
+        TransactionUtil.afterCommit(() -> searchIndexes.remove(appUserId));
+    }
+
+    /**
+     * Loads the index while holding its lock, so that writes committed during the load are applied after it and
+     * the index does not miss them.
+     */
+    private ExpenseSearchIndex getLoadedSearchIndex(Long appUserId) {
+        ExpenseSearchIndex searchIndex = searchIndexes.computeIfAbsent(appUserId, id -> new ExpenseSearchIndex());
+        synchronized (searchIndex) {
+            if (!searchIndex.isLoaded()) {
+                try (Stream<ExpenseSearchDocumentDTO> documents =
+                             expenseRepository.streamSearchDocumentsByAppUserId(appUserId)) {
+                    documents.forEach(document -> searchIndex.add(
+                            document.id(), document.account(), document.date(), document.description()
+                    ));
+                }
+                searchIndex.markLoaded();
+            }
+        }
+        return searchIndex;
+    }
+}
@@ -4,68 +4,107 @@ import jakarta.validation.Valid;
 import jedrzychowski.szymon.expense_tracker.config.exception.*;
 import jedrzychowski.szymon.expense_tracker.entity.*;
 import jedrzychowski.szymon.expense_tracker.entity.dto.expense.CreateExpenseRequestDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseBatchRequestDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseBatchResponseDTO;
 import jedrzychowski.szymon.expense_tracker.entity.dto.expense.UpdateExpenseRequestDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.page.PageDTO;
 import jedrzychowski.szymon.expense_tracker.finder.AccountFinder;
 import jedrzychowski.szymon.expense_tracker.finder.ExpenseFinder;
 import jedrzychowski.szymon.expense_tracker.finder.ExpenseTypeFinder;
 import jedrzychowski.szymon.expense_tracker.repository.AccountRepository;
-import jedrzychowski.szymon.expense_tracker.repository.AccountStateRepository;
 import jedrzychowski.szymon.expense_tracker.repository.ExpenseRepository;
 import jedrzychowski.szymon.expense_tracker.repository.ExpenseTypeRepository;
 import jedrzychowski.szymon.expense_tracker.util.DateUtil;
+import jedrzychowski.szymon.expense_tracker.util.FieldsUtil;
+import jedrzychowski.szymon.expense_tracker.util.PageUtil;
 import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class ExpenseService {
 
-    private final AccountStateRepository accountStateRepository;
     private final ExpenseRepository expenseRepository;
+    private final AccountStateRebalanceService accountStateRebalanceService;
+    private final AccountStateProjector accountStateProjector;
+    private final ExpenseLedgerService expenseLedgerService;
+    private final ExpenseSummaryService expenseSummaryService;
+    private final AccountWriteSequencer accountWriteSequencer;
+    private final AccountAuthorizationService accountAuthorizationService;
+    private final AccountVersionService accountVersionService;
+    private final ExpenseSearchService expenseSearchService;
+    private final ExpenseAnalyticsService expenseAnalyticsService;
+    private final ExpenseStatisticsService expenseStatisticsService;
     private final AccountFinder accountFinder;
     private final ExpenseFinder expenseFinder;
     private final ExpenseTypeFinder expenseTypeFinder;
 
     public ExpenseService(AccountRepository accountRepository,
-                          AccountStateRepository accountStateRepository,
                           ExpenseRepository expenseRepository,
-                          ExpenseTypeRepository expenseTypeRepository) {
-        this.accountStateRepository = accountStateRepository;
+                          ExpenseTypeRepository expenseTypeRepository,
+                          AccountStateRebalanceService accountStateRebalanceService,
+                          AccountStateProjector accountStateProjector,
+                          ExpenseLedgerService expenseLedgerService,
+                          ExpenseSummaryService expenseSummaryService,
+                          AccountWriteSequencer accountWriteSequencer,
+                          AccountAuthorizationService accountAuthorizationService,
+                          AccountVersionService accountVersionService,
+                          ExpenseSearchService expenseSearchService,
+                          ExpenseAnalyticsService expenseAnalyticsService,
+                          ExpenseStatisticsService expenseStatisticsService) {
         this.expenseRepository = expenseRepository;
+        this.accountStateRebalanceService = accountStateRebalanceService;
+        this.accountStateProjector = accountStateProjector;
+        this.expenseLedgerService = expenseLedgerService;
+        this.expenseSummaryService = expenseSummaryService;
+        this.accountWriteSequencer = accountWriteSequencer;
+        this.accountAuthorizationService = accountAuthorizationService;
+        this.accountVersionService = accountVersionService;
+        this.expenseSearchService = expenseSearchService;
+        this.expenseAnalyticsService = expenseAnalyticsService;
+        this.expenseStatisticsService = expenseStatisticsService;
         this.accountFinder = new AccountFinder(accountRepository);
         this.expenseFinder = new ExpenseFinder(expenseRepository);
         this.expenseTypeFinder = new ExpenseTypeFinder(expenseTypeRepository);
     }
 
 
-    public List<Expense> getAllExpenses(AppUser appUser,
-                                        Long accountId,
-                                        LocalDate startDate,
-                                        LocalDate endDate) throws
-                                                           ParamValidationException,
-                                                           DataNotFoundException,
-                                                           UnauthorizedUserAccessException {
-        Pair<LocalDate, LocalDate> dates = DateUtil.validateDateParams(startDate, endDate);
-        startDate = dates.getLeft();
-        endDate = dates.getRight();
-
+    public PageDTO<ExpenseDTO> getAllExpenses(AppUser appUser,
+                                              Long accountId,
+                                              LocalDate startDate,
+                                              LocalDate endDate,
+                                              Integer limit,
+                                              String cursor,
+                                              List<String> fields) throws
+                                                              ParamValidationException,
+                                                              DataNotFoundException,
+                                                              UnauthorizedUserAccessException {
+        DateUtil.validateDateRange(startDate, endDate);
+        Limit pageLimit = PageUtil.validateLimit(limit, cursor);
+        Pair<LocalDate, Long> after = PageUtil.decodeCursor(cursor);
+        Set<String> selectedFields = FieldsUtil.validateFields(fields, ExpenseDTO.FIELDS);
+
+        List<ExpenseDTO> expenses;
         if (accountId == null) {
-            return applyDateFilter(
-                    expenseRepository.findAllByAccount_AppUserOrderByAccountState_DateAsc(appUser), startDate, endDate
+            expenses = expenseRepository.findPageByAppUser(
+                    appUser, startDate, endDate, after.getLeft(), after.getRight(), pageLimit, selectedFields
+            );
+        } else {
+            accountAuthorizationService.validateIfAccountIsOwnedByCurrentUser(appUser, accountId);
+            expenses = expenseRepository.findPageByAccountId(
+                    accountId, startDate, endDate, after.getLeft(), after.getRight(), pageLimit, selectedFields
             );
         }
 
-        Account account = accountFinder.findById(accountId);
-        account.validateIfAccountIsOwnedByCurrentUser(appUser);
-
-        return applyDateFilter(
-                expenseRepository.findAllByAccountIdOrderByAccountState_DateAsc(accountId), startDate, endDate
-        );
+        return PageUtil.toPage(expenses, pageLimit, ExpenseDTO::date, ExpenseDTO::id);
     }
 
     public Expense getExpenseById(AppUser appUser,
@@ -78,7 +117,6 @@ public class ExpenseService {
     }
 
 
-    @Transactional
     public Expense createExpense(AppUser appUser,
                                  @Valid CreateExpenseRequestDTO createExpenseRequestDTO) throws
                                                                                          DataValidationException,
@@ -90,30 +128,12 @@ public class ExpenseService {
             throw new DataValidationException(validationResults);
         }
 
-        Account account = accountFinder.findById(createExpenseRequestDTO.accountId());
-        account.validateIfAccountIsOwnedByCurrentUser(appUser);
-
-        ExpenseType expenseType = expenseTypeFinder.findById(createExpenseRequestDTO.expenseTypeId());
-        validateExpenseTypeAccount(expenseType, account);
-
-        LocalDate date = createExpenseRequestDTO.date();
-        float negativeMovement = -Math.min(createExpenseRequestDTO.movementAmount(), 0);
-        float positiveMovement = Math.max(createExpenseRequestDTO.movementAmount(), 0);
-
-        AccountState accountState = getOrCreateAccountStateForDate(date, account);
-        accountState.setCurrentAmount(accountState.getCurrentAmount() + createExpenseRequestDTO.movementAmount());
-        accountState.setNegativeMovement(accountState.getNegativeMovement() + negativeMovement);
-        accountState.setPositiveMovement(accountState.getPositiveMovement() + positiveMovement);
-        accountState.setRefundAmount(accountState.getRefundAmount() + createExpenseRequestDTO.getRefundAmount());
-
-        Expense expenseToAdd = new Expense(createExpenseRequestDTO, expenseType, accountState, account);
-        accountStateRepository.save(accountState);
-
-        updateFutureAccountStates(accountState);
-        return expenseRepository.save(expenseToAdd);
+        return accountWriteSequencer.execute(
+                List.of(createExpenseRequestDTO.accountId()),
+                () -> applyCreateExpense(appUser, createExpenseRequestDTO)
+        );
     }
 
-    @Transactional
     public Expense updateExpense(AppUser appUser,
                                  @Valid UpdateExpenseRequestDTO updateExpenseRequestDTO) throws
                                                                                          DataValidationException,
@@ -125,6 +145,128 @@ public class ExpenseService {
             throw new DataValidationException(validationResults);
         }
 
+        Set<Long> accountIds = getAccountIdsOfExpenses(List.of(updateExpenseRequestDTO.id()));
+        accountIds.add(updateExpenseRequestDTO.accountId());
+        return accountWriteSequencer.execute(accountIds, () -> {
+            validateIfExpenseBelongsToAccounts(updateExpenseRequestDTO.id(), accountIds);
+            return applyUpdateExpense(appUser, updateExpenseRequestDTO);
+        });
+    }
+
+    public void deleteExpense(AppUser appUser,
+                              Long id) throws
+                                       DataNotFoundException,
+                                       UnauthorizedUserAccessException {
+        Set<Long> accountIds = getAccountIdsOfExpenses(List.of(id));
+        accountWriteSequencer.execute(accountIds, () -> {
+            validateIfExpenseBelongsToAccounts(id, accountIds);
+            applyDeleteExpense(appUser, id);
+            return null;
+        });
+    }
+
+    /**
+     * Applies all operations of the batch in one transaction. Accounts and Expense Types are loaded once per batch,
+     * movements are folded into the affected AccountStates and each Account is rebalanced once on commit.
+     *
+     * @param appUser                the currently authorized AppUser
+     * @param expenseBatchRequestDTO Expenses to create, update and delete
+     * @return created and updated Expenses and IDs of deleted Expenses
+     */
+    public ExpenseBatchResponseDTO applyExpenseBatch(AppUser appUser,
+                                                     @Valid ExpenseBatchRequestDTO expenseBatchRequestDTO) throws
+                                                                                                           DataValidationException,
+                                                                                                           DataNotFoundException,
+                                                                                                           UnauthorizedUserAccessException,
+                                                                                                           ForbiddenActionException {
+        List<String> validationResults = expenseBatchRequestDTO.validateDTO();
+        if (!validationResults.isEmpty()) {
+            throw new DataValidationException(validationResults);
+        }
+
+        List<Long> expenseIds = new ArrayList<>(expenseBatchRequestDTO.delete());
+        expenseBatchRequestDTO.update().forEach(updateExpenseRequestDTO -> expenseIds.add(updateExpenseRequestDTO.id()));
+        Set<Long> accountIds = getAccountIdsOfExpenses(expenseIds);
+        expenseBatchRequestDTO.update().forEach(updateExpenseRequestDTO -> accountIds.add(updateExpenseRequestDTO.accountId()));
+        expenseBatchRequestDTO.create().forEach(createExpenseRequestDTO -> accountIds.add(createExpenseRequestDTO.accountId()));
+
+        return accountWriteSequencer.execute(accountIds, () -> {
+            expenseIds.forEach(id -> validateIfExpenseBelongsToAccounts(id, accountIds));
+
+            List<Expense> updatedExpenses = new ArrayList<>();
+            for (UpdateExpenseRequestDTO updateExpenseRequestDTO : expenseBatchRequestDTO.update()) {
+                updatedExpenses.add(applyUpdateExpense(appUser, updateExpenseRequestDTO));
+            }
+
+            for (Long id : expenseBatchRequestDTO.delete()) {
+                applyDeleteExpense(appUser, id);
+            }
+
+            List<Expense> createdExpenses = new ArrayList<>();
+            for (CreateExpenseRequestDTO createExpenseRequestDTO : expenseBatchRequestDTO.create()) {
+                createdExpenses.add(applyCreateExpense(appUser, createExpenseRequestDTO));
+            }
+
+            return new ExpenseBatchResponseDTO(createdExpenses, updatedExpenses, expenseBatchRequestDTO.delete());
+        });
+    }
+
+    /**
+     * Returns IDs of the Accounts the Expenses currently belong to, used to route the write to their writers.
+     * Missing Expenses are skipped and reported when the write is applied.
+     */
+    private Set<Long> getAccountIdsOfExpenses(List<Long> expenseIds) {
+        if (expenseIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(expenseRepository.findAccountIdsByIdIn(expenseIds));
+    }
+
+    private void validateIfExpenseBelongsToAccounts(Long expenseId,
+                                                    Set<Long> accountIds) throws
+                                                                          DataConflictException {
+        expenseRepository.findById(expenseId).ifPresent(expense -> {
+            if (!accountIds.contains(expense.getAccount().getId())) {
+                throw new DataConflictException(
+                        String.format("Expense with ID: %d was moved to another Account, try again.", expenseId)
+                );
+            }
+        });
+    }
+
+    private Expense applyCreateExpense(AppUser appUser,
+                                       CreateExpenseRequestDTO createExpenseRequestDTO) throws
+                                                                                        UnauthorizedUserAccessException,
+                                                                                        DataNotFoundException,
+                                                                                        ForbiddenActionException {
+        Account account = accountFinder.findById(createExpenseRequestDTO.accountId());
+        account.validateIfAccountIsOwnedByCurrentUser(appUser);
+
+        ExpenseType expenseType = expenseTypeFinder.findById(createExpenseRequestDTO.expenseTypeId());
+        expenseType.validateIfExpenseTypeCanBeUsedForAccount(account);
+
+        LocalDate date = createExpenseRequestDTO.date();
+        AccountState accountState = accountStateProjector.applyPosting(account.getId(), date,
+                createExpenseRequestDTO.getMovementAmount(), createExpenseRequestDTO.getRefundAmount());
+        Expense expense = expenseRepository.save(new Expense(createExpenseRequestDTO, expenseType, accountState, account));
+
+        //Post the Expense to the ledger, AccountStates can be rebuilt from it
+        expenseLedgerService.appendPosting(ExpenseEventType.CREATED, expense.getId(), account.getId(), date,
+                expense.getMovementAmount(), expense.getRefundAmount());
+        accountStateRebalanceService.markDirty(account, date);
+        expenseSummaryService.addExpense(expense);
+        accountVersionService.markChanged(List.of(account.getId()));
+        expenseSearchService.indexExpense(expense);
+        expenseAnalyticsService.addExpense(expense);
+        expenseStatisticsService.markChanged(expense);
+        return expense;
+    }
+
+    private Expense applyUpdateExpense(AppUser appUser,
+                                       UpdateExpenseRequestDTO updateExpenseRequestDTO) throws
+                                                                                        DataNotFoundException,
+                                                                                        UnauthorizedUserAccessException,
+                                                                                        ForbiddenActionException {
         Expense expenseToUpdate = expenseFinder.findById(updateExpenseRequestDTO.id());
 
         Account account = expenseToUpdate.getAccount();
@@ -135,126 +277,62 @@ public class ExpenseService {
         }
 
         ExpenseType expenseType = expenseToUpdate.getExpenseType();
-        if (Objects.equals(updateExpenseRequestDTO.expenseTypeId(), expenseType.getId())) {
+        if (!Objects.equals(updateExpenseRequestDTO.expenseTypeId(), expenseType.getId())) {
             expenseType = expenseTypeFinder.findById(updateExpenseRequestDTO.expenseTypeId());
         }
 
-        validateExpenseTypeAccount(expenseType, account);
+        expenseType.validateIfExpenseTypeCanBeUsedForAccount(account);
 
+        //Reverse the previous values and post the new ones
         LocalDate date = updateExpenseRequestDTO.date();
-        AccountState updatedAccountState = expenseToUpdate.getAccountState();
-        if (date != expenseToUpdate.getDate()) {
-            updatedAccountState = getOrCreateAccountStateForDate(date, account);
-        }
-
-        AccountState previousAccountState;
-        previousAccountState = expenseToUpdate.getAccountState();
-
-        //Remove Expense values from previous AccountState
-        if (previousAccountState != updatedAccountState) {
-            previousAccountState.recalculateAmountsWithoutExpense(expenseToUpdate);
-            accountStateRepository.save(previousAccountState);
-        } else {
-            updatedAccountState.recalculateAmountsWithoutExpense(expenseToUpdate);
-            accountStateRepository.save(updatedAccountState);
-        }
-
-        //Update Expense and add values to AccountState
+        Account previousAccount = expenseToUpdate.getAccount();
+        LocalDate previousDate = expenseToUpdate.getDate();
+        accountStateProjector.applyReversal(previousAccount.getId(), previousDate,
+                expenseToUpdate.getMovementAmount(), expenseToUpdate.getRefundAmount());
+        expenseLedgerService.appendReversal(ExpenseEventType.UPDATED, expenseToUpdate.getId(), previousAccount.getId(),
+                previousDate, expenseToUpdate.getMovementAmount(), expenseToUpdate.getRefundAmount());
+        expenseSummaryService.removeExpense(expenseToUpdate);
+        expenseStatisticsService.markChanged(expenseToUpdate);
+
+        AccountState updatedAccountState = accountStateProjector.applyPosting(account.getId(), date,
+                updateExpenseRequestDTO.getMovementAmount(), updateExpenseRequestDTO.getRefundAmount());
         expenseToUpdate.updateExpense(updateExpenseRequestDTO, expenseType, updatedAccountState, account);
+        expenseLedgerService.appendPosting(ExpenseEventType.UPDATED, expenseToUpdate.getId(), account.getId(), date,
+                expenseToUpdate.getMovementAmount(), expenseToUpdate.getRefundAmount());
+        expenseSummaryService.addExpense(expenseToUpdate);
 
         //Update all AccountStates that were after the oldest updated AccountState
-        updateFutureAccountStates(
-                previousAccountState.getDate().isBefore(updatedAccountState.getDate())
-                        ? previousAccountState
-                        : updatedAccountState
-        );
+        accountStateRebalanceService.markDirty(previousAccount, previousDate);
+        accountStateRebalanceService.markDirty(account, date);
+        accountVersionService.markChanged(List.of(previousAccount.getId(), account.getId()));
+        expenseSearchService.indexExpense(expenseToUpdate);
+        expenseAnalyticsService.addExpense(expenseToUpdate);
+        expenseStatisticsService.markChanged(expenseToUpdate);
 
         return expenseRepository.save(expenseToUpdate);
     }
 
-    @Transactional
-    public void deleteExpense(AppUser appUser,
-                              Long id) throws
-                                       DataNotFoundException,
-                                       UnauthorizedUserAccessException {
+    private void applyDeleteExpense(AppUser appUser,
+                                    Long id) throws
+                                             DataNotFoundException,
+                                             UnauthorizedUserAccessException {
         Expense expense = expenseFinder.findById(id);
         expense.getAccount().validateIfAccountIsOwnedByCurrentUser(appUser);
 
-        //Recalculate the amounts from AccountState
-        AccountState accountState = expense.getAccountState();
-        accountState.recalculateAmountsWithoutExpense(expense);
-        accountStateRepository.save(accountState);
+        LocalDate date = expense.getDate();
+        accountStateProjector.applyReversal(expense.getAccount().getId(), date,
+                expense.getMovementAmount(), expense.getRefundAmount());
+        expenseLedgerService.appendReversal(ExpenseEventType.DELETED, expense.getId(), expense.getAccount().getId(),
+                date, expense.getMovementAmount(), expense.getRefundAmount());
+        expenseSummaryService.removeExpense(expense);
 
         //Update all AccountStates that were after the oldest updated AccountState
-        updateFutureAccountStates(accountState);
+        accountStateRebalanceService.markDirty(expense.getAccount(), date);
+        accountVersionService.markChanged(List.of(expense.getAccount().getId()));
+        expenseSearchService.removeExpense(expense);
+        expenseAnalyticsService.removeExpense(expense);
+        expenseStatisticsService.markChanged(expense);
 
         expenseRepository.delete(expense);
     }
-
-    /**
-     * Filters the List of Expenses with dates.
-     *
-     * @param expenses  List of Expenses to filter.
-     * @param startDate First date that will be included in the List of Expenses.
-     * @param endDate   Last date that will be included in the List of Expenses.
-     * @return Filtered List of Expenses.
-     */
-    private List<Expense> applyDateFilter(List<Expense> expenses,
-                                          LocalDate startDate,
-                                          LocalDate endDate) {
-        return expenses.stream().filter(expense -> {
-            LocalDate expenseDate = expense.getDate();
-            return (!startDate.isAfter(expenseDate) && !endDate.isBefore(expenseDate));
-        }).toList();
-    }
-
-    /**
-     * Updates all AccountStates after specified accountState with new data.
-     *
-     * @param accountState latest non-updated accountState
-     */
-    private void updateFutureAccountStates(AccountState accountState) {
-        //Get the list of AccountStates to update
-        List<AccountState> accountStates = accountStateRepository.findAllByAccountAndDateGreaterThanOrderByDateAsc(
-                accountState.getAccount(), accountState.getDate()
-        );
-
-        //Get starting new currentValue
-        float lastCurrentValue = accountState.getCurrentAmount();
-        //Update each AccountState currentValue using lastCurrentValue and movement values
-        for (AccountState currentAccountState : accountStates) {
-            float newValue = lastCurrentValue
-                    + currentAccountState.getPositiveMovement()
-                    - currentAccountState.getNegativeMovement();
-            currentAccountState.setCurrentAmount(newValue);
-            lastCurrentValue = newValue;
-        }
-
-        accountStateRepository.saveAll(accountStates);
-    }
-
-    private AccountState getOrCreateAccountStateForDate(LocalDate date,
-                                                        Account account) {
-        return accountStateRepository.findByDate(date)
-                .orElseGet(() -> {
-                    Optional<AccountState> previousAccountState =
-                            accountStateRepository.findFirstByAccountAndDateBeforeOrderByDateDesc(account,
-                                    date);
-                    float previousValue = previousAccountState.isPresent()
-                            ? previousAccountState.get().getCurrentAmount()
-                            : 0f;
-                    return new AccountState(date, previousValue, 0f, 0f, 0f, account);
-                });
-    }
-
-    private void validateExpenseTypeAccount(ExpenseType expenseType,
-                                            Account account) throws
-                                                             ForbiddenActionException {
-        if (!expenseType.getAccount().equals(account)) {
-            throw new ForbiddenActionException(
-                    String.format("Expense Type with ID: %d and name: %s cannot be used for Account with name: %s.",
-                            expenseType.getId(), expenseType.getName(), account.getName())
-            );
-        }
-    }
 }
@@ -0,0 +1,237 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import jedrzychowski.szymon.expense_tracker.config.exception.DataNotFoundException;
+import jedrzychowski.szymon.expense_tracker.config.exception.ParamValidationException;
+import jedrzychowski.szymon.expense_tracker.config.exception.UnauthorizedUserAccessException;
+import jedrzychowski.szymon.expense_tracker.config.property.ReportProperties;
+import jedrzychowski.szymon.expense_tracker.entity.AppUser;
+import jedrzychowski.szymon.expense_tracker.entity.Expense;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseSpendingDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.report.ExpenseStatisticsDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.report.PercentileDTO;
+import jedrzychowski.szymon.expense_tracker.finder.ExpenseTypeFinder;
+import jedrzychowski.szymon.expense_tracker.repository.ExpenseRepository;
+import jedrzychowski.szymon.expense_tracker.repository.ExpenseTypeRepository;
+import jedrzychowski.szymon.expense_tracker.util.DateUtil;
+import jedrzychowski.szymon.expense_tracker.util.ExpenseSketches;
+import jedrzychowski.szymon.expense_tracker.util.ExpiringCache;
+import jedrzychowski.szymon.expense_tracker.util.PageUtil;
+import jedrzychowski.szymon.expense_tracker.util.TDigest;
+import jedrzychowski.szymon.expense_tracker.util.TransactionUtil;
+import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Statistics of spending Expenses. Percentiles and largest Expenses of whole months are merged from the
+ * ExpenseSketches of the AppUser, built on their first statistics request, so only the days outside whole months are
+ * scanned.
+ */
+@Service
+public class ExpenseStatisticsService {
+
+    public static final int MAX_PERCENTILES = 100;
+
+    private final ExpenseRepository expenseRepository;
+    private final AccountAuthorizationService accountAuthorizationService;
+    private final ExpiringCache<Long, ExpenseSketches> expenseSketches;
+    private final ExpenseTypeFinder expenseTypeFinder;
+
+    public ExpenseStatisticsService(ExpenseRepository expenseRepository,
+                                    ExpenseTypeRepository expenseTypeRepository,
+                                    AccountAuthorizationService accountAuthorizationService,
+                                    ReportProperties reportProperties) {
+        this.expenseRepository = expenseRepository;
+        this.accountAuthorizationService = accountAuthorizationService;
+        this.expenseSketches = new ExpiringCache<>(
+                reportProperties.getStatisticsCacheSize(),
+                reportProperties.getStatisticsCacheTtl()
+        );
+        this.expenseTypeFinder = new ExpenseTypeFinder(expenseTypeRepository);
+    }
+
+    /**
+     * Returns the number of spending Expenses, the percentiles of the amounts spent and the Expenses with the
+     * largest amounts spent, optionally filtered by Account, ExpenseType and date range.
+     *
+     * @param appUser       the currently authorized AppUser
+     * @param accountId     optional ID of the Account to filter by
+     * @param expenseTypeId optional ID of the ExpenseType to filter by
+     * @param startDate     optional first date to include
+     * @param endDate       optional last date to include
+     * @param limit         number of largest Expenses to return
+     * @param percentiles   percentiles between 0 and 100 to estimate
+     * @return statistics of the matching spending Expenses
+     */
+    @Transactional(readOnly = true)
+    public ExpenseStatisticsDTO getExpenseStatistics(AppUser appUser,
+                                                     Long accountId,
+                                                     Long expenseTypeId,
+                                                     LocalDate startDate,
+                                                     LocalDate endDate,
+                                                     int limit,
+                                                     List<Double> percentiles) throws
+                                                                                ParamValidationException,
+                                                                                DataNotFoundException,
+                                                                                UnauthorizedUserAccessException {
+        Pair<LocalDate, LocalDate> dates = DateUtil.validateDateParams(startDate, endDate);
+        startDate = dates.getLeft();
+        endDate = dates.getRight();
+        PageUtil.validateLimit(limit);
+        validatePercentiles(percentiles);
+        if (accountId != null) {
+            accountAuthorizationService.validateIfAccountIsOwnedByCurrentUser(appUser, accountId);
+        }
+        if (expenseTypeId != null) {
+            expenseTypeFinder.findById(expenseTypeId).getAccount().validateIfAccountIsOwnedByCurrentUser(appUser);
+        }
+
+        //Whole months of the date range are read from the sketches, the days before and after them are scanned
+        LocalDate fromMonthStart = startDate.getDayOfMonth() == 1 ? startDate : startDate.plusMonths(1).withDayOfMonth(1);
+        LocalDate toMonthStart = endDate.plusDays(1).withDayOfMonth(1).minusMonths(1);
+        LocalDate sketchEndDate = toMonthStart.plusMonths(1).minusDays(1);
+        boolean sketched = !fromMonthStart.isAfter(toMonthStart);
+        ExpenseSketches.Sketch statistics;
+        if (sketched) {
+            statistics = getMergedSketch(appUser.getId(), accountId, expenseTypeId, fromMonthStart, toMonthStart, limit);
+            if (startDate.isBefore(fromMonthStart)) {
+                addSpending(statistics, expenseRepository.streamSpendingByAppUserId(
+                        appUser.getId(), accountId, expenseTypeId, startDate, fromMonthStart.minusDays(1)));
+            }
+            if (endDate.isAfter(sketchEndDate)) {
+                addSpending(statistics, expenseRepository.streamSpendingByAppUserId(
+                        appUser.getId(), accountId, expenseTypeId, sketchEndDate.plusDays(1), endDate));
+            }
+        } else {
+            statistics = new ExpenseSketches.Sketch(limit);
+            addSpending(statistics, expenseRepository.streamSpendingByAppUserId(
+                    appUser.getId(), accountId, expenseTypeId, startDate, endDate));
+        }
+
+        TDigest digest = statistics.getDigest();
+        List<PercentileDTO> percentileAmounts = percentiles.stream()
+                .map(percentile -> new PercentileDTO(
+                        percentile,
+                        digest.getCount() == 0 ? null : Math.round(digest.quantile(percentile / 100))
+                ))
+                .toList();
+        return new ExpenseStatisticsDTO(
+                digest.getCount(), percentileAmounts, getExpenses(statistics.getLargestExpenses().toList())
+        );
+    }
+
+    /**
+     * Marks the sketch of the Account, ExpenseType and month of the Expense stale once the current transaction
+     * commits.
+     *
+     * @param expense Created or deleted Expense, or updated Expense both before and after the update.
+     */
+    public void markChanged(Expense expense) {
+        Long appUserId = expense.getAccount().getAppUser().getId();
+        long accountId = expense.getAccount().getId();
+        long expenseTypeId = expense.getExpenseType().getId();
+        LocalDate date = expense.getDate();
+        TransactionUtil.afterCommit(() -> {
+            ExpenseSketches sketches = expenseSketches.get(appUserId);
+            if (sketches != null) {
+                sketches.invalidate(accountId, expenseTypeId, date);
+            }
+        });
+    }
+
+    /**
+     * Drops the cached data of the AppUser once the current transaction commits.
+     */
+    public void evict(Long appUserId) {
+        TransactionUtil.afterCommit(() -> expenseSketches.remove(appUserId));
+    }
+
+    private void validatePercentiles(List<Double> percentiles) throws
+                                                               ParamValidationException {
+        if (percentiles.isEmpty() || percentiles.size() > MAX_PERCENTILES) {
+            throw new ParamValidationException(
+                    String.format("percentiles must contain between 1 and %d values.", MAX_PERCENTILES)
+            );
+        }
+        for (Double percentile : percentiles) {
+            if (percentile == null || percentile < 0 || percentile > 100) {
+                throw new ParamValidationException(
+                        String.format("percentiles (%s) must be between 0 and 100.", percentile)
+                );
+            }
+        }
+    }
+
+    /**
+     * Rebuilds stale sketches of the months and merges them while holding the lock of the sketches, so that
+     * Expense changes committed in the meantime mark their sketches stale again only after the merge. A sketch
+     * replaces the stale one only once its rebuild succeeded, otherwise the key stays stale for the next read.
+     */
+    private ExpenseSketches.Sketch getMergedSketch(Long appUserId,
+                                                   Long accountId,
+                                                   Long expenseTypeId,
+                                                   LocalDate fromMonthStart,
+                                                   LocalDate toMonthStart,
+                                                   int limit) {
+        ExpenseSketches sketches = getLoadedExpenseSketches(appUserId);
+        synchronized (sketches) {
+            for (ExpenseSketches.SketchKey key :
+                    sketches.getStaleKeys(accountId, expenseTypeId, fromMonthStart, toMonthStart)) {
+                ExpenseSketches.Sketch sketch = new ExpenseSketches.Sketch(ExpenseSketches.MAX_LARGEST_EXPENSES);
+                addSpending(sketch, expenseRepository.streamSpendingByAppUserId(
+                        appUserId, key.accountId(), key.expenseTypeId(), key.monthStart(),
+                        key.monthStart().plusMonths(1).minusDays(1)
+                ));
+                sketches.replace(key, sketch);
+            }
+            return sketches.merge(accountId, expenseTypeId, fromMonthStart, toMonthStart, limit);
+        }
+    }
+
+    /**
+     * Loads the sketches while holding their lock, so that Expense changes committed during the load mark their
+     * sketches stale after it.
+     */
+    private ExpenseSketches getLoadedExpenseSketches(Long appUserId) {
+        ExpenseSketches sketches = expenseSketches.computeIfAbsent(appUserId, id -> new ExpenseSketches());
+        synchronized (sketches) {
+            if (!sketches.isLoaded()) {
+                //A failed load leaves partial sketches behind, so every load starts from scratch
+                sketches.clear();
+                Pair<LocalDate, LocalDate> dates = DateUtil.validateDateParams(null, null);
+                try (Stream<ExpenseSpendingDTO> expenses = expenseRepository.streamSpendingByAppUserId(
+                        appUserId, null, null, dates.getLeft(), dates.getRight())) {
+                    expenses.forEach(sketches::add);
+                }
+                sketches.markLoaded();
+            }
+        }
+        return sketches;
+    }
+
+    private void addSpending(ExpenseSketches.Sketch sketch,
+                             Stream<ExpenseSpendingDTO> expenses) {
+        try (expenses) {
+            expenses.forEach(sketch::add);
+        }
+    }
+
+    private List<ExpenseDTO> getExpenses(List<ExpenseSpendingDTO> rankedExpenses) {
+        if (rankedExpenses.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Integer> ranks = new HashMap<>();
+        for (int i = 0; i < rankedExpenses.size(); i++) {
+            ranks.put(rankedExpenses.get(i).id(), i);
+        }
+        return expenseRepository.findAllByIdIn(ranks.keySet()).stream()
+                .sorted(Comparator.comparing(expense -> ranks.get(expense.id())))
+                .toList();
+    }
+}
@@ -0,0 +1,189 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import jedrzychowski.szymon.expense_tracker.config.property.ReportProperties;
+import jedrzychowski.szymon.expense_tracker.entity.DataBackfill;
+import jedrzychowski.szymon.expense_tracker.entity.Expense;
+import jedrzychowski.szymon.expense_tracker.entity.ExpenseMonthlySummaryId;
+import jedrzychowski.szymon.expense_tracker.repository.AccountRepository;
+import jedrzychowski.szymon.expense_tracker.repository.DataBackfillRepository;
+import jedrzychowski.szymon.expense_tracker.repository.ExpenseMonthlySummaryRepository;
+import jedrzychowski.szymon.expense_tracker.util.TransactionResource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the ExpenseMonthlySummaries read by monthly and yearly spending reports.
+ */
+@Service
+public class ExpenseSummaryService {
+
+    static final String SUMMARY_BACKFILL = "expense-monthly-summary";
+
+    private final AccountRepository accountRepository;
+    private final ExpenseMonthlySummaryRepository expenseMonthlySummaryRepository;
+    private final DataBackfillRepository dataBackfillRepository;
+    private final AccountWriteSequencer accountWriteSequencer;
+    private final AccountVersionService accountVersionService;
+    private final ReportProperties reportProperties;
+    private final TaskExecutor taskExecutor;
+    private final TransactionResource<Map<ExpenseMonthlySummaryId, SummaryDeltas>> transactionDeltas;
+    private volatile boolean backfilled;
+
+    public ExpenseSummaryService(AccountRepository accountRepository,
+                                 ExpenseMonthlySummaryRepository expenseMonthlySummaryRepository,
+                                 DataBackfillRepository dataBackfillRepository,
+                                 AccountWriteSequencer accountWriteSequencer,
+                                 AccountVersionService accountVersionService,
+                                 ReportProperties reportProperties,
+                                 @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                                 TaskExecutor taskExecutor) {
+        this.accountRepository = accountRepository;
+        this.expenseMonthlySummaryRepository = expenseMonthlySummaryRepository;
+        this.dataBackfillRepository = dataBackfillRepository;
+        this.accountWriteSequencer = accountWriteSequencer;
+        this.accountVersionService = accountVersionService;
+        this.reportProperties = reportProperties;
+        this.taskExecutor = taskExecutor;
+        this.transactionDeltas = new TransactionResource<>(
+                HashMap::new,
+                HashMap::new,
+                deltas -> deltas.forEach(this::write),
+                deltas -> {
+                }
+        );
+    }
+
+    /**
+     * Adds the current values of the Expense to the summary of its Account, ExpenseType and month.
+     *
+     * @param expense Created Expense, or updated Expense after the update.
+     */
+    public void addExpense(Expense expense) {
+        addDeltas(expense, 1);
+    }
+
+    /**
+     * Subtracts the current values of the Expense from the summary of its Account, ExpenseType and month.
+     *
+     * @param expense Deleted Expense, or updated Expense before the update.
+     */
+    public void removeExpense(Expense expense) {
+        addDeltas(expense, -1);
+    }
+
+    /**
+     * Rebuilds the summaries of the Account from its Expenses. Runs as a write of the Account, so it does not
+     * interleave with Expense changes, and changes the version of the Account like any other write of it.
+     *
+     * @param accountId ID of the Account to rebuild.
+     */
+    public void rebuild(Long accountId) {
+        accountWriteSequencer.execute(List.of(accountId), () -> {
+            expenseMonthlySummaryRepository.deleteAllByAccountId(accountId);
+            expenseMonthlySummaryRepository.insertFromExpenses(accountId);
+            accountVersionService.markChanged(List.of(accountId));
+            return null;
+        });
+    }
+
+    public void rebuildAll() {
+        accountRepository.findAllIds().forEach(this::rebuild);
+    }
+
+    /**
+     * Returns whether the summaries contain all Expenses. Until then reports are summed from Expenses.
+     */
+    public boolean isBackfilled() {
+        return backfilled;
+    }
+
+    /**
+     * Backfills the summaries of all Accounts on the first startup, so Expenses created before the summaries were
+     * introduced are reported, or on every startup if report.rebuild-summaries is set. The backfill runs in the
+     * background and reports are summed from Expenses until it completes. Expenses changed while an Account waits
+     * for its rebuild are added to its summaries as usual, and are then included by the rebuild.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeSummaries() {
+        if (!reportProperties.isRebuildSummaries() && dataBackfillRepository.existsById(SUMMARY_BACKFILL)) {
+            backfilled = true;
+            return;
+        }
+
+        backfilled = false;
+        taskExecutor.execute(() -> {
+            rebuildAll();
+            dataBackfillRepository.save(new DataBackfill(SUMMARY_BACKFILL));
+            backfilled = true;
+        });
+    }
+
+    /**
+     * Deltas are coalesced per summary within the current transaction and written right before it commits, so
+     * an update that does not move the Expense to another summary costs a single statement.
+     */
+    private void addDeltas(Expense expense,
+                           int sign) {
+        ExpenseMonthlySummaryId id = new ExpenseMonthlySummaryId(
+                expense.getAccount().getId(), expense.getExpenseType().getId(), expense.getDate().withDayOfMonth(1)
+        );
+        long movementAmount = expense.getMovementAmount();
+        SummaryDeltas summaryDeltas = new SummaryDeltas(
+                sign * Math.max(movementAmount, 0),
+                sign * -Math.min(movementAmount, 0),
+                sign * expense.getRefundAmount(),
+                sign
+        );
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(id, summaryDeltas);
+            return;
+        }
+
+        transactionDeltas.get().merge(id, summaryDeltas, SummaryDeltas::plus);
+    }
+
+    private void write(ExpenseMonthlySummaryId id,
+                       SummaryDeltas summaryDeltas) {
+        if (summaryDeltas.isEmpty()) {
+            return;
+        }
+        expenseMonthlySummaryRepository.addDeltas(
+                id.getAccountId(),
+                id.getExpenseTypeId(),
+                id.getMonthStart(),
+                summaryDeltas.positiveMovement(),
+                summaryDeltas.negativeMovement(),
+                summaryDeltas.refundAmount(),
+                summaryDeltas.expenseCount()
+        );
+    }
+
+    private record SummaryDeltas(long positiveMovement,
+                                 long negativeMovement,
+                                 long refundAmount,
+                                 long expenseCount) {
+
+        private SummaryDeltas plus(SummaryDeltas other) {
+            return new SummaryDeltas(
+                    positiveMovement + other.positiveMovement,
+                    negativeMovement + other.negativeMovement,
+                    refundAmount + other.refundAmount,
+                    expenseCount + other.expenseCount
+            );
+        }
+
+        private boolean isEmpty() {
+            return positiveMovement == 0 && negativeMovement == 0 && refundAmount == 0 && expenseCount == 0;
+        }
+    }
+}
@@ -6,45 +6,60 @@ import jedrzychowski.szymon.expense_tracker.entity.Account;
 import jedrzychowski.szymon.expense_tracker.entity.AppUser;
 import jedrzychowski.szymon.expense_tracker.entity.ExpenseType;
 import jedrzychowski.szymon.expense_tracker.entity.dto.expenseType.CreateExpenseTypeRequestDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expenseType.ExpenseTypeDTO;
 import jedrzychowski.szymon.expense_tracker.entity.dto.expenseType.UpdateExpenseTypeRequestDTO;
 import jedrzychowski.szymon.expense_tracker.finder.AccountFinder;
 import jedrzychowski.szymon.expense_tracker.finder.ExpenseTypeFinder;
 import jedrzychowski.szymon.expense_tracker.repository.AccountRepository;
+import jedrzychowski.szymon.expense_tracker.repository.ExpenseMonthlySummaryRepository;
 import jedrzychowski.szymon.expense_tracker.repository.ExpenseRepository;
 import jedrzychowski.szymon.expense_tracker.repository.ExpenseTypeRepository;
+import jedrzychowski.szymon.expense_tracker.util.FieldsUtil;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class ExpenseTypeService {
 
     private final ExpenseRepository expenseRepository;
     private final ExpenseTypeRepository expenseTypeRepository;
+    private final ExpenseMonthlySummaryRepository expenseMonthlySummaryRepository;
+    private final AccountAuthorizationService accountAuthorizationService;
+    private final AccountVersionService accountVersionService;
     private final AccountFinder accountFinder;
     private final ExpenseTypeFinder expenseTypeFinder;
 
     public ExpenseTypeService(AccountRepository accountRepository,
                               ExpenseRepository expenseRepository,
-                              ExpenseTypeRepository expenseTypeRepository) {
+                              ExpenseTypeRepository expenseTypeRepository,
+                              ExpenseMonthlySummaryRepository expenseMonthlySummaryRepository,
+                              AccountAuthorizationService accountAuthorizationService,
+                              AccountVersionService accountVersionService) {
         this.expenseRepository = expenseRepository;
         this.expenseTypeRepository = expenseTypeRepository;
+        this.expenseMonthlySummaryRepository = expenseMonthlySummaryRepository;
+        this.accountAuthorizationService = accountAuthorizationService;
+        this.accountVersionService = accountVersionService;
         this.accountFinder = new AccountFinder(accountRepository);
         this.expenseTypeFinder = new ExpenseTypeFinder(expenseTypeRepository);
     }
 
-    public List<ExpenseType> getAllExpenseTypes(AppUser appUser,
-                                                Long accountId) throws
-                                                                DataNotFoundException,
-                                                                UnauthorizedUserAccessException {
+    public List<ExpenseTypeDTO> getAllExpenseTypes(AppUser appUser,
+                                                   Long accountId,
+                                                   List<String> fields) throws
+                                                                        ParamValidationException,
+                                                                        DataNotFoundException,
+                                                                        UnauthorizedUserAccessException {
+        Set<String> selectedFields = FieldsUtil.validateFields(fields, ExpenseTypeDTO.FIELDS);
         if (accountId == null) {
-            return expenseTypeRepository.findAllByAccount_AppUser(appUser);
+            return expenseTypeRepository.findAllByAppUser(appUser, selectedFields);
         }
 
-        Account account = accountFinder.findById(accountId);
-        account.validateIfAccountIsOwnedByCurrentUser(appUser);
+        accountAuthorizationService.validateIfAccountIsOwnedByCurrentUser(appUser, accountId);
 
-        return expenseTypeRepository.findAllByAccountId(accountId);
+        return expenseTypeRepository.findAllByAccountId(accountId, selectedFields);
     }
 
     public ExpenseType getExpenseTypeById(AppUser appUser,
@@ -74,7 +89,9 @@ public class ExpenseTypeService {
         }
 
         ExpenseType expenseType = new ExpenseType(createExpenseTypeRequestDTO, account);
-        return expenseTypeRepository.save(expenseType);
+        ExpenseType createdExpenseType = expenseTypeRepository.save(expenseType);
+        accountVersionService.markChanged(List.of(account.getId()));
+        return createdExpenseType;
     }
 
     public ExpenseType updateExpenseType(AppUser appUser,
@@ -103,8 +120,11 @@ public class ExpenseTypeService {
                     ));
         }
 
+        Long previousAccountId = expenseTypeToUpdate.getAccount().getId();
         expenseTypeToUpdate.updateExpenseType(updateExpenseTypeRequestDTO, newAccount);
-        return expenseTypeRepository.save(expenseTypeToUpdate);
+        ExpenseType updatedExpenseType = expenseTypeRepository.save(expenseTypeToUpdate);
+        accountVersionService.markChanged(List.of(previousAccountId, newAccount.getId()));
+        return updatedExpenseType;
     }
 
     public void deleteExpenseType(AppUser appUser,
@@ -116,7 +136,10 @@ public class ExpenseTypeService {
         expenseTypeToDelete.getAccount().validateIfAccountIsOwnedByCurrentUser(appUser);
 
         validateForExistingExpenseType(expenseTypeToDelete);
+        //Summaries of the ExpenseType are empty once it has no Expenses
+        expenseMonthlySummaryRepository.deleteAllByExpenseTypeId(expenseTypeToDelete.getId());
         expenseTypeRepository.delete(expenseTypeToDelete);
+        accountVersionService.markChanged(List.of(expenseTypeToDelete.getAccount().getId()));
     }
 
     private void validateForExistingExpenseType(ExpenseType expenseType) throws
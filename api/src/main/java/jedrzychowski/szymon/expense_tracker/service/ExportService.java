@@ -0,0 +1,102 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jedrzychowski.szymon.expense_tracker.config.exception.DataNotFoundException;
+import jedrzychowski.szymon.expense_tracker.config.exception.ParamValidationException;
+import jedrzychowski.szymon.expense_tracker.config.exception.UnauthorizedUserAccessException;
+import jedrzychowski.szymon.expense_tracker.entity.AppUser;
+import jedrzychowski.szymon.expense_tracker.repository.AccountStateRepository;
+import jedrzychowski.szymon.expense_tracker.repository.ExpenseRepository;
+import jedrzychowski.szymon.expense_tracker.util.DateUtil;
+import jedrzychowski.szymon.expense_tracker.util.NdjsonUtil;
+import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Streams Expenses and AccountStates as newline delimited JSON. Parameters and ownership are validated before the
+ * response starts, rows are then read with a database cursor in a read-only transaction while the body is written.
+ */
+@Service
+public class ExportService {
+
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final AccountStateRepository accountStateRepository;
+    private final ExpenseRepository expenseRepository;
+    private final AccountStateRebalanceService accountStateRebalanceService;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountAuthorizationService accountAuthorizationService;
+
+    public ExportService(EntityManager entityManager,
+                         ObjectMapper objectMapper,
+                         AccountStateRepository accountStateRepository,
+                         ExpenseRepository expenseRepository,
+                         AccountStateRebalanceService accountStateRebalanceService,
+                         AccountAuthorizationService accountAuthorizationService,
+                         PlatformTransactionManager transactionManager) {
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.accountStateRepository = accountStateRepository;
+        this.expenseRepository = expenseRepository;
+        this.accountStateRebalanceService = accountStateRebalanceService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.accountAuthorizationService = accountAuthorizationService;
+    }
+
+    public StreamingResponseBody streamAllExpenses(AppUser appUser,
+                                                   Long accountId,
+                                                   LocalDate startDate,
+                                                   LocalDate endDate) throws
+                                                                      ParamValidationException,
+                                                                      DataNotFoundException,
+                                                                      UnauthorizedUserAccessException {
+        Pair<LocalDate, LocalDate> dates = DateUtil.validateDateParams(startDate, endDate);
+        if (accountId == null) {
+            return streamRows(() -> expenseRepository.streamByAppUser(appUser, dates.getLeft(), dates.getRight()));
+        }
+
+        accountAuthorizationService.validateIfAccountIsOwnedByCurrentUser(appUser, accountId);
+        return streamRows(() -> expenseRepository.streamByAccountId(accountId, dates.getLeft(), dates.getRight()));
+    }
+
+    public StreamingResponseBody streamAllAccountStates(AppUser appUser,
+                                                        Long accountId,
+                                                        LocalDate startDate,
+                                                        LocalDate endDate) throws
+                                                                           ParamValidationException,
+                                                                           DataNotFoundException,
+                                                                           UnauthorizedUserAccessException {
+        Pair<LocalDate, LocalDate> dates = DateUtil.validateDateParams(startDate, endDate);
+
+        //Rows are streamed with their stored currentAmount, so pending rebalances have to be applied first
+        if (accountId == null) {
+            accountStateRebalanceService.awaitRebalance(appUser);
+            return streamRows(() -> accountStateRepository.streamByAppUser(
+                    appUser, dates.getLeft(), dates.getRight()
+            ));
+        }
+
+        accountAuthorizationService.validateIfAccountIsOwnedByCurrentUser(appUser, accountId);
+        accountStateRebalanceService.awaitRebalance(accountId);
+        return streamRows(() -> accountStateRepository.streamByAccountId(
+                accountId, dates.getLeft(), dates.getRight()
+        ));
+    }
+
+    private StreamingResponseBody streamRows(Supplier<Stream<?>> rowsSupplier) {
+        return outputStream -> transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<?> rows = rowsSupplier.get()) {
+                NdjsonUtil.writeRows(objectMapper, entityManager, rows, outputStream);
+            }
+        });
+    }
+}
@@ -0,0 +1,89 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import jedrzychowski.szymon.expense_tracker.config.exception.DataNotFoundException;
+import jedrzychowski.szymon.expense_tracker.config.exception.ParamValidationException;
+import jedrzychowski.szymon.expense_tracker.config.exception.UnauthorizedUserAccessException;
+import jedrzychowski.szymon.expense_tracker.entity.AppUser;
+import jedrzychowski.szymon.expense_tracker.entity.ReportPeriod;
+import jedrzychowski.szymon.expense_tracker.entity.dto.report.SpendingReportRowDTO;
+import jedrzychowski.szymon.expense_tracker.repository.ExpenseMonthlySummaryRepository;
+import jedrzychowski.szymon.expense_tracker.repository.ExpenseRepository;
+import jedrzychowski.szymon.expense_tracker.util.DateUtil;
+import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+
+@Service
+public class ReportService {
+
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseMonthlySummaryRepository expenseMonthlySummaryRepository;
+    private final AccountAuthorizationService accountAuthorizationService;
+    private final ExpenseAnalyticsService expenseAnalyticsService;
+    private final ExpenseSummaryService expenseSummaryService;
+
+    public ReportService(ExpenseRepository expenseRepository,
+                         ExpenseMonthlySummaryRepository expenseMonthlySummaryRepository,
+                         AccountAuthorizationService accountAuthorizationService,
+                         ExpenseAnalyticsService expenseAnalyticsService,
+                         ExpenseSummaryService expenseSummaryService) {
+        this.expenseRepository = expenseRepository;
+        this.expenseMonthlySummaryRepository = expenseMonthlySummaryRepository;
+        this.accountAuthorizationService = accountAuthorizationService;
+        this.expenseAnalyticsService = expenseAnalyticsService;
+        this.expenseSummaryService = expenseSummaryService;
+    }
+
+    /**
+     * Returns the spending of the Account, or of all Accounts of the AppUser, grouped by period, Account and
+     * ExpenseType. With the analytics cache enabled reports are summed from the cached columns of the AppUser,
+     * otherwise monthly and yearly reports over whole months are read from ExpenseMonthlySummaries once they are
+     * backfilled and other reports are summed from Expenses.
+     */
+    public List<SpendingReportRowDTO> getSpendingReport(AppUser appUser,
+                                                        Long accountId,
+                                                        LocalDate startDate,
+                                                        LocalDate endDate,
+                                                        ReportPeriod period) throws
+                                                                             ParamValidationException,
+                                                                             DataNotFoundException,
+                                                                             UnauthorizedUserAccessException {
+        //Expenses are read with the requested dates, so that open bounds are left out of the query
+        Pair<LocalDate, LocalDate> dates = DateUtil.validateDateParams(startDate, endDate);
+        LocalDate firstDate = dates.getLeft();
+        LocalDate lastDate = dates.getRight();
+
+        if (accountId != null) {
+            accountAuthorizationService.validateIfAccountIsOwnedByCurrentUser(appUser, accountId);
+        }
+
+        if (expenseAnalyticsService.isEnabled()) {
+            return expenseAnalyticsService.sumSpending(appUser.getId(), accountId, firstDate, lastDate, period);
+        }
+
+        boolean summarized = isSummarized(firstDate, lastDate, period);
+
+        if (accountId == null) {
+            return summarized
+                    ? expenseMonthlySummaryRepository.sumSummariesByAppUserId(
+                            appUser.getId(), firstDate, lastDate, period)
+                    : expenseRepository.sumSpendingByAppUserId(appUser.getId(), startDate, endDate, period);
+        }
+
+        return summarized
+                ? expenseMonthlySummaryRepository.sumSummariesByAccountId(accountId, firstDate, lastDate, period)
+                : expenseRepository.sumSpendingByAccountId(accountId, startDate, endDate, period);
+    }
+
+    private boolean isSummarized(LocalDate startDate,
+                                 LocalDate endDate,
+                                 ReportPeriod period) {
+        return expenseSummaryService.isBackfilled()
+                && (period == ReportPeriod.MONTH || period == ReportPeriod.YEAR)
+                && startDate.getDayOfMonth() == 1
+                && endDate.equals(endDate.with(TemporalAdjusters.lastDayOfMonth()));
+    }
+}
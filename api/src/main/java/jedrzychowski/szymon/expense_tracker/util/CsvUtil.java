@@ -0,0 +1,43 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CsvUtil {
+
+    /**
+     * Splits a single CSV line into its values. Values can be quoted with double quotes,
+     * in which case they may contain commas and escaped ("") double quotes.
+     *
+     * @param line CSV line to split.
+     * @return List of values, with surrounding quotes removed.
+     */
+    public static List<String> parseLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char character = line.charAt(i);
+            if (quoted) {
+                if (character == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (character == '"') {
+                    quoted = false;
+                } else {
+                    value.append(character);
+                }
+            } else if (character == '"') {
+                quoted = true;
+            } else if (character == ',') {
+                values.add(value.toString().trim());
+                value.setLength(0);
+            } else {
+                value.append(character);
+            }
+        }
+        values.add(value.toString().trim());
+        return values;
+    }
+}
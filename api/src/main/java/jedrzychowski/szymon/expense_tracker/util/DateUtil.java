@@ -10,15 +10,26 @@ public class DateUtil {
 
     public static Pair<LocalDate, LocalDate> validateDateParams(LocalDate startDate,
                                                                 LocalDate endDate) {
+        validateDateRange(startDate, endDate);
         //Update startDate and endDate in case of null values
         startDate = startDate == null ? LocalDate.of(0, 1, 1) : startDate;
         endDate = endDate == null ? LocalDate.of(9999, 12, 31) : endDate;
+        return Pair.of(startDate, endDate);
+    }
 
-        if (startDate.isAfter(endDate)) {
+    /**
+     * Validates the date range without filling in its missing bounds, for queries that leave open bounds out.
+     *
+     * @param startDate First date of the range, can be null.
+     * @param endDate   Last date of the range, can be null.
+     */
+    public static void validateDateRange(LocalDate startDate,
+                                         LocalDate endDate) throws
+                                                            ParamValidationException {
+        if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
             throw new ParamValidationException(
                     String.format("startDate (%s) cannot be after endDate (%s).", startDate, endDate)
             );
         }
-        return Pair.of(startDate, endDate);
     }
 }
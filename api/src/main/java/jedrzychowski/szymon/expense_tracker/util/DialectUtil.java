@@ -0,0 +1,19 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+public class DialectUtil {
+
+    /**
+     * Returns the Hibernate dialect of the database behind the EntityManager. Repositories resolve it once when they
+     * are created to pick the statements native to the database.
+     */
+    public static Dialect getDialect(EntityManager entityManager) {
+        return entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices()
+                .getDialect();
+    }
+}
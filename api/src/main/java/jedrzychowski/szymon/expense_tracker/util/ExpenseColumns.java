@@ -0,0 +1,207 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import jedrzychowski.szymon.expense_tracker.entity.ReportPeriod;
+import jedrzychowski.szymon.expense_tracker.entity.dto.report.SpendingReportRowDTO;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory column store of the Expenses of a single AppUser.
+ * <p>
+ * Every field used by reports is kept in its own primitive array, with the Expense at the same position in all of
+ * them, so that aggregations are plain loops over a few arrays without any entity or boxed value per Expense.
+ * Positions are not stable, a removed Expense is replaced by the last one.
+ */
+public class ExpenseColumns {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final Map<Long, Integer> positions = new HashMap<>();
+    private long[] expenseIds = new long[INITIAL_CAPACITY];
+    private long[] accountIds = new long[INITIAL_CAPACITY];
+    private long[] expenseTypeIds = new long[INITIAL_CAPACITY];
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    private long[] movementAmounts = new long[INITIAL_CAPACITY];
+    private long[] refundAmounts = new long[INITIAL_CAPACITY];
+    private int size;
+    private boolean loaded;
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    public synchronized void markLoaded() {
+        loaded = true;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Adds the Expense to the columns, replacing its previous version if it is stored already.
+     *
+     * @param expenseId      ID of the Expense
+     * @param accountId      ID of the Account of the Expense
+     * @param expenseTypeId  ID of the ExpenseType of the Expense
+     * @param date           date of the Expense
+     * @param movementAmount movement amount in minor units
+     * @param refundAmount   refund amount in minor units
+     */
+    public synchronized void add(long expenseId,
+                                 long accountId,
+                                 long expenseTypeId,
+                                 LocalDate date,
+                                 long movementAmount,
+                                 long refundAmount) {
+        Integer position = positions.get(expenseId);
+        if (position == null) {
+            if (size == expenseIds.length) {
+                resize(size * 2);
+            }
+            position = size++;
+            positions.put(expenseId, position);
+        }
+
+        expenseIds[position] = expenseId;
+        accountIds[position] = accountId;
+        expenseTypeIds[position] = expenseTypeId;
+        epochDays[position] = (int) date.toEpochDay();
+        movementAmounts[position] = movementAmount;
+        refundAmounts[position] = refundAmount;
+    }
+
+    public synchronized void remove(long expenseId) {
+        Integer position = positions.remove(expenseId);
+        if (position == null) {
+            return;
+        }
+
+        int last = --size;
+        if (position != last) {
+            expenseIds[position] = expenseIds[last];
+            accountIds[position] = accountIds[last];
+            expenseTypeIds[position] = expenseTypeIds[last];
+            epochDays[position] = epochDays[last];
+            movementAmounts[position] = movementAmounts[last];
+            refundAmounts[position] = refundAmounts[last];
+            positions.put(expenseIds[position], position);
+        }
+    }
+
+    /**
+     * Sums movement and refund amounts and counts the Expenses between the dates, grouped by period, Account and
+     * ExpenseType. In parallel mode the columns are split into one range per processor, aggregated separately and
+     * merged.
+     *
+     * @param accountId optional ID of the Account to filter by, all Accounts if null
+     * @param startDate first date to include
+     * @param endDate   last date to include
+     * @param period    length of the periods
+     * @param parallel  whether to aggregate the ranges of the columns in parallel
+     * @return rows ordered by period start, Account ID and ExpenseType ID
+     */
+    public synchronized List<SpendingReportRowDTO> sumSpending(Long accountId,
+                                                               LocalDate startDate,
+                                                               LocalDate endDate,
+                                                               ReportPeriod period,
+                                                               boolean parallel) {
+        SpendingFilter filter = new SpendingFilter(
+                accountId, (int) startDate.toEpochDay(), (int) endDate.toEpochDay(), period
+        );
+
+        Map<SpendingKey, long[]> totals;
+        if (parallel) {
+            int ranges = Runtime.getRuntime().availableProcessors();
+            totals = IntStream.range(0, ranges)
+                    .parallel()
+                    .mapToObj(range -> sumSpending(filter, (int) ((long) size * range / ranges),
+                            (int) ((long) size * (range + 1) / ranges)))
+                    .reduce(ExpenseColumns::mergeTotals)
+                    .orElseGet(HashMap::new);
+        } else {
+            totals = sumSpending(filter, 0, size);
+        }
+
+        return totals.entrySet().stream()
+                .map(entry -> new SpendingReportRowDTO(
+                        LocalDate.ofEpochDay(entry.getKey().periodStart()),
+                        entry.getKey().accountId(),
+                        entry.getKey().expenseTypeId(),
+                        entry.getValue()[0],
+                        entry.getValue()[1],
+                        entry.getValue()[2]
+                ))
+                .sorted(Comparator.comparing(SpendingReportRowDTO::periodStart)
+                        .thenComparing(SpendingReportRowDTO::account)
+                        .thenComparing(SpendingReportRowDTO::expenseType))
+                .toList();
+    }
+
+    private Map<SpendingKey, long[]> sumSpending(SpendingFilter filter,
+                                                 int from,
+                                                 int to) {
+        Map<SpendingKey, long[]> totals = new HashMap<>();
+        //Expenses are loaded by date, so neighbours mostly share the period and often the whole group
+        int lastEpochDay = Integer.MIN_VALUE;
+        int periodStart = 0;
+        SpendingKey lastKey = null;
+        long[] lastTotals = null;
+
+        for (int i = from; i < to; i++) {
+            int epochDay = epochDays[i];
+            if (epochDay < filter.startEpochDay() || epochDay > filter.endEpochDay()
+                    || (filter.accountId() != null && accountIds[i] != filter.accountId())) {
+                continue;
+            }
+
+            if (epochDay != lastEpochDay) {
+                lastEpochDay = epochDay;
+                periodStart = (int) SeriesUtil.getPeriodStart(LocalDate.ofEpochDay(epochDay), filter.period())
+                        .toEpochDay();
+            }
+            if (lastKey == null || lastKey.periodStart() != periodStart || lastKey.accountId() != accountIds[i]
+                    || lastKey.expenseTypeId() != expenseTypeIds[i]) {
+                lastKey = new SpendingKey(periodStart, accountIds[i], expenseTypeIds[i]);
+                lastTotals = totals.computeIfAbsent(lastKey, key -> new long[3]);
+            }
+            lastTotals[0] += movementAmounts[i];
+            lastTotals[1] += refundAmounts[i];
+            lastTotals[2]++;
+        }
+        return totals;
+    }
+
+    private static Map<SpendingKey, long[]> mergeTotals(Map<SpendingKey, long[]> totals,
+                                                        Map<SpendingKey, long[]> otherTotals) {
+        otherTotals.forEach((key, values) -> totals.merge(key, values, (first, second) -> {
+            for (int i = 0; i < first.length; i++) {
+                first[i] += second[i];
+            }
+            return first;
+        }));
+        return totals;
+    }
+
+    private void resize(int capacity) {
+        expenseIds = Arrays.copyOf(expenseIds, capacity);
+        accountIds = Arrays.copyOf(accountIds, capacity);
+        expenseTypeIds = Arrays.copyOf(expenseTypeIds, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        movementAmounts = Arrays.copyOf(movementAmounts, capacity);
+        refundAmounts = Arrays.copyOf(refundAmounts, capacity);
+    }
+
+    private record SpendingFilter(Long accountId,
+                                  int startEpochDay,
+                                  int endEpochDay,
+                                  ReportPeriod period) {
+    }
+
+    private record SpendingKey(int periodStart,
+                               long accountId,
+                               long expenseTypeId) {
+    }
+}
@@ -0,0 +1,269 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * In-memory inverted index over the descriptions of the Expenses of a single AppUser.
+ * <p>
+ * Descriptions are split into lowercase tokens without diacritics. Every token has a posting set of the Expenses
+ * containing it, kept in a sorted map so that prefix matches are a range scan. Every token is also split into
+ * trigrams with postings of the tokens containing them, so that tokens within a small edit distance of a query term
+ * are found without comparing the term against the whole vocabulary.
+ * <p>
+ * A query matches Expenses containing every query term, exactly, as a prefix or within the edit distance. Matches
+ * are ranked by the sum of the weights of the best match of every term, weighted by how rare the matched token is.
+ */
+public class ExpenseSearchIndex {
+
+    private static final double EXACT_WEIGHT = 1.0;
+    private static final double PREFIX_WEIGHT = 0.7;
+    private static final double FUZZY_WEIGHT = 0.5;
+
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final NavigableMap<String, Set<Long>> postings = new TreeMap<>();
+    private final Map<String, Set<String>> trigramPostings = new HashMap<>();
+    private boolean loaded;
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    public synchronized void markLoaded() {
+        loaded = true;
+    }
+
+    /**
+     * Adds the Expense to the index, replacing its previous version if it is indexed already.
+     *
+     * @param expenseId   ID of the Expense
+     * @param accountId   ID of the Account of the Expense
+     * @param date        date of the Expense
+     * @param description description of the Expense, can be null
+     */
+    public synchronized void add(Long expenseId,
+                                 Long accountId,
+                                 LocalDate date,
+                                 String description) {
+        remove(expenseId);
+        Set<String> tokens = new LinkedHashSet<>(tokenize(description));
+        if (tokens.isEmpty()) {
+            return;
+        }
+
+        documents.put(expenseId, new Document(accountId, date.toEpochDay(), tokens.toArray(String[]::new)));
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, newToken -> {
+                for (String trigram : trigrams(newToken)) {
+                    trigramPostings.computeIfAbsent(trigram, key -> new HashSet<>()).add(newToken);
+                }
+                return new HashSet<>();
+            }).add(expenseId);
+        }
+    }
+
+    public synchronized void remove(Long expenseId) {
+        Document document = documents.remove(expenseId);
+        if (document == null) {
+            return;
+        }
+
+        for (String token : document.tokens()) {
+            Set<Long> expenseIds = postings.get(token);
+            expenseIds.remove(expenseId);
+            if (expenseIds.isEmpty()) {
+                postings.remove(token);
+                for (String trigram : trigrams(token)) {
+                    Set<String> tokens = trigramPostings.get(trigram);
+                    tokens.remove(token);
+                    if (tokens.isEmpty()) {
+                        trigramPostings.remove(trigram);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns IDs of the best matching Expenses, best match first. Equally good matches are ordered from the latest.
+     *
+     * @param query     text to search for
+     * @param accountId optional ID of the Account to filter by
+     * @param startDate first date to include
+     * @param endDate   last date to include
+     * @param limit     maximum number of returned IDs
+     * @return IDs of matching Expenses, ranked
+     */
+    public synchronized List<Long> search(String query,
+                                          Long accountId,
+                                          LocalDate startDate,
+                                          LocalDate endDate,
+                                          int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        //Score the rarest term first, so that the candidate set shrinks as soon as possible
+        List<Map<String, Double>> termMatches = terms.stream().map(this::findMatchingTokens).toList();
+        List<Map<Long, Double>> termScores = termMatches.stream().map(this::scoreDocuments)
+                .sorted(Comparator.comparingInt(Map::size))
+                .toList();
+
+        long startEpochDay = startDate.toEpochDay();
+        long endEpochDay = endDate.toEpochDay();
+        Comparator<ScoredDocument> ranking = Comparator.comparingDouble(ScoredDocument::score)
+                .thenComparingLong(ScoredDocument::epochDay)
+                .thenComparingLong(ScoredDocument::expenseId);
+        PriorityQueue<ScoredDocument> best = new PriorityQueue<>(ranking);
+
+        candidates:
+        for (Map.Entry<Long, Double> candidate : termScores.getFirst().entrySet()) {
+            Long expenseId = candidate.getKey();
+            Document document = documents.get(expenseId);
+            if ((accountId != null && !accountId.equals(document.accountId()))
+                    || document.epochDay() < startEpochDay || document.epochDay() > endEpochDay) {
+                continue;
+            }
+
+            double score = candidate.getValue();
+            for (int i = 1; i < termScores.size(); i++) {
+                Double termScore = termScores.get(i).get(expenseId);
+                if (termScore == null) {
+                    continue candidates;
+                }
+                score += termScore;
+            }
+
+            best.add(new ScoredDocument(expenseId, document.epochDay(), score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+
+        List<Long> expenseIds = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            expenseIds.add(best.poll().expenseId());
+        }
+        return expenseIds.reversed();
+    }
+
+    /**
+     * Splits the text into lowercase tokens of letters and digits, without diacritics.
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        return Arrays.stream(normalized.split("[^\\p{L}\\p{N}]+"))
+                .filter(token -> !token.isEmpty())
+                .toList();
+    }
+
+    /**
+     * @return tokens matching the term exactly, as a prefix or within the allowed edit distance, with the weight
+     * of the match
+     */
+    private Map<String, Double> findMatchingTokens(String term) {
+        Map<String, Double> matches = new HashMap<>();
+        for (String token : postings.subMap(term, true, term + Character.MAX_VALUE, false).keySet()) {
+            matches.put(token, token.equals(term) ? EXACT_WEIGHT : PREFIX_WEIGHT);
+        }
+
+        int maxEdits = term.length() < 4 ? 0 : term.length() < 8 ? 1 : 2;
+        if (maxEdits == 0) {
+            return matches;
+        }
+
+        //An edit changes at most 3 trigrams, tokens sharing fewer trigrams cannot be close enough
+        List<String> termTrigrams = trigrams(term);
+        int minSharedTrigrams = termTrigrams.size() - 3 * maxEdits;
+        Map<String, Integer> sharedTrigrams = new HashMap<>();
+        for (String trigram : termTrigrams) {
+            for (String token : trigramPostings.getOrDefault(trigram, Set.of())) {
+                sharedTrigrams.merge(token, 1, Integer::sum);
+            }
+        }
+
+        sharedTrigrams.forEach((token, shared) -> {
+            if (shared < minSharedTrigrams || matches.containsKey(token)
+                    || Math.abs(token.length() - term.length()) > maxEdits) {
+                return;
+            }
+            int distance = editDistance(term, token, maxEdits);
+            if (distance <= maxEdits) {
+                matches.put(token, FUZZY_WEIGHT / distance);
+            }
+        });
+        return matches;
+    }
+
+    /**
+     * @return best score of every Expense containing any of the matching tokens, rare tokens weighing more
+     */
+    private Map<Long, Double> scoreDocuments(Map<String, Double> matchingTokens) {
+        Map<Long, Double> scores = new HashMap<>();
+        matchingTokens.forEach((token, weight) -> {
+            Set<Long> expenseIds = postings.get(token);
+            double score = weight * Math.log(1 + (double) documents.size() / expenseIds.size());
+            for (Long expenseId : expenseIds) {
+                scores.merge(expenseId, score, Math::max);
+            }
+        });
+        return scores;
+    }
+
+    private static List<String> trigrams(String token) {
+        String padded = "$" + token + "$";
+        List<String> trigrams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Levenshtein distance of the strings, any distance above maxEdits is reported as maxEdits + 1.
+     */
+    private static int editDistance(String first,
+                                    String second,
+                                    int maxEdits) {
+        int[] previous = new int[second.length() + 1];
+        int[] current = new int[second.length() + 1];
+        for (int j = 0; j <= second.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= first.length(); i++) {
+            current[0] = i;
+            int rowMinimum = current[0];
+            for (int j = 1; j <= second.length(); j++) {
+                int substitution = previous[j - 1] + (first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMinimum = Math.min(rowMinimum, current[j]);
+            }
+            if (rowMinimum > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[second.length()], maxEdits + 1);
+    }
+
+    private record Document(Long accountId,
+                            long epochDay,
+                            String[] tokens) {
+    }
+
+    private record ScoredDocument(Long expenseId,
+                                  long epochDay,
+                                  double score) {
+    }
+}
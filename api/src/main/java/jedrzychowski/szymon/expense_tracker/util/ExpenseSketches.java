@@ -0,0 +1,166 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseSpendingDTO;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Sketches of the spending of a single AppUser, one per Account, ExpenseType and month. A sketch holds a TDigest
+ * of the amounts spent and the {@value #MAX_LARGEST_EXPENSES} Expenses with the largest amounts spent, so the
+ * largest Expenses of any whole months are merged from at most that many Expenses per sketch.
+ * <p>
+ * A sketch cannot forget an Expense, so a changed Expense does not patch its sketch. The sketch is dropped and its
+ * key is marked stale instead, and it is rebuilt from the Expenses of its month before it is read again.
+ */
+public class ExpenseSketches {
+
+    public static final double COMPRESSION = 100;
+    public static final int MAX_LARGEST_EXPENSES = PageUtil.MAX_LIMIT;
+
+    private final Map<SketchKey, Sketch> sketches = new HashMap<>();
+    private final Set<SketchKey> staleKeys = new HashSet<>();
+    private boolean loaded;
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    public synchronized void markLoaded() {
+        loaded = true;
+    }
+
+    /**
+     * Drops all sketches and stale marks, before the sketches are loaded again from scratch.
+     */
+    public synchronized void clear() {
+        sketches.clear();
+        staleKeys.clear();
+        loaded = false;
+    }
+
+    /**
+     * Adds the spending Expense to the sketch of its Account, ExpenseType and month.
+     */
+    public synchronized void add(ExpenseSpendingDTO expense) {
+        sketches.computeIfAbsent(SketchKey.of(expense), key -> new Sketch(MAX_LARGEST_EXPENSES)).add(expense);
+    }
+
+    /**
+     * Drops the sketch of the Account, ExpenseType and month of the date, marking it stale.
+     */
+    public synchronized void invalidate(long accountId,
+                                        long expenseTypeId,
+                                        LocalDate date) {
+        SketchKey key = new SketchKey(accountId, expenseTypeId, date.withDayOfMonth(1));
+        sketches.remove(key);
+        staleKeys.add(key);
+    }
+
+    /**
+     * Returns the stale keys matching the filters. They stay marked stale until their rebuilt sketch is put with
+     * replace, so a rebuild that fails is repeated by the next read. The caller has to rebuild and replace them
+     * while holding the lock of the sketches.
+     *
+     * @param accountId      optional ID of the Account to filter by
+     * @param expenseTypeId  optional ID of the ExpenseType to filter by
+     * @param fromMonthStart first month to include
+     * @param toMonthStart   last month to include
+     * @return keys whose sketches have to be rebuilt
+     */
+    public synchronized List<SketchKey> getStaleKeys(Long accountId,
+                                                     Long expenseTypeId,
+                                                     LocalDate fromMonthStart,
+                                                     LocalDate toMonthStart) {
+        return staleKeys.stream()
+                .filter(key -> key.matches(accountId, expenseTypeId, fromMonthStart, toMonthStart))
+                .toList();
+    }
+
+    /**
+     * Puts the rebuilt sketch of the key and removes its stale mark.
+     */
+    public synchronized void replace(SketchKey key,
+                                     Sketch sketch) {
+        if (sketch.getDigest().getCount() == 0) {
+            sketches.remove(key);
+        } else {
+            sketches.put(key, sketch);
+        }
+        staleKeys.remove(key);
+    }
+
+    /**
+     * Merges the sketches matching the filters into a new sketch.
+     *
+     * @param accountId      optional ID of the Account to filter by
+     * @param expenseTypeId  optional ID of the ExpenseType to filter by
+     * @param fromMonthStart first month to include
+     * @param toMonthStart   last month to include
+     * @param limit          number of largest Expenses to keep
+     * @return sketch of the spending of all matching months
+     */
+    public synchronized Sketch merge(Long accountId,
+                                     Long expenseTypeId,
+                                     LocalDate fromMonthStart,
+                                     LocalDate toMonthStart,
+                                     int limit) {
+        Sketch merged = new Sketch(limit);
+        sketches.forEach((key, sketch) -> {
+            if (key.matches(accountId, expenseTypeId, fromMonthStart, toMonthStart)) {
+                merged.merge(sketch);
+            }
+        });
+        return merged;
+    }
+
+    /**
+     * Digest of the amounts spent and the largest Expenses of a set of spending Expenses.
+     */
+    public static class Sketch {
+
+        private final TDigest digest = new TDigest(COMPRESSION);
+        private final LargestExpenses largestExpenses;
+
+        public Sketch(int limit) {
+            this.largestExpenses = new LargestExpenses(limit);
+        }
+
+        public void add(ExpenseSpendingDTO expense) {
+            digest.add(-expense.movementAmount());
+            largestExpenses.add(expense);
+        }
+
+        public void merge(Sketch other) {
+            digest.merge(other.digest);
+            largestExpenses.addAll(other.largestExpenses);
+        }
+
+        public TDigest getDigest() {
+            return digest;
+        }
+
+        public LargestExpenses getLargestExpenses() {
+            return largestExpenses;
+        }
+    }
+
+    public record SketchKey(long accountId,
+                            long expenseTypeId,
+                            LocalDate monthStart) {
+
+        private static SketchKey of(ExpenseSpendingDTO expense) {
+            return new SketchKey(expense.account(), expense.expenseType(), expense.date().withDayOfMonth(1));
+        }
+
+        private boolean matches(Long accountId,
+                                Long expenseTypeId,
+                                LocalDate fromMonthStart,
+                                LocalDate toMonthStart) {
+            return (accountId == null || accountId == this.accountId)
+                    && (expenseTypeId == null || expenseTypeId == this.expenseTypeId)
+                    && !monthStart.isBefore(fromMonthStart)
+                    && !monthStart.isAfter(toMonthStart);
+        }
+    }
+}
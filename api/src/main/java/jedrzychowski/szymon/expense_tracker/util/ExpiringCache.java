@@ -0,0 +1,101 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Cache bounded both in size and in time. Entries are kept in access order, so once the cache is full the least
+ * recently used entry is dropped, and every entry is dropped once it is older than the time to live.
+ */
+public class ExpiringCache<K, V> {
+
+    private final int maxSize;
+    private final long timeToLiveNanos;
+    private final LongSupplier nanoClock;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    /**
+     * @param maxSize          maximum number of entries
+     * @param timeToLiveMillis time after which an entry is dropped, in milliseconds
+     */
+    public ExpiringCache(int maxSize,
+                         long timeToLiveMillis) {
+        this(maxSize, timeToLiveMillis, System::nanoTime);
+    }
+
+    /**
+     * @param maxSize          maximum number of entries
+     * @param timeToLiveMillis time after which an entry is dropped, in milliseconds
+     * @param nanoClock        source of the current time in nanoseconds, entries are aged by its differences
+     */
+    public ExpiringCache(int maxSize,
+                         long timeToLiveMillis,
+                         LongSupplier nanoClock) {
+        this.maxSize = maxSize;
+        this.timeToLiveNanos = timeToLiveMillis * 1_000_000;
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > ExpiringCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return cached value, null if the key is not cached or its entry expired
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (nanoClock.getAsLong() - entry.createdAt() > timeToLiveNanos) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value();
+    }
+
+    public synchronized void put(K key,
+                                 V value) {
+        entries.put(key, new Entry<>(value, nanoClock.getAsLong()));
+    }
+
+    /**
+     * @return cached value, or the value computed for the key and cached if it is not cached or its entry expired
+     */
+    public synchronized V computeIfAbsent(K key,
+                                          Function<K, V> mappingFunction) {
+        V value = get(key);
+        if (value == null) {
+            value = mappingFunction.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Drops all entries with keys matching the predicate.
+     */
+    public synchronized void removeIf(Predicate<K> predicate) {
+        Iterator<K> keys = entries.keySet().iterator();
+        while (keys.hasNext()) {
+            if (predicate.test(keys.next())) {
+                keys.remove();
+            }
+        }
+    }
+
+    private record Entry<V>(V value,
+                            long createdAt) {
+    }
+}
@@ -0,0 +1,48 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * JPQL select clause of the requested fields of a DTO, so that a sparse fieldset reads only its own columns.
+ * Rows of the query are read back by field name, fields that were not selected read as null.
+ */
+public class FieldSelection {
+
+    private final String selectClause;
+    private final Map<String, Integer> positions = new HashMap<>();
+
+    /**
+     * @param expressions    JPQL expression of every field of the DTO, keyed by field name.
+     * @param fields         Requested fields.
+     * @param requiredFields Fields selected even if not requested, e.g. the fields of the page cursor.
+     */
+    public FieldSelection(Map<String, String> expressions,
+                          Set<String> fields,
+                          String... requiredFields) {
+        List<String> requiredFieldList = List.of(requiredFields);
+        List<String> selectedFields = expressions.keySet().stream()
+                .filter(field -> fields.contains(field) || requiredFieldList.contains(field))
+                .toList();
+        for (int i = 0; i < selectedFields.size(); i++) {
+            positions.put(selectedFields.get(i), i);
+        }
+        this.selectClause = selectedFields.stream()
+                .map(expressions::get)
+                .collect(Collectors.joining(", "));
+    }
+
+    public String getSelectClause() {
+        return selectClause;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object[] row,
+                     String field) {
+        Integer position = positions.get(field);
+        return position == null ? null : (T) row[position];
+    }
+}
@@ -0,0 +1,68 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import jedrzychowski.szymon.expense_tracker.config.exception.ParamValidationException;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Helpers for sparse fieldsets of list endpoints. DTOs annotated with @JsonFilter({@value #FILTER}) serialize only
+ * the requested fields when the response is wrapped with {@link #filter}, and all of them otherwise.
+ */
+public class FieldsUtil {
+
+    public static final String FILTER = "fields";
+
+    /**
+     * Validates the requested fields against the fields of the resource.
+     *
+     * @param fields        Requested fields, all fields of the resource if null.
+     * @param allowedFields Fields of the resource in the order of its DTO.
+     * @return Requested fields in the order of the DTO.
+     */
+    public static Set<String> validateFields(List<String> fields,
+                                             List<String> allowedFields) throws
+                                                                         ParamValidationException {
+        if (fields == null) {
+            return new LinkedHashSet<>(allowedFields);
+        }
+        if (fields.isEmpty()) {
+            throw new ParamValidationException("fields must contain at least one field.");
+        }
+        for (String field : fields) {
+            if (!allowedFields.contains(field)) {
+                throw new ParamValidationException(
+                        String.format("fields (%s) must be one of: %s.", field, String.join(", ", allowedFields))
+                );
+            }
+        }
+
+        return allowedFields.stream()
+                .filter(fields::contains)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Wraps the response so that filtered DTOs in it serialize only the requested fields.
+     *
+     * @param value  Response body.
+     * @param fields Requested fields, already validated, all fields if null.
+     * @return Response body with the filter of the fields.
+     */
+    public static MappingJacksonValue filter(Object value,
+                                             List<String> fields) {
+        MappingJacksonValue response = new MappingJacksonValue(value);
+        response.setFilters(new SimpleFilterProvider().addFilter(
+                FILTER,
+                fields == null ? SimpleBeanPropertyFilter.serializeAll()
+                        : SimpleBeanPropertyFilter.filterOutAllExcept(new HashSet<>(fields))
+        ));
+        return response;
+    }
+}
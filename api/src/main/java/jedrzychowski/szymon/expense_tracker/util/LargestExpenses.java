@@ -0,0 +1,50 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseSpendingDTO;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Bounded selection of the spending Expenses with the largest amounts spent. Keeps a heap of at most limit
+ * Expenses with the smallest of them on top, so adding n Expenses costs O(n log limit).
+ */
+public class LargestExpenses {
+
+    /**
+     * Orders spending Expenses from the smallest amount spent, the latest ID first among equal amounts.
+     */
+    private static final Comparator<ExpenseSpendingDTO> SPENDING_ORDER =
+            Comparator.comparing(ExpenseSpendingDTO::movementAmount, Comparator.reverseOrder())
+                    .thenComparing(ExpenseSpendingDTO::id, Comparator.reverseOrder());
+
+    private final int limit;
+    private final PriorityQueue<ExpenseSpendingDTO> expenses = new PriorityQueue<>(SPENDING_ORDER);
+
+    public LargestExpenses(int limit) {
+        this.limit = limit;
+    }
+
+    public void add(ExpenseSpendingDTO expense) {
+        if (expenses.size() < limit) {
+            expenses.add(expense);
+        } else if (SPENDING_ORDER.compare(expense, expenses.peek()) > 0) {
+            expenses.poll();
+            expenses.add(expense);
+        }
+    }
+
+    public void addAll(LargestExpenses other) {
+        other.expenses.forEach(this::add);
+    }
+
+    /**
+     * @return the selected Expenses from the largest amount spent
+     */
+    public List<ExpenseSpendingDTO> toList() {
+        return expenses.stream()
+                .sorted(SPENDING_ORDER.reversed())
+                .toList();
+    }
+}
@@ -0,0 +1,35 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money amounts are kept as long minor units (hundredths), so that arithmetic on them is exact and does not allocate.
+ * Conversion to BigDecimal only happens at the database and JSON boundaries.
+ */
+public class MoneyUtil {
+
+    public static final int SCALE = 2;
+
+    /**
+     * Exclusive bound of the absolute value of a single amount. Leaves enough headroom in a long for balances and
+     * totals summed from millions of the largest amounts.
+     */
+    public static final BigDecimal MAX_AMOUNT = new BigDecimal("1000000000000");
+
+    public static long toMinorUnits(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    public static boolean hasValidScale(BigDecimal amount) {
+        return amount.stripTrailingZeros().scale() <= SCALE;
+    }
+
+    public static boolean isWithinRange(BigDecimal amount) {
+        return amount.abs().compareTo(MAX_AMOUNT) < 0;
+    }
+}
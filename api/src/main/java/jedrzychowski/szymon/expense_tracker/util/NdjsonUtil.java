@@ -0,0 +1,61 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes streamed rows as newline delimited JSON (application/x-ndjson), one entity per line.
+ */
+public class NdjsonUtil {
+
+    /**
+     * Number of rows fetched from the database at once, also the number of rows written before the persistence
+     * context is cleared.
+     */
+    public static final int FETCH_SIZE = 500;
+
+    /**
+     * Serializes every row and clears the persistence context every FETCH_SIZE rows, so that memory use does not
+     * grow with the number of rows. The output stream is flushed with every batch and left open.
+     *
+     * @param objectMapper  ObjectMapper used by the JSON endpoints.
+     * @param entityManager EntityManager the rows are loaded with.
+     * @param rows          Rows to write.
+     * @param outputStream  Stream of the response body.
+     */
+    public static void writeRows(ObjectMapper objectMapper,
+                                 EntityManager entityManager,
+                                 Stream<?> rows,
+                                 OutputStream outputStream) {
+        ObjectWriter objectWriter = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator jsonGenerator = objectWriter.createGenerator(outputStream)) {
+            jsonGenerator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            //Rows are separated with new lines instead of the default space between root values
+            jsonGenerator.setRootValueSeparator(null);
+
+            int writtenRows = 0;
+            Iterator<?> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                objectWriter.writeValue(jsonGenerator, iterator.next());
+                jsonGenerator.writeRaw('\n');
+
+                if (++writtenRows % FETCH_SIZE == 0) {
+                    entityManager.clear();
+                    jsonGenerator.flush();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
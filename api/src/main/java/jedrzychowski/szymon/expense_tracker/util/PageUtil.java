@@ -0,0 +1,107 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import jedrzychowski.szymon.expense_tracker.config.exception.ParamValidationException;
+import jedrzychowski.szymon.expense_tracker.entity.dto.page.PageDTO;
+import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.data.domain.Limit;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Helpers for keyset pagination over (date, id). The cursor of a page is the position of its last item, encoded
+ * so that clients treat it as opaque and only pass it back to get the next page. Requests without limit and cursor
+ * are not paged and keep getting all items as a bare array, as before pagination was introduced.
+ */
+public class PageUtil {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Tells if the request asks for a page rather than for all items.
+     *
+     * @param limit  Requested limit, can be null.
+     * @param cursor Requested cursor, can be null.
+     * @return true if limit or cursor is given.
+     */
+    public static boolean isPaged(Integer limit,
+                                  String cursor) {
+        return limit != null || cursor != null;
+    }
+
+    /**
+     * Validates the limit of a request that may not be paged.
+     *
+     * @param limit  Requested limit, {@value #DEFAULT_LIMIT} if null and the request is paged.
+     * @param cursor Requested cursor, can be null.
+     * @return Limit of the query, one more than the page size, unlimited if the request is not paged.
+     */
+    public static Limit validateLimit(Integer limit,
+                                      String cursor) throws
+                                                     ParamValidationException {
+        if (!isPaged(limit, cursor)) {
+            return Limit.unlimited();
+        }
+        return validateLimit(limit == null ? DEFAULT_LIMIT : limit);
+    }
+
+    public static Limit validateLimit(int limit) throws
+                                                ParamValidationException {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new ParamValidationException(
+                    String.format("limit (%d) must be between 1 and %d.", limit, MAX_LIMIT)
+            );
+        }
+        //One additional item tells if there is a next page
+        return Limit.of(limit + 1);
+    }
+
+    /**
+     * Decodes the cursor into the position after which the page starts.
+     *
+     * @param cursor Cursor returned with the previous page, can be null.
+     * @return Date and ID of the last item of the previous page, both null without a cursor, so that the page
+     *         starts at the beginning of the date range.
+     */
+    public static Pair<LocalDate, Long> decodeCursor(String cursor) throws
+                                                                    ParamValidationException {
+        if (cursor == null) {
+            return Pair.of(null, null);
+        }
+
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separatorIndex = position.indexOf(SEPARATOR);
+            return Pair.of(
+                    LocalDate.parse(position.substring(0, separatorIndex)),
+                    Long.parseLong(position.substring(separatorIndex + 1))
+            );
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new ParamValidationException(String.format("cursor (%s) is not valid.", cursor));
+        }
+    }
+
+    public static <T> PageDTO<T> toPage(List<T> items,
+                                        Limit limit,
+                                        Function<T, LocalDate> dateGetter,
+                                        Function<T, Long> idGetter) {
+        if (limit.isUnlimited() || items.size() < limit.max()) {
+            return new PageDTO<>(items, null);
+        }
+
+        List<T> pageItems = items.subList(0, limit.max() - 1);
+        T lastItem = pageItems.getLast();
+        String position = dateGetter.apply(lastItem) + SEPARATOR + idGetter.apply(lastItem);
+        return new PageDTO<>(
+                pageItems,
+                Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8))
+        );
+    }
+}
@@ -0,0 +1,64 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import jakarta.persistence.Query;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * WHERE clause built from the filters that are actually set, so that open filters such as a date range without
+ * bounds are left out of the statement instead of being compared with sentinel values. Conditions are fixed
+ * strings of the repositories, values are always bound as parameters.
+ */
+public class QueryConditions {
+
+    private final List<String> conditions = new ArrayList<>();
+    private final Map<String, Object> parameters = new LinkedHashMap<>();
+
+    /**
+     * @param condition  Condition that always applies, e.g. the owner of the rows.
+     * @param parameters Parameters of the condition.
+     */
+    public QueryConditions(String condition,
+                           Map<String, Object> parameters) {
+        add(condition, parameters);
+    }
+
+    public QueryConditions add(String condition,
+                               Map<String, Object> parameters) {
+        conditions.add(condition);
+        this.parameters.putAll(parameters);
+        return this;
+    }
+
+    /**
+     * Adds the bounds of the inclusive date range that are set.
+     *
+     * @param column    Date expression to filter on.
+     * @param startDate First date of the range, unbounded if null.
+     * @param endDate   Last date of the range, unbounded if null.
+     */
+    public QueryConditions addDateRange(String column,
+                                        LocalDate startDate,
+                                        LocalDate endDate) {
+        if (startDate != null) {
+            add(column + " >= :startDate", Map.of("startDate", startDate));
+        }
+        if (endDate != null) {
+            add(column + " <= :endDate", Map.of("endDate", endDate));
+        }
+        return this;
+    }
+
+    public String getWhereClause() {
+        return String.join(" AND ", conditions);
+    }
+
+    public <Q extends Query> Q setParameters(Q query) {
+        parameters.forEach(query::setParameter);
+        return query;
+    }
+}
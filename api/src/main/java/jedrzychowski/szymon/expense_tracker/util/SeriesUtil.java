@@ -0,0 +1,231 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import jedrzychowski.szymon.expense_tracker.config.exception.ParamValidationException;
+import jedrzychowski.szymon.expense_tracker.entity.ReportPeriod;
+import jedrzychowski.szymon.expense_tracker.entity.dto.accountState.AccountBalancePointDTO;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Helpers for dense balance series. AccountStates exist only for days with movements, so the series carries the
+ * last known balance forward into every period without one, and can be downsampled with largest-triangle-three-buckets
+ * to keep the visual shape of a long series in a few hundred points.
+ */
+public class SeriesUtil {
+
+    /**
+     * Maximum number of periods of a dense series, about a hundred years of days.
+     */
+    public static final int MAX_LENGTH = 36600;
+    public static final int MIN_POINTS = 3;
+    public static final int MAX_POINTS = 10000;
+
+    public static void validateLength(LocalDate startDate,
+                                      LocalDate endDate,
+                                      ReportPeriod period) throws
+                                                           ParamValidationException {
+        long length = getUnit(period).between(getPeriodStart(startDate, period), endDate) + 1;
+        if (length > MAX_LENGTH) {
+            throw new ParamValidationException(String.format(
+                    "Series from startDate (%s) to endDate (%s) by %s cannot have more than %d points.",
+                    startDate, endDate, period, MAX_LENGTH
+            ));
+        }
+    }
+
+    public static void validatePoints(Integer points) throws
+                                                      ParamValidationException {
+        if (points != null && (points < MIN_POINTS || points > MAX_POINTS)) {
+            throw new ParamValidationException(
+                    String.format("points (%d) must be between %d and %d.", points, MIN_POINTS, MAX_POINTS)
+            );
+        }
+    }
+
+    public static LocalDate getPeriodStart(LocalDate date,
+                                           ReportPeriod period) {
+        return switch (period) {
+            case DAY -> date;
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+            case YEAR -> date.withDayOfYear(1);
+        };
+    }
+
+    /**
+     * Builds the dense series of balances at the end of every period between the dates. Each point is dated with
+     * the start of its period, the first and last periods are cut to the date range.
+     *
+     * @param balances       Balances at the end of the days with movements within the date range, ordered by date.
+     * @param openingBalance Balance at the end of the day before startDate.
+     * @param startDate      First date of the series.
+     * @param endDate        Last date of the series.
+     * @param period         Length of the periods.
+     * @return One point per period, in order.
+     */
+    public static List<AccountBalancePointDTO> fillSeries(Iterator<AccountBalancePointDTO> balances,
+                                                          long openingBalance,
+                                                          LocalDate startDate,
+                                                          LocalDate endDate,
+                                                          ReportPeriod period) {
+        List<AccountBalancePointDTO> series = new ArrayList<>();
+        LocalDate periodStart = getPeriodStart(startDate, period);
+        LocalDate nextPeriodStart = periodStart.plus(1, getUnit(period));
+        long balance = openingBalance;
+
+        while (balances.hasNext()) {
+            AccountBalancePointDTO point = balances.next();
+            while (!point.date().isBefore(nextPeriodStart)) {
+                series.add(new AccountBalancePointDTO(periodStart, balance));
+                periodStart = nextPeriodStart;
+                nextPeriodStart = periodStart.plus(1, getUnit(period));
+            }
+            balance = point.currentAmount();
+        }
+
+        while (!periodStart.isAfter(endDate)) {
+            series.add(new AccountBalancePointDTO(periodStart, balance));
+            periodStart = nextPeriodStart;
+            nextPeriodStart = periodStart.plus(1, getUnit(period));
+        }
+        return series;
+    }
+
+    /**
+     * Sums the balances of several Accounts with a k-way merge of their date ordered balances. Each Account keeps
+     * only its current balance and next balance in a priority queue, so the merge reads every balance once and
+     * holds O(accounts) of them at a time.
+     *
+     * @param balances        Balances of each Account, ordered by date.
+     * @param openingBalances Balance of each Account before its first balance, in the same order.
+     * @return Sum of the balances after every balance of any Account, ordered by date.
+     */
+    public static Iterator<AccountBalancePointDTO> sumBalances(List<Iterator<AccountBalancePointDTO>> balances,
+                                                               List<Long> openingBalances) {
+        PriorityQueue<BalanceCursor> cursors = new PriorityQueue<>(
+                Comparator.comparing((BalanceCursor cursor) -> cursor.next.date())
+        );
+        long openingBalance = 0;
+        for (int i = 0; i < balances.size(); i++) {
+            openingBalance += openingBalances.get(i);
+            if (balances.get(i).hasNext()) {
+                cursors.add(new BalanceCursor(balances.get(i), openingBalances.get(i)));
+            }
+        }
+
+        long initialBalance = openingBalance;
+        return new Iterator<>() {
+            private long balance = initialBalance;
+
+            @Override
+            public boolean hasNext() {
+                return !cursors.isEmpty();
+            }
+
+            @Override
+            public AccountBalancePointDTO next() {
+                BalanceCursor cursor = cursors.remove();
+                AccountBalancePointDTO point = cursor.next;
+                balance += point.currentAmount() - cursor.balance;
+                cursor.balance = point.currentAmount();
+                if (cursor.balances.hasNext()) {
+                    cursor.next = cursor.balances.next();
+                    cursors.add(cursor);
+                }
+                return new AccountBalancePointDTO(point.date(), balance);
+            }
+        };
+    }
+
+    /**
+     * Downsamples the series with largest-triangle-three-buckets. The first and last points are kept, every point
+     * in between is chosen from its bucket as the one forming the largest triangle with the previously chosen point
+     * and the average of the next bucket, so spikes and trend changes survive.
+     *
+     * @param series Series ordered by date.
+     * @param points Number of points to keep, at least {@value MIN_POINTS}.
+     * @return The series itself if it is not longer than points, otherwise points of its points in order.
+     */
+    public static List<AccountBalancePointDTO> downsample(List<AccountBalancePointDTO> series,
+                                                          int points) {
+        if (series.size() <= points) {
+            return series;
+        }
+
+        List<AccountBalancePointDTO> sampled = new ArrayList<>(points);
+        double bucketSize = (double) (series.size() - 2) / (points - 2);
+        int selected = 0;
+        sampled.add(series.getFirst());
+
+        for (int bucket = 0; bucket < points - 2; bucket++) {
+            int bucketStart = (int) (bucket * bucketSize) + 1;
+            int bucketEnd = (int) ((bucket + 1) * bucketSize) + 1;
+
+            //Average of the next bucket, the last point for the last bucket
+            int nextBucketStart = bucketEnd;
+            int nextBucketEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, series.size());
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextBucketStart; i < nextBucketEnd; i++) {
+                averageX += getX(series.get(i));
+                averageY += series.get(i).currentAmount();
+            }
+            averageX /= nextBucketEnd - nextBucketStart;
+            averageY /= nextBucketEnd - nextBucketStart;
+
+            double selectedX = getX(series.get(selected));
+            double selectedY = series.get(selected).currentAmount();
+            double maxArea = -1;
+            int maxAreaIndex = bucketStart;
+            for (int i = bucketStart; i < bucketEnd; i++) {
+                double area = Math.abs((selectedX - averageX) * (series.get(i).currentAmount() - selectedY)
+                        - (selectedX - getX(series.get(i))) * (averageY - selectedY));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxAreaIndex = i;
+                }
+            }
+
+            sampled.add(series.get(maxAreaIndex));
+            selected = maxAreaIndex;
+        }
+
+        sampled.add(series.getLast());
+        return sampled;
+    }
+
+    private static ChronoUnit getUnit(ReportPeriod period) {
+        return switch (period) {
+            case DAY -> ChronoUnit.DAYS;
+            case WEEK -> ChronoUnit.WEEKS;
+            case MONTH -> ChronoUnit.MONTHS;
+            case YEAR -> ChronoUnit.YEARS;
+        };
+    }
+
+    private static double getX(AccountBalancePointDTO point) {
+        return point.date().toEpochDay();
+    }
+
+    private static class BalanceCursor {
+
+        private final Iterator<AccountBalancePointDTO> balances;
+        private AccountBalancePointDTO next;
+        private long balance;
+
+        private BalanceCursor(Iterator<AccountBalancePointDTO> balances,
+                              long balance) {
+            this.balances = balances;
+            this.next = balances.next();
+            this.balance = balance;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import java.util.Arrays;
+
+/**
+ * Merging t-digest, a quantile sketch of a stream of values.
+ * <p>
+ * Values are summarized by centroids, a mean and a weight each. Centroids near the tails are kept small and
+ * centroids near the median may grow, which keeps extreme quantiles accurate with a bounded number of centroids.
+ * New values are collected in a buffer and merged into the centroids in one sorted pass once it fills up. Digests
+ * of disjoint sets of values can be merged, giving the digest of their union.
+ */
+public class TDigest {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final double compression;
+    private final int bufferLimit;
+
+    private double[] means = new double[INITIAL_CAPACITY];
+    private long[] weights = new long[INITIAL_CAPACITY];
+    private int size;
+
+    private double[] bufferMeans = new double[INITIAL_CAPACITY];
+    private long[] bufferWeights = new long[INITIAL_CAPACITY];
+    private int bufferSize;
+
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param compression Roughly the maximum number of centroids divided by two, higher is more accurate.
+     */
+    public TDigest(double compression) {
+        this.compression = compression;
+        this.bufferLimit = (int) (5 * compression);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    /**
+     * Adds all values summarized by the other digest.
+     */
+    public void merge(TDigest other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.means[i], other.weights[i]);
+        }
+        for (int i = 0; i < other.bufferSize; i++) {
+            add(other.bufferMeans[i], other.bufferWeights[i]);
+        }
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Estimates the value below which the specified fraction of the values lies, interpolating between the centers
+     * of neighbouring centroids, and between the extreme centroids and the minimum or maximum value.
+     *
+     * @param quantile Fraction between 0 and 1.
+     * @return Estimated value, NaN if the digest is empty.
+     */
+    public double quantile(double quantile) {
+        compress();
+        if (count == 0) {
+            return Double.NaN;
+        }
+
+        double target = quantile * count;
+        double previousCenter = 0;
+        double previousMean = min;
+        double cumulativeWeight = 0;
+        for (int i = 0; i < size; i++) {
+            double center = cumulativeWeight + weights[i] / 2.0;
+            if (target < center) {
+                return interpolate(target, previousCenter, previousMean, center, means[i]);
+            }
+            previousCenter = center;
+            previousMean = means[i];
+            cumulativeWeight += weights[i];
+        }
+        return interpolate(target, previousCenter, previousMean, count, max);
+    }
+
+    private void add(double mean,
+                     long weight) {
+        if (bufferSize == bufferMeans.length) {
+            if (bufferSize >= bufferLimit) {
+                compress();
+            } else {
+                bufferMeans = Arrays.copyOf(bufferMeans, bufferSize * 2);
+                bufferWeights = Arrays.copyOf(bufferWeights, bufferSize * 2);
+            }
+        }
+
+        bufferMeans[bufferSize] = mean;
+        bufferWeights[bufferSize] = weight;
+        bufferSize++;
+        count += weight;
+        min = Math.min(min, mean);
+        max = Math.max(max, mean);
+    }
+
+    /**
+     * Merges the buffer into the centroids. All centroids are sorted by mean and neighbours are combined as long as
+     * the combined centroid spans at most one unit of the k1 scale function, which is steep near both tails.
+     */
+    private void compress() {
+        if (bufferSize == 0) {
+            return;
+        }
+
+        int total = size + bufferSize;
+        double[] allMeans = Arrays.copyOf(means, total);
+        long[] allWeights = Arrays.copyOf(weights, total);
+        System.arraycopy(bufferMeans, 0, allMeans, size, bufferSize);
+        System.arraycopy(bufferWeights, 0, allWeights, size, bufferSize);
+        Integer[] order = new Integer[total];
+        for (int i = 0; i < total; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (first, second) -> Double.compare(allMeans[first], allMeans[second]));
+
+        double[] mergedMeans = new double[total];
+        long[] mergedWeights = new long[total];
+        int mergedSize = 0;
+        double processedWeight = 0;
+        double limitScale = scale(0);
+
+        for (int index : order) {
+            if (mergedSize > 0 && scale((processedWeight + allWeights[index]) / count) - limitScale <= 1) {
+                long weight = mergedWeights[mergedSize - 1] + allWeights[index];
+                mergedMeans[mergedSize - 1] += (allMeans[index] - mergedMeans[mergedSize - 1])
+                        * allWeights[index] / weight;
+                mergedWeights[mergedSize - 1] = weight;
+            } else {
+                if (mergedSize > 0) {
+                    limitScale = scale(processedWeight / count);
+                }
+                mergedMeans[mergedSize] = allMeans[index];
+                mergedWeights[mergedSize] = allWeights[index];
+                mergedSize++;
+            }
+            processedWeight += allWeights[index];
+        }
+
+        means = Arrays.copyOf(mergedMeans, Math.max(mergedSize, INITIAL_CAPACITY));
+        weights = Arrays.copyOf(mergedWeights, Math.max(mergedSize, INITIAL_CAPACITY));
+        size = mergedSize;
+        bufferSize = 0;
+    }
+
+    private double scale(double quantile) {
+        return compression / (2 * Math.PI) * Math.asin(2 * Math.min(1, quantile) - 1);
+    }
+
+    private static double interpolate(double target,
+                                      double fromPosition,
+                                      double fromValue,
+                                      double toPosition,
+                                      double toValue) {
+        if (toPosition <= fromPosition) {
+            return toValue;
+        }
+        return fromValue + (toValue - fromValue) * (target - fromPosition) / (toPosition - fromPosition);
+    }
+}
@@ -0,0 +1,85 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * State collected by a service within the current transaction, such as changes coalesced until it commits.
+ * The state is created on first use, bound to the transaction and unbound once it completes. The callbacks get
+ * the state bound at the time they run.
+ */
+public class TransactionResource<T> {
+
+    private final Supplier<T> factory;
+    private final UnaryOperator<T> copier;
+    private final Consumer<T> beforeCommit;
+    private final Consumer<T> afterCommit;
+
+    /**
+     * @param factory      creates the empty state
+     * @param copier       copies the state, so that it can be restored by a {@link TransactionSnapshot}
+     * @param beforeCommit runs right before the transaction commits
+     * @param afterCommit  runs after the transaction commits
+     */
+    public TransactionResource(Supplier<T> factory,
+                               UnaryOperator<T> copier,
+                               Consumer<T> beforeCommit,
+                               Consumer<T> afterCommit) {
+        this.factory = factory;
+        this.copier = copier;
+        this.beforeCommit = beforeCommit;
+        this.afterCommit = afterCommit;
+    }
+
+    /**
+     * @param factory creates the empty state
+     * @param copier  copies the state, so that it can be restored by a {@link TransactionSnapshot}
+     */
+    public TransactionResource(Supplier<T> factory,
+                               UnaryOperator<T> copier) {
+        this(factory, copier, resource -> {
+        }, resource -> {
+        });
+    }
+
+    /**
+     * Returns the state of the current transaction, creating it on first use. Requires active transaction
+     * synchronization.
+     */
+    @SuppressWarnings("unchecked")
+    public T get() {
+        T resource = (T) TransactionSynchronizationManager.getResource(this);
+        if (resource != null) {
+            return resource;
+        }
+
+        T newResource = factory.get();
+        TransactionSynchronizationManager.bindResource(this, newResource);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                beforeCommit.accept(get());
+            }
+
+            @Override
+            public void afterCommit() {
+                afterCommit.accept(get());
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TransactionResource.this);
+            }
+        });
+        return newResource;
+    }
+
+    @SuppressWarnings("unchecked")
+    T copy(Object resource) {
+        return copier.apply((T) resource);
+    }
+}
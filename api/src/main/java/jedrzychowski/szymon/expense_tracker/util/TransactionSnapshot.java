@@ -0,0 +1,50 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Synchronizations and {@link TransactionResource} state of the current transaction at some point, so that they
+ * can be restored once the changes made since are rolled back to a savepoint.
+ */
+public class TransactionSnapshot {
+
+    private final List<TransactionSynchronization> synchronizations;
+    private final Map<TransactionResource<?>, Object> resources = new HashMap<>();
+
+    private TransactionSnapshot() {
+        synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.getResourceMap().forEach((key, resource) -> {
+            if (key instanceof TransactionResource<?> transactionResource) {
+                resources.put(transactionResource, transactionResource.copy(resource));
+            }
+        });
+    }
+
+    /**
+     * Takes a snapshot of the current transaction. Requires active transaction synchronization.
+     */
+    public static TransactionSnapshot take() {
+        return new TransactionSnapshot();
+    }
+
+    /**
+     * Drops the synchronizations registered since the snapshot and rebinds the state of every
+     * {@link TransactionResource} as it was, unbinding the ones first used since. Can be called once.
+     */
+    public void restore() {
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        synchronizations.forEach(TransactionSynchronizationManager::registerSynchronization);
+
+        TransactionSynchronizationManager.getResourceMap().keySet().stream()
+                .filter(key -> key instanceof TransactionResource<?>)
+                .toList()
+                .forEach(TransactionSynchronizationManager::unbindResource);
+        resources.forEach(TransactionSynchronizationManager::bindResource);
+    }
+}
@@ -0,0 +1,27 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class TransactionUtil {
+
+    /**
+     * Runs the action once the current transaction commits, or right away if there is no transaction. Used to
+     * change in-memory state only after the database change it mirrors is visible to other transactions.
+     *
+     * @param action Action to run.
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,62 @@
+-- PostgreSQL schema migrations, named V<version>__<description>.sql so that they can be run by Flyway, or applied
+-- in order with psql before deploying. Hibernate only validates the schema in the prod profile.
+-- Databases created before these scripts already have this baseline schema and start at version 2.
+-- Data of tables added by later versions is filled in by the application on its first startup, tracked in
+-- data_backfill.
+
+CREATE SEQUENCE account_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE account_state_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE app_user_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE expense_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE expense_type_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE app_user (
+    id       bigint       NOT NULL,
+    password varchar(255) NOT NULL,
+    username varchar(255) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE account (
+    app_user_id bigint       NOT NULL,
+    id          bigint       NOT NULL,
+    name        varchar(255) NOT NULL,
+    PRIMARY KEY (id),
+    UNIQUE (name, app_user_id),
+    CONSTRAINT fkafrffflgfjs50vsxmq6v1qdev FOREIGN KEY (app_user_id) REFERENCES app_user
+);
+
+CREATE TABLE account_state (
+    current_amount    float4 NOT NULL,
+    date              date   NOT NULL,
+    negative_movement float4 NOT NULL,
+    positive_movement float4 NOT NULL,
+    refund_amount     float4 NOT NULL,
+    account_id        bigint NOT NULL,
+    id                bigint NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fkhhul4ds5p4mlkf5jyonhyucsm FOREIGN KEY (account_id) REFERENCES account
+);
+
+CREATE TABLE expense_type (
+    account_id bigint NOT NULL,
+    id         bigint NOT NULL,
+    name       varchar(255),
+    PRIMARY KEY (id),
+    UNIQUE (name, account_id),
+    CONSTRAINT fk7x31w4441w9l08eysd0pukncn FOREIGN KEY (account_id) REFERENCES account
+);
+
+CREATE TABLE expense (
+    movement_amount  float4 NOT NULL,
+    refund_amount    float4,
+    account_id       bigint NOT NULL,
+    account_state_id bigint NOT NULL,
+    expense_type_id  bigint NOT NULL,
+    id               bigint NOT NULL,
+    description      varchar(255),
+    PRIMARY KEY (id),
+    CONSTRAINT fkl7p96uyhqlv3raecactp2uet4 FOREIGN KEY (account_id) REFERENCES account,
+    CONSTRAINT fk925g5fjgl717hirym6b1hafe3 FOREIGN KEY (account_state_id) REFERENCES account_state,
+    CONSTRAINT fk91q29woqssp2ywxeyvq6lxx10 FOREIGN KEY (expense_type_id) REFERENCES expense_type
+);
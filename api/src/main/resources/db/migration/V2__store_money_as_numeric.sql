@@ -0,0 +1,12 @@
+-- Money is stored as numeric(19, 2), read by the application as long minor units. Float amounts are rounded to
+-- the cent, which is all they were entered with.
+
+ALTER TABLE account_state
+    ALTER COLUMN current_amount TYPE numeric(19, 2) USING ROUND(current_amount::numeric, 2),
+    ALTER COLUMN negative_movement TYPE numeric(19, 2) USING ROUND(negative_movement::numeric, 2),
+    ALTER COLUMN positive_movement TYPE numeric(19, 2) USING ROUND(positive_movement::numeric, 2),
+    ALTER COLUMN refund_amount TYPE numeric(19, 2) USING ROUND(refund_amount::numeric, 2);
+
+ALTER TABLE expense
+    ALTER COLUMN movement_amount TYPE numeric(19, 2) USING ROUND(movement_amount::numeric, 2),
+    ALTER COLUMN refund_amount TYPE numeric(19, 2) USING ROUND(refund_amount::numeric, 2);
@@ -0,0 +1,18 @@
+-- Monthly balance checkpoints, and AccountStates holding the change of the balance within their month instead of
+-- the balance. Both are recalculated from the ledger by the application once, tracked in data_backfill as
+-- account-balance-checkpoint-opening-balances.
+
+CREATE SEQUENCE account_balance_checkpoint_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE account_balance_checkpoint (
+    month_start     date           NOT NULL,
+    movement        numeric(19, 2) NOT NULL,
+    opening_balance numeric(19, 2) NOT NULL,
+    account_id      bigint         NOT NULL,
+    id              bigint         NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT account_balance_checkpoint_account_id_month_start_key UNIQUE (account_id, month_start),
+    CONSTRAINT account_balance_checkpoint_account_id_fkey FOREIGN KEY (account_id) REFERENCES account
+);
+
+ALTER TABLE account_state RENAME COLUMN current_amount TO month_amount;
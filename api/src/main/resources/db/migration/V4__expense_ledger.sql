@@ -0,0 +1,25 @@
+-- Append-only ledger of Expense changes and the position of the AccountState projection of every Account in it.
+-- Existing Expenses are posted to the ledger by the application on its first startup, tracked in data_backfill
+-- as expense-ledger.
+
+CREATE SEQUENCE expense_event_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE expense_event (
+    date              date           NOT NULL,
+    negative_movement numeric(19, 2) NOT NULL,
+    positive_movement numeric(19, 2) NOT NULL,
+    refund_amount     numeric(19, 2) NOT NULL,
+    account_id        bigint         NOT NULL,
+    expense_id        bigint         NOT NULL,
+    id                bigint         NOT NULL,
+    sequence_number   bigint         NOT NULL,
+    type              varchar(16)    NOT NULL CHECK (type IN ('CREATED', 'UPDATED', 'DELETED')),
+    PRIMARY KEY (id),
+    CONSTRAINT expense_event_account_id_sequence_number_key UNIQUE (account_id, sequence_number)
+);
+
+CREATE TABLE account_state_projection (
+    account_id           bigint NOT NULL,
+    last_sequence_number bigint NOT NULL,
+    PRIMARY KEY (account_id)
+);
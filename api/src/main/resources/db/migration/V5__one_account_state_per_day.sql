@@ -0,0 +1,18 @@
+-- One AccountState per Account and day, which the atomic upsert relies on. Expenses of duplicate AccountStates
+-- are moved to the first one of their day before the duplicates are removed. Amounts of the remaining
+-- AccountStates are recalculated from the ledger by the application.
+
+UPDATE expense
+SET account_state_id = account_state_day.kept_id
+FROM (SELECT id, MIN(id) OVER (PARTITION BY account_id, date) AS kept_id FROM account_state) account_state_day
+WHERE expense.account_state_id = account_state_day.id
+  AND account_state_day.id <> account_state_day.kept_id;
+
+DELETE FROM account_state
+WHERE id IN (SELECT account_state_day.id
+             FROM (SELECT id, MIN(id) OVER (PARTITION BY account_id, date) AS kept_id
+                   FROM account_state) account_state_day
+             WHERE account_state_day.id <> account_state_day.kept_id);
+
+ALTER TABLE account_state
+    ADD CONSTRAINT account_state_account_id_date_key UNIQUE (account_id, date);
@@ -0,0 +1,4 @@
+-- Expense lists filter on the date of the AccountState through the (account_id, date) key of account_state, and
+-- join their Expenses by this index.
+
+CREATE INDEX expense_account_state_id_idx ON expense (account_state_id);
@@ -0,0 +1,18 @@
+-- Spending per Account, ExpenseType and month, and the one-off data backfills done by the application. The
+-- summaries are calculated from Expenses by the application once, tracked as expense-monthly-summary.
+
+CREATE TABLE data_backfill (
+    name varchar(255) NOT NULL,
+    PRIMARY KEY (name)
+);
+
+CREATE TABLE expense_monthly_summary (
+    month_start       date           NOT NULL,
+    negative_movement numeric(19, 2) NOT NULL,
+    positive_movement numeric(19, 2) NOT NULL,
+    refund_amount     numeric(19, 2) NOT NULL,
+    account_id        bigint         NOT NULL,
+    expense_count     bigint         NOT NULL,
+    expense_type_id   bigint         NOT NULL,
+    PRIMARY KEY (month_start, account_id, expense_type_id)
+);
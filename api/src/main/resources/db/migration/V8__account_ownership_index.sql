@@ -0,0 +1,3 @@
+-- Ownership checks read the AppUser of an Account by its ID from the index alone.
+
+CREATE INDEX account_id_app_user_id_idx ON account (id, app_user_id);
@@ -0,0 +1,4 @@
+-- Version of the data of an Account, bumped by every write, from which list ETags are derived.
+
+ALTER TABLE account
+    ADD COLUMN change_version bigint NOT NULL DEFAULT 0;
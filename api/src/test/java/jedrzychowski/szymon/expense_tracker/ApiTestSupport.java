@@ -0,0 +1,95 @@
+package jedrzychowski.szymon.expense_tracker;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Base of tests calling the API as a freshly registered AppUser. All tests share one in-memory database, so every
+ * test method gets its own AppUser and only sees its own Accounts.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public abstract class ApiTestSupport {
+
+    protected static final String API = "/expense-tracker/v1";
+
+    private static final AtomicInteger USER_COUNTER = new AtomicInteger();
+
+    @Autowired
+    protected MockMvc mockMvc;
+
+    @Autowired
+    protected ObjectMapper objectMapper;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    protected String token;
+
+    @BeforeEach
+    void registerAppUser() throws Exception {
+        String credentials = String.format(
+                "{\"username\":\"tester%06d\",\"password\":\"Passw0rd!\"}",
+                USER_COUNTER.incrementAndGet()
+        );
+        mockMvc.perform(post(API + "/auth/register").contentType(MediaType.APPLICATION_JSON).content(credentials));
+        token = mockMvc.perform(post(API + "/auth/login").contentType(MediaType.APPLICATION_JSON).content(credentials))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+    }
+
+    protected MvcResult perform(MockHttpServletRequestBuilder request) throws Exception {
+        return mockMvc.perform(request.header("Authorization", "Bearer " + token)).andReturn();
+    }
+
+    protected MvcResult perform(MockHttpServletRequestBuilder request,
+                                String body) throws Exception {
+        return perform(request.contentType(MediaType.APPLICATION_JSON).content(body));
+    }
+
+    protected JsonNode json(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    protected long createAccount(String name) throws Exception {
+        return json(perform(post(API + "/accounts"), "{\"name\":\"" + name + "\"}")).get("id").asLong();
+    }
+
+    protected long createExpenseType(long accountId,
+                                     String name) throws Exception {
+        return json(perform(post(API + "/expense-types"),
+                "{\"name\":\"" + name + "\",\"accountId\":" + accountId + "}")).get("id").asLong();
+    }
+
+    protected MvcResult createExpense(long accountId,
+                                      long expenseTypeId,
+                                      LocalDate date,
+                                      String movementAmount) throws Exception {
+        return perform(post(API + "/expenses"), String.format(
+                "{\"date\":\"%s\",\"movementAmount\":%s,\"expenseTypeId\":%d,\"accountId\":%d}",
+                date, movementAmount, expenseTypeId, accountId
+        ));
+    }
+
+    protected long createExpenseId(long accountId,
+                                   long expenseTypeId,
+                                   LocalDate date,
+                                   String movementAmount) throws Exception {
+        return json(createExpense(accountId, expenseTypeId, date, movementAmount)).get("id").asLong();
+    }
+}
@@ -0,0 +1,61 @@
+package jedrzychowski.szymon.expense_tracker.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compression is applied by the embedded server, so responses are read from a running server instead of MockMvc.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CompressionTest extends ApiTestSupport {
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void largeResponsesAreGzippedWhenAccepted() throws Exception {
+        long accountId = createAccount("Compression");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        for (int day = 0; day < 40; day++) {
+            createExpense(accountId, expenseTypeId, LocalDate.of(2024, 1, 1).plusDays(day), "-1.00");
+        }
+
+        HttpResponse<byte[]> compressed = getExpenses(accountId, "gzip");
+        assertThat(compressed.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        JsonNode expenses;
+        try (GZIPInputStream content = new GZIPInputStream(new ByteArrayInputStream(compressed.body()))) {
+            expenses = objectMapper.readTree(content);
+        }
+        assertThat(expenses).hasSize(40);
+
+        HttpResponse<byte[]> plain = getExpenses(accountId, "identity");
+        assertThat(plain.headers().firstValue("Content-Encoding")).isEmpty();
+        assertThat(objectMapper.readTree(plain.body())).isEqualTo(expenses);
+        assertThat(compressed.body().length).isLessThan(plain.body().length);
+    }
+
+    private HttpResponse<byte[]> getExpenses(long accountId,
+                                             String encoding) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(
+                        "http://localhost:" + port + API + "/expenses?accountId=" + accountId))
+                .header("Authorization", "Bearer " + token)
+                .header("Accept-Encoding", encoding)
+                .build();
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package jedrzychowski.szymon.expense_tracker.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+class JacksonConfigTest extends ApiTestSupport {
+
+    private static final String CBOR = "application/cbor";
+    private static final String SMILE = "application/x-jackson-smile";
+
+    @Test
+    void binaryFormatsCarryTheSameDocumentAsJson() throws Exception {
+        long accountId = createAccount("Formats");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        createExpense(accountId, expenseTypeId, LocalDate.of(2024, 1, 1), "-12.34");
+        createExpense(accountId, expenseTypeId, LocalDate.of(2024, 1, 2), "100.00");
+
+        JsonNode expected = json(getExpenses(accountId, "application/json"));
+        for (String format : new String[]{CBOR, SMILE}) {
+            MvcResult result = getExpenses(accountId, format);
+
+            assertThat(result.getResponse().getContentType()).isEqualTo(format);
+            JsonNode items = readBinary(format, result.getResponse().getContentAsByteArray());
+            assertThat(items).hasSameSizeAs(expected);
+            for (int i = 0; i < items.size(); i++) {
+                JsonNode item = items.get(i);
+                JsonNode expectedItem = expected.get(i);
+                assertThat(item.properties()).extracting(Map.Entry::getKey).containsExactlyInAnyOrder("id", "date", "movementAmount");
+                assertThat(item.get("id")).isEqualTo(expectedItem.get("id"));
+                assertThat(item.get("date")).isEqualTo(expectedItem.get("date"));
+                //Binary formats keep amounts as decimals, so only their value is compared
+                assertThat(item.get("movementAmount").decimalValue())
+                        .isEqualByComparingTo(expectedItem.get("movementAmount").decimalValue());
+            }
+        }
+    }
+
+    @Test
+    void binaryRequestBodiesAreAccepted() throws Exception {
+        long accountId = createAccount("Formats");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        byte[] body = cborMapper.writeValueAsBytes(cborMapper.createObjectNode()
+                .put("date", "2024-01-01")
+                .put("movementAmount", new BigDecimal("-5.25"))
+                .put("expenseTypeId", expenseTypeId)
+                .put("accountId", accountId));
+
+        MvcResult result = perform(post(API + "/expenses").contentType(CBOR).accept(CBOR).content(body));
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(201);
+        JsonNode expense = readBinary(CBOR, result.getResponse().getContentAsByteArray());
+        assertThat(expense.get("movementAmount").decimalValue()).isEqualByComparingTo("-5.25");
+    }
+
+    private MvcResult getExpenses(long accountId,
+                                  String format) throws Exception {
+        return perform(get(API + "/expenses")
+                .param("accountId", String.valueOf(accountId))
+                .param("fields", "id,date,movementAmount")
+                .accept(format));
+    }
+
+    private JsonNode readBinary(String format,
+                                byte[] content) throws Exception {
+        ObjectMapper mapper = new ObjectMapper(CBOR.equals(format) ? new CBORFactory() : new SmileFactory());
+        return mapper.readTree(content);
+    }
+}
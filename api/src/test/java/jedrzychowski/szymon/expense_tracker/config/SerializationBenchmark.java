@@ -0,0 +1,149 @@
+package jedrzychowski.szymon.expense_tracker.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseDTO;
+import jedrzychowski.szymon.expense_tracker.entity.dto.page.PageDTO;
+import jedrzychowski.szymon.expense_tracker.util.FieldsUtil;
+import jedrzychowski.szymon.expense_tracker.util.PageUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the sizes and serialization times of the list formats on a bulk sync of 100k Expenses, read as pages of
+ * {@value PageUtil#MAX_LIMIT} items through the ObjectMappers of the application. Every page is written, gzipped
+ * and parsed on its own, as it would be by a separate request. Not part of the test suite, run it with
+ * mvn test -Dtest=SerializationBenchmark.
+ */
+@SpringBootTest
+class SerializationBenchmark {
+
+    private static final int EXPENSES = 100_000;
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int MEASURED_ROUNDS = 20;
+    private static final String[] DESCRIPTIONS = {
+            "Groceries", "Rent", "Electricity bill", "Coffee with Anna", "Train ticket to Krakow", "Pharmacy",
+            "Gym membership", "Cinema", "Salary", "Birthday present", "Fuel", "Restaurant", "Internet", "Books"
+    };
+
+    @Autowired
+    private MappingJackson2HttpMessageConverter jsonConverter;
+
+    @Autowired
+    private MappingJackson2CborHttpMessageConverter cborConverter;
+
+    @Autowired
+    private MappingJackson2SmileHttpMessageConverter smileConverter;
+
+    @Test
+    void compareListFormats() throws IOException {
+        List<PageDTO<ExpenseDTO>> pages = createPages();
+        FilterProvider filters = FieldsUtil.filter(pages, null).getFilters();
+        Map<String, ObjectMapper> mappers = new LinkedHashMap<>();
+        mappers.put("JSON", jsonConverter.getObjectMapper());
+        mappers.put("CBOR", cborConverter.getObjectMapper());
+        mappers.put("Smile", smileConverter.getObjectMapper());
+
+        System.out.printf("%d Expenses in %d pages, median of %d rounds%n", EXPENSES, pages.size(), MEASURED_ROUNDS);
+        System.out.printf("%-6s %10s %10s %10s %10s %10s%n", "format", "bytes", "gzipped", "page", "write", "read");
+        for (Map.Entry<String, ObjectMapper> mapper : mappers.entrySet()) {
+            ObjectWriter writer = mapper.getValue().writer(filters);
+            List<byte[]> documents = new ArrayList<>();
+            for (PageDTO<ExpenseDTO> page : pages) {
+                documents.add(writer.writeValueAsBytes(page));
+            }
+            assertThat(mapper.getValue().readTree(documents.getFirst()).get("items")).hasSize(PageUtil.MAX_LIMIT);
+
+            long bytes = documents.stream().mapToLong(document -> document.length).sum();
+            long gzippedBytes = 0;
+            for (byte[] document : documents) {
+                gzippedBytes += gzip(document).length;
+            }
+            long writeNanos = measure(() -> {
+                for (PageDTO<ExpenseDTO> page : pages) {
+                    writer.writeValueAsBytes(page);
+                }
+            });
+            long readNanos = measure(() -> {
+                for (byte[] document : documents) {
+                    mapper.getValue().readTree(document);
+                }
+            });
+
+            System.out.printf("%-6s %9.1fMB %9.2fMB %8.1fKB %8dms %8dms%n", mapper.getKey(),
+                    bytes / 1e6, gzippedBytes / 1e6, bytes / 1e3 / pages.size(),
+                    writeNanos / 1_000_000, readNanos / 1_000_000);
+        }
+    }
+
+    /**
+     * Expenses of three Accounts over three years, mostly small spendings with a few refunds and incomes.
+     */
+    private List<PageDTO<ExpenseDTO>> createPages() {
+        Random random = new Random(42);
+        LocalDate startDate = LocalDate.of(2022, 1, 1);
+        List<ExpenseDTO> expenses = new ArrayList<>();
+        for (int i = 0; i < EXPENSES; i++) {
+            int day = i * 3 * 365 / EXPENSES;
+            long account = 1_000 + random.nextInt(3);
+            boolean income = random.nextInt(20) == 0;
+            long movementAmount = income ? 100_000 + random.nextInt(900_000) : -(100 + random.nextInt(25_000));
+            expenses.add(new ExpenseDTO(
+                    2_000_000L + i,
+                    movementAmount,
+                    !income && random.nextInt(10) == 0 ? (long) random.nextInt((int) -movementAmount) : null,
+                    10_000 + account * 20 + random.nextInt(20),
+                    random.nextInt(5) == 0 ? null : DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)],
+                    account,
+                    500_000 + account * 2_000 + day,
+                    startDate.plusDays(day)
+            ));
+        }
+
+        List<PageDTO<ExpenseDTO>> pages = new ArrayList<>();
+        for (int i = 0; i < EXPENSES; i += PageUtil.MAX_LIMIT) {
+            pages.add(new PageDTO<>(expenses.subList(i, i + PageUtil.MAX_LIMIT), "MjAyNC0wMS0wMXwxMjM0NTY3"));
+        }
+        return pages;
+    }
+
+    private long measure(Round round) throws IOException {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round.run();
+        }
+        long[] nanos = new long[MEASURED_ROUNDS];
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            round.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[MEASURED_ROUNDS / 2];
+    }
+
+    private byte[] gzip(byte[] document) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(document);
+        }
+        return compressed.toByteArray();
+    }
+
+    private interface Round {
+
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,109 @@
+package jedrzychowski.szymon.expense_tracker.repository;
+
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountBalanceCheckpointRepositoryTest extends ApiTestSupport {
+
+    private static final LocalDate MONTH_START = LocalDate.of(2024, 1, 1);
+
+    @Autowired
+    private AccountBalanceCheckpointRepository accountBalanceCheckpointRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void addMovementOpensNewMonthsWithThePreviousClosingBalanceAndAddsToExistingMonths() throws Exception {
+        long accountId = createAccount("Checkpoint");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            accountBalanceCheckpointRepository.addMovement(accountId, MONTH_START, 1000);
+            accountBalanceCheckpointRepository.addMovement(accountId, MONTH_START.plusMonths(2), -300);
+            accountBalanceCheckpointRepository.addMovement(accountId, MONTH_START, 500);
+        });
+
+        List<Map<String, Object>> checkpoints = getCheckpoints(accountId);
+        assertThat(checkpoints).hasSize(2);
+        assertCheckpoint(checkpoints.get(0), MONTH_START, "0.00", "15.00");
+        //Opened before the second movement of January, so its opening balance is stale until rebalanced
+        assertCheckpoint(checkpoints.get(1), MONTH_START.plusMonths(2), "10.00", "-3.00");
+    }
+
+    @Test
+    void rebalanceRecalculatesOnlyChangedOpeningBalancesFromTheMonthOn() throws Exception {
+        long accountId = createAccount("Checkpoint");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            accountBalanceCheckpointRepository.addMovement(accountId, MONTH_START, 1000);
+            accountBalanceCheckpointRepository.addMovement(accountId, MONTH_START.plusMonths(1), 500);
+            accountBalanceCheckpointRepository.addMovement(accountId, MONTH_START.plusMonths(2), -300);
+            accountBalanceCheckpointRepository.addMovement(accountId, MONTH_START.plusMonths(4), 100);
+            //Back-dated movement, later opening balances are stale
+            accountBalanceCheckpointRepository.addMovement(accountId, MONTH_START.plusMonths(1), 200);
+        });
+
+        int updated = transactionTemplate.execute(status ->
+                accountBalanceCheckpointRepository.rebalanceOpeningBalances(accountId, MONTH_START.plusMonths(1)));
+        int updatedAgain = transactionTemplate.execute(status ->
+                accountBalanceCheckpointRepository.rebalanceOpeningBalances(accountId, MONTH_START.plusMonths(1)));
+
+        assertThat(updated).isEqualTo(2);
+        assertThat(updatedAgain).isZero();
+        List<Map<String, Object>> checkpoints = getCheckpoints(accountId);
+        assertCheckpoint(checkpoints.get(0), MONTH_START, "0.00", "10.00");
+        assertCheckpoint(checkpoints.get(1), MONTH_START.plusMonths(1), "10.00", "7.00");
+        assertCheckpoint(checkpoints.get(2), MONTH_START.plusMonths(2), "17.00", "-3.00");
+        assertCheckpoint(checkpoints.get(3), MONTH_START.plusMonths(4), "14.00", "1.00");
+    }
+
+    @Test
+    void rebalanceLeavesEarlierMonthsAndOtherAccountsUntouched() throws Exception {
+        long accountId = createAccount("Checkpoint");
+        long otherAccountId = createAccount("Other");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            accountBalanceCheckpointRepository.addMovement(accountId, MONTH_START, 1000);
+            accountBalanceCheckpointRepository.addMovement(accountId, MONTH_START.plusMonths(1), 500);
+            accountBalanceCheckpointRepository.addMovement(otherAccountId, MONTH_START.plusMonths(1), 700);
+        });
+        jdbcTemplate.update("UPDATE account_balance_checkpoint SET opening_balance = 1 WHERE account_id IN (?, ?)",
+                accountId, otherAccountId);
+
+        int updated = transactionTemplate.execute(status ->
+                accountBalanceCheckpointRepository.rebalanceOpeningBalances(accountId, MONTH_START.plusMonths(1)));
+
+        assertThat(updated).isEqualTo(1);
+        List<Map<String, Object>> checkpoints = getCheckpoints(accountId);
+        assertCheckpoint(checkpoints.get(0), MONTH_START, "1.00", "10.00");
+        assertCheckpoint(checkpoints.get(1), MONTH_START.plusMonths(1), "11.00", "5.00");
+        assertCheckpoint(getCheckpoints(otherAccountId).get(0), MONTH_START.plusMonths(1), "1.00", "7.00");
+    }
+
+    private List<Map<String, Object>> getCheckpoints(long accountId) {
+        return jdbcTemplate.queryForList(
+                "SELECT * FROM account_balance_checkpoint WHERE account_id = ? ORDER BY month_start", accountId
+        );
+    }
+
+    private static void assertCheckpoint(Map<String, Object> checkpoint,
+                                         LocalDate monthStart,
+                                         String openingBalance,
+                                         String movement) {
+        assertThat(checkpoint.get("month_start")).isEqualTo(Date.valueOf(monthStart));
+        assertThat((BigDecimal) checkpoint.get("opening_balance")).isEqualByComparingTo(openingBalance);
+        assertThat((BigDecimal) checkpoint.get("movement")).isEqualByComparingTo(movement);
+    }
+}
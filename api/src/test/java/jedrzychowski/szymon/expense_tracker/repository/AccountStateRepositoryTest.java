@@ -0,0 +1,124 @@
+package jedrzychowski.szymon.expense_tracker.repository;
+
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import jedrzychowski.szymon.expense_tracker.service.AccountWriteSequencer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountStateRepositoryTest extends ApiTestSupport {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 6, 10);
+
+    @Autowired
+    private AccountStateRepository accountStateRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AccountWriteSequencer accountWriteSequencer;
+
+    @Test
+    void upsertSeedsNewDaysFromThePreviousDayOfTheMonthAndAddsToExistingDays() throws Exception {
+        long accountId = createAccount("Upsert");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Long firstId = transactionTemplate.execute(status ->
+                accountStateRepository.upsertMovements(accountId, DATE, 1000, 0, 0).getId());
+        Long secondId = transactionTemplate.execute(status ->
+                accountStateRepository.upsertMovements(accountId, DATE.plusDays(1), 0, 250, 50).getId());
+        Long sameId = transactionTemplate.execute(status ->
+                accountStateRepository.upsertMovements(accountId, DATE.plusDays(1), 100, 0, 0).getId());
+
+        assertThat(sameId).isEqualTo(secondId).isNotEqualTo(firstId);
+        Map<String, Object> accountState = getAccountState(secondId);
+        assertThat((BigDecimal) accountState.get("month_amount")).isEqualByComparingTo("8.50");
+        assertThat((BigDecimal) accountState.get("positive_movement")).isEqualByComparingTo("1.00");
+        assertThat((BigDecimal) accountState.get("negative_movement")).isEqualByComparingTo("2.50");
+        assertThat((BigDecimal) accountState.get("refund_amount")).isEqualByComparingTo("0.50");
+    }
+
+    @Test
+    void concurrentUpsertsOfANewDayEndUpInOneAccountState() throws Exception {
+        long accountId = createAccount("Upsert");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> upserts = new ArrayList<>();
+        try {
+            for (int i = 0; i < 16; i++) {
+                upserts.add(executor.submit(() -> {
+                    start.await();
+                    return accountWriteSequencer.execute(List.of(accountId), () ->
+                            accountStateRepository.upsertMovements(accountId, DATE, 125, 0, 0).getId());
+                }));
+            }
+            start.countDown();
+            for (Future<Long> upsert : upserts) {
+                upsert.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Map<String, Object>> accountStates = jdbcTemplate.queryForList(
+                "SELECT month_amount, positive_movement FROM account_state WHERE account_id = ?", accountId
+        );
+        assertThat(accountStates).hasSize(1);
+        assertThat((BigDecimal) accountStates.get(0).get("month_amount")).isEqualByComparingTo("20.00");
+        assertThat((BigDecimal) accountStates.get(0).get("positive_movement")).isEqualByComparingTo("20.00");
+    }
+
+    @Test
+    void upsertDoesNotSeedNewDaysFromThePreviousMonth() throws Exception {
+        long accountId = createAccount("Upsert");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        transactionTemplate.execute(status -> accountStateRepository.upsertMovements(accountId, DATE, 1000, 0, 0));
+        Long id = transactionTemplate.execute(status ->
+                accountStateRepository.upsertMovements(accountId, DATE.plusMonths(1).withDayOfMonth(1), 0, 250, 0)
+                        .getId());
+
+        assertThat((BigDecimal) getAccountState(id).get("month_amount")).isEqualByComparingTo("-2.50");
+    }
+
+    @Test
+    void rebalanceRecalculatesOnlyChangedAccountStatesFromTheDateUntilTheEndOfTheMonth() throws Exception {
+        long accountId = createAccount("Rebalance");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        List<Long> ids = transactionTemplate.execute(status -> List.of(
+                accountStateRepository.upsertMovements(accountId, DATE, 1000, 0, 0).getId(),
+                accountStateRepository.upsertMovements(accountId, DATE.plusDays(1), 0, 300, 0).getId(),
+                accountStateRepository.upsertMovements(accountId, DATE.plusDays(2), 0, 0, 100).getId(),
+                accountStateRepository.upsertMovements(accountId, DATE.plusMonths(1), 500, 0, 0).getId()
+        ));
+        jdbcTemplate.update("UPDATE account_state SET month_amount = 0 WHERE account_id = ?", accountId);
+        jdbcTemplate.update("UPDATE account_state SET month_amount = 7 WHERE id = ?", ids.get(2));
+        LocalDate monthStart = DATE.withDayOfMonth(1);
+
+        int updated = transactionTemplate.execute(status -> accountStateRepository.rebalanceMonthAmounts(
+                accountId, DATE.plusDays(1), monthStart, monthStart.plusMonths(1)
+        ));
+
+        assertThat(updated).isEqualTo(1);
+        assertThat((BigDecimal) getAccountState(ids.get(0)).get("month_amount")).isEqualByComparingTo("0.00");
+        assertThat((BigDecimal) getAccountState(ids.get(1)).get("month_amount")).isEqualByComparingTo("7.00");
+        assertThat((BigDecimal) getAccountState(ids.get(2)).get("month_amount")).isEqualByComparingTo("7.00");
+        assertThat((BigDecimal) getAccountState(ids.get(3)).get("month_amount")).isEqualByComparingTo("0.00");
+    }
+
+    private Map<String, Object> getAccountState(long id) {
+        return jdbcTemplate.queryForMap("SELECT * FROM account_state WHERE id = ?", id);
+    }
+}
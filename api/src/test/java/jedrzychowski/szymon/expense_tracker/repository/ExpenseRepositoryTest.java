@@ -0,0 +1,89 @@
+package jedrzychowski.szymon.expense_tracker.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import jedrzychowski.szymon.expense_tracker.entity.ReportPeriod;
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseDTO;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpenseRepositoryTest extends ApiTestSupport {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 3, 15);
+    private static final Set<String> FIELDS = new HashSet<>(ExpenseDTO.FIELDS);
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void openDateBoundsAndMissingCursorAreLeftOutOfTheQuery() throws Exception {
+        long accountId = createAccount("Range");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        createExpense(accountId, expenseTypeId, DATE, "-1.00");
+        createExpense(accountId, expenseTypeId, DATE.plusMonths(2), "-2.00");
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+            List<ExpenseDTO> expenses = expenseRepository.findPageByAccountId(
+                    accountId, null, null, null, null, Limit.unlimited(), FIELDS
+            );
+            assertThat(expenses).extracting(ExpenseDTO::date).containsExactly(DATE, DATE.plusMonths(2));
+            assertThat(expenseRepository.sumSpendingByAccountId(accountId, null, null, ReportPeriod.MONTH))
+                    .hasSize(2);
+            assertThat(statistics.getQueries())
+                    .isNotEmpty()
+                    .noneMatch(query -> query.contains(":startDate") || query.contains(":endDate")
+                            || query.contains(":afterDate"));
+
+            statistics.clear();
+            expenses = expenseRepository.findPageByAccountId(
+                    accountId, DATE.plusDays(1), null, null, null, Limit.unlimited(), FIELDS
+            );
+            assertThat(expenses).extracting(ExpenseDTO::date).containsExactly(DATE.plusMonths(2));
+            assertThat(statistics.getQueries())
+                    .singleElement()
+                    .satisfies(query -> assertThat(query).contains(">= :startDate").doesNotContain(":endDate"));
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    void boundedRangeAndCursorFilterThePage() throws Exception {
+        long accountId = createAccount("Range");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        for (int day = 0; day < 4; day++) {
+            createExpense(accountId, expenseTypeId, DATE.plusDays(day), "-1.00");
+        }
+        List<ExpenseDTO> expenses = expenseRepository.findPageByAccountId(
+                accountId, DATE.plusDays(1), DATE.plusDays(3), null, null, Limit.unlimited(), FIELDS
+        );
+
+        List<ExpenseDTO> afterCursor = expenseRepository.findPageByAccountId(
+                accountId, DATE.plusDays(1), DATE.plusDays(3), expenses.get(0).date(), expenses.get(0).id(),
+                Limit.of(1), FIELDS
+        );
+
+        assertThat(expenses).extracting(ExpenseDTO::date)
+                .containsExactly(DATE.plusDays(1), DATE.plusDays(2), DATE.plusDays(3));
+        assertThat(afterCursor).extracting(ExpenseDTO::id).containsExactly(expenses.get(1).id());
+        assertThat(expenseRepository.sumSpendingByAccountId(accountId, DATE.plusDays(3), null, ReportPeriod.DAY))
+                .singleElement()
+                .satisfies(row -> assertThat(row.periodStart()).isEqualTo(DATE.plusDays(3)));
+    }
+}
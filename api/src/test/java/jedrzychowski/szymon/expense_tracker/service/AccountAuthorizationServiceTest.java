@@ -0,0 +1,61 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class AccountAuthorizationServiceTest extends ApiTestSupport {
+
+    @Autowired
+    private AccountAuthorizationService accountAuthorizationService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void deletedAccountIsNotFound() throws Exception {
+        long accountId = createAccount("Authorization");
+        assertThat(getAccountStates(accountId).getResponse().getStatus()).isEqualTo(200);
+
+        assertThat(perform(delete(API + "/accounts/" + accountId)).getResponse().getStatus()).isEqualTo(204);
+
+        assertThat(getAccountStates(accountId).getResponse().getStatus()).isEqualTo(404);
+    }
+
+    @Test
+    void ownershipCachedBeforeTheDeleteCommitsIsDropped() throws Exception {
+        long accountId = createAccount("Authorization");
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            accountAuthorizationService.evict(accountId);
+            jdbcTemplate.update("DELETE FROM account_state_projection WHERE account_id = ?", accountId);
+            jdbcTemplate.update("DELETE FROM account WHERE id = ?", accountId);
+
+            //A concurrent check still sees the Account and caches its owner
+            MvcResult result = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return getAccountStates(accountId);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }).orTimeout(10, TimeUnit.SECONDS).join();
+            assertThat(result.getResponse().getStatus()).isEqualTo(200);
+        });
+
+        assertThat(getAccountStates(accountId).getResponse().getStatus()).isEqualTo(404);
+    }
+
+    private MvcResult getAccountStates(long accountId) throws Exception {
+        return perform(get(API + "/account-states").param("accountId", String.valueOf(accountId)));
+    }
+}
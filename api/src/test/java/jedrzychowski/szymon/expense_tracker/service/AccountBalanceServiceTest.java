@@ -0,0 +1,145 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class AccountBalanceServiceTest extends ApiTestSupport {
+
+    @Autowired
+    private AccountBalanceService accountBalanceService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void backDatedExpenseChangesItsMonthAndOpeningBalancesOfLaterMonths() throws Exception {
+        long accountId = createAccount("Checkpoints");
+        long expenseTypeId = createExpenseType(accountId, "Salary");
+        createExpense(accountId, expenseTypeId, LocalDate.of(2024, 1, 10), "100.00");
+        createExpense(accountId, expenseTypeId, LocalDate.of(2024, 3, 10), "-40.00");
+        createExpense(accountId, expenseTypeId, LocalDate.of(2024, 5, 10), "25.00");
+        Map<String, BigDecimal> checkpoints = getCheckpoints(accountId);
+
+        createExpense(accountId, expenseTypeId, LocalDate.of(2024, 2, 10), "-10.00");
+
+        Map<String, BigDecimal> updatedCheckpoints = getCheckpoints(accountId);
+        assertThat(updatedCheckpoints).hasSize(4);
+        assertThat(updatedCheckpoints.get("2024-02-01")).isEqualByComparingTo("-10.00");
+        checkpoints.forEach((monthStart, movement) ->
+                assertThat(updatedCheckpoints.get(monthStart)).isEqualByComparingTo(movement));
+        Map<String, BigDecimal> openingBalances = getOpeningBalances(accountId);
+        assertThat(openingBalances.get("2024-01-01")).isEqualByComparingTo("0.00");
+        assertThat(openingBalances.get("2024-02-01")).isEqualByComparingTo("100.00");
+        assertThat(openingBalances.get("2024-03-01")).isEqualByComparingTo("90.00");
+        assertThat(openingBalances.get("2024-05-01")).isEqualByComparingTo("50.00");
+
+        JsonNode accountStates = json(perform(get(API + "/account-states")
+                .param("accountId", String.valueOf(accountId))));
+        assertThat(accountStates).extracting(accountState -> accountState.get("currentAmount").decimalValue())
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(
+                        new BigDecimal("100.00"), new BigDecimal("90.00"),
+                        new BigDecimal("50.00"), new BigDecimal("75.00")
+                );
+    }
+
+    @Test
+    void balanceIsReadAtTheEndOfAnyDate() throws Exception {
+        long accountId = createAccount("Balance");
+        long expenseTypeId = createExpenseType(accountId, "Salary");
+        createExpense(accountId, expenseTypeId, LocalDate.of(2024, 1, 10), "100.00");
+        createExpense(accountId, expenseTypeId, LocalDate.of(2024, 3, 10), "-40.00");
+        createExpense(accountId, expenseTypeId, LocalDate.of(2024, 3, 20), "-5.00");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Map<LocalDate, Long> balances = transactionTemplate.execute(status -> Map.of(
+                LocalDate.of(2024, 1, 9), accountBalanceService.getBalance(accountId, LocalDate.of(2024, 1, 9)),
+                LocalDate.of(2024, 1, 10), accountBalanceService.getBalance(accountId, LocalDate.of(2024, 1, 10)),
+                LocalDate.of(2024, 3, 1), accountBalanceService.getBalance(accountId, LocalDate.of(2024, 3, 1)),
+                LocalDate.of(2024, 3, 15), accountBalanceService.getBalance(accountId, LocalDate.of(2024, 3, 15)),
+                LocalDate.of(2024, 12, 31), accountBalanceService.getBalance(accountId, LocalDate.of(2024, 12, 31))
+        ));
+
+        assertThat(balances).containsExactlyInAnyOrderEntriesOf(Map.of(
+                LocalDate.of(2024, 1, 9), 0L,
+                LocalDate.of(2024, 1, 10), 10000L,
+                LocalDate.of(2024, 3, 1), 10000L,
+                LocalDate.of(2024, 3, 15), 6000L,
+                LocalDate.of(2024, 12, 31), 5500L
+        ));
+    }
+
+    @Test
+    void concurrentExpensesOfANewMonthEndUpInOneCheckpoint() throws Exception {
+        long accountId = createAccount("Checkpoints");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                LocalDate date = LocalDate.of(2024, 7, 1 + i);
+                writes.add(executor.submit(() -> createExpense(accountId, expenseTypeId, date, "1.25")));
+            }
+            for (Future<?> write : writes) {
+                write.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(getCheckpoints(accountId)).hasSize(1).hasEntrySatisfying("2024-07-01",
+                movement -> assertThat(movement).isEqualByComparingTo("20.00"));
+    }
+
+    @Test
+    void movementsAreAddedToTheExistingCheckpointOfTheMonth() throws Exception {
+        long accountId = createAccount("Checkpoints");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            accountBalanceService.applyMovement(accountId, LocalDate.of(2024, 8, 31), 1000);
+            accountBalanceService.applyMovement(accountId, LocalDate.of(2024, 8, 1), -250);
+        });
+        transactionTemplate.executeWithoutResult(status ->
+                accountBalanceService.applyMovement(accountId, LocalDate.of(2024, 8, 15), 5));
+
+        assertThat(getCheckpoints(accountId)).hasSize(1).hasEntrySatisfying("2024-08-01",
+                movement -> assertThat(movement).isEqualByComparingTo("7.55"));
+    }
+
+    private Map<String, BigDecimal> getCheckpoints(long accountId) {
+        return getCheckpointColumn(accountId, "movement");
+    }
+
+    private Map<String, BigDecimal> getOpeningBalances(long accountId) {
+        return getCheckpointColumn(accountId, "opening_balance");
+    }
+
+    private Map<String, BigDecimal> getCheckpointColumn(long accountId,
+                                                        String column) {
+        Map<String, BigDecimal> checkpoints = new ConcurrentHashMap<>();
+        jdbcTemplate.query(
+                "SELECT month_start, " + column + " FROM account_balance_checkpoint WHERE account_id = ?",
+                resultSet -> {
+                    checkpoints.put(resultSet.getString("month_start"), resultSet.getBigDecimal(column));
+                },
+                accountId
+        );
+        return checkpoints;
+    }
+}
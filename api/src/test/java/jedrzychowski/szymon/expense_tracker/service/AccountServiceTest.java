@@ -0,0 +1,22 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class AccountServiceTest extends ApiTestSupport {
+
+    @Test
+    void listItemsMatchTheAccountReadById() throws Exception {
+        long accountId = createAccount("Current");
+        createAccount("Savings");
+
+        JsonNode accounts = json(perform(get(API + "/accounts")));
+
+        assertThat(accounts).hasSize(2);
+        assertThat(accounts.get(0)).isEqualTo(json(perform(get(API + "/accounts/" + accountId))));
+    }
+}
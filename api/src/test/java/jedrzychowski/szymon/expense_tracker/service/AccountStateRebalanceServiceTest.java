@@ -0,0 +1,66 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@TestPropertySource(properties = {
+        "balance.deferred-rebalance=true",
+        "balance.rebalance-interval=3600000"
+})
+class AccountStateRebalanceServiceTest extends ApiTestSupport {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 4, 10);
+
+    @Autowired
+    private AccountStateRebalanceService accountStateRebalanceService;
+
+    @Test
+    void deferredRebalanceRunsBeforeAccountStatesAreRead() throws Exception {
+        long accountId = createAccount("Deferred");
+        long expenseTypeId = createExpenseType(accountId, "Salary");
+        createExpense(accountId, expenseTypeId, DATE, "10.00");
+        createExpense(accountId, expenseTypeId, DATE.minusMonths(1), "5.00");
+        //Stored balances stay stale until the Account is read or the worker runs
+        assertThat(getStoredCurrentAmount(accountId, DATE)).isNotEqualByComparingTo("15.00");
+
+        JsonNode accountStates = json(perform(get(API + "/account-states")
+                .param("accountId", String.valueOf(accountId))));
+
+        assertThat(accountStates.get(1).get("currentAmount").decimalValue()).isEqualByComparingTo("15.00");
+        assertThat(getStoredCurrentAmount(accountId, DATE)).isEqualByComparingTo("15.00");
+    }
+
+    @Test
+    void backgroundWorkerRebalancesEveryChangedMonth() throws Exception {
+        long accountId = createAccount("Deferred");
+        long expenseTypeId = createExpenseType(accountId, "Salary");
+        createExpense(accountId, expenseTypeId, DATE, "10.00");
+        createExpense(accountId, expenseTypeId, DATE.minusDays(5), "2.00");
+        createExpense(accountId, expenseTypeId, DATE.minusMonths(2), "1.00");
+
+        accountStateRebalanceService.rebalancePending();
+
+        assertThat(getStoredCurrentAmount(accountId, DATE.minusMonths(2))).isEqualByComparingTo("1.00");
+        assertThat(getStoredCurrentAmount(accountId, DATE.minusDays(5))).isEqualByComparingTo("3.00");
+        assertThat(getStoredCurrentAmount(accountId, DATE)).isEqualByComparingTo("13.00");
+    }
+
+    private BigDecimal getStoredCurrentAmount(long accountId,
+                                              LocalDate date) {
+        return jdbcTemplate.queryForObject("""
+                SELECT accountState.month_amount + checkpoint.opening_balance
+                FROM account_state accountState
+                JOIN account_balance_checkpoint checkpoint ON checkpoint.account_id = accountState.account_id
+                WHERE accountState.account_id = ? AND accountState.date = ? AND checkpoint.month_start = ?
+                """, BigDecimal.class, accountId, date, date.withDayOfMonth(1));
+    }
+}
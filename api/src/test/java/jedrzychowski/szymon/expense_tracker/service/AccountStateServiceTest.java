@@ -0,0 +1,149 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class AccountStateServiceTest extends ApiTestSupport {
+
+    private static final LocalDate START_DATE = LocalDate.of(2024, 3, 1);
+
+    @Test
+    void accountStateByIdReturnsBalanceIncludingBackDatedExpenses() throws Exception {
+        long accountId = createAccount("Balance");
+        long expenseTypeId = createExpenseType(accountId, "Salary");
+        createExpense(accountId, expenseTypeId, START_DATE.plusDays(1), "100.00");
+        createExpense(accountId, expenseTypeId, START_DATE.plusDays(2), "-30.00");
+        long lastAccountStateId = getAccountStates(accountId).get(1).get("id").asLong();
+        assertThat(getCurrentAmount(lastAccountStateId)).isEqualByComparingTo("70.00");
+
+        //Back-dated Expense in an earlier month changes every later balance
+        createExpense(accountId, expenseTypeId, START_DATE.minusMonths(1), "5.25");
+
+        assertThat(getCurrentAmount(lastAccountStateId)).isEqualByComparingTo("75.25");
+    }
+
+    @Test
+    void accountStateByIdMatchesAccountStateListAfterConcurrentWrites() throws Exception {
+        long accountId = createAccount("Balance");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                LocalDate date = START_DATE.plusDays(i % 10);
+                writes.add(executor.submit(() -> createExpense(accountId, expenseTypeId, date, "1.50")));
+            }
+            for (Future<?> write : writes) {
+                write.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        JsonNode accountStates = getAccountStates(accountId);
+        assertThat(accountStates).hasSize(10);
+        for (JsonNode accountState : accountStates) {
+            assertThat(getCurrentAmount(accountState.get("id").asLong()))
+                    .isEqualByComparingTo(accountState.get("currentAmount").decimalValue());
+        }
+        assertThat(accountStates.get(9).get("currentAmount").decimalValue()).isEqualByComparingTo("60.00");
+    }
+
+    @Test
+    void seriesFillsDaysWithoutMovementsAndDownsamples() throws Exception {
+        long accountId = createAccount("Balance");
+        long expenseTypeId = createExpenseType(accountId, "Salary");
+        createExpense(accountId, expenseTypeId, START_DATE.minusDays(1), "10.00");
+        createExpense(accountId, expenseTypeId, START_DATE.plusDays(2), "5.00");
+
+        JsonNode series = json(perform(get(API + "/account-states/series")
+                .param("accountId", String.valueOf(accountId))
+                .param("startDate", START_DATE.toString())
+                .param("endDate", START_DATE.plusDays(3).toString())));
+        assertThat(series).hasSize(4);
+        assertThat(series).extracting(point -> point.get("currentAmount").decimalValue())
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(
+                        new BigDecimal("10.00"), new BigDecimal("10.00"),
+                        new BigDecimal("15.00"), new BigDecimal("15.00")
+                );
+
+        JsonNode downsampled = json(perform(get(API + "/account-states/series")
+                .param("accountId", String.valueOf(accountId))
+                .param("startDate", START_DATE.toString())
+                .param("endDate", START_DATE.plusDays(99).toString())
+                .param("points", "10")));
+        assertThat(downsampled).hasSize(10);
+        assertThat(downsampled.get(0).get("date").asText()).isEqualTo(START_DATE.toString());
+        assertThat(downsampled.get(9).get("date").asText()).isEqualTo(START_DATE.plusDays(99).toString());
+    }
+
+    @Test
+    void seriesWithoutAccountSumsAllAccountsOfTheUser() throws Exception {
+        long firstAccountId = createAccount("Current");
+        long firstExpenseTypeId = createExpenseType(firstAccountId, "Salary");
+        long secondAccountId = createAccount("Savings");
+        long secondExpenseTypeId = createExpenseType(secondAccountId, "Interest");
+        createExpense(firstAccountId, firstExpenseTypeId, START_DATE.minusMonths(1), "100.00");
+        createExpense(secondAccountId, secondExpenseTypeId, START_DATE.plusDays(1), "50.00");
+        createExpense(firstAccountId, firstExpenseTypeId, START_DATE.plusDays(2), "-30.00");
+
+        JsonNode series = json(perform(get(API + "/account-states/series")
+                .param("startDate", START_DATE.toString())
+                .param("endDate", START_DATE.plusDays(2).toString())));
+
+        assertThat(series).extracting(point -> point.get("currentAmount").decimalValue())
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("100.00"), new BigDecimal("150.00"), new BigDecimal("120.00"));
+    }
+
+    @Test
+    void accountStateListReturnsOnlyTheRequestedFields() throws Exception {
+        long accountId = createAccount("Balance");
+        long expenseTypeId = createExpenseType(accountId, "Salary");
+        createExpense(accountId, expenseTypeId, START_DATE, "12.00");
+
+        JsonNode accountState = json(perform(get(API + "/account-states")
+                .param("accountId", String.valueOf(accountId))
+                .param("fields", "currentAmount,date"))).get(0);
+
+        assertThat(accountState.properties()).extracting(Map.Entry::getKey).containsExactly("date", "currentAmount");
+        assertThat(accountState.get("currentAmount").decimalValue()).isEqualByComparingTo("12.00");
+    }
+
+    @Test
+    void listItemsMatchTheAccountStateReadById() throws Exception {
+        long accountId = createAccount("Balance");
+        long expenseTypeId = createExpenseType(accountId, "Salary");
+        createExpense(accountId, expenseTypeId, START_DATE, "12.00");
+
+        JsonNode accountState = getAccountStates(accountId).get(0);
+
+        assertThat(accountState).isEqualTo(json(perform(get(API + "/account-states/" + accountState.get("id")))));
+    }
+
+    private JsonNode getAccountStates(long accountId) throws Exception {
+        return json(perform(get(API + "/account-states")
+                .param("accountId", String.valueOf(accountId))
+                .param("limit", "100"))).get("items");
+    }
+
+    private BigDecimal getCurrentAmount(long accountStateId) throws Exception {
+        return json(perform(get(API + "/account-states/" + accountStateId))).get("currentAmount").decimalValue();
+    }
+}
@@ -0,0 +1,67 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class AccountVersionServiceTest extends ApiTestSupport {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 4, 1);
+
+    @Autowired
+    private AccountStateProjector accountStateProjector;
+
+    @Autowired
+    private ExpenseSummaryService expenseSummaryService;
+
+    @Test
+    void listETagChangesWithExpenseWrites() throws Exception {
+        long accountId = createAccount("Versions");
+        long expenseTypeId = createExpenseType(accountId, "Rent");
+        createExpense(accountId, expenseTypeId, DATE, "10.00");
+        String eTag = getAccountStates(accountId, null).getResponse().getHeader("ETag");
+
+        assertThat(getAccountStates(accountId, eTag).getResponse().getStatus()).isEqualTo(304);
+
+        createExpense(accountId, expenseTypeId, DATE.plusDays(1), "-2.00");
+        MvcResult result = getAccountStates(accountId, eTag);
+        assertThat(result.getResponse().getStatus()).isEqualTo(200);
+        assertThat(result.getResponse().getHeader("ETag")).isNotEqualTo(eTag);
+    }
+
+    @Test
+    void rebuildsChangeTheVersionOfTheirAccounts() throws Exception {
+        long accountId = createAccount("Versions");
+        long expenseTypeId = createExpenseType(accountId, "Rent");
+        createExpense(accountId, expenseTypeId, DATE, "10.00");
+        long changeVersion = getChangeVersion(accountId);
+        String eTag = getAccountStates(accountId, null).getResponse().getHeader("ETag");
+
+        accountStateProjector.rebuild(accountId);
+        assertThat(getChangeVersion(accountId)).isEqualTo(changeVersion + 1);
+        assertThat(getAccountStates(accountId, eTag).getResponse().getStatus()).isEqualTo(200);
+
+        expenseSummaryService.rebuild(accountId);
+        assertThat(getChangeVersion(accountId)).isEqualTo(changeVersion + 2);
+
+        accountStateProjector.rebuildAll();
+        assertThat(getChangeVersion(accountId)).isEqualTo(changeVersion + 3);
+    }
+
+    private MvcResult getAccountStates(long accountId,
+                                       String eTag) throws Exception {
+        return perform(get(API + "/account-states")
+                .param("accountId", String.valueOf(accountId))
+                .header("If-None-Match", eTag == null ? "" : eTag));
+    }
+
+    private long getChangeVersion(long accountId) {
+        return jdbcTemplate.queryForObject("SELECT change_version FROM account WHERE id = ?", Long.class, accountId);
+    }
+}
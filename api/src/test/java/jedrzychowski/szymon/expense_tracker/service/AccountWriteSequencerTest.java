@@ -0,0 +1,214 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import jakarta.persistence.EntityManager;
+import jedrzychowski.szymon.expense_tracker.config.property.BalanceProperties;
+import jedrzychowski.szymon.expense_tracker.util.TransactionResource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class AccountWriteSequencerTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void createTable() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS sequencer_write (name VARCHAR(64) PRIMARY KEY)");
+        jdbcTemplate.update("DELETE FROM sequencer_write");
+    }
+
+    @Test
+    void writesQueuedBehindSeveralGroupsAreAllApplied() throws Exception {
+        AccountWriteSequencer sequencer = createSequencer(1);
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 3000; i++) {
+                String name = "write-" + i;
+                results.add(executor.submit(() -> sequencer.execute(List.of(1L), () -> insert(name))));
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                assertThat(results.get(i).get(30, TimeUnit.SECONDS)).isEqualTo("write-" + i);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sequencer_write", Long.class)).isEqualTo(3000);
+    }
+
+    @Test
+    void failedWriteIsRolledBackAloneAndOtherWritesRunOnce() throws Exception {
+        AccountWriteSequencer sequencer = createSequencer(50);
+        Map<String, AtomicInteger> invocations = new ConcurrentHashMap<>();
+        Map<String, AtomicBoolean> committed = new ConcurrentHashMap<>();
+        CountDownLatch blockerStarted = new CountDownLatch(1);
+        CountDownLatch releaseBlocker = new CountDownLatch(1);
+
+        FutureTask<String> blocker = new FutureTask<>(() -> sequencer.execute(List.of(1L), () -> {
+            blockerStarted.countDown();
+            await(releaseBlocker);
+            return insert("blocker");
+        }));
+        new Thread(blocker).start();
+        blockerStarted.await();
+
+        //Queued while the blocker holds the stripe, so that they are applied as one group
+        List<Thread> threads = new ArrayList<>();
+        Map<String, FutureTask<String>> writes = new ConcurrentHashMap<>();
+        for (String name : List.of("first", "invalid", "last")) {
+            invocations.put(name, new AtomicInteger());
+            committed.put(name, new AtomicBoolean());
+            FutureTask<String> write = new FutureTask<>(() -> sequencer.execute(List.of(1L), () -> {
+                invocations.get(name).incrementAndGet();
+                insert(name);
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        committed.get(name).set(true);
+                    }
+                });
+                if (name.equals("invalid")) {
+                    throw new IllegalArgumentException("invalid write");
+                }
+                return name;
+            }));
+            writes.put(name, write);
+            Thread thread = new Thread(write);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            while (thread.getState() != Thread.State.WAITING) {
+                Thread.onSpinWait();
+            }
+        }
+        releaseBlocker.countDown();
+
+        assertThat(blocker.get(10, TimeUnit.SECONDS)).isEqualTo("blocker");
+        assertThat(writes.get("first").get(10, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(writes.get("last").get(10, TimeUnit.SECONDS)).isEqualTo("last");
+        assertThatThrownBy(() -> writes.get("invalid").get(10, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+
+        assertThat(invocations).allSatisfy((name, count) -> assertThat(count).hasValue(1));
+        assertThat(committed.get("first")).isTrue();
+        assertThat(committed.get("last")).isTrue();
+        assertThat(committed.get("invalid")).isFalse();
+        assertThat(jdbcTemplate.queryForList("SELECT name FROM sequencer_write ORDER BY name", String.class))
+                .containsExactly("blocker", "first", "last");
+    }
+
+    @Test
+    void stateCollectedByFailedWriteIsDroppedBeforeTheNextWrite() {
+        AccountWriteSequencer sequencer = createSequencer(50);
+        List<Set<String>> committedStates = new ArrayList<>();
+        TransactionResource<Set<String>> names = new TransactionResource<>(
+                HashSet::new,
+                HashSet::new,
+                state -> {
+                },
+                committedStates::add
+        );
+
+        sequencer.execute(List.of(1L), () -> names.get().add("first"));
+        assertThatThrownBy(() -> sequencer.execute(List.of(1L), () -> {
+            names.get().add("invalid");
+            throw new IllegalArgumentException("invalid write");
+        })).isInstanceOf(IllegalArgumentException.class);
+        sequencer.execute(List.of(1L), () -> names.get().add("last"));
+
+        assertThat(TransactionSynchronizationManager.getResourceMap()).isEmpty();
+        //The state bound by the failed write must not leak into the next write on the same thread
+        assertThat(committedStates).containsExactly(Set.of("first"), Set.of("last"));
+    }
+
+    @Test
+    void writesOfSeveralAccountsExcludeOtherWritesOfThoseAccountsWithoutDeadlocking() throws Exception {
+        AccountWriteSequencer sequencer = createSequencer(4, 50);
+        List<List<Long>> accountIdLists = List.of(
+                List.of(1L, 2L), List.of(2L, 1L), List.of(3L, 2L), List.of(1L), List.of(2L), List.of(3L)
+        );
+        Map<Long, AtomicInteger> writers = new ConcurrentHashMap<>();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 600; i++) {
+                String name = "write-" + i;
+                List<Long> accountIds = accountIdLists.get(i % accountIdLists.size());
+                results.add(executor.submit(() -> sequencer.execute(accountIds, () -> {
+                    accountIds.forEach(accountId -> {
+                        if (writers.computeIfAbsent(accountId, id -> new AtomicInteger()).incrementAndGet() > 1) {
+                            overlapped.set(true);
+                        }
+                    });
+                    try {
+                        return insert(name);
+                    } finally {
+                        accountIds.forEach(accountId -> writers.get(accountId).decrementAndGet());
+                    }
+                })));
+            }
+
+            for (Future<String> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(overlapped).isFalse();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM sequencer_write", Long.class)).isEqualTo(600);
+    }
+
+    private AccountWriteSequencer createSequencer(int maxWriteGroupSize) {
+        return createSequencer(1, maxWriteGroupSize);
+    }
+
+    private AccountWriteSequencer createSequencer(int writeStripes,
+                                                  int maxWriteGroupSize) {
+        BalanceProperties balanceProperties = new BalanceProperties();
+        balanceProperties.setWriteStripes(writeStripes);
+        balanceProperties.setMaxWriteGroupSize(maxWriteGroupSize);
+        return new AccountWriteSequencer(entityManager, balanceProperties, transactionManager);
+    }
+
+    private String insert(String name) {
+        jdbcTemplate.update("INSERT INTO sequencer_write (name) VALUES (?)", name);
+        return name;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
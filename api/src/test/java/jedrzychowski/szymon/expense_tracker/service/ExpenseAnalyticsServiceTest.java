@@ -0,0 +1,83 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import jedrzychowski.szymon.expense_tracker.entity.ReportPeriod;
+import jedrzychowski.szymon.expense_tracker.repository.ExpenseRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+@TestPropertySource(properties = {
+        "report.analytics-cache-size=10",
+        "report.analytics-parallel-threshold=2"
+})
+class ExpenseAnalyticsServiceTest extends ApiTestSupport {
+
+    private static final LocalDate START_DATE = LocalDate.of(2024, 1, 1);
+
+    @Autowired
+    private ExpenseAnalyticsService expenseAnalyticsService;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Test
+    void cachedReportsFollowExpenseWritesAfterTheyAreLoaded() throws Exception {
+        assertThat(expenseAnalyticsService.isEnabled()).isTrue();
+        long accountId = createAccount("Analytics");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        long updatedExpenseId = createExpenseId(accountId, expenseTypeId, START_DATE, "-10.00");
+        long deletedExpenseId = createExpenseId(accountId, expenseTypeId, START_DATE.plusDays(1), "-5.00");
+        assertThat(getSpendingReport()).hasSize(1);
+
+        createExpense(accountId, expenseTypeId, START_DATE.plusMonths(1), "-1.25");
+        perform(put(API + "/expenses"), String.format(
+                "{\"id\":%d,\"date\":\"%s\",\"movementAmount\":-20.00,\"expenseTypeId\":%d,\"accountId\":%d}",
+                updatedExpenseId, START_DATE.plusDays(2), expenseTypeId, accountId
+        ));
+        perform(delete(API + "/expenses/" + deletedExpenseId));
+
+        JsonNode rows = getSpendingReport();
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0).get("movementAmount").decimalValue()).isEqualByComparingTo("-20.00");
+        assertThat(rows.get(0).get("count").asLong()).isEqualTo(1);
+        assertThat(rows.get(1).get("periodStart").asText()).isEqualTo(START_DATE.plusMonths(1).toString());
+        assertThat(rows.get(1).get("movementAmount").decimalValue()).isEqualByComparingTo("-1.25");
+    }
+
+    @Test
+    void cachedReportsMatchReportsSummedByTheDatabase() throws Exception {
+        long accountId = createAccount("Analytics");
+        long groceriesId = createExpenseType(accountId, "Groceries");
+        long rentId = createExpenseType(accountId, "Rent");
+        for (int day = 0; day < 20; day++) {
+            createExpense(accountId, day % 2 == 0 ? groceriesId : rentId, START_DATE.plusDays(day * 5), "-1.10");
+        }
+        long appUserId = jdbcTemplate.queryForObject(
+                "SELECT app_user_id FROM account WHERE id = ?", Long.class, accountId
+        );
+
+        for (ReportPeriod period : ReportPeriod.values()) {
+            assertThat(expenseAnalyticsService.sumSpending(
+                    appUserId, accountId, START_DATE.plusDays(3), START_DATE.plusDays(80), period
+            )).isEqualTo(expenseRepository.sumSpendingByAccountId(
+                    accountId, START_DATE.plusDays(3), START_DATE.plusDays(80), period
+            ));
+        }
+    }
+
+    private JsonNode getSpendingReport() throws Exception {
+        return json(perform(get(API + "/reports/spending")
+                .param("startDate", START_DATE.toString())
+                .param("endDate", START_DATE.plusYears(1).toString())
+                .param("period", "MONTH")));
+    }
+}
@@ -0,0 +1,120 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+class ExpenseImportServiceTest extends ApiTestSupport {
+
+    private static final LocalDate START_DATE = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void importsRunConcurrentlyWithExpensesOfTheSameAccount() throws Exception {
+        long accountId = createAccount("Import");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<MvcResult>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                StringBuilder csv = new StringBuilder("date,movementAmount,expenseTypeId,accountId\n");
+                for (int day = 0; day < 20; day++) {
+                    csv.append(String.format("%s,1.00,%d,%d%n", START_DATE.plusDays(day), expenseTypeId, accountId));
+                }
+                results.add(executor.submit(() -> perform(
+                        post(API + "/expenses/import").contentType("text/csv").content(csv.toString())
+                )));
+                for (int day = 0; day < 20; day++) {
+                    LocalDate date = START_DATE.plusDays(day);
+                    results.add(executor.submit(() -> createExpense(accountId, expenseTypeId, date, "2.00")));
+                }
+            }
+
+            for (Future<MvcResult> result : results) {
+                assertThat(result.get(60, TimeUnit.SECONDS).getResponse().getStatus()).isEqualTo(201);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM expense WHERE account_id = ?", Long.class, accountId)).isEqualTo(160);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT sequence_number) FROM expense_event WHERE account_id = ?", Long.class, accountId
+        )).isEqualTo(160);
+
+        JsonNode accountStates = json(perform(get(API + "/account-states")
+                .param("accountId", String.valueOf(accountId))
+                .param("limit", "100"))).get("items");
+        assertThat(accountStates).hasSize(20);
+        JsonNode lastAccountState = accountStates.get(accountStates.size() - 1);
+        assertThat(lastAccountState.get("date").asText()).isEqualTo(START_DATE.plusDays(19).toString());
+        assertThat(lastAccountState.get("currentAmount").decimalValue()).isEqualByComparingTo(new BigDecimal("240.00"));
+    }
+
+    @Test
+    void invalidLinesAreAllReportedAndNothingIsImported() throws Exception {
+        long accountId = createAccount("Import");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        String csv = "date,movementAmount,expenseTypeId,accountId\n"
+                + String.format("2024-01-01,1.00,%d,%d%n", expenseTypeId, accountId)
+                + String.format("not-a-date,1.00,%d,%d%n", expenseTypeId, accountId)
+                + String.format("2024-01-03,,%d,%d%n", expenseTypeId, accountId);
+
+        MvcResult result = perform(post(API + "/expenses/import").contentType("text/csv").content(csv));
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(400);
+        assertThat(result.getResponse().getContentAsString()).contains("Line 3", "Line 4");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM expense WHERE account_id = ?", Long.class, accountId)).isZero();
+    }
+
+    @Test
+    void importSpanningSeveralBatchesIsSearchableAndLeavesNoTemporaryFile() throws Exception {
+        long accountId = createAccount("Import");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        //Loads the search index of the AppUser, so that the import has to evict it
+        perform(get(API + "/expenses/search").param("query", "zanzibar"));
+        long spoolFiles = countSpoolFiles();
+        StringBuilder csv = new StringBuilder("date,movementAmount,expenseTypeId,description,accountId\n");
+        for (int i = 0; i < 120; i++) {
+            String description = i == 77 ? "Zanzibar spices" : "Groceries " + i;
+            csv.append(String.format("%s,-1.00,%d,%s,%d%n", START_DATE.plusDays(i % 3), expenseTypeId, description,
+                    accountId));
+        }
+
+        MvcResult result = perform(post(API + "/expenses/import").contentType("text/csv").content(csv.toString()));
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(201);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM expense WHERE account_id = ?", Long.class, accountId)).isEqualTo(120);
+        assertThat(countSpoolFiles()).isEqualTo(spoolFiles);
+        JsonNode expenses = json(perform(get(API + "/expenses/search").param("query", "zanzibar")));
+        assertThat(expenses).hasSize(1);
+        assertThat(expenses.get(0).get("description").asText()).isEqualTo("Zanzibar spices");
+        JsonNode accountStates = json(perform(get(API + "/account-states")
+                .param("accountId", String.valueOf(accountId))));
+        assertThat(accountStates.get(2).get("currentAmount").decimalValue()).isEqualByComparingTo("-120.00");
+    }
+
+    private long countSpoolFiles() throws IOException {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> file.getFileName().toString().startsWith("expense-import")).count();
+        }
+    }
+}
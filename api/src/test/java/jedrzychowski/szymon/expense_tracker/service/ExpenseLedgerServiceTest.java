@@ -0,0 +1,136 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import jedrzychowski.szymon.expense_tracker.entity.ExpenseEventType;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class ExpenseLedgerServiceTest extends ApiTestSupport {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 5, 1);
+
+    @Autowired
+    private ExpenseLedgerService expenseLedgerService;
+
+    @Autowired
+    private AccountStateProjector accountStateProjector;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentTransactionsTakeConsecutiveSequenceNumbers() throws Exception {
+        long accountId = createAccount("Ledger");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        //Appends bypass the AccountWriteSequencer, so only the database keeps them apart
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> appends = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                long expenseId = i;
+                appends.add(executor.submit(() -> {
+                    start.await();
+                    return transactionTemplate.execute(status -> {
+                        expenseLedgerService.appendPosting(ExpenseEventType.CREATED, expenseId, accountId, DATE, 100, 0);
+                        expenseLedgerService.appendPosting(ExpenseEventType.CREATED, expenseId, accountId, DATE, 50, 0);
+                        return null;
+                    });
+                }));
+            }
+            start.countDown();
+            for (Future<?> append : appends) {
+                append.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT sequence_number FROM expense_event WHERE account_id = ? ORDER BY sequence_number",
+                Long.class, accountId
+        )).containsExactlyElementsOf(LongStream.rangeClosed(1, 64).boxed().toList());
+    }
+
+    @Test
+    void existingExpensesArePostedOnlyUntilTheLedgerBackfillCompletes() throws Exception {
+        long accountId = createAccount("Ledger");
+        long expenseTypeId = createExpenseType(accountId, "Rent");
+        createExpense(accountId, expenseTypeId, DATE, "12.00");
+        createExpense(accountId, expenseTypeId, DATE.plusDays(1), "-2.00");
+        //Expenses created before the ledger have neither ExpenseEvents nor a projection
+        jdbcTemplate.update("DELETE FROM expense_event WHERE account_id = ?", accountId);
+        jdbcTemplate.update("DELETE FROM account_state_projection WHERE account_id = ?", accountId);
+
+        accountStateProjector.initializeProjections();
+        assertThat(countEvents(accountId)).isZero();
+
+        jdbcTemplate.update("DELETE FROM data_backfill WHERE name = ?", AccountStateProjector.LEDGER_BACKFILL);
+        accountStateProjector.initializeProjections();
+        assertThat(countEvents(accountId)).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM data_backfill WHERE name = ?", Long.class, AccountStateProjector.LEDGER_BACKFILL
+        )).isEqualTo(1);
+    }
+
+    @Test
+    void rebuildAllReplaysTheLedgerOfEveryAccount() throws Exception {
+        long accountId = createAccount("Ledger");
+        long expenseTypeId = createExpenseType(accountId, "Rent");
+        createExpense(accountId, expenseTypeId, DATE, "12.00");
+        createExpense(accountId, expenseTypeId, DATE.plusDays(1), "-2.00");
+        jdbcTemplate.update("UPDATE account_state SET month_amount = 0 WHERE account_id = ?", accountId);
+
+        accountStateProjector.rebuildAll();
+
+        JsonNode accountStates = json(perform(get(API + "/account-states")
+                .param("accountId", String.valueOf(accountId))));
+        assertThat(accountStates).hasSize(2);
+        assertThat(accountStates.get(0).get("currentAmount").decimalValue()).isEqualByComparingTo("12.00");
+        assertThat(accountStates.get(1).get("currentAmount").decimalValue()).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void startupRebuildRunsInTheBackgroundAndIsRecordedOnceDone() throws Exception {
+        long accountId = createAccount("Ledger");
+        long expenseTypeId = createExpenseType(accountId, "Rent");
+        createExpense(accountId, expenseTypeId, DATE, "12.00");
+        createExpense(accountId, expenseTypeId, DATE.plusMonths(1), "-2.00");
+        jdbcTemplate.update("UPDATE account_state SET month_amount = 0 WHERE account_id = ?", accountId);
+        jdbcTemplate.update("DELETE FROM data_backfill WHERE name = ?", AccountStateProjector.CHECKPOINT_BACKFILL);
+
+        accountStateProjector.initializeProjections();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM data_backfill WHERE name = ?", Long.class,
+                AccountStateProjector.CHECKPOINT_BACKFILL) == 0) {
+            assertThat(System.nanoTime()).as("rebuild finished").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+        JsonNode accountStates = json(perform(get(API + "/account-states")
+                .param("accountId", String.valueOf(accountId))));
+        assertThat(accountStates.get(0).get("currentAmount").decimalValue()).isEqualByComparingTo("12.00");
+        assertThat(accountStates.get(1).get("currentAmount").decimalValue()).isEqualByComparingTo("10.00");
+    }
+
+    private long countEvents(long accountId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM expense_event WHERE account_id = ?", Long.class, accountId
+        );
+    }
+}
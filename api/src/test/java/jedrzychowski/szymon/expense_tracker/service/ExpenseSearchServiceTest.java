@@ -0,0 +1,68 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+class ExpenseSearchServiceTest extends ApiTestSupport {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 6, 1);
+
+    @Test
+    void searchFollowsCommittedExpenseWrites() throws Exception {
+        long accountId = createAccount("Search");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        long tescoId = createDescribedExpense(accountId, expenseTypeId, DATE, "Tesco groceries");
+        long coffeeId = createDescribedExpense(accountId, expenseTypeId, DATE.plusDays(1), "Coffee at Costa");
+        assertThat(search("tesco")).containsExactly(tescoId);
+
+        //Writes after the index is loaded are applied to it
+        long laterTescoId = createDescribedExpense(accountId, expenseTypeId, DATE.plusDays(2), "Tesco Express");
+        perform(delete(API + "/expenses/" + coffeeId));
+
+        assertThat(search("tesko")).containsExactly(laterTescoId, tescoId);
+        assertThat(search("coffee")).isEmpty();
+    }
+
+    @Test
+    void indexIsLoadedAgainAfterAnAccountIsDeleted() throws Exception {
+        long accountId = createAccount("Search");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        long tescoId = createDescribedExpense(accountId, expenseTypeId, DATE, "Tesco groceries");
+        long emptyAccountId = createAccount("Empty");
+        assertThat(search("tesco")).containsExactly(tescoId);
+
+        MvcResult result = perform(delete(API + "/accounts/" + emptyAccountId));
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(204);
+        assertThat(search("tesco")).containsExactly(tescoId);
+        long laterTescoId = createDescribedExpense(accountId, expenseTypeId, DATE.plusDays(1), "Tesco");
+        assertThat(search("tesco")).containsExactly(laterTescoId, tescoId);
+    }
+
+    private long createDescribedExpense(long accountId,
+                                        long expenseTypeId,
+                                        LocalDate date,
+                                        String description) throws Exception {
+        return json(perform(post(API + "/expenses"), String.format(
+                "{\"date\":\"%s\",\"movementAmount\":-1.00,\"expenseTypeId\":%d,\"accountId\":%d,"
+                        + "\"description\":\"%s\"}",
+                date, expenseTypeId, accountId, description
+        ))).get("id").asLong();
+    }
+
+    private List<Long> search(String query) throws Exception {
+        JsonNode expenses = json(perform(get(API + "/expenses/search").param("query", query)));
+        List<Long> ids = new ArrayList<>();
+        expenses.forEach(expense -> ids.add(expense.get("id").asLong()));
+        return ids;
+    }
+}
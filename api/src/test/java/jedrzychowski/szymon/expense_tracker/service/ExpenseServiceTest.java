@@ -0,0 +1,250 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.persistence.EntityManagerFactory;
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+class ExpenseServiceTest extends ApiTestSupport {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 1, 1);
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void amountsOutOfRangeOrWithTooManyDecimalsAreRejected() throws Exception {
+        long accountId = createAccount("Money");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+
+        for (String movementAmount : new String[]{"1000000000000", "-1e400", "1.001"}) {
+            MvcResult result = createExpense(accountId, expenseTypeId, DATE, movementAmount);
+
+            assertThat(result.getResponse().getStatus()).as(movementAmount).isEqualTo(400);
+            assertThat(result.getResponse().getContentAsString()).contains("Movement Amount");
+        }
+        MvcResult result = perform(post(API + "/expenses"), String.format(
+                "{\"date\":\"%s\",\"movementAmount\":-1.00,\"refundAmount\":1e20,\"expenseTypeId\":%d,\"accountId\":%d}",
+                DATE, expenseTypeId, accountId
+        ));
+        assertThat(result.getResponse().getStatus()).isEqualTo(400);
+        assertThat(result.getResponse().getContentAsString()).contains("Refund Amount");
+
+        assertThat(createExpense(accountId, expenseTypeId, DATE, "-999999999999.99").getResponse().getStatus())
+                .isEqualTo(201);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM expense WHERE account_id = ?", Long.class, accountId)).isEqualTo(1);
+    }
+
+    @Test
+    void importedAmountsOutOfRangeAreReportedPerLine() throws Exception {
+        long accountId = createAccount("Money");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        String csv = "date,movementAmount,expenseTypeId,accountId\n"
+                + String.format("2024-01-01,92233720368547758.07,%d,%d%n", expenseTypeId, accountId);
+
+        MvcResult result = perform(post(API + "/expenses/import").contentType("text/csv").content(csv));
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(400);
+        assertThat(result.getResponse().getContentAsString()).contains("Line 2");
+    }
+
+    @Test
+    void batchAppliesAllOperationsTogether() throws Exception {
+        long accountId = createAccount("Batch");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        long updatedId = createExpenseId(accountId, expenseTypeId, DATE, "100.00");
+        long deletedId = createExpenseId(accountId, expenseTypeId, DATE.plusDays(1), "-30.00");
+
+        JsonNode response = json(perform(post(API + "/expenses/batch"), String.format("""
+                {
+                  "create": [{"date":"%1$s","movementAmount":-5.00,"expenseTypeId":%2$d,"accountId":%3$d}],
+                  "update": [{"id":%4$d,"date":"%5$s","movementAmount":80.00,"expenseTypeId":%2$d,"accountId":%3$d}],
+                  "delete": [%6$d]
+                }""", DATE.plusDays(1), expenseTypeId, accountId, updatedId, DATE, deletedId)));
+
+        assertThat(response.get("created")).hasSize(1);
+        assertThat(response.get("updated").get(0).get("id").asLong()).isEqualTo(updatedId);
+        assertThat(response.get("deleted").get(0).asLong()).isEqualTo(deletedId);
+        JsonNode accountStates = json(perform(get(API + "/account-states")
+                .param("accountId", String.valueOf(accountId))));
+        assertThat(accountStates.get(accountStates.size() - 1).get("currentAmount").decimalValue())
+                .isEqualByComparingTo("75.00");
+    }
+
+    @Test
+    void failedBatchDoesNotAffectLaterWritesOnTheSameThread() throws Exception {
+        long accountId = createAccount("Failed batch");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        long updatedId = createExpenseId(accountId, expenseTypeId, DATE, "100.00");
+
+        MvcResult result = perform(post(API + "/expenses/batch"), String.format("""
+                {
+                  "update": [{"id":%1$d,"date":"%2$s","movementAmount":80.00,"expenseTypeId":%3$d,"accountId":%4$d}],
+                  "delete": [99999999]
+                }""", updatedId, DATE, expenseTypeId, accountId));
+        assertThat(result.getResponse().getStatus()).isEqualTo(404);
+
+        createExpenseId(accountId, expenseTypeId, DATE.plusDays(1), "-30.00");
+        createExpenseId(accountId, expenseTypeId, DATE.plusDays(2), "5.00");
+
+        JsonNode accountStates = json(perform(get(API + "/account-states")
+                .param("accountId", String.valueOf(accountId))));
+        assertThat(accountStates.get(accountStates.size() - 1).get("currentAmount").decimalValue())
+                .isEqualByComparingTo("75.00");
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT sequence_number FROM expense_event WHERE account_id = ? ORDER BY sequence_number",
+                Long.class, accountId)).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void batchWithNullOperationsIsRejected() throws Exception {
+        MvcResult result = perform(post(API + "/expenses/batch"),
+                "{\"create\":[null],\"update\":[null],\"delete\":[null]}");
+
+        assertThat(result.getResponse().getStatus()).isEqualTo(400);
+        assertThat(result.getResponse().getContentAsString()).contains("create[0]", "update[0]", "delete[0]");
+    }
+
+    @Test
+    void pagesFollowTheCursorWithoutGapsOrDuplicates() throws Exception {
+        long accountId = createAccount("Pages");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        List<Long> expenseIds = new ArrayList<>();
+        createExpenseId(accountId, expenseTypeId, DATE.minusDays(1), "1.00");
+        for (int i = 0; i < 25; i++) {
+            //Several Expenses share a date, so pages are split within a date
+            expenseIds.add(createExpenseId(accountId, expenseTypeId, DATE.plusDays(i / 10), "1.00"));
+        }
+        createExpenseId(accountId, expenseTypeId, DATE.plusDays(3), "1.00");
+
+        List<Long> pagedIds = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            JsonNode page = json(perform(get(API + "/expenses")
+                    .param("accountId", String.valueOf(accountId))
+                    .param("startDate", DATE.toString())
+                    .param("endDate", DATE.plusDays(2).toString())
+                    .param("limit", "7")
+                    .param("cursor", cursor)));
+            page.get("items").forEach(expense -> pagedIds.add(expense.get("id").asLong()));
+            cursor = page.get("next").isNull() ? null : page.get("next").asText();
+            pages++;
+        } while (cursor != null);
+
+        assertThat(pages).isEqualTo(4);
+        assertThat(pagedIds).containsExactlyElementsOf(expenseIds);
+    }
+
+    @Test
+    void listWithoutLimitOrCursorIsAnArrayOfAllExpenses() throws Exception {
+        long accountId = createAccount("Unpaged");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        for (int i = 0; i < 3; i++) {
+            createExpense(accountId, expenseTypeId, DATE.plusDays(i), "1.00");
+        }
+
+        JsonNode expenses = json(perform(get(API + "/expenses")
+                .param("accountId", String.valueOf(accountId))));
+        assertThat(expenses.isArray()).isTrue();
+        assertThat(expenses).hasSize(3);
+
+        JsonNode page = json(perform(get(API + "/expenses")
+                .param("accountId", String.valueOf(accountId))
+                .param("limit", "2")));
+        assertThat(page.get("items")).hasSize(2);
+        assertThat(page.get("next").isNull()).isFalse();
+    }
+
+    @Test
+    void listReturnsOnlyTheRequestedFields() throws Exception {
+        long accountId = createAccount("Fields");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        createExpense(accountId, expenseTypeId, DATE, "-4.50");
+
+        JsonNode expense = json(perform(get(API + "/expenses")
+                .param("accountId", String.valueOf(accountId))
+                .param("fields", "movementAmount,id"))).get(0);
+        assertThat(expense.properties()).extracting(Map.Entry::getKey).containsExactly("id", "movementAmount");
+        assertThat(expense.get("movementAmount").decimalValue()).isEqualByComparingTo("-4.50");
+
+        MvcResult result = perform(get(API + "/expenses").param("fields", "id,password"));
+        assertThat(result.getResponse().getStatus()).isEqualTo(400);
+        assertThat(result.getResponse().getContentAsString()).contains("password");
+    }
+
+    @Test
+    void listIsFilteredByInclusiveDates() throws Exception {
+        long firstAccountId = createAccount("Current");
+        long firstExpenseTypeId = createExpenseType(firstAccountId, "Groceries");
+        long secondAccountId = createAccount("Savings");
+        long secondExpenseTypeId = createExpenseType(secondAccountId, "Interest");
+        for (int day = 0; day < 5; day++) {
+            createExpense(firstAccountId, firstExpenseTypeId, DATE.plusDays(day), "-1.00");
+        }
+        createExpense(secondAccountId, secondExpenseTypeId, DATE.plusDays(2), "0.10");
+
+        JsonNode accountExpenses = json(perform(get(API + "/expenses")
+                .param("accountId", String.valueOf(firstAccountId))
+                .param("startDate", DATE.plusDays(1).toString())
+                .param("endDate", DATE.plusDays(3).toString())));
+        assertThat(accountExpenses).extracting(expense -> expense.get("date").asText())
+                .containsExactly(DATE.plusDays(1).toString(), DATE.plusDays(2).toString(), DATE.plusDays(3).toString());
+
+        JsonNode appUserExpenses = json(perform(get(API + "/expenses")
+                .param("startDate", DATE.plusDays(2).toString())
+                .param("endDate", DATE.plusDays(2).toString())));
+        assertThat(appUserExpenses).extracting(expense -> expense.get("account").asLong())
+                .containsExactlyInAnyOrder(firstAccountId, secondAccountId);
+
+        MvcResult result = perform(get(API + "/expenses")
+                .param("startDate", DATE.plusDays(1).toString())
+                .param("endDate", DATE.toString()));
+        assertThat(result.getResponse().getStatus()).isEqualTo(400);
+    }
+
+    @Test
+    void listItemsMatchTheExpenseReadById() throws Exception {
+        long accountId = createAccount("Projection");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        long expenseId = createExpenseId(accountId, expenseTypeId, DATE, "-4.50");
+
+        JsonNode item = json(perform(get(API + "/expenses")
+                .param("accountId", String.valueOf(accountId)))).get(0);
+
+        assertThat(item).isEqualTo(json(perform(get(API + "/expenses/" + expenseId))));
+    }
+
+    @Test
+    void createIssuesABoundedNumberOfStatements() throws Exception {
+        long accountId = createAccount("Statements");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        createExpenseId(accountId, expenseTypeId, DATE, "-4.50");
+        createExpenseId(accountId, expenseTypeId, DATE.plusMonths(1), "-4.50");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+
+            createExpenseId(accountId, expenseTypeId, DATE.plusDays(10), "-4.50");
+
+            assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(14);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class ExpenseStatisticsServiceTest extends ApiTestSupport {
+
+    @Test
+    void largestExpensesCombineSketchedMonthsAndPartialMonths() throws Exception {
+        long accountId = createAccount("Statistics");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        List<Long> expenseIds = new ArrayList<>();
+        //Partial month before the whole months and one outside the date range
+        createExpenseId(accountId, expenseTypeId, LocalDate.of(2024, 1, 5), "-1000.00");
+        expenseIds.add(createExpenseId(accountId, expenseTypeId, LocalDate.of(2024, 1, 20), "-40.00"));
+        //Whole months
+        expenseIds.add(createExpenseId(accountId, expenseTypeId, LocalDate.of(2024, 2, 3), "-10.00"));
+        expenseIds.add(createExpenseId(accountId, expenseTypeId, LocalDate.of(2024, 2, 10), "-60.00"));
+        expenseIds.add(createExpenseId(accountId, expenseTypeId, LocalDate.of(2024, 3, 15), "-30.00"));
+        createExpenseId(accountId, expenseTypeId, LocalDate.of(2024, 3, 16), "500.00");
+        //Partial month after the whole months
+        expenseIds.add(createExpenseId(accountId, expenseTypeId, LocalDate.of(2024, 4, 2), "-50.00"));
+
+        JsonNode statistics = getStatistics(accountId, 3);
+        assertThat(statistics.get("count").asLong()).isEqualTo(5);
+        assertThat(getIds(statistics)).containsExactly(expenseIds.get(2), expenseIds.get(4), expenseIds.get(0));
+
+        //Changed Expenses of sketched months are read after their sketches are rebuilt
+        long largestExpenseId = createExpenseId(accountId, expenseTypeId, LocalDate.of(2024, 3, 1), "-70.00");
+        perform(delete(API + "/expenses/" + expenseIds.get(2)));
+
+        statistics = getStatistics(accountId, 3);
+        assertThat(statistics.get("count").asLong()).isEqualTo(5);
+        assertThat(getIds(statistics)).containsExactly(largestExpenseId, expenseIds.get(4), expenseIds.get(0));
+    }
+
+    private JsonNode getStatistics(long accountId,
+                                   int limit) throws Exception {
+        return json(perform(get(API + "/reports/statistics")
+                .param("accountId", String.valueOf(accountId))
+                .param("startDate", "2024-01-10")
+                .param("endDate", "2024-04-10")
+                .param("limit", String.valueOf(limit))));
+    }
+
+    private List<Long> getIds(JsonNode statistics) {
+        List<Long> ids = new ArrayList<>();
+        statistics.get("largestExpenses").forEach(expense -> ids.add(expense.get("id").asLong()));
+        return ids;
+    }
+}
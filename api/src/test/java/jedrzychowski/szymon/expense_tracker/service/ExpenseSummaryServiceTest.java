@@ -0,0 +1,120 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class ExpenseSummaryServiceTest extends ApiTestSupport {
+
+    @Autowired
+    private ExpenseSummaryService expenseSummaryService;
+
+    @Autowired
+    private AccountWriteSequencer accountWriteSequencer;
+
+    @Test
+    void summariesOfExistingExpensesAreBackfilledOnce() throws Exception {
+        long accountId = createAccountWithExpenses();
+        dropSummaries(accountId);
+
+        expenseSummaryService.initializeSummaries();
+
+        awaitBackfill();
+        assertMonthlyReport(accountId);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT SUM(expense_count) FROM expense_monthly_summary WHERE account_id = ?", Long.class, accountId
+        )).isEqualTo(3);
+
+        //Completed backfills are not repeated
+        jdbcTemplate.update("DELETE FROM expense_monthly_summary WHERE account_id = ?", accountId);
+        expenseSummaryService.initializeSummaries();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM expense_monthly_summary WHERE account_id = ?", Long.class, accountId
+        )).isZero();
+        expenseSummaryService.rebuild(accountId);
+    }
+
+    @Test
+    void reportsAreSummedFromExpensesUntilTheBackfillCompletes() throws Exception {
+        long accountId = createAccountWithExpenses();
+        dropSummaries(accountId);
+
+        //Holding the writer of the Account keeps the backfill from rebuilding its summaries
+        CountDownLatch backfillStarted = new CountDownLatch(1);
+        CountDownLatch releaseWriter = new CountDownLatch(1);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() ->
+                accountWriteSequencer.execute(List.of(accountId), () -> {
+                    backfillStarted.countDown();
+                    try {
+                        releaseWriter.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                }));
+        backfillStarted.await();
+        //Returns right away, the backfill waits for the writer in the background
+        expenseSummaryService.initializeSummaries();
+
+        try {
+            assertThat(expenseSummaryService.isBackfilled()).isFalse();
+            assertMonthlyReport(accountId);
+        } finally {
+            releaseWriter.countDown();
+        }
+        writer.get(10, TimeUnit.SECONDS);
+
+        awaitBackfill();
+        assertMonthlyReport(accountId);
+    }
+
+    private void awaitBackfill() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!expenseSummaryService.isBackfilled()) {
+            assertThat(System.nanoTime()).as("backfill finished").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private long createAccountWithExpenses() throws Exception {
+        long accountId = createAccount("Summary");
+        long expenseTypeId = createExpenseType(accountId, "Rent");
+        createExpense(accountId, expenseTypeId, LocalDate.of(2024, 1, 5), "10.00");
+        createExpense(accountId, expenseTypeId, LocalDate.of(2024, 1, 20), "5.50");
+        createExpense(accountId, expenseTypeId, LocalDate.of(2024, 2, 1), "-3.00");
+        return accountId;
+    }
+
+    /**
+     * Leaves the Expenses of the Account without summaries, as if they were created before summaries existed.
+     */
+    private void dropSummaries(long accountId) {
+        jdbcTemplate.update("DELETE FROM expense_monthly_summary WHERE account_id = ?", accountId);
+        jdbcTemplate.update("DELETE FROM data_backfill WHERE name = ?", ExpenseSummaryService.SUMMARY_BACKFILL);
+    }
+
+    private void assertMonthlyReport(long accountId) throws Exception {
+        JsonNode rows = json(perform(get(API + "/reports/spending")
+                .param("accountId", String.valueOf(accountId))
+                .param("startDate", "2024-01-01")
+                .param("endDate", "2024-02-29")
+                .param("period", "MONTH")));
+
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0).get("periodStart").asText()).isEqualTo("2024-01-01");
+        assertThat(rows.get(0).get("movementAmount").decimalValue()).isEqualByComparingTo("15.50");
+        assertThat(rows.get(0).get("count").asLong()).isEqualTo(2);
+        assertThat(rows.get(1).get("periodStart").asText()).isEqualTo("2024-02-01");
+        assertThat(rows.get(1).get("movementAmount").decimalValue()).isEqualByComparingTo("-3.00");
+    }
+}
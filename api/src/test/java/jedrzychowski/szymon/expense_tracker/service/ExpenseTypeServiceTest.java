@@ -0,0 +1,23 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class ExpenseTypeServiceTest extends ApiTestSupport {
+
+    @Test
+    void listItemsMatchTheExpenseTypeReadById() throws Exception {
+        long accountId = createAccount("Current");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+
+        JsonNode expenseTypes = json(perform(get(API + "/expense-types")
+                .param("accountId", String.valueOf(accountId))));
+
+        assertThat(expenseTypes).hasSize(1);
+        assertThat(expenseTypes.get(0)).isEqualTo(json(perform(get(API + "/expense-types/" + expenseTypeId))));
+    }
+}
@@ -0,0 +1,104 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import jedrzychowski.szymon.expense_tracker.util.NdjsonUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+class ExportServiceTest extends ApiTestSupport {
+
+    private static final LocalDate START_DATE = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void expensesAreStreamedOnePerLinePastTheFetchSize() throws Exception {
+        long accountId = createAccount("Export");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        int expenseCount = NdjsonUtil.FETCH_SIZE + 20;
+        StringBuilder csv = new StringBuilder("date,movementAmount,expenseTypeId,accountId\n");
+        for (int i = 0; i < expenseCount; i++) {
+            csv.append(String.format("%s,1.00,%d,%d%n", START_DATE.plusDays(i % 30), expenseTypeId, accountId));
+        }
+        assertThat(perform(post(API + "/expenses/import").contentType("text/csv").content(csv.toString()))
+                .getResponse().getStatus()).isEqualTo(201);
+
+        List<JsonNode> expenses = stream(get(API + "/expenses")
+                .param("accountId", String.valueOf(accountId)));
+
+        assertThat(expenses).hasSize(expenseCount);
+        for (int i = 1; i < expenses.size(); i++) {
+            JsonNode previous = expenses.get(i - 1);
+            JsonNode expense = expenses.get(i);
+            assertThat(previous.get("date").asText()).isLessThanOrEqualTo(expense.get("date").asText());
+            if (previous.get("date").equals(expense.get("date"))) {
+                assertThat(previous.get("id").asLong()).isLessThan(expense.get("id").asLong());
+            }
+        }
+        assertThat(expenses.get(0).get("movementAmount").decimalValue()).isEqualByComparingTo("1.00");
+    }
+
+    @Test
+    void streamsMatchTheJsonListWithinTheDates() throws Exception {
+        long accountId = createAccount("Export");
+        long expenseTypeId = createExpenseType(accountId, "Salary");
+        for (int day = 0; day < 5; day++) {
+            createExpense(accountId, expenseTypeId, START_DATE.plusDays(day), "10.00");
+        }
+
+        List<JsonNode> expenses = stream(get(API + "/expenses")
+                .param("accountId", String.valueOf(accountId))
+                .param("startDate", START_DATE.plusDays(1).toString())
+                .param("endDate", START_DATE.plusDays(3).toString()));
+        List<JsonNode> accountStates = stream(get(API + "/account-states")
+                .param("accountId", String.valueOf(accountId))
+                .param("startDate", START_DATE.plusDays(1).toString())
+                .param("endDate", START_DATE.plusDays(3).toString()));
+
+        JsonNode expectedExpenses = json(perform(get(API + "/expenses")
+                .param("accountId", String.valueOf(accountId))
+                .param("startDate", START_DATE.plusDays(1).toString())
+                .param("endDate", START_DATE.plusDays(3).toString())));
+        assertThat(expenses).extracting(expense -> expense.get("id"))
+                .containsExactlyElementsOf(expectedExpenses.findValues("id"));
+        assertThat(accountStates).extracting(accountState -> accountState.get("currentAmount").decimalValue())
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(
+                        new BigDecimal("20.00"), new BigDecimal("30.00"),
+                        new BigDecimal("40.00")
+                );
+    }
+
+    @Test
+    void streamsOfMissingAccountsAreRejectedBeforeStreaming() throws Exception {
+        MvcResult result = perform(get(API + "/expenses")
+                .param("accountId", String.valueOf(Long.MAX_VALUE))
+                .accept(MediaType.APPLICATION_NDJSON));
+
+        assertThat(result.getRequest().isAsyncStarted()).isFalse();
+        assertThat(result.getResponse().getStatus()).isEqualTo(404);
+    }
+
+    private List<JsonNode> stream(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = perform(request.accept(MediaType.APPLICATION_NDJSON));
+        MvcResult streamed = mockMvc.perform(asyncDispatch(result)).andReturn();
+        assertThat(streamed.getResponse().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON_VALUE);
+
+        List<JsonNode> rows = new ArrayList<>();
+        for (String line : streamed.getResponse().getContentAsString().split("\n")) {
+            rows.add(objectMapper.readTree(line));
+        }
+        return rows;
+    }
+}
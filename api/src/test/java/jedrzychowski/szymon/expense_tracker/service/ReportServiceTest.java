@@ -0,0 +1,92 @@
+package jedrzychowski.szymon.expense_tracker.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jedrzychowski.szymon.expense_tracker.ApiTestSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+class ReportServiceTest extends ApiTestSupport {
+
+    @Test
+    void weeksStartOnMondayAndCrossYears() throws Exception {
+        long accountId = createAccount("Report");
+        long expenseTypeId = createExpenseType(accountId, "Groceries");
+        //Sunday and Monday of consecutive weeks
+        createExpense(accountId, expenseTypeId, LocalDate.of(2024, 1, 7), "-1.00");
+        createExpense(accountId, expenseTypeId, LocalDate.of(2024, 1, 8), "-2.00");
+        //Tuesday and Wednesday of the week starting on 2024-12-30
+        createExpense(accountId, expenseTypeId, LocalDate.of(2024, 12, 31), "-3.00");
+        createExpense(accountId, expenseTypeId, LocalDate.of(2025, 1, 1), "-4.00");
+
+        JsonNode rows = getSpendingReport(accountId, "2024-01-01", "2025-01-31", "WEEK");
+
+        assertThat(rows).extracting(row -> row.get("periodStart").asText())
+                .containsExactly("2024-01-01", "2024-01-08", "2024-12-30");
+        assertThat(rows.get(2).get("movementAmount").decimalValue()).isEqualByComparingTo("-7.00");
+        assertThat(rows.get(2).get("count").asLong()).isEqualTo(2);
+    }
+
+    @Test
+    void rowsAreGroupedByPeriodAccountAndExpenseType() throws Exception {
+        long firstAccountId = createAccount("Current");
+        long groceriesId = createExpenseType(firstAccountId, "Groceries");
+        long rentId = createExpenseType(firstAccountId, "Rent");
+        long secondAccountId = createAccount("Savings");
+        long interestId = createExpenseType(secondAccountId, "Interest");
+        createExpense(firstAccountId, groceriesId, LocalDate.of(2024, 1, 15), "-10.00");
+        createExpense(firstAccountId, groceriesId, LocalDate.of(2024, 1, 20), "-5.25");
+        createExpense(firstAccountId, rentId, LocalDate.of(2024, 1, 1), "-100.00");
+        createExpense(secondAccountId, interestId, LocalDate.of(2024, 1, 31), "1.50");
+        createExpense(firstAccountId, groceriesId, LocalDate.of(2024, 2, 2), "-2.00");
+
+        JsonNode rows = getSpendingReport(null, "2024-01-01", "2024-02-29", "MONTH");
+
+        assertThat(rows).hasSize(4);
+        assertRow(rows.get(0), "2024-01-01", firstAccountId, groceriesId, "-15.25", 2);
+        assertRow(rows.get(1), "2024-01-01", firstAccountId, rentId, "-100.00", 1);
+        assertRow(rows.get(2), "2024-01-01", secondAccountId, interestId, "1.50", 1);
+        assertRow(rows.get(3), "2024-02-01", firstAccountId, groceriesId, "-2.00", 1);
+
+        //Partial months are summed from Expenses instead of the monthly summaries
+        JsonNode partialRows = getSpendingReport(firstAccountId, "2024-01-10", "2024-02-01", "MONTH");
+        assertThat(partialRows).hasSize(1);
+        assertRow(partialRows.get(0), "2024-01-01", firstAccountId, groceriesId, "-15.25", 2);
+
+        JsonNode yearRows = getSpendingReport(firstAccountId, "2024-01-01", "2024-12-31", "YEAR");
+        assertThat(yearRows).hasSize(2);
+        assertRow(yearRows.get(0), "2024-01-01", firstAccountId, groceriesId, "-17.25", 3);
+        assertRow(yearRows.get(1), "2024-01-01", firstAccountId, rentId, "-100.00", 1);
+    }
+
+    private JsonNode getSpendingReport(Long accountId,
+                                       String startDate,
+                                       String endDate,
+                                       String period) throws Exception {
+        MockHttpServletRequestBuilder request = get(API + "/reports/spending")
+                .param("startDate", startDate)
+                .param("endDate", endDate)
+                .param("period", period);
+        if (accountId != null) {
+            request.param("accountId", String.valueOf(accountId));
+        }
+        return json(perform(request));
+    }
+
+    private void assertRow(JsonNode row,
+                           String periodStart,
+                           long accountId,
+                           long expenseTypeId,
+                           String movementAmount,
+                           long count) {
+        assertThat(row.get("periodStart").asText()).isEqualTo(periodStart);
+        assertThat(row.get("account").asLong()).isEqualTo(accountId);
+        assertThat(row.get("expenseType").asLong()).isEqualTo(expenseTypeId);
+        assertThat(row.get("movementAmount").decimalValue()).isEqualByComparingTo(movementAmount);
+        assertThat(row.get("count").asLong()).isEqualTo(count);
+    }
+}
@@ -0,0 +1,75 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import jedrzychowski.szymon.expense_tracker.entity.ReportPeriod;
+import jedrzychowski.szymon.expense_tracker.entity.dto.report.SpendingReportRowDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpenseColumnsTest {
+
+    private static final LocalDate START_DATE = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void rowsAreGroupedByPeriodAccountAndExpenseType() {
+        ExpenseColumns columns = new ExpenseColumns();
+        columns.add(1, 10, 100, START_DATE.plusDays(40), -200, 0);
+        columns.add(2, 10, 100, START_DATE, -100, 25);
+        columns.add(3, 10, 101, START_DATE.plusDays(5), -50, 0);
+        columns.add(4, 11, 100, START_DATE.plusDays(1), 300, 0);
+
+        assertThat(columns.sumSpending(null, START_DATE, START_DATE.plusDays(60), ReportPeriod.MONTH, false))
+                .containsExactly(
+                        new SpendingReportRowDTO(START_DATE, 10L, 100L, -100L, 25L, 1),
+                        new SpendingReportRowDTO(START_DATE, 10L, 101L, -50L, 0L, 1),
+                        new SpendingReportRowDTO(START_DATE, 11L, 100L, 300L, 0L, 1),
+                        new SpendingReportRowDTO(START_DATE.plusMonths(1), 10L, 100L, -200L, 0L, 1)
+                );
+        assertThat(columns.sumSpending(10L, START_DATE, START_DATE.plusDays(10), ReportPeriod.YEAR, false))
+                .containsExactly(
+                        new SpendingReportRowDTO(START_DATE, 10L, 100L, -100L, 25L, 1),
+                        new SpendingReportRowDTO(START_DATE, 10L, 101L, -50L, 0L, 1)
+                );
+    }
+
+    @Test
+    void addedExpensesReplaceTheirPreviousVersionAndRemovedOnesAreDropped() {
+        ExpenseColumns columns = new ExpenseColumns();
+        columns.add(1, 10, 100, START_DATE, -100, 0);
+        columns.add(2, 10, 100, START_DATE, -20, 0);
+        columns.add(3, 10, 100, START_DATE, -3, 0);
+
+        columns.add(1, 10, 100, START_DATE.plusYears(1), -100, 0);
+        columns.remove(2);
+        columns.remove(2);
+
+        assertThat(columns.size()).isEqualTo(2);
+        assertThat(columns.sumSpending(null, START_DATE, START_DATE.plusYears(2), ReportPeriod.YEAR, false))
+                .containsExactly(
+                        new SpendingReportRowDTO(START_DATE, 10L, 100L, -3L, 0L, 1),
+                        new SpendingReportRowDTO(START_DATE.plusYears(1), 10L, 100L, -100L, 0L, 1)
+                );
+    }
+
+    @Test
+    void parallelAggregationMatchesSequentialAggregation() {
+        ExpenseColumns columns = new ExpenseColumns();
+        for (int i = 0; i < 10_000; i++) {
+            columns.add(i, i % 3, i % 7, START_DATE.plusDays(i % 400), i % 11 - 5, i % 2);
+        }
+
+        for (ReportPeriod period : ReportPeriod.values()) {
+            List<SpendingReportRowDTO> rows = columns.sumSpending(
+                    null, START_DATE.plusDays(3), START_DATE.plusDays(390), period, false
+            );
+            assertThat(columns.sumSpending(null, START_DATE.plusDays(3), START_DATE.plusDays(390), period, true))
+                    .isEqualTo(rows);
+            assertThat(rows.stream().mapToLong(SpendingReportRowDTO::count).sum())
+                    .isEqualTo(IntStream.range(0, 10_000).filter(i -> i % 400 >= 3 && i % 400 <= 390).count());
+        }
+    }
+}
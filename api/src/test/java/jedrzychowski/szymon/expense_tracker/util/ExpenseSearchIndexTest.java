@@ -0,0 +1,69 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpenseSearchIndexTest {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void termsMatchExactlyAsPrefixOrWithTypos() {
+        ExpenseSearchIndex searchIndex = new ExpenseSearchIndex();
+        searchIndex.add(1L, 1L, DATE, "Tesco groceries");
+        searchIndex.add(2L, 1L, DATE.plusDays(1), "Coffee at Costa");
+        searchIndex.add(3L, 1L, DATE.plusDays(2), "Tesco coffee beans");
+
+        assertThat(search(searchIndex, "tesco")).containsExactly(3L, 1L);
+        assertThat(search(searchIndex, "grocer")).containsExactly(1L);
+        //One edit within a term of 4 to 7 letters, two from 8 letters
+        assertThat(search(searchIndex, "cofee")).containsExactly(3L, 2L);
+        assertThat(search(searchIndex, "grocreies")).containsExactly(1L);
+        //Terms shorter than 4 letters must match exactly or as a prefix
+        assertThat(search(searchIndex, "bean")).containsExactly(3L);
+        assertThat(search(searchIndex, "bwa")).isEmpty();
+        //Every term has to match
+        assertThat(search(searchIndex, "tesco coffee")).containsExactly(3L);
+    }
+
+    @Test
+    void exactMatchesRankAboveFuzzyMatches() {
+        ExpenseSearchIndex searchIndex = new ExpenseSearchIndex();
+        searchIndex.add(1L, 1L, DATE.plusDays(1), "Coffee");
+        searchIndex.add(2L, 1L, DATE, "Coffe");
+
+        assertThat(search(searchIndex, "coffe")).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void searchFiltersByAccountAndDateAndFollowsUpdates() {
+        ExpenseSearchIndex searchIndex = new ExpenseSearchIndex();
+        searchIndex.add(1L, 1L, DATE, "Café Nero");
+        searchIndex.add(2L, 2L, DATE, "Cafe Nero");
+        searchIndex.add(3L, 1L, DATE.plusMonths(1), "Cafe Nero");
+
+        assertThat(searchIndex.search("cafe", 1L, DATE, DATE, 10)).containsExactly(1L);
+        assertThat(searchIndex.search("cafe", null, DATE, DATE.plusMonths(1), 2)).containsExactly(3L, 2L);
+
+        searchIndex.add(1L, 1L, DATE, "Rent");
+        searchIndex.remove(3L);
+
+        assertThat(search(searchIndex, "nero")).containsExactly(2L);
+        assertThat(search(searchIndex, "rent")).containsExactly(1L);
+    }
+
+    @Test
+    void tokensAreLowercaseWithoutDiacritics() {
+        assertThat(ExpenseSearchIndex.tokenize("Żabka, CAFÉ-bar 24/7")).containsExactly("zabka", "cafe", "bar", "24", "7");
+        assertThat(ExpenseSearchIndex.tokenize(" - ")).isEmpty();
+    }
+
+    private static List<Long> search(ExpenseSearchIndex searchIndex,
+                                   String query) {
+        return searchIndex.search(query, null, DATE, DATE.plusYears(1), 10);
+    }
+}
@@ -0,0 +1,68 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import jedrzychowski.szymon.expense_tracker.entity.dto.expense.ExpenseSpendingDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpenseSketchesTest {
+
+    private static final LocalDate JANUARY = LocalDate.of(2024, 1, 1);
+    private static final LocalDate FEBRUARY = LocalDate.of(2024, 2, 1);
+
+    @Test
+    void mergedSketchKeepsTheLargestExpensesOfAllMonths() {
+        ExpenseSketches sketches = new ExpenseSketches();
+        sketches.add(new ExpenseSpendingDTO(1L, 1L, 1L, JANUARY.plusDays(3), -500L));
+        sketches.add(new ExpenseSpendingDTO(2L, 1L, 1L, JANUARY.plusDays(4), -100L));
+        sketches.add(new ExpenseSpendingDTO(3L, 1L, 2L, JANUARY.plusDays(5), -900L));
+        sketches.add(new ExpenseSpendingDTO(4L, 1L, 1L, FEBRUARY.plusDays(1), -700L));
+        sketches.add(new ExpenseSpendingDTO(5L, 2L, 1L, FEBRUARY.plusDays(2), -800L));
+        sketches.add(new ExpenseSpendingDTO(6L, 1L, 1L, FEBRUARY.plusDays(3), -500L));
+
+        ExpenseSketches.Sketch all = sketches.merge(null, null, JANUARY, FEBRUARY, 3);
+        assertThat(all.getDigest().getCount()).isEqualTo(6);
+        assertThat(all.getLargestExpenses().toList()).extracting(ExpenseSpendingDTO::id).containsExactly(3L, 5L, 4L);
+
+        //Equal amounts rank the earlier ID first
+        ExpenseSketches.Sketch filtered = sketches.merge(1L, 1L, JANUARY, FEBRUARY, 3);
+        assertThat(filtered.getDigest().getCount()).isEqualTo(4);
+        assertThat(filtered.getLargestExpenses().toList()).extracting(ExpenseSpendingDTO::id)
+                .containsExactly(4L, 1L, 6L);
+    }
+
+    @Test
+    void staleKeysStayStaleUntilTheirRebuiltSketchIsReplaced() {
+        ExpenseSketches sketches = new ExpenseSketches();
+        sketches.add(new ExpenseSpendingDTO(1L, 1L, 1L, JANUARY.plusDays(3), -500L));
+        sketches.invalidate(1L, 1L, JANUARY.plusDays(20));
+        ExpenseSketches.SketchKey key = new ExpenseSketches.SketchKey(1L, 1L, JANUARY);
+
+        assertThat(sketches.merge(null, null, JANUARY, JANUARY, 10).getDigest().getCount()).isZero();
+        assertThat(sketches.getStaleKeys(null, null, JANUARY, JANUARY)).containsExactly(key);
+        //A rebuild that failed before replace leaves the key stale
+        assertThat(sketches.getStaleKeys(1L, null, JANUARY, JANUARY)).containsExactly(key);
+        assertThat(sketches.getStaleKeys(null, null, FEBRUARY, FEBRUARY)).isEmpty();
+
+        ExpenseSketches.Sketch rebuilt = new ExpenseSketches.Sketch(ExpenseSketches.MAX_LARGEST_EXPENSES);
+        rebuilt.add(new ExpenseSpendingDTO(1L, 1L, 1L, JANUARY.plusDays(3), -500L));
+        rebuilt.add(new ExpenseSpendingDTO(7L, 1L, 1L, JANUARY.plusDays(20), -50L));
+        sketches.replace(key, rebuilt);
+
+        assertThat(sketches.getStaleKeys(null, null, JANUARY, JANUARY)).isEmpty();
+        assertThat(sketches.merge(null, null, JANUARY, JANUARY, 10).getLargestExpenses().toList())
+                .extracting(ExpenseSpendingDTO::id).containsExactly(1L, 7L);
+    }
+
+    @Test
+    void largestExpensesAreBoundedByTheLimit() {
+        LargestExpenses largestExpenses = new LargestExpenses(2);
+        for (long id = 1; id <= 100; id++) {
+            largestExpenses.add(new ExpenseSpendingDTO(id, 1L, 1L, JANUARY, -(id % 10) * 100));
+        }
+
+        assertThat(largestExpenses.toList()).extracting(ExpenseSpendingDTO::id).containsExactly(9L, 19L);
+    }
+}
@@ -0,0 +1,54 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExpiringCacheTest {
+
+    @Test
+    void leastRecentlyUsedEntryIsDroppedOnceTheCacheIsFull() {
+        ExpiringCache<Long, String> cache = new ExpiringCache<>(2, 60_000);
+        cache.put(1L, "first");
+        cache.put(2L, "second");
+        assertThat(cache.get(1L)).isEqualTo("first");
+
+        cache.put(3L, "third");
+
+        assertThat(cache.get(2L)).isNull();
+        assertThat(cache.get(1L)).isEqualTo("first");
+        assertThat(cache.get(3L)).isEqualTo("third");
+    }
+
+    @Test
+    void expiredEntriesAreComputedAgain() {
+        AtomicLong nanoTime = new AtomicLong();
+        ExpiringCache<Long, String> cache = new ExpiringCache<>(10, 1, nanoTime::get);
+        cache.put(1L, "first");
+        nanoTime.addAndGet(1_000_000);
+        assertThat(cache.get(1L)).isEqualTo("first");
+
+        nanoTime.incrementAndGet();
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.computeIfAbsent(1L, key -> "computed")).isEqualTo("computed");
+        assertThat(cache.computeIfAbsent(1L, key -> "ignored")).isEqualTo("computed");
+    }
+
+    @Test
+    void removeIfDropsMatchingKeys() {
+        ExpiringCache<Long, String> cache = new ExpiringCache<>(10, 60_000);
+        for (long key = 1; key <= 4; key++) {
+            cache.put(key, String.valueOf(key));
+        }
+
+        cache.removeIf(key -> key % 2 == 0);
+        cache.remove(3L);
+
+        assertThat(cache.get(1L)).isEqualTo("1");
+        assertThat(cache.get(2L)).isNull();
+        assertThat(cache.get(3L)).isNull();
+        assertThat(cache.get(4L)).isNull();
+    }
+}
@@ -0,0 +1,52 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jedrzychowski.szymon.expense_tracker.config.exception.ParamValidationException;
+import jedrzychowski.szymon.expense_tracker.entity.dto.accountState.AccountStateDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FieldsUtilTest {
+
+    private static final AccountStateDTO ACCOUNT_STATE =
+            new AccountStateDTO(1L, LocalDate.of(2024, 1, 1), 1050L, 0L, 1050L, 0L, 2L);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void fieldsAreValidatedAndOrderedLikeTheDTO() {
+        assertThat(FieldsUtil.validateFields(List.of("currentAmount", "id"), AccountStateDTO.FIELDS))
+                .containsExactly("id", "currentAmount");
+        assertThat(FieldsUtil.validateFields(null, AccountStateDTO.FIELDS))
+                .containsExactlyElementsOf(AccountStateDTO.FIELDS);
+        assertThatThrownBy(() -> FieldsUtil.validateFields(List.of(), AccountStateDTO.FIELDS))
+                .isInstanceOf(ParamValidationException.class);
+        assertThatThrownBy(() -> FieldsUtil.validateFields(List.of("id", "expenses"), AccountStateDTO.FIELDS))
+                .isInstanceOf(ParamValidationException.class)
+                .hasMessageContaining("expenses");
+    }
+
+    @Test
+    void filteredValueSerializesOnlyTheRequestedFields() throws Exception {
+        JsonNode sparse = serialize(FieldsUtil.filter(List.of(ACCOUNT_STATE), List.of("id", "currentAmount")));
+        assertThat(sparse.get(0).properties()).extracting(Map.Entry::getKey).containsExactly("id", "currentAmount");
+        assertThat(sparse.get(0).get("currentAmount").decimalValue()).isEqualByComparingTo("10.50");
+
+        JsonNode full = serialize(FieldsUtil.filter(List.of(ACCOUNT_STATE), null));
+        assertThat(full.get(0).properties()).extracting(Map.Entry::getKey)
+                .containsExactlyElementsOf(AccountStateDTO.FIELDS);
+    }
+
+    private JsonNode serialize(MappingJacksonValue value) throws Exception {
+        return objectMapper.readTree(objectMapper.writer(value.getFilters()).writeValueAsString(value.getValue()));
+    }
+}
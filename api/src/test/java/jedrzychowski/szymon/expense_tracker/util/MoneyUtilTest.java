@@ -0,0 +1,37 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MoneyUtilTest {
+
+    @Test
+    void amountsConvertToMinorUnitsAndBack() {
+        assertThat(MoneyUtil.toMinorUnits(new BigDecimal("12.5"))).isEqualTo(1250);
+        assertThat(MoneyUtil.toMinorUnits(new BigDecimal("-0.01"))).isEqualTo(-1);
+        assertThat(MoneyUtil.toMinorUnits(new BigDecimal("3.000"))).isEqualTo(300);
+        assertThat(MoneyUtil.toBigDecimal(-1250)).isEqualTo(new BigDecimal("-12.50"));
+    }
+
+    @Test
+    void validAmountsConvertWithoutOverflow() {
+        BigDecimal largest = MoneyUtil.MAX_AMOUNT.subtract(new BigDecimal("0.01"));
+
+        assertThat(MoneyUtil.isWithinRange(largest)).isTrue();
+        assertThat(MoneyUtil.isWithinRange(largest.negate())).isTrue();
+        assertThat(MoneyUtil.isWithinRange(MoneyUtil.MAX_AMOUNT)).isFalse();
+        assertThat(MoneyUtil.isWithinRange(new BigDecimal("-1E+400"))).isFalse();
+        assertThat(MoneyUtil.toMinorUnits(largest)).isEqualTo(99_999_999_999_999L);
+    }
+
+    @Test
+    void scaleAllowsOnlyTrailingZerosBeyondMinorUnits() {
+        assertThat(MoneyUtil.hasValidScale(new BigDecimal("1.10"))).isTrue();
+        assertThat(MoneyUtil.hasValidScale(new BigDecimal("1.1000"))).isTrue();
+        assertThat(MoneyUtil.hasValidScale(new BigDecimal("1E+3"))).isTrue();
+        assertThat(MoneyUtil.hasValidScale(new BigDecimal("1.001"))).isFalse();
+    }
+}
@@ -0,0 +1,69 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import jedrzychowski.szymon.expense_tracker.config.exception.ParamValidationException;
+import jedrzychowski.szymon.expense_tracker.entity.dto.page.PageDTO;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PageUtilTest {
+
+    private static final LocalDate DATE = LocalDate.of(2024, 2, 29);
+
+    @Test
+    void fullPageEndsWithTheCursorOfItsLastItem() {
+        Limit limit = PageUtil.validateLimit(2);
+        List<Pair<LocalDate, Long>> items = List.of(
+                Pair.of(DATE, 4L), Pair.of(DATE, 9L), Pair.of(DATE.plusDays(1), 1L)
+        );
+
+        PageDTO<Pair<LocalDate, Long>> page = PageUtil.toPage(items, limit, Pair::getLeft, Pair::getRight);
+
+        assertThat(page.items()).containsExactly(Pair.of(DATE, 4L), Pair.of(DATE, 9L));
+        assertThat(PageUtil.decodeCursor(page.next())).isEqualTo(Pair.of(DATE, 9L));
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        Limit limit = PageUtil.validateLimit(2);
+        List<Pair<LocalDate, Long>> items = List.of(Pair.of(DATE, 4L), Pair.of(DATE, 9L));
+
+        PageDTO<Pair<LocalDate, Long>> page = PageUtil.toPage(items, limit, Pair::getLeft, Pair::getRight);
+
+        assertThat(page.items()).hasSize(2);
+        assertThat(page.next()).isNull();
+        assertThat(PageUtil.decodeCursor(null)).isEqualTo(Pair.of(null, null));
+    }
+
+    @Test
+    void requestsWithoutLimitAndCursorAreNotPaged() {
+        List<Pair<LocalDate, Long>> items = List.of(Pair.of(DATE, 4L), Pair.of(DATE, 9L));
+
+        PageDTO<Pair<LocalDate, Long>> page = PageUtil.toPage(
+                items, PageUtil.validateLimit(null, null), Pair::getLeft, Pair::getRight
+        );
+
+        assertThat(page.items()).hasSize(2);
+        assertThat(page.next()).isNull();
+        assertThat(PageUtil.validateLimit(null, "MjAyNC0wMS0wMXwx").max()).isEqualTo(PageUtil.DEFAULT_LIMIT + 1);
+    }
+
+    @Test
+    void invalidCursorsAndLimitsAreRejected() {
+        for (String cursor : new String[]{"%%%", "bm8tc2VwYXJhdG9y", "MjAyNC0xMy0wMXwx", "MjAyNC0wMS0wMXx4"}) {
+            assertThatThrownBy(() -> PageUtil.decodeCursor(cursor))
+                    .as(cursor)
+                    .isInstanceOf(ParamValidationException.class);
+        }
+        assertThatThrownBy(() -> PageUtil.validateLimit(0)).isInstanceOf(ParamValidationException.class);
+        assertThatThrownBy(() -> PageUtil.validateLimit(PageUtil.MAX_LIMIT + 1))
+                .isInstanceOf(ParamValidationException.class);
+        assertThat(PageUtil.validateLimit(PageUtil.MAX_LIMIT).max()).isEqualTo(PageUtil.MAX_LIMIT + 1);
+    }
+}
@@ -0,0 +1,120 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import jedrzychowski.szymon.expense_tracker.config.exception.ParamValidationException;
+import jedrzychowski.szymon.expense_tracker.entity.ReportPeriod;
+import jedrzychowski.szymon.expense_tracker.entity.dto.accountState.AccountBalancePointDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SeriesUtilTest {
+
+    private static final LocalDate START_DATE = LocalDate.of(2024, 1, 1);
+
+    @Test
+    void daysWithoutMovementsCarryTheLastBalanceForward() {
+        List<AccountBalancePointDTO> balances = List.of(
+                new AccountBalancePointDTO(START_DATE.plusDays(1), 100L),
+                new AccountBalancePointDTO(START_DATE.plusDays(4), 60L)
+        );
+
+        List<AccountBalancePointDTO> series = SeriesUtil.fillSeries(
+                balances.iterator(), 10, START_DATE, START_DATE.plusDays(5), ReportPeriod.DAY
+        );
+
+        assertThat(series).extracting(AccountBalancePointDTO::currentAmount)
+                .containsExactly(10L, 100L, 100L, 100L, 60L, 60L);
+        assertThat(series.getFirst().date()).isEqualTo(START_DATE);
+        assertThat(series.getLast().date()).isEqualTo(START_DATE.plusDays(5));
+    }
+
+    @Test
+    void periodsHoldTheBalanceAtTheirEnd() {
+        //2024-01-03 is a Wednesday, so the first week starts on Monday 2024-01-01
+        List<AccountBalancePointDTO> balances = List.of(
+                new AccountBalancePointDTO(LocalDate.of(2024, 1, 3), 5L),
+                new AccountBalancePointDTO(LocalDate.of(2024, 1, 5), 7L),
+                new AccountBalancePointDTO(LocalDate.of(2024, 1, 22), 9L)
+        );
+
+        List<AccountBalancePointDTO> series = SeriesUtil.fillSeries(
+                balances.iterator(), 0, LocalDate.of(2024, 1, 3), LocalDate.of(2024, 1, 23), ReportPeriod.WEEK
+        );
+
+        assertThat(series).containsExactly(
+                new AccountBalancePointDTO(LocalDate.of(2024, 1, 1), 7L),
+                new AccountBalancePointDTO(LocalDate.of(2024, 1, 8), 7L),
+                new AccountBalancePointDTO(LocalDate.of(2024, 1, 15), 7L),
+                new AccountBalancePointDTO(LocalDate.of(2024, 1, 22), 9L)
+        );
+    }
+
+    @Test
+    void balancesOfAccountsAreSummedInDateOrder() {
+        List<AccountBalancePointDTO> first = List.of(
+                new AccountBalancePointDTO(START_DATE, 110L),
+                new AccountBalancePointDTO(START_DATE.plusDays(3), 90L)
+        );
+        List<AccountBalancePointDTO> second = List.of(
+                new AccountBalancePointDTO(START_DATE.plusDays(1), 20L),
+                new AccountBalancePointDTO(START_DATE.plusDays(3), 25L)
+        );
+
+        List<AccountBalancePointDTO> sums = new ArrayList<>();
+        SeriesUtil.sumBalances(
+                List.of(first.iterator(), second.iterator(), List.<AccountBalancePointDTO>of().iterator()),
+                List.of(100L, 0L, 7L)
+        ).forEachRemaining(sums::add);
+
+        assertThat(sums).extracting(AccountBalancePointDTO::date).containsExactly(
+                START_DATE, START_DATE.plusDays(1), START_DATE.plusDays(3), START_DATE.plusDays(3)
+        );
+        assertThat(sums.getFirst().currentAmount()).isEqualTo(117L);
+        assertThat(sums.get(1).currentAmount()).isEqualTo(137L);
+        assertThat(sums.getLast().currentAmount()).isEqualTo(122L);
+
+        List<AccountBalancePointDTO> series = SeriesUtil.fillSeries(
+                SeriesUtil.sumBalances(List.of(first.iterator(), second.iterator()), List.of(100L, 0L)),
+                100, START_DATE.minusDays(1), START_DATE.plusDays(3), ReportPeriod.DAY
+        );
+        assertThat(series).extracting(AccountBalancePointDTO::currentAmount)
+                .containsExactly(100L, 110L, 130L, 130L, 115L);
+    }
+
+    @Test
+    void downsampleKeepsTheEndsAndSpikes() {
+        List<AccountBalancePointDTO> series = new ArrayList<>();
+        for (int day = 0; day < 1000; day++) {
+            series.add(new AccountBalancePointDTO(START_DATE.plusDays(day), day == 500 ? 1_000_000L : day));
+        }
+
+        List<AccountBalancePointDTO> sampled = SeriesUtil.downsample(series, 50);
+
+        assertThat(sampled).hasSize(50);
+        assertThat(sampled.getFirst()).isEqualTo(series.getFirst());
+        assertThat(sampled.getLast()).isEqualTo(series.getLast());
+        assertThat(sampled).contains(series.get(500));
+        assertThat(sampled).isSortedAccordingTo((first, second) -> first.date().compareTo(second.date()));
+        List<AccountBalancePointDTO> shortSeries = series.subList(0, 50);
+        assertThat(SeriesUtil.downsample(shortSeries, 50)).isSameAs(shortSeries);
+    }
+
+    @Test
+    void pointsAndLengthAreBounded() {
+        assertThatThrownBy(() -> SeriesUtil.validatePoints(SeriesUtil.MIN_POINTS - 1))
+                .isInstanceOf(ParamValidationException.class);
+        assertThatThrownBy(() -> SeriesUtil.validatePoints(SeriesUtil.MAX_POINTS + 1))
+                .isInstanceOf(ParamValidationException.class);
+        SeriesUtil.validatePoints(null);
+
+        assertThatThrownBy(() -> SeriesUtil.validateLength(
+                START_DATE, START_DATE.plusDays(SeriesUtil.MAX_LENGTH), ReportPeriod.DAY
+        )).isInstanceOf(ParamValidationException.class);
+        SeriesUtil.validateLength(START_DATE, START_DATE.plusDays(SeriesUtil.MAX_LENGTH), ReportPeriod.WEEK);
+    }
+}
@@ -0,0 +1,82 @@
+package jedrzychowski.szymon.expense_tracker.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class TDigestTest {
+
+    private static final double COMPRESSION = 100;
+
+    @Test
+    void quantilesAreCloseToTheExactOnes() {
+        double[] values = new Random(42).doubles(100_000).map(value -> value * value * 1000).toArray();
+        TDigest digest = new TDigest(COMPRESSION);
+        Arrays.stream(values).forEach(digest::add);
+        Arrays.sort(values);
+
+        assertThat(digest.getCount()).isEqualTo(values.length);
+        for (double quantile : new double[]{0.01, 0.5, 0.9, 0.99}) {
+            assertThat(digest.quantile(quantile))
+                    .isCloseTo(values[(int) (quantile * values.length)], within(values[values.length - 1] * 0.01));
+        }
+        assertThat(digest.quantile(0)).isEqualTo(values[0]);
+        assertThat(digest.quantile(1)).isEqualTo(values[values.length - 1]);
+    }
+
+    @Test
+    void mergedDigestsMatchTheDigestOfAllValues() {
+        Random random = new Random(7);
+        TDigest all = new TDigest(COMPRESSION);
+        TDigest merged = new TDigest(COMPRESSION);
+        for (int part = 0; part < 10; part++) {
+            TDigest partDigest = new TDigest(COMPRESSION);
+            for (int i = 0; i < 5_000; i++) {
+                double value = random.nextGaussian() * 100;
+                all.add(value);
+                partDigest.add(value);
+            }
+            merged.merge(partDigest);
+        }
+
+        assertThat(merged.getCount()).isEqualTo(all.getCount());
+        for (double quantile : new double[]{0.01, 0.25, 0.5, 0.75, 0.99}) {
+            assertThat(merged.quantile(quantile)).isCloseTo(all.quantile(quantile), within(5.0));
+        }
+    }
+
+    @Test
+    void repeatedAmountsKeepTheirExactValueAndQuantilesNeverDecrease() {
+        Random random = new Random(3);
+        TDigest digest = new TDigest(COMPRESSION);
+        for (int i = 0; i < 20_000; i++) {
+            //Most spendings repeat the same few amounts, like subscriptions and tickets
+            digest.add(i % 10 < 8 ? 4.99 : random.nextInt(100_000) / 100.0);
+        }
+
+        assertThat(digest.quantile(0.3)).isCloseTo(4.99, within(1e-9));
+        assertThat(digest.quantile(0.5)).isCloseTo(4.99, within(1e-9));
+        double previous = digest.quantile(0);
+        for (int i = 1; i <= 100; i++) {
+            double quantile = digest.quantile(i / 100.0);
+            assertThat(quantile).isGreaterThanOrEqualTo(previous);
+            previous = quantile;
+        }
+    }
+
+    @Test
+    void emptyAndSingleValueDigests() {
+        TDigest digest = new TDigest(COMPRESSION);
+        assertThat(digest.quantile(0.5)).isNaN();
+
+        digest.add(12.5);
+
+        assertThat(digest.quantile(0)).isEqualTo(12.5);
+        assertThat(digest.quantile(0.5)).isEqualTo(12.5);
+        assertThat(digest.quantile(1)).isEqualTo(12.5);
+    }
+}